@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.spatial.dialect;
+
+import java.util.regex.Pattern;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.model.relational.AuxiliaryDatabaseObject;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.tool.schema.spi.Exporter;
+
+/**
+ * Exporter of the <code>&lt;database-object&gt;</code> definitions of the mappings, registered by the custom
+ * dialects. The mappings qualify the tables, functions and triggers of the database objects with the
+ * <code>${schema}</code> placeholder, which Hibernate replaces by the default schema
+ * (<code>hibernate.default_schema</code>). Without a default schema Hibernate replaces the placeholder by an
+ * empty string, so this exporter removes the remaining leading dot and the names are resolved in the schema
+ * of the connection.
+ *
+ * @since 3.0.0
+ */
+public class SchemaAwareAuxiliaryDatabaseObjectExporter implements Exporter<AuxiliaryDatabaseObject> {
+
+    /**
+     * A dot which does not follow a name, a quoted name or another dot, i.e. a <code>${schema}.</code>
+     * qualifier replaced by an empty schema.
+     */
+    private static final Pattern EMPTY_QUALIFIER = Pattern.compile("(?<![\\w\"`\\]).)])\\.(?=[A-Za-z_\"`\\[])");
+
+    private final Dialect dialect;
+
+    public SchemaAwareAuxiliaryDatabaseObjectExporter(Dialect dialect) {
+        this.dialect = dialect;
+    }
+
+    @Override
+    public String[] getSqlCreateStrings(AuxiliaryDatabaseObject object, Metadata metadata) {
+        return unqualify(object.sqlCreateStrings(dialect), metadata);
+    }
+
+    @Override
+    public String[] getSqlDropStrings(AuxiliaryDatabaseObject object, Metadata metadata) {
+        return unqualify(object.sqlDropStrings(dialect), metadata);
+    }
+
+    private String[] unqualify(String[] sql, Metadata metadata) {
+        if (metadata.getDatabase().getDefaultNamespace().getPhysicalName().getSchema() != null) {
+            return sql;
+        }
+        String[] unqualified = new String[sql.length];
+        for (int i = 0; i < sql.length; i++) {
+            unqualified[i] = EMPTY_QUALIFIER.matcher(sql[i]).replaceAll("");
+        }
+        return unqualified;
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.spatial.dialect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.Query;
+
+/**
+ * Reads large query results, e.g. the observations of a long time series, in chunks with a forward-only
+ * cursor. The fetch size is taken from the {@link StreamingSupport} of the dialect and the entities loaded by
+ * the reader are evicted from the session after each chunk, so that at most one chunk of entities is held in
+ * memory. Entities which were already contained in the session before reading are kept.
+ * <p>
+ * Associations of the entities should be fetched with the query. Lazy loading while reading is not supported
+ * by all drivers, e.g. MySQL does not allow other statements on a connection with an open streamed result.
+ *
+ * @since 3.0.0
+ */
+public class StreamingReader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final int chunkSize;
+
+    public StreamingReader() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public StreamingReader(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size should be greater than 0!");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Read the query result in chunks.
+     *
+     * @param <T>
+     *            the result type
+     * @param session
+     *            the session of the query
+     * @param query
+     *            the query to read
+     * @param consumer
+     *            the consumer of the chunks, the list is reused and the entities loaded by the reader are
+     *            detached after the consumer returns
+     * @return the number of read results
+     * @throws IllegalStateException
+     *             if the dialect requires an active transaction for streaming and no transaction is active
+     */
+    public <T> long read(Session session, Query<T> query, Consumer<List<T>> consumer) {
+        StreamingSupport support = getStreamingSupport(session);
+        if (support.isStreamingTransactionRequired() && !session.getTransaction().isActive()) {
+            throw new IllegalStateException("Streaming requires an active transaction for this dialect!");
+        }
+        query.setFetchSize(support.getStreamingFetchSize());
+        query.setReadOnly(true);
+        query.setCacheMode(CacheMode.IGNORE);
+        Set<Object> retained = getEntities(session);
+        long count = 0;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                @SuppressWarnings("unchecked")
+                T result = (T) results.get(0);
+                chunk.add(result);
+                count++;
+                if (chunk.size() == chunkSize) {
+                    flush(session, chunk, consumer, retained);
+                }
+            }
+        } finally {
+            results.close();
+        }
+        if (!chunk.isEmpty()) {
+            flush(session, chunk, consumer, retained);
+        }
+        return count;
+    }
+
+    private <T> void flush(Session session, List<T> chunk, Consumer<List<T>> consumer, Set<Object> retained) {
+        consumer.accept(chunk);
+        chunk.clear();
+        for (Object entity : getEntities(session)) {
+            if (!retained.contains(entity)) {
+                session.evict(entity);
+            }
+        }
+    }
+
+    private Set<Object> getEntities(Session session) {
+        // entities are compared by identity, equals() may initialize lazy associations
+        Set<Object> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Object, EntityEntry> entry : session.unwrap(SessionImplementor.class).getPersistenceContext()
+                .reentrantSafeEntityEntries()) {
+            entities.add(entry.getKey());
+        }
+        return entities;
+    }
+
+    private StreamingSupport getStreamingSupport(Session session) {
+        return StreamingSupport.of(
+                session.getSessionFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.spatial.dialect;
+
+import org.hibernate.dialect.Dialect;
+
+/**
+ * Dialect specific settings for streaming large results with forward-only cursors, see
+ * {@link StreamingReader}.
+ *
+ * @since 3.0.0
+ */
+public interface StreamingSupport {
+
+    /**
+     * Default JDBC fetch size for streamed results.
+     */
+    int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Get the JDBC fetch size which lets the driver stream the result instead of buffering it completely.
+     *
+     * @return the fetch size
+     */
+    default int getStreamingFetchSize() {
+        return DEFAULT_FETCH_SIZE;
+    }
+
+    /**
+     * Indicates if the driver only uses a server-side cursor within a transaction (autocommit disabled).
+     *
+     * @return <code>true</code>, if an active transaction is required for streaming
+     */
+    default boolean isStreamingTransactionRequired() {
+        return false;
+    }
+
+    /**
+     * Get the streaming support of the dialect, the defaults are used for dialects which do not implement
+     * this interface.
+     *
+     * @param dialect
+     *            the dialect
+     * @return the streaming support of the dialect
+     */
+    static StreamingSupport of(Dialect dialect) {
+        return dialect instanceof StreamingSupport ? (StreamingSupport) dialect : new StreamingSupport() {
+        };
+    }
+}
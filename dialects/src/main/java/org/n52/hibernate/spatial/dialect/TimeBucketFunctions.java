@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.spatial.dialect;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.dialect.function.SQLFunction;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.dialect.function.StandardSQLFunction;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Portable HQL functions for temporal bucketing and statistical aggregates, registered by the custom
+ * dialects. With these functions aggregations like the hourly mean per dataset can be written as one HQL
+ * query, e.g.
+ *
+ * <pre>
+ * select o.datasetId, bucket_hour(o.samplingTimeStart), avg(o.value), stddev(o.value)
+ * from QuantityDataEntity o group by o.datasetId, bucket_hour(o.samplingTimeStart)
+ * </pre>
+ * <ul>
+ * <li><code>bucket_minute(ts)</code>, <code>bucket_hour(ts)</code>, <code>bucket_day(ts)</code>,
+ * <code>bucket_month(ts)</code>, <code>bucket_year(ts)</code>: truncate the timestamp to the start of the
+ * minute, hour, day, month or year in the time zone of the database session (in UTC for SQL Server)</li>
+ * <li><code>bucket_seconds(width, ts)</code>: the start of the bucket of <code>width</code> seconds, aligned
+ * to 1970-01-01T00:00:00Z, containing the timestamp. The start is returned as a timestamp with time zone (in
+ * UTC for Oracle, SQL Server and H2), so it denotes the same instant as in PostgreSQL, and as a local
+ * timestamp in the time zone of the session for MySQL. The width has to be a literal because it is rendered
+ * more than once.</li>
+ * <li><code>epoch_seconds(ts)</code>: the seconds since 1970-01-01T00:00:00Z</li>
+ * <li><code>stddev(x)</code>, <code>variance(x)</code>: the sample standard deviation and variance</li>
+ * </ul>
+ *
+ * @since 3.0.0
+ */
+public final class TimeBucketFunctions {
+
+    public static final String BUCKET_MINUTE = "bucket_minute";
+
+    public static final String BUCKET_HOUR = "bucket_hour";
+
+    public static final String BUCKET_DAY = "bucket_day";
+
+    public static final String BUCKET_MONTH = "bucket_month";
+
+    public static final String BUCKET_YEAR = "bucket_year";
+
+    public static final String BUCKET_SECONDS = "bucket_seconds";
+
+    public static final String EPOCH_SECONDS = "epoch_seconds";
+
+    public static final String STDDEV = "stddev";
+
+    public static final String VARIANCE = "variance";
+
+    private static final String STDDEV_SAMP = "stddev_samp";
+
+    private static final String VAR_SAMP = "var_samp";
+
+    private static final String FIRST_ARGUMENT = "?1";
+
+    private static final String SECOND_ARGUMENT = "?2";
+
+    private TimeBucketFunctions() {
+    }
+
+    public static Map<String, SQLFunction> postgres() {
+        Map<String, SQLFunction> functions = new LinkedHashMap<>();
+        truncate(functions, "date_trunc('minute', ?1)", "date_trunc('hour', ?1)", "date_trunc('day', ?1)",
+                "date_trunc('month', ?1)", "date_trunc('year', ?1)");
+        functions.put(BUCKET_SECONDS, timestamp("to_timestamp(floor(extract(epoch from ?2) / ?1) * ?1)"));
+        functions.put(EPOCH_SECONDS, number("extract(epoch from ?1)"));
+        aggregates(functions, STDDEV_SAMP, VAR_SAMP);
+        return Collections.unmodifiableMap(functions);
+    }
+
+    public static Map<String, SQLFunction> mysql() {
+        Map<String, SQLFunction> functions = new LinkedHashMap<>();
+        truncate(functions, "timestamp(date_format(?1, '%Y-%m-%d %H:%i:00'))",
+                "timestamp(date_format(?1, '%Y-%m-%d %H:00:00'))", "timestamp(date(?1))",
+                "timestamp(date_format(?1, '%Y-%m-01'))", "timestamp(date_format(?1, '%Y-01-01'))");
+        functions.put(BUCKET_SECONDS, timestamp("from_unixtime(floor(unix_timestamp(?2) / ?1) * ?1)"));
+        functions.put(EPOCH_SECONDS, number("unix_timestamp(?1)"));
+        aggregates(functions, STDDEV_SAMP, VAR_SAMP);
+        return Collections.unmodifiableMap(functions);
+    }
+
+    public static Map<String, SQLFunction> oracle() {
+        Map<String, SQLFunction> functions = new LinkedHashMap<>();
+        truncate(functions, "trunc(?1, 'MI')", "trunc(?1, 'HH')", "trunc(?1, 'DD')", "trunc(?1, 'MM')",
+                "trunc(?1, 'YYYY')");
+        String epoch = "((cast(sys_extract_utc(?2) as date) - date '1970-01-01') * 86400)";
+        functions.put(BUCKET_SECONDS, timestamp(
+                "from_tz(cast(date '1970-01-01' + floor(" + epoch + " / ?1) * ?1 / 86400 as timestamp), 'UTC')"));
+        functions.put(EPOCH_SECONDS, number(ofFirstArgument(epoch)));
+        aggregates(functions, STDDEV_SAMP, VAR_SAMP);
+        return Collections.unmodifiableMap(functions);
+    }
+
+    public static Map<String, SQLFunction> sqlServer() {
+        Map<String, SQLFunction> functions = new LinkedHashMap<>();
+        truncate(functions, "dateadd(minute, datediff(minute, 0, ?1), 0)", "dateadd(hour, datediff(hour, 0, ?1), 0)",
+                "dateadd(day, datediff(day, 0, ?1), 0)", "dateadd(month, datediff(month, 0, ?1), 0)",
+                "dateadd(year, datediff(year, 0, ?1), 0)");
+        // datediff(second, ...) overflows in 2038 and datediff_big requires SQL Server 2016, so days and
+        // seconds of the day are combined
+        String utc = "switchoffset(?2, 0)";
+        String epoch = "(cast(datediff(day, '19700101', cast(" + utc + " as date)) as bigint) * 86400"
+                + " + datediff(second, cast(cast(" + utc + " as date) as datetime2), cast(" + utc + " as datetime2)))";
+        String bucket = "(" + epoch + " / ?1 * ?1)";
+        functions.put(BUCKET_SECONDS,
+                timestamp("todatetimeoffset(dateadd(second, cast(" + bucket + " % 86400 as int), dateadd(day, cast("
+                        + bucket + " / 86400 as int), cast('19700101' as datetime2))), 0)"));
+        functions.put(EPOCH_SECONDS, number(ofFirstArgument(epoch)));
+        aggregates(functions, "stdev", "var");
+        return Collections.unmodifiableMap(functions);
+    }
+
+    public static Map<String, SQLFunction> h2() {
+        Map<String, SQLFunction> functions = new LinkedHashMap<>();
+        truncate(functions, truncateH2("yyyy-MM-dd HH:mm"), truncateH2("yyyy-MM-dd HH"), truncateH2("yyyy-MM-dd"),
+                truncateH2("yyyy-MM"), truncateH2("yyyy"));
+        // datediff ignores the offsets of timestamps with time zone
+        String epoch = "extract(epoch from ?2)";
+        functions.put(BUCKET_SECONDS, timestamp("dateadd('SECOND', floor(" + epoch + " / ?1) * ?1, "
+                + "timestamp with time zone '1970-01-01 00:00:00+00')"));
+        functions.put(EPOCH_SECONDS, number(ofFirstArgument(epoch)));
+        aggregates(functions, STDDEV_SAMP, VAR_SAMP);
+        return Collections.unmodifiableMap(functions);
+    }
+
+    private static String ofFirstArgument(String template) {
+        return template.replace(SECOND_ARGUMENT, FIRST_ARGUMENT);
+    }
+
+    private static String truncateH2(String pattern) {
+        return "parsedatetime(formatdatetime(?1, '" + pattern + "'), '" + pattern + "')";
+    }
+
+    private static void truncate(Map<String, SQLFunction> functions, String minute, String hour, String day,
+            String month, String year) {
+        functions.put(BUCKET_MINUTE, timestamp(minute));
+        functions.put(BUCKET_HOUR, timestamp(hour));
+        functions.put(BUCKET_DAY, timestamp(day));
+        functions.put(BUCKET_MONTH, timestamp(month));
+        functions.put(BUCKET_YEAR, timestamp(year));
+    }
+
+    private static void aggregates(Map<String, SQLFunction> functions, String stddev, String variance) {
+        functions.put(STDDEV, new StandardSQLFunction(stddev, StandardBasicTypes.DOUBLE));
+        functions.put(VARIANCE, new StandardSQLFunction(variance, StandardBasicTypes.DOUBLE));
+    }
+
+    private static SQLFunction timestamp(String template) {
+        return new SQLFunctionTemplate(StandardBasicTypes.TIMESTAMP, template);
+    }
+
+    private static SQLFunction number(String template) {
+        return new SQLFunctionTemplate(StandardBasicTypes.DOUBLE, template);
+    }
+}
@@ -18,14 +18,25 @@ package org.n52.hibernate.spatial.dialect.h2geodb;
 
 import java.sql.Types;
 
+import org.hibernate.boot.model.relational.AuxiliaryDatabaseObject;
 import org.hibernate.spatial.dialect.h2geodb.GeoDBDialect;
+import org.hibernate.tool.schema.spi.Exporter;
+import org.n52.hibernate.spatial.dialect.SchemaAwareAuxiliaryDatabaseObjectExporter;
+import org.n52.hibernate.spatial.dialect.StreamingSupport;
+import org.n52.hibernate.spatial.dialect.TimeBucketFunctions;
 
-public class TimestampWithTimeZoneGeoDBDialect extends GeoDBDialect {
+public class TimestampWithTimeZoneGeoDBDialect extends GeoDBDialect implements StreamingSupport {
 
     private static final long serialVersionUID = 3719262383564175336L;
 
     public TimestampWithTimeZoneGeoDBDialect() {
         super();
         registerColumnType(Types.TIMESTAMP, "timestamp with time zone");
+        TimeBucketFunctions.h2().forEach(this::registerFunction);
+    }
+
+    @Override
+    public Exporter<AuxiliaryDatabaseObject> getAuxiliaryDatabaseObjectExporter() {
+        return new SchemaAwareAuxiliaryDatabaseObjectExporter(this);
     }
 }
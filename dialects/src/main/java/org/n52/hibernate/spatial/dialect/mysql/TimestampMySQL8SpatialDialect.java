@@ -19,9 +19,14 @@ package org.n52.hibernate.spatial.dialect.mysql;
 import java.sql.Types;
 
 import org.hibernate.HibernateException;
+import org.hibernate.boot.model.relational.AuxiliaryDatabaseObject;
 import org.hibernate.spatial.dialect.mysql.MySQL8SpatialDialect;
+import org.hibernate.tool.schema.spi.Exporter;
+import org.n52.hibernate.spatial.dialect.SchemaAwareAuxiliaryDatabaseObjectExporter;
+import org.n52.hibernate.spatial.dialect.StreamingSupport;
+import org.n52.hibernate.spatial.dialect.TimeBucketFunctions;
 
-public class TimestampMySQL8SpatialDialect extends MySQL8SpatialDialect {
+public class TimestampMySQL8SpatialDialect extends MySQL8SpatialDialect implements StreamingSupport {
 
     private static final long serialVersionUID = -8145146230035810465L;
     private static final String TIMESTAMP = "timestamp";
@@ -29,6 +34,7 @@ public class TimestampMySQL8SpatialDialect extends MySQL8SpatialDialect {
     public TimestampMySQL8SpatialDialect() {
         super();
         registerColumnType(Types.TIMESTAMP, TIMESTAMP);
+        TimeBucketFunctions.mysql().forEach(this::registerFunction);
     }
 
     @Override
@@ -47,4 +53,14 @@ public class TimestampMySQL8SpatialDialect extends MySQL8SpatialDialect {
         return super.getTypeName(code);
     }
 
+    @Override
+    public int getStreamingFetchSize() {
+        // enables the row by row streaming of the MySQL driver
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public Exporter<AuxiliaryDatabaseObject> getAuxiliaryDatabaseObjectExporter() {
+        return new SchemaAwareAuxiliaryDatabaseObjectExporter(this);
+    }
 }
@@ -18,9 +18,14 @@ package org.n52.hibernate.spatial.dialect.oracle;
 
 import java.sql.Types;
 
+import org.hibernate.boot.model.relational.AuxiliaryDatabaseObject;
 import org.hibernate.spatial.dialect.oracle.OracleSpatial10gDialect;
+import org.hibernate.tool.schema.spi.Exporter;
+import org.n52.hibernate.spatial.dialect.SchemaAwareAuxiliaryDatabaseObjectExporter;
+import org.n52.hibernate.spatial.dialect.StreamingSupport;
+import org.n52.hibernate.spatial.dialect.TimeBucketFunctions;
 
-public class TimestampWithTimeZoneOracleSpatial10gDialect extends OracleSpatial10gDialect {
+public class TimestampWithTimeZoneOracleSpatial10gDialect extends OracleSpatial10gDialect implements StreamingSupport {
 
     private static final long serialVersionUID = 2459190033248440220L;
 
@@ -28,6 +33,17 @@ public class TimestampWithTimeZoneOracleSpatial10gDialect extends OracleSpatial1
         super();
         registerColumnType(Types.DOUBLE, "float");
         registerColumnType(Types.TIMESTAMP, "timestamp with time zone");
+        TimeBucketFunctions.oracle().forEach(this::registerFunction);
     }
 
+    @Override
+    public int getStreamingFetchSize() {
+        // row prefetch of the Oracle driver, the driver default of 10 rows causes too many round trips
+        return DEFAULT_FETCH_SIZE;
+    }
+
+    @Override
+    public Exporter<AuxiliaryDatabaseObject> getAuxiliaryDatabaseObjectExporter() {
+        return new SchemaAwareAuxiliaryDatabaseObjectExporter(this);
+    }
 }
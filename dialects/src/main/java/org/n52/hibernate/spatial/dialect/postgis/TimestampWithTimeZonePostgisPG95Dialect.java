@@ -19,20 +19,26 @@ package org.n52.hibernate.spatial.dialect.postgis;
 import java.sql.Types;
 import java.util.Iterator;
 
+import org.hibernate.boot.model.relational.AuxiliaryDatabaseObject;
 import org.hibernate.internal.util.StringHelper;
 import org.hibernate.mapping.Column;
 import org.hibernate.mapping.Index;
 import org.hibernate.mapping.Table;
 
 import org.hibernate.spatial.dialect.postgis.PostgisPG95Dialect;
+import org.hibernate.tool.schema.spi.Exporter;
+import org.n52.hibernate.spatial.dialect.SchemaAwareAuxiliaryDatabaseObjectExporter;
+import org.n52.hibernate.spatial.dialect.StreamingSupport;
+import org.n52.hibernate.spatial.dialect.TimeBucketFunctions;
 
-public class TimestampWithTimeZonePostgisPG95Dialect extends PostgisPG95Dialect {
+public class TimestampWithTimeZonePostgisPG95Dialect extends PostgisPG95Dialect implements StreamingSupport {
 
     private static final long serialVersionUID = -3409681181015765469L;
 
     public TimestampWithTimeZonePostgisPG95Dialect() {
         super();
         registerColumnType(Types.TIMESTAMP, "timestamp with time zone");
+        TimeBucketFunctions.postgres().forEach(this::registerFunction);
     }
 
     public String buildSqlCreateSpatialIndexString(Index index, String defaultCatalog, String defaultSchema) {
@@ -57,4 +63,15 @@ public class TimestampWithTimeZonePostgisPG95Dialect extends PostgisPG95Dialect
         buf.append(")");
         return buf.toString();
     }
+
+    @Override
+    public boolean isStreamingTransactionRequired() {
+        // the PostgreSQL driver only uses a cursor for the fetch size if autocommit is disabled
+        return true;
+    }
+
+    @Override
+    public Exporter<AuxiliaryDatabaseObject> getAuxiliaryDatabaseObjectExporter() {
+        return new SchemaAwareAuxiliaryDatabaseObjectExporter(this);
+    }
 }
@@ -18,15 +18,26 @@ package org.n52.hibernate.spatial.dialect.sqlserver;
 
 import java.sql.Types;
 
+import org.hibernate.boot.model.relational.AuxiliaryDatabaseObject;
 import org.hibernate.spatial.dialect.sqlserver.SqlServer2012SpatialDialect;
+import org.hibernate.tool.schema.spi.Exporter;
+import org.n52.hibernate.spatial.dialect.SchemaAwareAuxiliaryDatabaseObjectExporter;
+import org.n52.hibernate.spatial.dialect.StreamingSupport;
+import org.n52.hibernate.spatial.dialect.TimeBucketFunctions;
 
-public class TimestampWithTimeZoneSqlServer2012SpatialDialect extends SqlServer2012SpatialDialect {
+public class TimestampWithTimeZoneSqlServer2012SpatialDialect extends SqlServer2012SpatialDialect
+        implements StreamingSupport {
 
     private static final long serialVersionUID = -5075490566512423995L;
 
     public TimestampWithTimeZoneSqlServer2012SpatialDialect() {
         super();
         registerColumnType(Types.TIMESTAMP, "datetimeoffset");
+        TimeBucketFunctions.sqlServer().forEach(this::registerFunction);
     }
 
+    @Override
+    public Exporter<AuxiliaryDatabaseObject> getAuxiliaryDatabaseObjectExporter() {
+        return new SchemaAwareAuxiliaryDatabaseObjectExporter(this);
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.spatial.dialect;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import org.hamcrest.MatcherAssert;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.relational.SimpleAuxiliaryDatabaseObject;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.Dialect;
+import org.junit.jupiter.api.Test;
+import org.n52.hibernate.spatial.dialect.postgis.TimestampWithTimeZonePostgisPG95Dialect;
+
+public class SchemaAwareAuxiliaryDatabaseObjectExporterTest {
+
+    private static final String CREATE = "create trigger ${schema}.trg on ${schema}.observation after insert as "
+            + "insert into ${schema}.\"change\" (id, value, factor, name) select nextval('${schema}.change_seq'), "
+            + "i.value, .5 * 0.5, i.\"name\" from inserted i join ${schema}.dataset d on d.id = i.fk_dataset_id";
+
+    private static final String DROP = "drop trigger ${schema}.trg";
+
+    private final Dialect dialect = new TimestampWithTimeZonePostgisPG95Dialect();
+
+    @Test
+    public void when_defaultSchema_then_objectsQualified() {
+        String[] create = export("sos");
+        MatcherAssert.assertThat(create[0], is("create trigger sos.trg on sos.observation after insert as "
+                + "insert into sos.\"change\" (id, value, factor, name) select nextval('sos.change_seq'), "
+                + "i.value, .5 * 0.5, i.\"name\" from inserted i join sos.dataset d on d.id = i.fk_dataset_id"));
+    }
+
+    @Test
+    public void when_noDefaultSchema_then_qualifiersRemoved() {
+        String[] create = export(null);
+        MatcherAssert.assertThat(create[0],
+                is("create trigger trg on observation after insert as "
+                        + "insert into \"change\" (id, value, factor, name) select nextval('change_seq'), "
+                        + "i.value, .5 * 0.5, i.\"name\" from inserted i join dataset d on d.id = i.fk_dataset_id"));
+    }
+
+    @Test
+    public void when_noDefaultSchema_then_dropUnqualified() {
+        Metadata metadata = buildMetadata(null);
+        SimpleAuxiliaryDatabaseObject object =
+                new SimpleAuxiliaryDatabaseObject(metadata.getDatabase().getDefaultNamespace(), CREATE, DROP, null);
+        MatcherAssert.assertThat(
+                new SchemaAwareAuxiliaryDatabaseObjectExporter(dialect).getSqlDropStrings(object, metadata)[0],
+                is("drop trigger trg"));
+    }
+
+    @Test
+    public void when_customDialect_then_exporterRegistered() {
+        MatcherAssert.assertThat(
+                dialect.getAuxiliaryDatabaseObjectExporter() instanceof SchemaAwareAuxiliaryDatabaseObjectExporter,
+                is(true));
+    }
+
+    private String[] export(String schema) {
+        Metadata metadata = buildMetadata(schema);
+        SimpleAuxiliaryDatabaseObject object =
+                new SimpleAuxiliaryDatabaseObject(metadata.getDatabase().getDefaultNamespace(), CREATE, DROP, null);
+        return new SchemaAwareAuxiliaryDatabaseObjectExporter(dialect).getSqlCreateStrings(object, metadata);
+    }
+
+    private Metadata buildMetadata(String schema) {
+        StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, dialect.getClass().getName());
+        if (schema != null) {
+            builder.applySetting(AvailableSettings.DEFAULT_SCHEMA, schema);
+        }
+        StandardServiceRegistry registry = builder.build();
+        return new MetadataSources(registry).buildMetadata();
+    }
+
+}
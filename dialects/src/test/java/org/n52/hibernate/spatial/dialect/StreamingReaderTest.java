@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.spatial.dialect;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hamcrest.MatcherAssert;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.H2Dialect;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class StreamingReaderTest {
+
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    public static void init() {
+        sessionFactory = new Configuration().setProperty(AvailableSettings.DIALECT, H2Dialect.class.getName())
+                .setProperty(AvailableSettings.URL, "jdbc:h2:mem:streaming;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .addResource("org/n52/hibernate/spatial/dialect/StreamedEntity.hbm.xml").buildSessionFactory();
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (long i = 1; i <= 10; i++) {
+                session.save(new StreamedEntity(i, "entity " + i));
+            }
+            session.getTransaction().commit();
+        }
+    }
+
+    @AfterAll
+    public static void close() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void when_reading_then_chunksAreConsumed() {
+        try (Session session = sessionFactory.openSession()) {
+            List<Integer> sizes = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            long count = new StreamingReader(4).read(session,
+                    session.createQuery("from StreamedEntity e order by e.id", StreamedEntity.class), chunk -> {
+                        sizes.add(chunk.size());
+                        chunk.forEach(e -> ids.add(e.getId()));
+                    });
+            MatcherAssert.assertThat(count, is(10L));
+            MatcherAssert.assertThat(sizes.toString(), is("[4, 4, 2]"));
+            MatcherAssert.assertThat(ids.get(9), is(10L));
+        }
+    }
+
+    @Test
+    public void when_reading_then_onlyEntitiesOfTheReaderAreEvicted() {
+        try (Session session = sessionFactory.openSession()) {
+            StreamedEntity loaded = session.get(StreamedEntity.class, 3L);
+            List<StreamedEntity> read = new ArrayList<>();
+            new StreamingReader(4).read(session,
+                    session.createQuery("from StreamedEntity e order by e.id", StreamedEntity.class), read::addAll);
+            MatcherAssert.assertThat(session.contains(loaded), is(true));
+            MatcherAssert.assertThat(read.get(2) == loaded, is(true));
+            MatcherAssert.assertThat(session.contains(read.get(0)), is(false));
+            MatcherAssert.assertThat(session.contains(read.get(9)), is(false));
+        }
+    }
+
+    @Test
+    public void when_chunkSizeNotPositive_then_exceptionIsThrown() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingReader(0));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.spatial.dialect;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.hamcrest.MatcherAssert;
+import org.hibernate.dialect.function.SQLFunction;
+import org.hibernate.type.StandardBasicTypes;
+import org.junit.jupiter.api.Test;
+
+public class TimeBucketFunctionsTest {
+
+    private static final String TS = "ts";
+
+    private static final String WIDTH = "3600";
+
+    @Test
+    public void when_postgres_then_functionsAreRendered() {
+        Map<String, SQLFunction> functions = TimeBucketFunctions.postgres();
+        MatcherAssert.assertThat(bucketSeconds(functions),
+                is("to_timestamp(floor(extract(epoch from ts) / 3600) * 3600)"));
+        MatcherAssert.assertThat(epochSeconds(functions), is("extract(epoch from ts)"));
+    }
+
+    @Test
+    public void when_mysql_then_functionsAreRendered() {
+        Map<String, SQLFunction> functions = TimeBucketFunctions.mysql();
+        MatcherAssert.assertThat(bucketSeconds(functions),
+                is("from_unixtime(floor(unix_timestamp(ts) / 3600) * 3600)"));
+        MatcherAssert.assertThat(epochSeconds(functions), is("unix_timestamp(ts)"));
+    }
+
+    @Test
+    public void when_oracle_then_functionsAreRendered() {
+        Map<String, SQLFunction> functions = TimeBucketFunctions.oracle();
+        String epoch = "((cast(sys_extract_utc(ts) as date) - date '1970-01-01') * 86400)";
+        MatcherAssert.assertThat(bucketSeconds(functions), is("from_tz(cast(date '1970-01-01' + floor(" + epoch
+                + " / 3600) * 3600 / 86400 as timestamp), " + "'UTC')"));
+        MatcherAssert.assertThat(epochSeconds(functions), is(epoch));
+    }
+
+    @Test
+    public void when_sqlServer_then_functionsAreRendered() {
+        Map<String, SQLFunction> functions = TimeBucketFunctions.sqlServer();
+        String epoch = "(cast(datediff(day, '19700101', cast(switchoffset(ts, 0) as date)) as bigint) * 86400"
+                + " + datediff(second, cast(cast(switchoffset(ts, 0) as date) as datetime2),"
+                + " cast(switchoffset(ts, 0) as datetime2)))";
+        MatcherAssert.assertThat(bucketSeconds(functions),
+                is("todatetimeoffset(dateadd(second, cast((" + epoch + " / 3600 * 3600) % 86400 as int), "
+                        + "dateadd(day, cast((" + epoch + " / 3600 * 3600) / 86400 as int), "
+                        + "cast('19700101' as datetime2))), 0)"));
+        MatcherAssert.assertThat(epochSeconds(functions), is(epoch));
+    }
+
+    @Test
+    public void when_h2_then_functionsAreRendered() {
+        Map<String, SQLFunction> functions = TimeBucketFunctions.h2();
+        String epoch = "extract(epoch from ts)";
+        MatcherAssert.assertThat(bucketSeconds(functions), is("dateadd('SECOND', floor(" + epoch
+                + " / 3600) * 3600, timestamp with time zone '1970-01-01 00:00:00+00')"));
+        MatcherAssert.assertThat(epochSeconds(functions), is(epoch));
+    }
+
+    @Test
+    public void when_h2_then_functionsAreEvaluated() throws SQLException {
+        Map<String, SQLFunction> functions = TimeBucketFunctions.h2();
+        String ts = "timestamp with time zone '1970-01-02 03:30:15+02'";
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:buckets", "sa", "");
+                Statement statement = connection.createStatement();
+                ResultSet result =
+                        statement.executeQuery("select " + render(functions, TimeBucketFunctions.EPOCH_SECONDS, ts)
+                                + ", " + render(functions, TimeBucketFunctions.BUCKET_SECONDS, WIDTH, ts) + ", "
+                                + render(functions, TimeBucketFunctions.BUCKET_HOUR, ts))) {
+            result.next();
+            MatcherAssert.assertThat(result.getLong(1), is(91815L));
+            MatcherAssert.assertThat(result.getObject(2, OffsetDateTime.class).toInstant(),
+                    is(Instant.parse("1970-01-02T01:00:00Z")));
+            MatcherAssert.assertThat(result.getString(3), is("1970-01-02 03:00:00"));
+        }
+    }
+
+    private String bucketSeconds(Map<String, SQLFunction> functions) {
+        return render(functions, TimeBucketFunctions.BUCKET_SECONDS, WIDTH, TS);
+    }
+
+    private String epochSeconds(Map<String, SQLFunction> functions) {
+        return render(functions, TimeBucketFunctions.EPOCH_SECONDS, TS);
+    }
+
+    private String render(Map<String, SQLFunction> functions, String name, String... arguments) {
+        return functions.get(name).render(StandardBasicTypes.TIMESTAMP, Arrays.asList((Object[]) arguments), null);
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.archive;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Objects;
+
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.dataset.ValueType;
+
+/**
+ * Immutable projection of a quantity or count observation as stored in an observation block.
+ *
+ * @since 3.0.0
+ */
+public final class ArchivedObservation {
+
+    private final long id;
+
+    private final long datasetId;
+
+    private final long samplingTimeStart;
+
+    private final long samplingTimeEnd;
+
+    private final Long resultTime;
+
+    private final Double value;
+
+    public ArchivedObservation(long id, long datasetId, long samplingTimeStart, long samplingTimeEnd, Long resultTime,
+            Double value) {
+        this.id = id;
+        this.datasetId = datasetId;
+        this.samplingTimeStart = samplingTimeStart;
+        this.samplingTimeEnd = samplingTimeEnd;
+        this.resultTime = resultTime;
+        this.value = value;
+    }
+
+    /**
+     * Create the projection of a quantity or count observation.
+     *
+     * @param data
+     *            the observation
+     * @return the projection
+     * @throws IllegalArgumentException
+     *             if the observation is neither a quantity nor a count observation
+     */
+    public static ArchivedObservation of(DataEntity<?> data) {
+        Double value;
+        if (data instanceof QuantityDataEntity) {
+            BigDecimal v = ((QuantityDataEntity) data).getValue();
+            value = v != null ? v.doubleValue() : null;
+        } else if (data instanceof CountDataEntity) {
+            Integer v = ((CountDataEntity) data).getValue();
+            value = v != null ? v.doubleValue() : null;
+        } else {
+            throw new IllegalArgumentException("Unsupported observation type: " + data.getClass().getSimpleName());
+        }
+        return new ArchivedObservation(data.getId(), data.resolveDatasetId(), data.getSamplingTimeStart().getTime(),
+                data.getSamplingTimeEnd().getTime(),
+                data.getResultTime() != null ? data.getResultTime().getTime() : null, value);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getDatasetId() {
+        return datasetId;
+    }
+
+    public long getSamplingTimeStart() {
+        return samplingTimeStart;
+    }
+
+    public long getSamplingTimeEnd() {
+        return samplingTimeEnd;
+    }
+
+    public Long getResultTime() {
+        return resultTime;
+    }
+
+    public boolean hasResultTime() {
+        return resultTime != null;
+    }
+
+    public Double getValue() {
+        return value;
+    }
+
+    public boolean hasValue() {
+        return value != null;
+    }
+
+    /**
+     * Create a transient observation entity of the dataset's value type from this projection, so that
+     * archived observations can be processed like the observations of the observation table.
+     *
+     * @param dataset
+     *            the dataset
+     * @return a count observation for count datasets, otherwise a quantity observation
+     */
+    public DataEntity<?> toDataEntity(DatasetEntity dataset) {
+        DataEntity<?> data;
+        if (dataset.getValueType() == ValueType.count) {
+            CountDataEntity count = new CountDataEntity();
+            count.setValue(value != null ? (int) value.doubleValue() : null);
+            data = count;
+        } else {
+            QuantityDataEntity quantity = new QuantityDataEntity();
+            quantity.setValue(value != null ? BigDecimal.valueOf(value) : null);
+            data = quantity;
+        }
+        data.setId(id);
+        data.setDataset(dataset);
+        data.setDatasetId(datasetId);
+        data.setSamplingTimeStart(new Date(samplingTimeStart));
+        data.setSamplingTimeEnd(new Date(samplingTimeEnd));
+        data.setResultTime(resultTime != null ? new Date(resultTime) : null);
+        return data;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, datasetId, samplingTimeStart, samplingTimeEnd, resultTime, value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ArchivedObservation)) {
+            return false;
+        }
+        ArchivedObservation other = (ArchivedObservation) obj;
+        return id == other.id && datasetId == other.datasetId && samplingTimeStart == other.samplingTimeStart
+                && samplingTimeEnd == other.samplingTimeEnd && Objects.equals(resultTime, other.resultTime)
+                && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        return sb.append(getClass().getSimpleName()).append(" [").append(" id: ").append(id).append(", dataset: ")
+                .append(datasetId).append(", value: ").append(value).append(" ]").toString();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.archive;
+
+/**
+ * Reader for bit streams written by {@link BitOutput}.
+ */
+class BitInput {
+
+    private final byte[] bytes;
+
+    private long position;
+
+    BitInput(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    boolean readBit() {
+        checkAvailable(1);
+        boolean bit = (bytes[(int) (position >>> 3)] & 0x80 >>> (position & 7)) != 0;
+        position++;
+        return bit;
+    }
+
+    long readBits(int count) {
+        checkAvailable(count);
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = value << 1 | ((bytes[(int) (position >>> 3)] & 0x80 >>> (position & 7)) != 0 ? 1 : 0);
+            position++;
+        }
+        return value;
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            long b = readBits(8);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length integer!");
+    }
+
+    private void checkAvailable(int count) {
+        if (position + count > bytes.length * 8L) {
+            throw new IllegalArgumentException("Unexpected end of the observation block!");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.archive;
+
+import java.util.Arrays;
+
+/**
+ * Growable bit stream, most significant bit first.
+ */
+class BitOutput {
+
+    private byte[] bytes;
+
+    private long bits;
+
+    BitOutput(int capacity) {
+        this.bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    void writeBit(boolean bit) {
+        ensureCapacity(1);
+        if (bit) {
+            bytes[(int) (bits >>> 3)] |= 0x80 >>> (bits & 7);
+        }
+        bits++;
+    }
+
+    /**
+     * Write the lowest bits of the value.
+     *
+     * @param value
+     *            the value
+     * @param count
+     *            the number of bits, 0 to 64
+     */
+    void writeBits(long value, int count) {
+        ensureCapacity(count);
+        for (int i = count - 1; i >= 0; i--) {
+            if ((value >>> i & 1) != 0) {
+                bytes[(int) (bits >>> 3)] |= 0x80 >>> (bits & 7);
+            }
+            bits++;
+        }
+    }
+
+    /**
+     * Write an unsigned variable length integer in groups of 7 bits.
+     *
+     * @param value
+     *            the value
+     */
+    void writeVarLong(long value) {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            writeBits((v & 0x7F) | 0x80, 8);
+            v >>>= 7;
+        }
+        writeBits(v, 8);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, (int) ((bits + 7) >>> 3));
+    }
+
+    private void ensureCapacity(int count) {
+        long required = (bits + count + 7) >>> 3;
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int) Math.max(required, bytes.length * 2L));
+        }
+    }
+}
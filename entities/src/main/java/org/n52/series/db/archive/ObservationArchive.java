@@ -0,0 +1,313 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.archive;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.IdEntity;
+import org.n52.series.db.beans.ObservationBlockEntity;
+import org.n52.series.db.beans.ObservationChangeEntity.Operation;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.series.db.cache.LatestValueCache;
+import org.n52.series.db.change.ObservationChangeLog;
+import org.n52.series.db.deletion.DatasetDeletion;
+
+/**
+ * Cold storage of historic observations. The compaction moves the plain quantity and count observations of a
+ * dataset period from the observation table into a compressed {@link ObservationBlockEntity}, reading decodes
+ * the blocks and merges them with the observations remaining in the observation table.
+ * <p>
+ * Observations with additional information which is not part of a block (parameters, related observations,
+ * translations, valid time, detection limit, geometry, vertical interval, identifier, value labels, profiles)
+ * as well as the first and last observation of the dataset stay in the observation table. The compacted
+ * observations are deleted with a few native statements in batches of ids, their dependent rows are deleted
+ * explicitly like in the {@link org.n52.series.db.deletion.DatasetDeletion}. They are logged as
+ * {@link Operation#ARCHIVE} in the observation change log and the entry of the dataset in the optional
+ * {@link LatestValueCache} is invalidated after the transaction. The methods have to be called within a
+ * transaction of the caller.
+ *
+ * @since 3.0.0
+ */
+public class ObservationArchive {
+
+    /**
+     * Named queries to delete the rows which reference the compacted observations, parameter
+     * {@link #PARAMETER_IDS}, in this order. Queries of tables which do not exist in a concept are not
+     * mapped.
+     */
+    public static final List<String> QUERIES_DEPENDENT_ROWS = Collections.unmodifiableList(
+            Arrays.asList("ObservationArchive.observationTranslations", "ObservationArchive.relatedObservations"));
+
+    /**
+     * Named query to delete the compacted observations, parameter {@link #PARAMETER_IDS}.
+     */
+    public static final String QUERY_OBSERVATIONS = "ObservationArchive.observations";
+
+    public static final String PARAMETER_IDS = "ids";
+
+    private static final Comparator<ArchivedObservation> ORDER = Comparator
+            .comparingLong(ArchivedObservation::getSamplingTimeStart).thenComparingLong(ArchivedObservation::getId);
+
+    private final long period;
+
+    private final LatestValueCache latestValueCache;
+
+    /**
+     * @param period
+     *            the length of the block periods in milliseconds, periods are aligned to the epoch
+     */
+    public ObservationArchive(long period) {
+        this(period, null);
+    }
+
+    /**
+     * @param period
+     *            the length of the block periods in milliseconds, periods are aligned to the epoch
+     * @param latestValueCache
+     *            the cache whose entries of compacted datasets are invalidated after the transaction, may be
+     *            <code>null</code>
+     */
+    public ObservationArchive(long period, LatestValueCache latestValueCache) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("The period has to be positive!");
+        }
+        this.period = period;
+        this.latestValueCache = latestValueCache;
+    }
+
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * Get the start of the period containing the time.
+     *
+     * @param time
+     *            the time
+     * @return the period start
+     */
+    public Date getPeriodStart(Date time) {
+        return new Date(Math.floorDiv(time.getTime(), period) * period);
+    }
+
+    /**
+     * Compact all complete periods of the dataset before the time. The session is cleared after each period,
+     * so the dataset and other entities loaded before are detached afterwards.
+     *
+     * @param session
+     *            the session
+     * @param dataset
+     *            the quantity or count dataset
+     * @param before
+     *            the time before which the periods are compacted
+     * @return the number of compacted observations
+     */
+    public int compactBefore(Session session, DatasetEntity dataset, Date before) {
+        if (!isSupported(dataset) || dataset.getFirstValueAt() == null) {
+            return 0;
+        }
+        int count = 0;
+        long end = getPeriodStart(before).getTime();
+        for (long start = getPeriodStart(dataset.getFirstValueAt()).getTime(); start < end; start += period) {
+            count += compact(session, dataset, new Date(start));
+            session.flush();
+            session.clear();
+        }
+        return count;
+    }
+
+    /**
+     * Compact the observations of the dataset period into its block. Observations added to an already
+     * compacted period are merged into the existing block. The compacted observations are removed from the
+     * session.
+     *
+     * @param session
+     *            the session
+     * @param dataset
+     *            the quantity or count dataset
+     * @param periodStart
+     *            the start of the period, has to be aligned to the period length
+     * @return the number of compacted observations
+     */
+    public int compact(Session session, DatasetEntity dataset, Date periodStart) {
+        if (!isSupported(dataset)) {
+            return 0;
+        }
+        if (periodStart.getTime() % period != 0) {
+            throw new IllegalArgumentException("The period start is not aligned: " + periodStart);
+        }
+        Date periodEnd = new Date(periodStart.getTime() + period);
+        List<DataEntity<?>> compactable = new ArrayList<>();
+        for (DataEntity<?> data : getObservations(session, ObservationBlockEntity.QUERY_COMPACTABLE_OBSERVATIONS,
+                dataset.getId(), periodStart, periodEnd)) {
+            // the query excludes the observations with parameters, related observations or translations
+            if (isCompactableValue(data) && !isSame(data, dataset.getFirstObservation())
+                    && !isSame(data, dataset.getLastObservation())) {
+                compactable.add(data);
+            }
+        }
+        if (compactable.isEmpty()) {
+            return 0;
+        }
+        ObservationBlockEntity block =
+                session.createNamedQuery(ObservationBlockEntity.QUERY_BLOCK, ObservationBlockEntity.class)
+                        .setParameter(ObservationBlockEntity.PARAMETER_DATASET, dataset.getId())
+                        .setParameter(ObservationBlockEntity.PARAMETER_START, periodStart).uniqueResult();
+        List<ArchivedObservation> observations = new ArrayList<>();
+        if (block == null) {
+            block = new ObservationBlockEntity().setDataset(dataset).setPeriodStart(periodStart)
+                    .setPeriodEnd(periodEnd);
+        } else if (block.hasContent()) {
+            observations.addAll(ObservationBlockCodec.decode(dataset.getId(), block.getContent()));
+        }
+        for (DataEntity<?> data : compactable) {
+            observations.add(ArchivedObservation.of(data));
+        }
+        observations.sort(ORDER);
+        block.setValueCount(observations.size()).setEncoding(ObservationBlockCodec.VERSION)
+                .setContent(ObservationBlockCodec.encode(observations)).setCreated(new Date());
+        session.saveOrUpdate(block);
+        session.flush();
+        List<Long> ids = new ArrayList<>(compactable.size());
+        for (DataEntity<?> data : compactable) {
+            ids.add(data.getId());
+            session.detach(data);
+        }
+        if (latestValueCache != null) {
+            latestValueCache.invalidateAfterTransaction(session, dataset.getId());
+        }
+        return ObservationChangeLog.withOperation(session, Operation.ARCHIVE, () -> delete(session, ids));
+    }
+
+    /**
+     * Read the observations of the dataset with a phenomenon start time in [start, end) from the blocks and
+     * the observation table.
+     *
+     * @param session
+     *            the session
+     * @param datasetId
+     *            the dataset id
+     * @param start
+     *            the start of the time range (inclusive)
+     * @param end
+     *            the end of the time range (exclusive)
+     * @return the observations ordered by phenomenon start time and id
+     */
+    public List<ArchivedObservation> read(Session session, long datasetId, Date start, Date end) {
+        List<ArchivedObservation> observations = new ArrayList<>();
+        for (ObservationBlockEntity block : session
+                .createNamedQuery(ObservationBlockEntity.QUERY_BLOCKS, ObservationBlockEntity.class)
+                .setParameter(ObservationBlockEntity.PARAMETER_DATASET, datasetId)
+                .setParameter(ObservationBlockEntity.PARAMETER_START, start)
+                .setParameter(ObservationBlockEntity.PARAMETER_END, end).getResultList()) {
+            if (block.hasContent()) {
+                for (ArchivedObservation o : ObservationBlockCodec.decode(datasetId, block.getContent())) {
+                    if (o.getSamplingTimeStart() >= start.getTime() && o.getSamplingTimeStart() < end.getTime()) {
+                        observations.add(o);
+                    }
+                }
+            }
+        }
+        for (Object entity : getObservations(session, ObservationBlockEntity.QUERY_OBSERVATIONS, datasetId, start,
+                end)) {
+            // the first and last observation may be proxies of the dataset references
+            DataEntity<?> data = (DataEntity<?>) Hibernate.unproxy(entity);
+            if (!data.getDeleted() && (data instanceof QuantityDataEntity || data instanceof CountDataEntity)) {
+                observations.add(ArchivedObservation.of(data));
+            }
+        }
+        observations.sort(ORDER);
+        return observations;
+    }
+
+    /**
+     * Check if the observation can be stored in a block without losing information.
+     *
+     * @param data
+     *            the observation
+     * @return <code>true</code>, if the observation is a plain quantity or count observation
+     */
+    public static boolean isCompactable(DataEntity<?> data) {
+        return !data.hasParameters() && !data.hasRelatedObservations() && !data.hasTranslations()
+                && isCompactableValue(data);
+    }
+
+    /**
+     * Check the properties of the observation itself, without initializing its collections.
+     */
+    private static boolean isCompactableValue(DataEntity<?> data) {
+        if (data.getDeleted() || data.hasParent() || data.isSetValidStartTime() || data.isSetValidEndTime()
+                || data.hasDetectionLimit() || data.isSetGeometryEntity() || !isUnset(data.getVerticalFrom())
+                || !isUnset(data.getVerticalTo()) || data.getIdentifier() != null || data.hasValueIdentifier()
+                || data.hasValueName() || data.hasValueDescription() || data.hasSamplingProfile()
+                || data.hasEreportingProfile()) {
+            return false;
+        }
+        if (data instanceof QuantityDataEntity) {
+            // values are stored as double, so only values without loss of precision are compacted
+            BigDecimal value = ((QuantityDataEntity) data).getValue();
+            return value == null || BigDecimal.valueOf(value.doubleValue()).compareTo(value) == 0;
+        }
+        return data instanceof CountDataEntity;
+    }
+
+    private static boolean isSupported(DatasetEntity dataset) {
+        return dataset.getValueType() == ValueType.quantity || dataset.getValueType() == ValueType.count;
+    }
+
+    private static boolean isUnset(BigDecimal vertical) {
+        return vertical == null || vertical.compareTo(DataEntity.NOT_SET_VERTICAL) == 0;
+    }
+
+    private static boolean isSame(IdEntity data, IdEntity other) {
+        return other != null && other.getId() != null && other.getId().equals(data.getId());
+    }
+
+    private int delete(Session session, List<Long> ids) {
+        int deleted = 0;
+        for (int i = 0; i < ids.size(); i += DatasetDeletion.PARAMETER_BATCH_SIZE) {
+            List<Long> batch = ids.subList(i, Math.min(i + DatasetDeletion.PARAMETER_BATCH_SIZE, ids.size()));
+            for (String query : QUERIES_DEPENDENT_ROWS) {
+                if (DatasetDeletion.isMapped(session, query)) {
+                    session.getNamedQuery(query).setParameterList(PARAMETER_IDS, batch).executeUpdate();
+                }
+            }
+            deleted +=
+                    session.getNamedQuery(QUERY_OBSERVATIONS).setParameterList(PARAMETER_IDS, batch).executeUpdate();
+        }
+        return deleted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DataEntity<?>> getObservations(Session session, String query, long datasetId, Date start, Date end) {
+        return session.getNamedQuery(query).setParameter(ObservationBlockEntity.PARAMETER_DATASET, datasetId)
+                .setParameter(ObservationBlockEntity.PARAMETER_START, start)
+                .setParameter(ObservationBlockEntity.PARAMETER_END, end).list();
+    }
+}
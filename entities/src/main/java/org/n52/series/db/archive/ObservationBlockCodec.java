@@ -0,0 +1,286 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.archive;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Column oriented compression of observation blocks:
+ * <ul>
+ * <li>ids, phenomenon start times, durations (end - start) and result time offsets (result - end) are written
+ * as delta-of-delta with variable bit lengths, so regular series cost about one bit per value and
+ * column,</li>
+ * <li>values are XOR encoded doubles (only the meaningful bits differing from the previous value are
+ * written),</li>
+ * <li>the flags for missing values and result times are run-length encoded.</li>
+ * </ul>
+ * The observations have to be ordered by the phenomenon start time.
+ *
+ * @since 3.0.0
+ */
+public final class ObservationBlockCodec {
+
+    /**
+     * The current encoding version, stored with each block.
+     */
+    public static final int VERSION = 1;
+
+    private static final String INVALID_VALUE_ENCODING = "Invalid value encoding!";
+
+    private ObservationBlockCodec() {
+    }
+
+    /**
+     * Encode the observations.
+     *
+     * @param observations
+     *            the observations ordered by phenomenon start time
+     * @return the encoded block
+     */
+    public static byte[] encode(List<ArchivedObservation> observations) {
+        int size = observations.size();
+        long[] ids = new long[size];
+        long[] starts = new long[size];
+        long[] durations = new long[size];
+        long[] resultOffsets = new long[size];
+        boolean[] hasValue = new boolean[size];
+        boolean[] hasResultTime = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            ArchivedObservation o = observations.get(i);
+            ids[i] = o.getId();
+            starts[i] = o.getSamplingTimeStart();
+            durations[i] = o.getSamplingTimeEnd() - o.getSamplingTimeStart();
+            resultOffsets[i] = o.hasResultTime() ? o.getResultTime() - o.getSamplingTimeEnd() : 0;
+            hasValue[i] = o.hasValue();
+            hasResultTime[i] = o.hasResultTime();
+        }
+        BitOutput out = new BitOutput(size * 2 + 16);
+        out.writeBits(VERSION, 8);
+        out.writeVarLong(size);
+        if (size > 0) {
+            writeDeltaOfDelta(out, ids);
+            writeDeltaOfDelta(out, starts);
+            writeDeltaOfDelta(out, durations);
+            writeDeltaOfDelta(out, resultOffsets);
+            writeRunLength(out, hasValue);
+            writeRunLength(out, hasResultTime);
+            writeValues(out, observations);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode the observations of a block.
+     *
+     * @param datasetId
+     *            the dataset of the block
+     * @param content
+     *            the encoded block
+     * @return the observations
+     * @throws IllegalArgumentException
+     *             if the content is not a valid block
+     */
+    public static List<ArchivedObservation> decode(long datasetId, byte[] content) {
+        BitInput in = new BitInput(content);
+        int version = (int) in.readBits(8);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported observation block encoding: " + version);
+        }
+        long count = in.readVarLong();
+        if (count < 0 || count > content.length * 8L) {
+            throw new IllegalArgumentException("Invalid observation block size: " + count);
+        }
+        int size = (int) count;
+        List<ArchivedObservation> observations = new ArrayList<>(size);
+        if (size == 0) {
+            return observations;
+        }
+        long[] ids = readDeltaOfDelta(in, size);
+        long[] starts = readDeltaOfDelta(in, size);
+        long[] durations = readDeltaOfDelta(in, size);
+        long[] resultOffsets = readDeltaOfDelta(in, size);
+        boolean[] hasValue = readRunLength(in, size);
+        boolean[] hasResultTime = readRunLength(in, size);
+        double[] values = readValues(in, size);
+        for (int i = 0; i < size; i++) {
+            long end = starts[i] + durations[i];
+            observations.add(new ArchivedObservation(ids[i], datasetId, starts[i], end,
+                    hasResultTime[i] ? end + resultOffsets[i] : null, hasValue[i] ? values[i] : null));
+        }
+        return observations;
+    }
+
+    private static void writeDeltaOfDelta(BitOutput out, long[] values) {
+        out.writeBits(values[0], 64);
+        long previousDelta = 0;
+        for (int i = 1; i < values.length; i++) {
+            long delta = values[i] - values[i - 1];
+            long zigZag = zigZag(delta - previousDelta);
+            if (zigZag == 0) {
+                out.writeBit(false);
+            } else if (zigZag >>> 7 == 0) {
+                out.writeBits(0b10, 2);
+                out.writeBits(zigZag, 7);
+            } else if (zigZag >>> 9 == 0) {
+                out.writeBits(0b110, 3);
+                out.writeBits(zigZag, 9);
+            } else if (zigZag >>> 12 == 0) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(zigZag, 12);
+            } else if (zigZag >>> 32 == 0) {
+                out.writeBits(0b11110, 5);
+                out.writeBits(zigZag, 32);
+            } else {
+                out.writeBits(0b11111, 5);
+                out.writeBits(zigZag, 64);
+            }
+            previousDelta = delta;
+        }
+    }
+
+    private static long[] readDeltaOfDelta(BitInput in, int size) {
+        long[] values = new long[size];
+        values[0] = in.readBits(64);
+        long previousDelta = 0;
+        for (int i = 1; i < size; i++) {
+            int bits;
+            if (!in.readBit()) {
+                bits = 0;
+            } else if (!in.readBit()) {
+                bits = 7;
+            } else if (!in.readBit()) {
+                bits = 9;
+            } else if (!in.readBit()) {
+                bits = 12;
+            } else {
+                bits = in.readBit() ? 64 : 32;
+            }
+            long delta = previousDelta + (bits == 0 ? 0 : unZigZag(in.readBits(bits)));
+            values[i] = values[i - 1] + delta;
+            previousDelta = delta;
+        }
+        return values;
+    }
+
+    private static void writeRunLength(BitOutput out, boolean[] flags) {
+        // runs alternate and start with set flags, so a first run may be empty
+        boolean current = true;
+        int run = 0;
+        for (boolean flag : flags) {
+            if (flag == current) {
+                run++;
+            } else {
+                out.writeVarLong(run);
+                current = flag;
+                run = 1;
+            }
+        }
+        out.writeVarLong(run);
+    }
+
+    private static boolean[] readRunLength(BitInput in, int size) {
+        boolean[] flags = new boolean[size];
+        boolean current = true;
+        int i = 0;
+        while (i < size) {
+            long run = in.readVarLong();
+            if (run > size - i) {
+                throw new IllegalArgumentException("Invalid run length: " + run);
+            }
+            for (long r = 0; r < run; r++) {
+                flags[i++] = current;
+            }
+            current = !current;
+        }
+        return flags;
+    }
+
+    private static void writeValues(BitOutput out, List<ArchivedObservation> observations) {
+        long previous = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 0; i < observations.size(); i++) {
+            ArchivedObservation o = observations.get(i);
+            // missing values repeat the previous value, which costs a single bit
+            long value = o.hasValue() ? Double.doubleToLongBits(o.getValue()) : previous;
+            if (i == 0) {
+                out.writeBits(value, 64);
+            } else {
+                long xor = value ^ previous;
+                if (xor == 0) {
+                    out.writeBit(false);
+                } else {
+                    out.writeBit(true);
+                    int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                    int trailing = Long.numberOfTrailingZeros(xor);
+                    if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                        out.writeBit(false);
+                        out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                    } else {
+                        int length = 64 - leading - trailing;
+                        out.writeBit(true);
+                        out.writeBits(leading, 5);
+                        out.writeBits(length - 1, 6);
+                        out.writeBits(xor >>> trailing, length);
+                        previousLeading = leading;
+                        previousTrailing = trailing;
+                    }
+                }
+            }
+            previous = value;
+        }
+    }
+
+    private static double[] readValues(BitInput in, int size) {
+        double[] values = new double[size];
+        long previous = in.readBits(64);
+        values[0] = Double.longBitsToDouble(previous);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < size; i++) {
+            if (in.readBit()) {
+                long xor;
+                if (!in.readBit()) {
+                    if (previousLeading < 0) {
+                        throw new IllegalArgumentException(INVALID_VALUE_ENCODING);
+                    }
+                    xor = in.readBits(64 - previousLeading - previousTrailing) << previousTrailing;
+                } else {
+                    previousLeading = (int) in.readBits(5);
+                    int length = (int) in.readBits(6) + 1;
+                    previousTrailing = 64 - previousLeading - length;
+                    if (previousTrailing < 0) {
+                        throw new IllegalArgumentException(INVALID_VALUE_ENCODING);
+                    }
+                    xor = in.readBits(length) << previousTrailing;
+                }
+                previous ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return values;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
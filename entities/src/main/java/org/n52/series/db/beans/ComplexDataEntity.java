@@ -16,21 +16,8 @@
  */
 package org.n52.series.db.beans;
 
-import java.util.Set;
-import java.util.TreeSet;
-
 public class ComplexDataEntity extends CompositeDataEntity {
 
     private static final long serialVersionUID = 2206385928964743369L;
 
-    @Override
-    public Set<DataEntity<?>> getValue() {
-        return super.getValue() != null ? new TreeSet<>(super.getValue()) : super.getValue();
-    }
-
-    @Override
-    public void setValue(Set<DataEntity<?>> value) {
-        super.setValue(value);
-    }
-
 }
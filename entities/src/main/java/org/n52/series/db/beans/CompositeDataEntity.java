@@ -17,12 +17,71 @@
 package org.n52.series.db.beans;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+
+import org.hibernate.collection.spi.PersistentCollection;
+
+/**
+ * Observation composed of child observations, e.g. profile, complex or data array observations. The children
+ * are ordered by vertical level, phenomenon end and start time and id, loaded children are ordered by the
+ * database using the index on the parent reference.
+ */
 public abstract class CompositeDataEntity extends DataEntity<Set<DataEntity<?>>> {
 
+    /**
+     * Named query for the children of several composite observations, parameter {@link #PARAMETER_PARENTS},
+     * ordered by parent and {@link #CHILD_ORDER}.
+     */
+    public static final String QUERY_CHILDREN = "CompositeData.children";
+
+    public static final String PARAMETER_PARENTS = "parents";
+
+    /**
+     * Order of the child observations.
+     */
+    public static final Comparator<DataEntity<?>> CHILD_ORDER =
+            Comparator.comparing(DataEntity<?>::getVerticalFrom, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(DataEntity<?>::getSamplingTimeEnd, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(DataEntity<?>::getSamplingTimeStart,
+                            Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(DataEntity<?>::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
     private static final long serialVersionUID = -2942122854792122664L;
 
+    /**
+     * Get the child observations. The children are mapped with property access, as the enhanced entities are
+     * otherwise accessed by the generic field of {@link DataEntity}, which is not resolved as a collection.
+     *
+     * @return the child observations
+     */
+    @Override
+    @Access(AccessType.PROPERTY)
+    public Set<DataEntity<?>> getValue() {
+        return super.getValue();
+    }
+
+    /**
+     * Set the child observations, which are copied in {@link #CHILD_ORDER}. Collections of Hibernate are
+     * kept, they are ordered by the database and must not be initialized or replaced.
+     *
+     * @param value
+     *            the child observations
+     */
+    @Override
+    public void setValue(Set<DataEntity<?>> value) {
+        if (value == null || value instanceof PersistentCollection) {
+            super.setValue(value);
+        } else {
+            super.setValue(value.stream().sorted(CHILD_ORDER).collect(Collectors.toCollection(LinkedHashSet::new)));
+        }
+    }
+
     @Override
     public boolean isNoDataValue(Collection<String> noDataValues) {
         return false;
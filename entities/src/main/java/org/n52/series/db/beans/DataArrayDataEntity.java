@@ -16,9 +16,6 @@
  */
 package org.n52.series.db.beans;
 
-import java.util.Set;
-import java.util.TreeSet;
-
 public class DataArrayDataEntity extends CompositeDataEntity {
 
     private static final long serialVersionUID = -1618516259763515255L;
@@ -46,16 +43,6 @@ public class DataArrayDataEntity extends CompositeDataEntity {
         return getResultTemplate() != null;
     }
 
-    @Override
-    public Set<DataEntity<?>> getValue() {
-        return super.getValue() != null ? new TreeSet<>(super.getValue()) : super.getValue();
-    }
-
-    @Override
-    public void setValue(Set<DataEntity<?>> value) {
-        super.setValue(value);
-    }
-
     /**
      * @return the stringValue
      */
@@ -72,6 +72,11 @@ public abstract class DataEntity<T> extends DescribableEntity implements Compara
 
     public static final String PROPERTY_EREPORTING_PROFILE = "ereportingProfile";
 
+    /**
+     * Name of the Hibernate filter that excludes observations marked as deleted.
+     */
+    public static final String FILTER_NOT_DELETED = "observationNotDeleted";
+
     public static final BigDecimal NOT_SET_VERTICAL = BigDecimal.valueOf(0);
 
     private static final long serialVersionUID = 273612846605300612L;
@@ -251,6 +256,16 @@ public abstract class DataEntity<T> extends DescribableEntity implements Compara
         return getParent() != null;
     }
 
+    @Override
+    public void setId(Long id) {
+        super.setId(id);
+    }
+
+    @Override
+    public void setIdentifier(String identifier, boolean staSupportsUrls) {
+        super.setIdentifier(identifier, staSupportsUrls);
+    }
+
     @Override
     public DatasetEntity getDataset() {
         return dataset;
@@ -269,6 +284,18 @@ public abstract class DataEntity<T> extends DescribableEntity implements Compara
         this.datasetId = datasetId;
     }
 
+    /**
+     * Get the id of the dataset without initializing a lazy dataset association.
+     *
+     * @return the dataset id
+     */
+    public Long resolveDatasetId() {
+        if (getDatasetId() != null) {
+            return getDatasetId();
+        }
+        return getDataset() != null ? getDataset().getId() : null;
+    }
+
     public Set<RelatedDataEntity> getRelatedObservations() {
         return relatedObservations;
     }
@@ -388,24 +415,54 @@ public abstract class DataEntity<T> extends DescribableEntity implements Compara
                 .compare(this, o);
     }
 
+    /**
+     * Consistent with {@link #equals(Object)}, the hash code of persistent observations is calculated from
+     * the id, of transient observations from the identifier, the dataset id, the times and the vertical
+     * interval, which are part of the natural key of an observation. Neither the value nor lazy associations
+     * are accessed, so adding observations to hash based collections does not initialize proxies or composite
+     * children. The hash code is not cached, because Hibernate may assign the id without calling a setter, so
+     * transient observations have to be added to hash based collections again after they are saved.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), getDataset(), getSamplingTimeStart(), getSamplingTimeEnd(),
-                getResultTime(), getValue());
+        return getId() != null ? Long.hashCode(getId())
+                : Objects.hash(getIdentifier(), resolveDatasetId(), samplingTimeStart, samplingTimeEnd, resultTime,
+                        hashVertical(verticalFrom), hashVertical(verticalTo));
     }
 
+    /**
+     * Persistent observations are equal if they have the same id, which is read without initializing a proxy
+     * of the other observation. Transient observations are compared by the natural key of the observation
+     * table.
+     */
     @Override
     public boolean equals(Object obj) {
-        if (obj == null || !(obj instanceof DataEntity)) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DataEntity)) {
             return false;
         }
-        DataEntity other = (DataEntity) obj;
-        return super.equals(obj) && Objects.equals(getDataset(), other.getDataset())
-                && Objects.equals(getSamplingTimeStart(), other.getSamplingTimeStart())
-                && Objects.equals(getSamplingTimeStart(), other.getSamplingTimeStart())
-                && Objects.equals(getSamplingTimeEnd(), other.getSamplingTimeEnd())
-                && Objects.equals(getResultTime(), other.getResultTime())
-                && Objects.equals(getValue(), other.getValue());
+        DataEntity<?> other = (DataEntity<?>) obj;
+        if (getId() != null || other.getId() != null) {
+            return Objects.equals(getId(), other.getId());
+        }
+        return getClass() == other.getClass() && Objects.equals(getIdentifier(), other.getIdentifier())
+                && Objects.equals(getStaIdentifier(), other.getStaIdentifier())
+                && Objects.equals(resolveDatasetId(), other.resolveDatasetId())
+                && Objects.equals(samplingTimeStart, other.samplingTimeStart)
+                && Objects.equals(samplingTimeEnd, other.samplingTimeEnd)
+                && Objects.equals(resultTime, other.resultTime) && isEqual(verticalFrom, other.verticalFrom)
+                && isEqual(verticalTo, other.verticalTo);
+    }
+
+    private static int hashVertical(BigDecimal value) {
+        // equal values with different scales have to have the same hash code
+        return value == null ? 0 : Double.hashCode(value.doubleValue());
+    }
+
+    private boolean isEqual(BigDecimal value, BigDecimal other) {
+        return value == null ? other == null : other != null && value.compareTo(other) == 0;
     }
 
     @Override
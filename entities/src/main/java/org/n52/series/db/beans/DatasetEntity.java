@@ -61,6 +61,14 @@ public class DatasetEntity extends DescribableEntity implements Serializable {
     public static final String PROPERTY_SAMPLING_PROFILE = "samplingProfile";
     public static final String PROPERTY_EREPORTING_PROFILE = "ereportingProfile";
 
+    /**
+     * Names of the Hibernate filters that restrict queries to visible datasets.
+     */
+    public static final String FILTER_NOT_DELETED = "datasetNotDeleted";
+    public static final String FILTER_NOT_DISABLED = "datasetNotDisabled";
+    public static final String FILTER_PUBLISHED = "datasetPublished";
+    public static final String FILTER_NOT_HIDDEN = "datasetNotHidden";
+
     private static final long serialVersionUID = -7491530543976690237L;
 
     private PhenomenonEntity phenomenon;
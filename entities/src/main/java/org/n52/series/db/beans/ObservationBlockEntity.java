@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import java.util.Date;
+
+import org.n52.series.db.common.Utils;
+
+/**
+ * Compressed block of historic observations of a dataset. A block covers the period [periodStart, periodEnd)
+ * of the phenomenon start time and holds the observations in the encoding of
+ * {@link org.n52.series.db.archive.ObservationBlockCodec}.
+ *
+ * @since 3.0.0
+ */
+public class ObservationBlockEntity extends IdEntity {
+
+    public static final String PROPERTY_DATASET = "dataset";
+    public static final String PROPERTY_DATASET_ID = "datasetId";
+    public static final String PROPERTY_PERIOD_START = "periodStart";
+    public static final String PROPERTY_PERIOD_END = "periodEnd";
+
+    /**
+     * Named query for the observations (without child observations) of a dataset with a phenomenon start time
+     * in a time range, parameters {@link #PARAMETER_DATASET}, {@link #PARAMETER_START} and
+     * {@link #PARAMETER_END}, ordered by time and id.
+     */
+    public static final String QUERY_OBSERVATIONS = "ObservationBlock.observations";
+
+    /**
+     * Named query for the observations of a dataset period like {@link #QUERY_OBSERVATIONS}, but without the
+     * observations which have parameters, related observations or translations.
+     */
+    public static final String QUERY_COMPACTABLE_OBSERVATIONS = "ObservationBlock.compactableObservations";
+
+    /**
+     * Named query for the blocks of a dataset overlapping a time range, parameters
+     * {@link #PARAMETER_DATASET}, {@link #PARAMETER_START} and {@link #PARAMETER_END}, ordered by the period
+     * start.
+     */
+    public static final String QUERY_BLOCKS = "ObservationBlock.blocks";
+
+    /**
+     * Named query for the block of a dataset starting at a time, parameters {@link #PARAMETER_DATASET} and
+     * {@link #PARAMETER_START}.
+     */
+    public static final String QUERY_BLOCK = "ObservationBlock.block";
+
+    public static final String PARAMETER_DATASET = PROPERTY_DATASET;
+    public static final String PARAMETER_START = "start";
+    public static final String PARAMETER_END = "end";
+
+    private static final long serialVersionUID = -2520381749183536707L;
+
+    private DatasetEntity dataset;
+
+    private Long datasetId;
+
+    private Date periodStart;
+
+    private Date periodEnd;
+
+    private int valueCount;
+
+    private int encoding;
+
+    private Date created;
+
+    private byte[] content;
+
+    public DatasetEntity getDataset() {
+        return dataset;
+    }
+
+    public ObservationBlockEntity setDataset(DatasetEntity dataset) {
+        this.dataset = dataset;
+        return this;
+    }
+
+    public Long getDatasetId() {
+        return datasetId;
+    }
+
+    public ObservationBlockEntity setDatasetId(Long datasetId) {
+        this.datasetId = datasetId;
+        return this;
+    }
+
+    public Date getPeriodStart() {
+        return Utils.createUnmutableTimestamp(periodStart);
+    }
+
+    public ObservationBlockEntity setPeriodStart(Date periodStart) {
+        this.periodStart = Utils.createUnmutableTimestamp(periodStart);
+        return this;
+    }
+
+    public Date getPeriodEnd() {
+        return Utils.createUnmutableTimestamp(periodEnd);
+    }
+
+    public ObservationBlockEntity setPeriodEnd(Date periodEnd) {
+        this.periodEnd = Utils.createUnmutableTimestamp(periodEnd);
+        return this;
+    }
+
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    public ObservationBlockEntity setValueCount(int valueCount) {
+        this.valueCount = valueCount;
+        return this;
+    }
+
+    public int getEncoding() {
+        return encoding;
+    }
+
+    public ObservationBlockEntity setEncoding(int encoding) {
+        this.encoding = encoding;
+        return this;
+    }
+
+    public Date getCreated() {
+        return Utils.createUnmutableTimestamp(created);
+    }
+
+    public ObservationBlockEntity setCreated(Date created) {
+        this.created = Utils.createUnmutableTimestamp(created);
+        return this;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public ObservationBlockEntity setContent(byte[] content) {
+        this.content = content;
+        return this;
+    }
+
+    public boolean hasContent() {
+        return getContent() != null && getContent().length > 0;
+    }
+
+    /**
+     * Check if the block overlaps the time range [start, end).
+     *
+     * @param start
+     *            the start of the time range
+     * @param end
+     *            the end of the time range
+     * @return <code>true</code>, if the block overlaps the time range
+     */
+    public boolean overlaps(Date start, Date end) {
+        return getPeriodStart().before(end) && getPeriodEnd().after(start);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import java.util.Date;
+
+import org.n52.series.db.common.Utils;
+
+/**
+ * Append-only change log entry of the observation table. The entries are written by database triggers in the
+ * same transaction as the inserted, updated or deleted observation, so that consumers can tail the changes by
+ * the increasing id instead of querying the observations by time.
+ * <p>
+ * Consumers keep the id of the last processed entry as cursor and query the next entries with
+ * {@link #QUERY_CHANGES_AFTER}, old entries are removed with {@link #QUERY_DELETE_BEFORE}. As ids are
+ * assigned before commit, entries of still running transactions can become visible after entries with higher
+ * ids, the {@link org.n52.series.db.change.ObservationChangeCursor} re-reads a window after its position for
+ * them. Deletes of the maintenance tasks are logged with their own operations (see
+ * {@link org.n52.series.db.change.ObservationChangeLog}).
+ *
+ * @since 3.0.0
+ */
+public class ObservationChangeEntity extends IdEntity {
+
+    public static final String PROPERTY_OBSERVATION_ID = "observationId";
+    public static final String PROPERTY_DATASET_ID = "datasetId";
+    public static final String PROPERTY_OPERATION = "operation";
+    public static final String PROPERTY_CHANGED = "changed";
+
+    /**
+     * Named query for the changes after a cursor, parameter {@link #PARAMETER_CURSOR}, ordered by id.
+     */
+    public static final String QUERY_CHANGES_AFTER = "ObservationChange.changesAfter";
+
+    /**
+     * Named query to delete the changes before a time, parameter {@link #PARAMETER_BEFORE}.
+     */
+    public static final String QUERY_DELETE_BEFORE = "ObservationChange.deleteBefore";
+
+    public static final String PARAMETER_CURSOR = "cursor";
+    public static final String PARAMETER_BEFORE = "before";
+
+    private static final long serialVersionUID = -1474208370318637591L;
+
+    private Long observationId;
+
+    private Long datasetId;
+
+    private String operation;
+
+    private Date changed;
+
+    public Long getObservationId() {
+        return observationId;
+    }
+
+    public ObservationChangeEntity setObservationId(Long observationId) {
+        this.observationId = observationId;
+        return this;
+    }
+
+    public Long getDatasetId() {
+        return datasetId;
+    }
+
+    public ObservationChangeEntity setDatasetId(Long datasetId) {
+        this.datasetId = datasetId;
+        return this;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public ObservationChangeEntity setOperation(String operation) {
+        this.operation = operation;
+        return this;
+    }
+
+    public Operation getOperationType() {
+        return Operation.fromCode(getOperation());
+    }
+
+    public Date getChanged() {
+        return Utils.createUnmutableTimestamp(changed);
+    }
+
+    public ObservationChangeEntity setChanged(Date changed) {
+        this.changed = Utils.createUnmutableTimestamp(changed);
+        return this;
+    }
+
+    public enum Operation {
+        INSERT("I"), UPDATE("U"), DELETE("D"),
+        /**
+         * Deleted by the compaction into an observation block, the value is still available from the block.
+         */
+        ARCHIVE("A"),
+        /**
+         * Deleted by the retention purge.
+         */
+        PURGE("P"),
+        /**
+         * Deleted with its dataset.
+         */
+        REMOVE("R");
+
+        private final String code;
+
+        Operation(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public static Operation fromCode(String code) {
+            for (Operation operation : values()) {
+                if (operation.getCode().equals(code)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown operation code '%s'!", code));
+        }
+    }
+}
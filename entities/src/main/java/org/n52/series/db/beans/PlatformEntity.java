@@ -34,6 +34,28 @@ public class PlatformEntity extends DescribableEntity
     public static final String PROPERTY_PROPERTIES = "properties";
     public static final String PROPERTY_HISTORICAL_LOCATIONS = "historicalLocations";
     public static final String PROPERTY_DATASTREAMS = "datastreams";
+    public static final String PROPERTY_LATEST_HISTORICAL_LOCATION = "latestHistoricalLocation";
+
+    /**
+     * Named native query to set the latest historical location of the platforms with the ids
+     * {@link #PARAMETER_IDS} to the historical location with the latest time.
+     */
+    public static final String QUERY_UPDATE_LATEST_HISTORICAL_LOCATION = "Platform.updateLatestHistoricalLocation";
+
+    /**
+     * Named native query to set the latest historical location of all platforms, e.g. after a migration.
+     */
+    public static final String QUERY_UPDATE_ALL_LATEST_HISTORICAL_LOCATIONS =
+            "Platform.updateAllLatestHistoricalLocations";
+
+    /**
+     * Named native query to remove the reference to the historical location
+     * {@link #PARAMETER_HISTORICAL_LOCATION} before it is deleted.
+     */
+    public static final String QUERY_CLEAR_LATEST_HISTORICAL_LOCATION = "Platform.clearLatestHistoricalLocation";
+
+    public static final String PARAMETER_IDS = "ids";
+    public static final String PARAMETER_HISTORICAL_LOCATION = "historicalLocation";
 
     private static final long serialVersionUID = 3615089936334873353L;
 
@@ -41,6 +63,7 @@ public class PlatformEntity extends DescribableEntity
     private Set<ParameterEntity<?>> parameters;
     private Set<LocationEntity> locations;
     private Set<HistoricalLocationEntity> historicalLocations;
+    private HistoricalLocationEntity latestHistoricalLocation;
     private Set<DatastreamEntity> datastreams;
     private boolean processed;
 
@@ -97,9 +120,52 @@ public class PlatformEntity extends DescribableEntity
             historicalLocations = new LinkedHashSet<>();
         }
         historicalLocations.add(historicalLocation);
+        updateLatestHistoricalLocation(historicalLocation);
+        return this;
+    }
+
+    /**
+     * Get the latest historical location of this platform. The value allows to resolve the current location
+     * of many things without scanning the historical locations. It is maintained in the database by the
+     * {@link org.n52.series.db.sta.LatestHistoricalLocationEventListener} when historical locations are saved
+     * or deleted, the value of a loaded platform is only updated by
+     * {@link #addHistoricalLocation(HistoricalLocationEntity)}.
+     *
+     * @return the latest historical location
+     */
+    public HistoricalLocationEntity getLatestHistoricalLocation() {
+        return latestHistoricalLocation;
+    }
+
+    public PlatformEntity setLatestHistoricalLocation(HistoricalLocationEntity latestHistoricalLocation) {
+        this.latestHistoricalLocation = latestHistoricalLocation;
         return this;
     }
 
+    public boolean hasLatestHistoricalLocation() {
+        return getLatestHistoricalLocation() != null;
+    }
+
+    /**
+     * Set the historical location as latest historical location if its time is not before the current latest
+     * one.
+     *
+     * @param historicalLocation
+     *            the historical location to check
+     * @return <code>true</code>, if the latest historical location was updated
+     */
+    public boolean updateLatestHistoricalLocation(HistoricalLocationEntity historicalLocation) {
+        if (historicalLocation == null || historicalLocation.getTime() == null) {
+            return false;
+        }
+        if (!hasLatestHistoricalLocation() || getLatestHistoricalLocation().getTime() == null
+                || !historicalLocation.getTime().before(getLatestHistoricalLocation().getTime())) {
+            setLatestHistoricalLocation(historicalLocation);
+            return true;
+        }
+        return false;
+    }
+
     public Set<DatastreamEntity> getDatastreams() {
         return datastreams;
     }
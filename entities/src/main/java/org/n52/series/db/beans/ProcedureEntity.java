@@ -31,6 +31,7 @@ public class ProcedureEntity extends HierarchicalEntity<ProcedureEntity> impleme
     public static final String PROPERTY_VALID_PROCEDURE_TIME = "procedureHistory";
     public static final String PROPERTY_PROCEDURE_DESCRIPTION_FORMAT = "format";
     public static final String PROPERTY_DESCRIPTION_FILE = "descriptionFile";
+    public static final String PROPERTY_CURRENT_DESCRIPTION = "currentDescription";
 
     private static final long serialVersionUID = 4028002933920185756L;
 
@@ -50,6 +51,8 @@ public class ProcedureEntity extends HierarchicalEntity<ProcedureEntity> impleme
 
     private Set<ProcedureHistoryEntity> procedureHistory;
 
+    private ProcedureHistoryEntity currentDescription;
+
     private GeometryEntity geometryEntity;
 
     public boolean isReference() {
@@ -133,6 +136,24 @@ public class ProcedureEntity extends HierarchicalEntity<ProcedureEntity> impleme
         this.procedureHistory = procedureHistory;
     }
 
+    /**
+     * Get the currently valid entry of the procedure history, which is updated when descriptions are inserted
+     * with {@link org.n52.series.db.history.ProcedureDescriptions}.
+     *
+     * @return the current description
+     */
+    public ProcedureHistoryEntity getCurrentDescription() {
+        return currentDescription;
+    }
+
+    public void setCurrentDescription(ProcedureHistoryEntity currentDescription) {
+        this.currentDescription = currentDescription;
+    }
+
+    public boolean isSetCurrentDescription() {
+        return getCurrentDescription() != null;
+    }
+
     @Override
     public GeometryEntity getGeometryEntity() {
         return geometryEntity;
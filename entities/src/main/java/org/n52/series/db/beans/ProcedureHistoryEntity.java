@@ -34,6 +34,21 @@ public class ProcedureHistoryEntity extends IdEntity implements Serializable, Ha
     public static final String START_TIME = "startTime";
     public static final String END_TIME = "endTime";
 
+    /**
+     * Named query for the description of a procedure valid at a time, parameters {@link #PARAMETER_PROCEDURE}
+     * and {@link #PARAMETER_TIME}, ordered by start time descending.
+     */
+    public static final String QUERY_VALID_AT = "ProcedureHistory.validAt";
+
+    /**
+     * Named query for the descriptions of a procedure without end time, parameter
+     * {@link #PARAMETER_PROCEDURE}, ordered by start time.
+     */
+    public static final String QUERY_OPEN = "ProcedureHistory.open";
+
+    public static final String PARAMETER_PROCEDURE = PROPERTY_PROCEDURE;
+    public static final String PARAMETER_TIME = "time";
+
     private static final long serialVersionUID = -3658568714438752174L;
 
     private FormatEntity format;
@@ -86,6 +101,15 @@ public class ProcedureHistoryEntity extends IdEntity implements Serializable, Ha
         return this;
     }
 
+    /**
+     * @param time
+     *            the time
+     * @return if the description is valid at the time, the end time is exclusive
+     */
+    public boolean isValidAt(Date time) {
+        return startTime != null && !startTime.after(time) && (endTime == null || endTime.after(time));
+    }
+
     @Override
     public String getXml() {
         return xml;
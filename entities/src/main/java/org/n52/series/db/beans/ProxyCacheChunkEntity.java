@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import java.util.Date;
+
+import org.n52.series.db.common.Utils;
+
+/**
+ * Locally cached chunk of the values of a proxied dataset. A chunk covers the time range [timeStart, timeEnd)
+ * and holds the values as fetched from the remote source of the service.
+ *
+ * @since 3.0.0
+ */
+public class ProxyCacheChunkEntity extends IdEntity {
+
+    public static final String PROPERTY_DATASET = "dataset";
+    public static final String PROPERTY_DATASET_ID = "datasetId";
+    public static final String PROPERTY_TIME_START = "timeStart";
+    public static final String PROPERTY_TIME_END = "timeEnd";
+    public static final String PROPERTY_FETCHED = "fetched";
+    public static final String PROPERTY_LAST_ACCESS = "lastAccess";
+
+    private static final long serialVersionUID = 6219087265305867428L;
+
+    private DatasetEntity dataset;
+
+    private Long datasetId;
+
+    private Date timeStart;
+
+    private Date timeEnd;
+
+    private Date fetched;
+
+    private Date lastAccess;
+
+    private int valueCount;
+
+    private long size;
+
+    private byte[] content;
+
+    public DatasetEntity getDataset() {
+        return dataset;
+    }
+
+    public ProxyCacheChunkEntity setDataset(DatasetEntity dataset) {
+        this.dataset = dataset;
+        return this;
+    }
+
+    public Long getDatasetId() {
+        return datasetId;
+    }
+
+    public ProxyCacheChunkEntity setDatasetId(Long datasetId) {
+        this.datasetId = datasetId;
+        return this;
+    }
+
+    public Date getTimeStart() {
+        return Utils.createUnmutableTimestamp(timeStart);
+    }
+
+    public ProxyCacheChunkEntity setTimeStart(Date timeStart) {
+        this.timeStart = Utils.createUnmutableTimestamp(timeStart);
+        return this;
+    }
+
+    public Date getTimeEnd() {
+        return Utils.createUnmutableTimestamp(timeEnd);
+    }
+
+    public ProxyCacheChunkEntity setTimeEnd(Date timeEnd) {
+        this.timeEnd = Utils.createUnmutableTimestamp(timeEnd);
+        return this;
+    }
+
+    public Date getFetched() {
+        return Utils.createUnmutableTimestamp(fetched);
+    }
+
+    public ProxyCacheChunkEntity setFetched(Date fetched) {
+        this.fetched = Utils.createUnmutableTimestamp(fetched);
+        return this;
+    }
+
+    public Date getLastAccess() {
+        return Utils.createUnmutableTimestamp(lastAccess);
+    }
+
+    public ProxyCacheChunkEntity setLastAccess(Date lastAccess) {
+        this.lastAccess = Utils.createUnmutableTimestamp(lastAccess);
+        return this;
+    }
+
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    public ProxyCacheChunkEntity setValueCount(int valueCount) {
+        this.valueCount = valueCount;
+        return this;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public ProxyCacheChunkEntity setSize(long size) {
+        this.size = size;
+        return this;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public ProxyCacheChunkEntity setContent(byte[] content) {
+        this.content = content;
+        setSize(content != null ? content.length : 0);
+        return this;
+    }
+
+    public boolean hasContent() {
+        return getContent() != null && getContent().length > 0;
+    }
+
+    /**
+     * Check if the chunk is expired.
+     *
+     * @param ttl
+     *            the time to live in milliseconds, values less than 1 disable the expiration
+     * @param now
+     *            the current time
+     * @return <code>true</code>, if the chunk was fetched more than ttl milliseconds before now
+     */
+    public boolean isExpired(long ttl, Date now) {
+        return ttl > 0 && getFetched() != null && getFetched().getTime() + ttl <= now.getTime();
+    }
+
+    /**
+     * Check if the chunk overlaps the time range [start, end).
+     *
+     * @param start
+     *            the start of the time range
+     * @param end
+     *            the end of the time range
+     * @return <code>true</code>, if the chunk overlaps the time range
+     */
+    public boolean overlaps(Date start, Date end) {
+        return getTimeStart().before(end) && getTimeEnd().after(start);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+/**
+ * Cache policy of a proxied dataset: the time to live of the cached chunks and the maximum size of all cached
+ * chunks of the dataset.
+ *
+ * @since 3.0.0
+ */
+public class ProxyCachePolicyEntity extends IdEntity {
+
+    public static final String PROPERTY_DATASET = "dataset";
+    public static final String PROPERTY_DATASET_ID = "datasetId";
+
+    /**
+     * Default time to live of cached chunks (one hour) in milliseconds.
+     */
+    public static final long DEFAULT_TTL = 60 * 60 * 1000L;
+
+    /**
+     * Default maximum size of the cached chunks of a dataset (16 MB) in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024L;
+
+    private static final long serialVersionUID = -5893320611870316645L;
+
+    private DatasetEntity dataset;
+
+    private Long datasetId;
+
+    private long ttl = DEFAULT_TTL;
+
+    private long maxSize = DEFAULT_MAX_SIZE;
+
+    public DatasetEntity getDataset() {
+        return dataset;
+    }
+
+    public ProxyCachePolicyEntity setDataset(DatasetEntity dataset) {
+        this.dataset = dataset;
+        return this;
+    }
+
+    public Long getDatasetId() {
+        return datasetId;
+    }
+
+    public ProxyCachePolicyEntity setDatasetId(Long datasetId) {
+        this.datasetId = datasetId;
+        return this;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public ProxyCachePolicyEntity setTtl(long ttl) {
+        this.ttl = ttl;
+        return this;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public ProxyCachePolicyEntity setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+}
@@ -36,6 +36,8 @@ public class ResultTemplateEntity extends IdEntity implements Serializable, HasR
 
     public static final String PROPERTY_PROCEDURE = "procedure";
 
+    public static final String PROPERTY_VERSION = "version";
+
     private static final long serialVersionUID = -8847952458819368733L;
 
     private PhenomenonEntity phenomenon;
@@ -48,6 +50,8 @@ public class ResultTemplateEntity extends IdEntity implements Serializable, HasR
 
     private String identifier;
 
+    private Long version;
+
     private String domain;
 
     private String structure;
@@ -56,11 +60,24 @@ public class ResultTemplateEntity extends IdEntity implements Serializable, HasR
 
     private String observationStructure;
 
-    private String observationsEncoding;
+    private String observationEncoding;
 
     public ResultTemplateEntity() {
     }
 
+    /**
+     * Get the version of the template, which is incremented by Hibernate with every update of the template.
+     *
+     * @return the version, <code>null</code> for transient templates
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getDomain() {
         return domain;
     }
@@ -174,11 +191,11 @@ public class ResultTemplateEntity extends IdEntity implements Serializable, HasR
     }
 
     public String getObservationEncoding() {
-        return this.observationsEncoding;
+        return this.observationEncoding;
     }
 
-    public void setObservationEncoding(String observationsEncoding) {
-        this.observationsEncoding = observationsEncoding;
+    public void setObservationEncoding(String observationEncoding) {
+        this.observationEncoding = observationEncoding;
     }
 
     public boolean isSetObservationEncoding() {
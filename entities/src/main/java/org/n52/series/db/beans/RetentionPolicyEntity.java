@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+/**
+ * Retention policy of the raw observations of a dataset, or of all datasets of a category or phenomenon.
+ * Exactly one of dataset, category and phenomenon is set. If several policies apply to a dataset, the dataset
+ * policy overrides the phenomenon policy, which overrides the category policy. Datasets without policy keep
+ * their observations.
+ *
+ * @since 3.0.0
+ */
+public class RetentionPolicyEntity extends IdEntity {
+
+    public static final String PROPERTY_DATASET = "dataset";
+    public static final String PROPERTY_CATEGORY = "category";
+    public static final String PROPERTY_PHENOMENON = "phenomenon";
+    public static final String PROPERTY_RETENTION = "retention";
+
+    /**
+     * Named query for all retention policies.
+     */
+    public static final String QUERY_POLICIES = "RetentionPolicy.policies";
+
+    /**
+     * Named query for the datasets of a category, parameter {@link #PARAMETER_CATEGORY}.
+     */
+    public static final String QUERY_CATEGORY_DATASETS = "RetentionPolicy.categoryDatasets";
+
+    /**
+     * Named query for the datasets of a phenomenon, parameter {@link #PARAMETER_PHENOMENON}.
+     */
+    public static final String QUERY_PHENOMENON_DATASETS = "RetentionPolicy.phenomenonDatasets";
+
+    public static final String PARAMETER_CATEGORY = PROPERTY_CATEGORY;
+    public static final String PARAMETER_PHENOMENON = PROPERTY_PHENOMENON;
+
+    private static final long serialVersionUID = 3317802512442862150L;
+
+    private DatasetEntity dataset;
+
+    private CategoryEntity category;
+
+    private PhenomenonEntity phenomenon;
+
+    private long retention;
+
+    public DatasetEntity getDataset() {
+        return dataset;
+    }
+
+    public RetentionPolicyEntity setDataset(DatasetEntity dataset) {
+        this.dataset = dataset;
+        return this;
+    }
+
+    public boolean isSetDataset() {
+        return getDataset() != null;
+    }
+
+    public CategoryEntity getCategory() {
+        return category;
+    }
+
+    public RetentionPolicyEntity setCategory(CategoryEntity category) {
+        this.category = category;
+        return this;
+    }
+
+    public boolean isSetCategory() {
+        return getCategory() != null;
+    }
+
+    public PhenomenonEntity getPhenomenon() {
+        return phenomenon;
+    }
+
+    public RetentionPolicyEntity setPhenomenon(PhenomenonEntity phenomenon) {
+        this.phenomenon = phenomenon;
+        return this;
+    }
+
+    public boolean isSetPhenomenon() {
+        return getPhenomenon() != null;
+    }
+
+    /**
+     * @return the time in milliseconds the observations are kept, values less than 1 keep the observations
+     *         forever
+     */
+    public long getRetention() {
+        return retention;
+    }
+
+    public RetentionPolicyEntity setRetention(long retention) {
+        this.retention = retention;
+        return this;
+    }
+
+    public boolean isExpiring() {
+        return getRetention() > 0;
+    }
+}
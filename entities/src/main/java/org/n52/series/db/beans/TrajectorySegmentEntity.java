@@ -0,0 +1,323 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateXYM;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.n52.series.db.common.Utils;
+
+/**
+ * Compact storage of the positions of a mobile dataset within a time bucket. The positions are stored as a
+ * single {@link LineString} whose M values hold the epoch milliseconds of the positions, so that a track can
+ * be rendered from a few segments instead of one sampling geometry per observation. The segments are
+ * maintained from the inserted observations by the
+ * {@link org.n52.series.db.trajectory.TrajectorySegmentEventListener}.
+ *
+ * @since 3.0.0
+ */
+public class TrajectorySegmentEntity extends IdEntity {
+
+    public static final String PROPERTY_DATASET = "dataset";
+    public static final String PROPERTY_DATASET_ID = "datasetId";
+    public static final String PROPERTY_BUCKET_START = "bucketStart";
+    public static final String PROPERTY_BUCKET_END = "bucketEnd";
+    public static final String PROPERTY_TIME_START = "timeStart";
+    public static final String PROPERTY_TIME_END = "timeEnd";
+    public static final String PROPERTY_GEOMETRY_ENTITY = "geometryEntity";
+
+    /**
+     * Default size of a time bucket (one day) in milliseconds.
+     */
+    public static final long DEFAULT_BUCKET_SIZE = 24 * 60 * 60 * 1000L;
+
+    /**
+     * Named query for the segment of a dataset starting at a time, parameters {@link #PARAMETER_DATASET} and
+     * {@link #PARAMETER_START}.
+     */
+    public static final String QUERY_SEGMENT = "TrajectorySegment.segment";
+
+    public static final String PARAMETER_DATASET = PROPERTY_DATASET;
+    public static final String PARAMETER_START = "start";
+
+    private static final long serialVersionUID = -2493436017416227587L;
+
+    private DatasetEntity dataset;
+
+    private Long datasetId;
+
+    private Date bucketStart;
+
+    private Date bucketEnd;
+
+    private Date timeStart;
+
+    private Date timeEnd;
+
+    private int positions;
+
+    private GeometryEntity geometryEntity;
+
+    public TrajectorySegmentEntity() {
+    }
+
+    public TrajectorySegmentEntity(DatasetEntity dataset, Date time, long bucketSize) {
+        setDataset(dataset);
+        long start = getBucketStart(time, bucketSize);
+        setBucketStart(new Date(start));
+        setBucketEnd(new Date(start + bucketSize));
+    }
+
+    public DatasetEntity getDataset() {
+        return dataset;
+    }
+
+    public TrajectorySegmentEntity setDataset(DatasetEntity dataset) {
+        this.dataset = dataset;
+        return this;
+    }
+
+    public Long getDatasetId() {
+        return datasetId;
+    }
+
+    public void setDatasetId(Long datasetId) {
+        this.datasetId = datasetId;
+    }
+
+    public Date getBucketStart() {
+        return Utils.createUnmutableTimestamp(bucketStart);
+    }
+
+    /**
+     * Calculates the start of the time bucket the time belongs to.
+     *
+     * @param time
+     *            the time
+     * @param bucketSize
+     *            the size of the bucket in milliseconds
+     * @return the start of the bucket in epoch milliseconds
+     */
+    public static long getBucketStart(Date time, long bucketSize) {
+        if (bucketSize <= 0) {
+            throw new IllegalArgumentException("The bucket size should be greater than 0!");
+        }
+        return Math.floorDiv(time.getTime(), bucketSize) * bucketSize;
+    }
+
+    public TrajectorySegmentEntity setBucketStart(Date bucketStart) {
+        this.bucketStart = Utils.createUnmutableTimestamp(bucketStart);
+        return this;
+    }
+
+    public Date getBucketEnd() {
+        return Utils.createUnmutableTimestamp(bucketEnd);
+    }
+
+    public TrajectorySegmentEntity setBucketEnd(Date bucketEnd) {
+        this.bucketEnd = Utils.createUnmutableTimestamp(bucketEnd);
+        return this;
+    }
+
+    public Date getTimeStart() {
+        return Utils.createUnmutableTimestamp(timeStart);
+    }
+
+    public TrajectorySegmentEntity setTimeStart(Date timeStart) {
+        this.timeStart = Utils.createUnmutableTimestamp(timeStart);
+        return this;
+    }
+
+    public Date getTimeEnd() {
+        return Utils.createUnmutableTimestamp(timeEnd);
+    }
+
+    public TrajectorySegmentEntity setTimeEnd(Date timeEnd) {
+        this.timeEnd = Utils.createUnmutableTimestamp(timeEnd);
+        return this;
+    }
+
+    public int getPositions() {
+        return positions;
+    }
+
+    public TrajectorySegmentEntity setPositions(int positions) {
+        this.positions = positions;
+        return this;
+    }
+
+    public GeometryEntity getGeometryEntity() {
+        return geometryEntity;
+    }
+
+    public TrajectorySegmentEntity setGeometryEntity(GeometryEntity geometryEntity) {
+        this.geometryEntity = geometryEntity;
+        return this;
+    }
+
+    public boolean isSetGeometryEntity() {
+        return getGeometryEntity() != null && getGeometryEntity().isSetGeometry();
+    }
+
+    /**
+     * Checks if the time is covered by the time bucket of this segment.
+     *
+     * @param time
+     *            the time to check
+     * @return <code>true</code>, if bucket start &lt;= time &lt; bucket end
+     */
+    public boolean covers(Date time) {
+        return time != null && bucketStart != null && bucketEnd != null && !time.before(bucketStart)
+                && time.before(bucketEnd);
+    }
+
+    /**
+     * Adds the sampling geometry of the observation to this segment. Observations without a point sampling
+     * geometry are ignored.
+     *
+     * @param observation
+     *            the observation to add
+     * @param factory
+     *            the factory used to create the line string
+     * @return <code>true</code>, if the position was added
+     */
+    public boolean addObservation(DataEntity<?> observation, GeometryFactory factory) {
+        if (observation != null && observation.isSetGeometryEntity()
+                && observation.getGeometryEntity().getGeometry() instanceof Point) {
+            return addPosition(observation.getSamplingTimeStart(),
+                    observation.getGeometryEntity().getGeometry().getCoordinate(), factory);
+        }
+        return false;
+    }
+
+    /**
+     * Adds the position at the given time to this segment. The position is inserted at its temporal position,
+     * an existing position with the same time is replaced.
+     *
+     * @param time
+     *            the time of the position
+     * @param coordinate
+     *            the position
+     * @param factory
+     *            the factory used to create the line string
+     * @return <code>true</code>, if the position was added
+     */
+    public boolean addPosition(Date time, Coordinate coordinate, GeometryFactory factory) {
+        if (time == null || coordinate == null) {
+            return false;
+        }
+        SortedMap<Long, Coordinate> position = new TreeMap<>();
+        position.put(time.getTime(), coordinate);
+        return addPositions(position, factory) == 1;
+    }
+
+    /**
+     * Adds the positions to this segment. The positions are merged with the positions of this segment in one
+     * pass, so the line string is rebuilt once for all positions instead of once per position. Existing
+     * positions with the same time are replaced, positions outside of the time bucket are ignored.
+     *
+     * @param positions
+     *            the positions by epoch milliseconds
+     * @param factory
+     *            the factory used to create the line string
+     * @return the number of added positions
+     */
+    public int addPositions(SortedMap<Long, Coordinate> positions, GeometryFactory factory) {
+        Coordinate[] current = getCoordinates();
+        List<Coordinate> coordinates = new ArrayList<>(current.length + positions.size());
+        int index = 0;
+        int added = 0;
+        for (Map.Entry<Long, Coordinate> position : positions.entrySet()) {
+            double measure = position.getKey();
+            if (position.getValue() == null || !covers(new Date(position.getKey()))) {
+                continue;
+            }
+            while (index < current.length && current[index].getM() < measure) {
+                coordinates.add(current[index++]);
+            }
+            if (index < current.length && current[index].getM() == measure) {
+                index++;
+            }
+            coordinates.add(new CoordinateXYM(position.getValue().getX(), position.getValue().getY(), measure));
+            added++;
+        }
+        if (added > 0) {
+            while (index < current.length) {
+                coordinates.add(current[index++]);
+            }
+            setCoordinates(coordinates.toArray(new Coordinate[0]), factory);
+        }
+        return added;
+    }
+
+    /**
+     * @return the positions of this segment in temporal order, the M value holds the epoch milliseconds
+     */
+    public Coordinate[] getCoordinates() {
+        if (isSetGeometryEntity()) {
+            Geometry geometry = getGeometryEntity().getGeometry();
+            if (geometry instanceof LineString) {
+                CoordinateSequence sequence = ((LineString) geometry).getCoordinateSequence();
+                Coordinate[] coordinates = new Coordinate[sequence.size()];
+                for (int i = 0; i < sequence.size(); i++) {
+                    // sequences read from the database may not declare the measure, but their coordinates
+                    // hold it
+                    Coordinate coordinate = sequence.getCoordinate(i);
+                    coordinates[i] = new CoordinateXYM(coordinate.getX(), coordinate.getY(), coordinate.getM());
+                }
+                // a single position is stored as a degenerated line string
+                return coordinates.length == 2 && coordinates[0].equals2D(coordinates[1])
+                        && coordinates[0].getM() == coordinates[1].getM() ? new Coordinate[] { coordinates[0] }
+                                : coordinates;
+            }
+        }
+        return new Coordinate[0];
+    }
+
+    private void setCoordinates(Coordinate[] coordinates, GeometryFactory factory) {
+        Coordinate[] line =
+                coordinates.length == 1 ? new Coordinate[] { coordinates[0], coordinates[0] } : coordinates;
+        if (getGeometryEntity() == null) {
+            setGeometryEntity(new GeometryEntity());
+        }
+        getGeometryEntity().setGeometryFactory(factory);
+        getGeometryEntity().setGeometry(factory.createLineString(line));
+        getGeometryEntity().setSrid(factory.getSRID());
+        setPositions(coordinates.length);
+        setTimeStart(new Date((long) coordinates[0].getM()));
+        setTimeEnd(new Date((long) coordinates[coordinates.length - 1].getM()));
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        return sb.append(getClass().getSimpleName()).append(" [").append(" id: ").append(getId())
+                .append(", bucketStart: ").append(getBucketStart()).append(", positions: ").append(getPositions())
+                .append(" ]").toString();
+    }
+}
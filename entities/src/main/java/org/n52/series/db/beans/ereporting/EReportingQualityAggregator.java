@@ -0,0 +1,481 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans.ereporting;
+
+import java.io.Serializable;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.n52.series.db.beans.DataEntity;
+
+/**
+ * Incremental aggregator for the yearly e-Reporting quality statistics. Instead of scanning all observations
+ * of a dataset and year, the running counters of the {@link EReportingQualityEntity} are updated for the
+ * inserted, deleted or re-validated observations and the time coverage and data capture flags are derived
+ * from the counters.
+ * <p>
+ * The time coverage is the share of the year covered by observations, the data capture is the share of the
+ * covered time with valid observations. Time covered by overlapping observations is counted once: the change
+ * of the covered time is measured within the intervals of the changed observations, taking the other
+ * observations overlapping them into account. The uncertainty estimation can not be aggregated incrementally
+ * and is left untouched. The counters are maintained from the inserted, updated and deleted observations by
+ * the {@link org.n52.series.db.ereporting.EReportingQualityEventListener}.
+ *
+ * @since 3.0.0
+ */
+public class EReportingQualityAggregator implements Serializable {
+
+    /**
+     * Default threshold for the time coverage and data capture flags.
+     */
+    public static final double DEFAULT_THRESHOLD = 0.9;
+
+    private static final long serialVersionUID = -3162874309421575826L;
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static final long DAY = 24 * HOUR;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final double timeCoverageThreshold;
+
+    private final double dataCaptureThreshold;
+
+    public EReportingQualityAggregator() {
+        this(DEFAULT_THRESHOLD, DEFAULT_THRESHOLD);
+    }
+
+    public EReportingQualityAggregator(double timeCoverageThreshold, double dataCaptureThreshold) {
+        this.timeCoverageThreshold = timeCoverageThreshold;
+        this.dataCaptureThreshold = dataCaptureThreshold;
+    }
+
+    /**
+     * Create an empty quality entity for the dataset, year and primary observation.
+     *
+     * @param dataset
+     *            the dataset id
+     * @param year
+     *            the year
+     * @param primaryObservation
+     *            the primary observation
+     * @return the quality entity with zero counters
+     */
+    public EReportingQualityEntity create(long dataset, int year, String primaryObservation) {
+        EReportingQualityEntity quality = new EReportingQualityEntity();
+        quality.setDataset(dataset);
+        quality.setYear(year);
+        quality.setPrimaryObservation(primaryObservation);
+        updateFlags(quality);
+        return quality;
+    }
+
+    /**
+     * Add an inserted observation without overlapping observations to the counters.
+     *
+     * @param quality
+     *            the quality entity of the dataset, year and primary observation
+     * @param data
+     *            the inserted observation
+     * @return <code>true</code>, if the observation contributes to the quality entity
+     */
+    public boolean add(EReportingQualityEntity quality, DataEntity<?> data) {
+        return add(quality, data, Collections.emptyList());
+    }
+
+    /**
+     * Add an inserted observation to the counters.
+     *
+     * @param quality
+     *            the quality entity of the dataset, year and primary observation
+     * @param data
+     *            the inserted observation
+     * @param others
+     *            the other observations of the dataset overlapping the observation
+     * @return <code>true</code>, if the observation contributes to the quality entity
+     */
+    public boolean add(EReportingQualityEntity quality, DataEntity<?> data,
+            Collection<? extends DataEntity<?>> others) {
+        Interval interval = toInterval(quality, data);
+        if (interval == null) {
+            return false;
+        }
+        update(quality, Collections.emptyList(), Collections.singletonList(interval), toIntervals(quality, others));
+        return true;
+    }
+
+    /**
+     * Remove a deleted observation without overlapping observations from the counters.
+     *
+     * @param quality
+     *            the quality entity of the dataset, year and primary observation
+     * @param data
+     *            the deleted observation
+     * @return <code>true</code>, if the observation contributes to the quality entity
+     */
+    public boolean remove(EReportingQualityEntity quality, DataEntity<?> data) {
+        return remove(quality, data, Collections.emptyList());
+    }
+
+    /**
+     * Remove a deleted observation from the counters.
+     *
+     * @param quality
+     *            the quality entity of the dataset, year and primary observation
+     * @param data
+     *            the deleted observation
+     * @param others
+     *            the other observations of the dataset overlapping the observation
+     * @return <code>true</code>, if the observation contributes to the quality entity
+     */
+    public boolean remove(EReportingQualityEntity quality, DataEntity<?> data,
+            Collection<? extends DataEntity<?>> others) {
+        Interval interval = toInterval(quality, data);
+        if (interval == null) {
+            return false;
+        }
+        update(quality, Collections.singletonList(interval), Collections.emptyList(), toIntervals(quality, others));
+        return true;
+    }
+
+    /**
+     * Update the counters for a re-validated observation without overlapping observations.
+     *
+     * @param quality
+     *            the quality entity of the dataset, year and primary observation
+     * @param data
+     *            the observation with the new validation
+     * @param previousValidation
+     *            the validation of the observation before the re-validation
+     * @return <code>true</code>, if the observation contributes to the quality entity
+     */
+    public boolean revalidate(EReportingQualityEntity quality, DataEntity<?> data, Integer previousValidation) {
+        return revalidate(quality, data, previousValidation, Collections.emptyList());
+    }
+
+    /**
+     * Update the counters for a re-validated observation.
+     *
+     * @param quality
+     *            the quality entity of the dataset, year and primary observation
+     * @param data
+     *            the observation with the new validation
+     * @param previousValidation
+     *            the validation of the observation before the re-validation
+     * @param others
+     *            the other observations of the dataset overlapping the observation
+     * @return <code>true</code>, if the observation contributes to the quality entity
+     */
+    public boolean revalidate(EReportingQualityEntity quality, DataEntity<?> data, Integer previousValidation,
+            Collection<? extends DataEntity<?>> others) {
+        Interval interval = toInterval(quality, data);
+        if (interval == null) {
+            return false;
+        }
+        Interval previous = new Interval(interval.getStart(), interval.getEnd(), isValid(previousValidation));
+        update(quality, Collections.singletonList(previous), Collections.singletonList(interval),
+                toIntervals(quality, others));
+        return true;
+    }
+
+    /**
+     * Update the counters for changed observations. The covered and valid time is changed by the difference
+     * of the time covered by the observations before and after the change within the intervals of the removed
+     * and added observations.
+     *
+     * @param quality
+     *            the quality entity of the dataset, year and primary observation
+     * @param removed
+     *            the intervals of the deleted observations and of the updated observations before the update
+     * @param added
+     *            the intervals of the inserted observations and of the updated observations after the update
+     * @param unchanged
+     *            the intervals of the unchanged observations overlapping the removed or added intervals
+     */
+    public void update(EReportingQualityEntity quality, Collection<Interval> removed, Collection<Interval> added,
+            Collection<Interval> unchanged) {
+        List<Interval> changed = new ArrayList<>(removed);
+        changed.addAll(added);
+        List<long[]> window = union(changed, false);
+        List<Interval> before = new ArrayList<>(unchanged);
+        before.addAll(removed);
+        List<Interval> after = new ArrayList<>(unchanged);
+        after.addAll(added);
+        quality.setObservationCount(Math.max(0, quality.getObservationCount() + added.size() - removed.size()));
+        quality.setValidCount(Math.max(0, quality.getValidCount() + countValid(added) - countValid(removed)));
+        quality.setCoveredTime(Math.max(0, quality.getCoveredTime() + measure(union(after, false), window)
+                - measure(union(before, false), window)));
+        quality.setValidTime(Math.max(0,
+                quality.getValidTime() + measure(union(after, true), window) - measure(union(before, true), window)));
+        updateFlags(quality);
+    }
+
+    /**
+     * Recalculate the counters from all observations of the dataset, year and primary observation.
+     *
+     * @param quality
+     *            the quality entity to recalculate
+     * @param observations
+     *            the intervals of all observations
+     */
+    public void recalculate(EReportingQualityEntity quality, Collection<Interval> observations) {
+        quality.setObservationCount(0);
+        quality.setValidCount(0);
+        quality.setCoveredTime(0);
+        quality.setValidTime(0);
+        update(quality, Collections.emptyList(), observations, Collections.emptyList());
+    }
+
+    /**
+     * Derive the time coverage and data capture flags from the counters.
+     *
+     * @param quality
+     *            the quality entity to update
+     */
+    public void updateFlags(EReportingQualityEntity quality) {
+        long yearLength = getYearEnd(quality.getYear()) - getYearStart(quality.getYear()).getTime();
+        double timeCoverage = (double) quality.getCoveredTime() / yearLength;
+        double dataCapture =
+                quality.getCoveredTime() > 0 ? (double) quality.getValidTime() / quality.getCoveredTime() : 0;
+        quality.setTimeCoverageFlag(timeCoverage >= timeCoverageThreshold);
+        quality.setDataCaptureFlag(dataCapture >= dataCaptureThreshold);
+    }
+
+    /**
+     * Get the interval of the observation within the year of the quality entity.
+     *
+     * @param quality
+     *            the quality entity of the dataset, year and primary observation
+     * @param data
+     *            the observation
+     * @return the interval, or <code>null</code> if the observation does not contribute to the quality entity
+     */
+    public Interval toInterval(EReportingQualityEntity quality, DataEntity<?> data) {
+        if (data == null) {
+            return null;
+        }
+        Long dataset = data.getDataset() != null ? data.getDataset().getId() : data.getDatasetId();
+        return toInterval(quality, dataset, data.getSamplingTimeStart(), data.getSamplingTimeEnd(),
+                data.getEreportingProfile());
+    }
+
+    /**
+     * Get the interval of the observation state within the year of the quality entity.
+     *
+     * @param quality
+     *            the quality entity of the dataset, year and primary observation
+     * @param dataset
+     *            the dataset id of the observation
+     * @param start
+     *            the phenomenon start time of the observation
+     * @param end
+     *            the phenomenon end time of the observation
+     * @param profile
+     *            the e-Reporting profile of the observation
+     * @return the interval, or <code>null</code> if the observation does not contribute to the quality entity
+     */
+    public Interval toInterval(EReportingQualityEntity quality, Long dataset, Date start, Date end,
+            EReportingProfileDataEntity profile) {
+        if (quality == null || dataset == null || dataset != quality.getDataset() || start == null || profile == null
+                || profile.getPrimaryObservation() == null
+                || !profile.getPrimaryObservation().equals(quality.getPrimaryObservation())
+                || getYear(start) != quality.getYear()) {
+            return null;
+        }
+        long startTime = start.getTime();
+        long endTime = end != null ? end.getTime() : startTime;
+        if (endTime <= startTime) {
+            endTime = startTime + getPrimaryObservationDuration(quality.getPrimaryObservation());
+        }
+        return new Interval(startTime, Math.min(endTime, getYearEnd(quality.getYear())),
+                isValid(profile.getValidation()));
+    }
+
+    /**
+     * Get the year of the observation the quality statistics are aggregated for.
+     *
+     * @param data
+     *            the observation
+     * @return the UTC year of the sampling time start
+     */
+    public static int getYear(DataEntity<?> data) {
+        return getYear(data.getSamplingTimeStart());
+    }
+
+    /**
+     * Get the year of the time the quality statistics are aggregated for.
+     *
+     * @param time
+     *            the phenomenon start time of an observation
+     * @return the UTC year of the time
+     */
+    public static int getYear(Date time) {
+        Calendar calendar = Calendar.getInstance(UTC, Locale.ROOT);
+        calendar.setTime(time);
+        return calendar.get(Calendar.YEAR);
+    }
+
+    /**
+     * Get the maximum duration which is added to observations without duration.
+     *
+     * @param primaryObservation
+     *            the primary observation
+     * @return the duration in milliseconds
+     */
+    public static long getPrimaryObservationDuration(String primaryObservation) {
+        if (primaryObservation == null) {
+            return 0;
+        }
+        switch (primaryObservation.toLowerCase(Locale.ROOT)) {
+            case "hour":
+                return HOUR;
+            case "day":
+                return DAY;
+            case "week":
+                return 7 * DAY;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Get the start of the year.
+     *
+     * @param year
+     *            the year
+     * @return the start of the UTC year
+     */
+    public static Date getYearStart(int year) {
+        Calendar calendar = Calendar.getInstance(UTC, Locale.ROOT);
+        calendar.clear();
+        calendar.set(year, Calendar.JANUARY, 1);
+        return calendar.getTime();
+    }
+
+    private List<Interval> toIntervals(EReportingQualityEntity quality, Collection<? extends DataEntity<?>> data) {
+        List<Interval> intervals = new ArrayList<>(data.size());
+        for (DataEntity<?> other : data) {
+            Interval interval = toInterval(quality, other);
+            if (interval != null) {
+                intervals.add(interval);
+            }
+        }
+        return intervals;
+    }
+
+    private boolean isValid(Integer validation) {
+        // AQD validity flags: 1, 2 and 3 are valid, -1 and -99 are not valid
+        return validation != null && validation > 0;
+    }
+
+    private static int countValid(Collection<Interval> intervals) {
+        int valid = 0;
+        for (Interval interval : intervals) {
+            if (interval.isValid()) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Merge the (valid) intervals into ordered, disjoint intervals.
+     */
+    private static List<long[]> union(Collection<Interval> intervals, boolean validOnly) {
+        List<Interval> sorted = new ArrayList<>(intervals.size());
+        for (Interval interval : intervals) {
+            if ((!validOnly || interval.isValid()) && interval.getEnd() > interval.getStart()) {
+                sorted.add(interval);
+            }
+        }
+        sorted.sort(Comparator.comparingLong(Interval::getStart));
+        List<long[]> union = new ArrayList<>();
+        for (Interval interval : sorted) {
+            long[] last = union.isEmpty() ? null : union.get(union.size() - 1);
+            if (last != null && interval.getStart() <= last[1]) {
+                last[1] = Math.max(last[1], interval.getEnd());
+            } else {
+                union.add(new long[] { interval.getStart(), interval.getEnd() });
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Measure the intersection of two ordered, disjoint interval lists.
+     */
+    private static long measure(List<long[]> intervals, List<long[]> window) {
+        long measure = 0;
+        int i = 0;
+        int j = 0;
+        while (i < intervals.size() && j < window.size()) {
+            long[] a = intervals.get(i);
+            long[] b = window.get(j);
+            measure += Math.max(0, Math.min(a[1], b[1]) - Math.max(a[0], b[0]));
+            if (a[1] < b[1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return measure;
+    }
+
+    private static long getYearEnd(int year) {
+        return getYearStart(year + 1).getTime();
+    }
+
+    /**
+     * The time interval of an observation within the year of a quality entity.
+     */
+    public static final class Interval {
+
+        private final long start;
+
+        private final long end;
+
+        private final boolean valid;
+
+        public Interval(long start, long end, boolean valid) {
+            this.start = start;
+            this.end = end;
+            this.valid = valid;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+    }
+
+}
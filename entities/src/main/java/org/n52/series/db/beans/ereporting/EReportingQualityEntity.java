@@ -28,6 +28,39 @@ public class EReportingQualityEntity extends IdEntity implements HasPrimaryObser
 
     public static final String PRIMARY_OBSERVATION = "primaryObservation";
 
+    public static final String OBSERVATION_COUNT = "observationCount";
+
+    public static final String VALID_COUNT = "validCount";
+
+    public static final String COVERED_TIME = "coveredTime";
+
+    public static final String VALID_TIME = "validTime";
+
+    /**
+     * Named query for the quality entity, parameters {@link #PARAMETER_DATASET}, {@link #PARAMETER_YEAR} and
+     * {@link #PARAMETER_PRIMARY_OBSERVATION}.
+     */
+    public static final String QUERY_QUALITY = "EReportingQuality.quality";
+
+    /**
+     * Named query for the id, phenomenon start and end time and validation of the observations of a dataset
+     * and primary observation which start in a year and overlap a time range, parameters
+     * {@link #PARAMETER_DATASET}, {@link #PARAMETER_PRIMARY_OBSERVATION}, {@link #PARAMETER_DELETED},
+     * {@link #PARAMETER_YEAR_START}, {@link #PARAMETER_START}, {@link #PARAMETER_EXTENDED_START} (the start
+     * minus the duration of the primary observation, for observations without duration) and
+     * {@link #PARAMETER_END}.
+     */
+    public static final String QUERY_OBSERVATIONS = "EReportingQuality.observations";
+
+    public static final String PARAMETER_DATASET = DATASET;
+    public static final String PARAMETER_YEAR = YEAR;
+    public static final String PARAMETER_PRIMARY_OBSERVATION = PRIMARY_OBSERVATION;
+    public static final String PARAMETER_DELETED = "deleted";
+    public static final String PARAMETER_YEAR_START = "yearStart";
+    public static final String PARAMETER_START = "start";
+    public static final String PARAMETER_EXTENDED_START = "extendedStart";
+    public static final String PARAMETER_END = "end";
+
     private static final long serialVersionUID = 1891418800348199576L;
 
     private long dataset;
@@ -44,6 +77,14 @@ public class EReportingQualityEntity extends IdEntity implements HasPrimaryObser
 
     private Double uncertaintyEstimation;
 
+    private long observationCount;
+
+    private long validCount;
+
+    private long coveredTime;
+
+    private long validTime;
+
     /**
      * @return the dataset
      */
@@ -128,4 +169,64 @@ public class EReportingQualityEntity extends IdEntity implements HasPrimaryObser
     public void setUncertaintyEstimation(Double uncertaintyEstimation) {
         this.uncertaintyEstimation = uncertaintyEstimation;
     }
+
+    /**
+     * @return the number of aggregated observations
+     */
+    public long getObservationCount() {
+        return observationCount;
+    }
+
+    /**
+     * @param observationCount
+     *            the number of aggregated observations to set
+     */
+    public void setObservationCount(long observationCount) {
+        this.observationCount = observationCount;
+    }
+
+    /**
+     * @return the number of aggregated valid observations
+     */
+    public long getValidCount() {
+        return validCount;
+    }
+
+    /**
+     * @param validCount
+     *            the number of aggregated valid observations to set
+     */
+    public void setValidCount(long validCount) {
+        this.validCount = validCount;
+    }
+
+    /**
+     * @return the time in milliseconds covered by the aggregated observations
+     */
+    public long getCoveredTime() {
+        return coveredTime;
+    }
+
+    /**
+     * @param coveredTime
+     *            the time in milliseconds covered by the aggregated observations to set
+     */
+    public void setCoveredTime(long coveredTime) {
+        this.coveredTime = coveredTime;
+    }
+
+    /**
+     * @return the time in milliseconds covered by the aggregated valid observations
+     */
+    public long getValidTime() {
+        return validTime;
+    }
+
+    /**
+     * @param validTime
+     *            the time in milliseconds covered by the aggregated valid observations to set
+     */
+    public void setValidTime(long validTime) {
+        this.validTime = validTime;
+    }
 }
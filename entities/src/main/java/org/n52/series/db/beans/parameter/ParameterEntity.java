@@ -98,19 +98,32 @@ public abstract class ParameterEntity<T> extends IdEntity implements ValuedParam
         return getValue() != null;
     }
 
+    /**
+     * The hash code is calculated from the name and the domain, which do not change when the parameter is
+     * saved. The value is not converted to a string for hashing.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), getValueAsString(), getDomain(), getName());
+        return Objects.hash(getName(), getDomain());
     }
 
+    /**
+     * Persistent parameters are equal if they have the same id, which is read without initializing a proxy of
+     * the other parameter. Transient parameters are compared by name, domain and value.
+     */
     @Override
     public boolean equals(Object obj) {
-        if (obj == null || !(obj instanceof ParameterEntity)) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ParameterEntity)) {
             return false;
         }
-        return super.equals(obj) && Objects.equals(getValueAsString(), ((ParameterEntity) obj).getValueAsString())
-                && Objects.equals(getDomain(), ((ParameterEntity) obj).getDomain())
-                && Objects.equals(getName(), ((ParameterEntity) obj).getName())
-                && Objects.equals(getValueAsString(), ((ParameterEntity) obj).getValueAsString());
+        ParameterEntity<?> other = (ParameterEntity<?>) obj;
+        if (getId() != null || other.getId() != null) {
+            return Objects.equals(getId(), other.getId());
+        }
+        return getClass() == other.getClass() && Objects.equals(getName(), other.getName())
+                && Objects.equals(getDomain(), other.getDomain()) && Objects.equals(getValue(), other.getValue());
     }
 }
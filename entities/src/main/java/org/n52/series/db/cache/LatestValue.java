@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.cache;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.n52.series.db.beans.BooleanDataEntity;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+
+/**
+ * Immutable latest value of a dataset. Quantity, count and boolean values are held as primitives, other
+ * scalar values (text, category, numbers, times) as detached object. Values of other types, e.g. profiles or
+ * geometries, may reference lazily loaded or mutable state of the session and are not cached.
+ *
+ * @since 3.0.0
+ */
+public final class LatestValue {
+
+    private final long datasetId;
+
+    private final long observationId;
+
+    private final long time;
+
+    private final ValueType type;
+
+    private final double doubleValue;
+
+    private final long longValue;
+
+    private final Object value;
+
+    private LatestValue(long datasetId, long observationId, long time, ValueType type, double doubleValue,
+            long longValue, Object value) {
+        this.datasetId = datasetId;
+        this.observationId = observationId;
+        this.time = time;
+        this.type = type;
+        this.doubleValue = doubleValue;
+        this.longValue = longValue;
+        this.value = value;
+    }
+
+    /**
+     * Create the latest value from the observation.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param data
+     *            the observation
+     * @return the latest value or <code>null</code> if the observation has no id, time or scalar value
+     */
+    public static LatestValue of(long datasetId, DataEntity<?> data) {
+        if (data.getId() == null || data.getSamplingTimeEnd() == null || data.getValue() == null) {
+            return null;
+        }
+        long id = data.getId();
+        long time = data.getSamplingTimeEnd().getTime();
+        if (data instanceof QuantityDataEntity) {
+            return new LatestValue(datasetId, id, time, ValueType.QUANTITY,
+                    ((QuantityDataEntity) data).getValue().doubleValue(), 0, null);
+        } else if (data instanceof CountDataEntity) {
+            return new LatestValue(datasetId, id, time, ValueType.COUNT, 0, ((CountDataEntity) data).getValue(), null);
+        } else if (data instanceof BooleanDataEntity) {
+            return new LatestValue(datasetId, id, time, ValueType.BOOLEAN, 0,
+                    ((BooleanDataEntity) data).getValue() ? 1 : 0, null);
+        }
+        Object value = toScalar(data.getValue());
+        return value != null ? new LatestValue(datasetId, id, time, ValueType.OTHER, 0, 0, value) : null;
+    }
+
+    public long getDatasetId() {
+        return datasetId;
+    }
+
+    public long getObservationId() {
+        return observationId;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public Date getTimeAsDate() {
+        return new Date(time);
+    }
+
+    public ValueType getType() {
+        return type;
+    }
+
+    public double getDoubleValue() {
+        return doubleValue;
+    }
+
+    public long getLongValue() {
+        return longValue;
+    }
+
+    public boolean getBooleanValue() {
+        return longValue != 0;
+    }
+
+    /**
+     * Get the value as object, primitive values are boxed.
+     *
+     * @return the value
+     */
+    public Object getValue() {
+        switch (type) {
+            case QUANTITY:
+                return BigDecimal.valueOf(doubleValue);
+            case COUNT:
+                return (int) longValue;
+            case BOOLEAN:
+                return getBooleanValue();
+            default:
+                return value instanceof Date ? new Date(((Date) value).getTime()) : value;
+        }
+    }
+
+    /**
+     * Check if this value is newer than the other value. Values with the same time are ordered by the
+     * observation id.
+     *
+     * @param other
+     *            the other value
+     * @return <code>true</code>, if this value is newer
+     */
+    public boolean isNewerThan(LatestValue other) {
+        return other == null || time > other.time || time == other.time && observationId > other.observationId;
+    }
+
+    private static Object toScalar(Object value) {
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        } else if (value instanceof Date) {
+            return new Date(((Date) value).getTime());
+        }
+        return null;
+    }
+
+    public enum ValueType {
+        QUANTITY, COUNT, BOOLEAN, OTHER;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+
+/**
+ * Concurrent cache of the latest value per dataset. Updates are applied with compare-and-set operations, so
+ * readers are never blocked and concurrent writers can not replace a newer value with an older one.
+ * <p>
+ * The cache is warmed from {@link DatasetEntity#getLastObservation()} and kept current by the
+ * {@link LatestValueEventListener}. If the latest observation of a dataset is deleted the entry is removed
+ * and the caller has to fall back to the database. Bulk deletes, e.g. of the
+ * {@link org.n52.series.db.deletion.DatasetDeletion}, remove the entries of their datasets.
+ *
+ * @since 3.0.0
+ */
+public class LatestValueCache {
+
+    private final ConcurrentMap<Long, LatestValue> values = new ConcurrentHashMap<>();
+
+    /**
+     * Get the latest value of the dataset.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @return the latest value or <code>null</code> if not cached
+     */
+    public LatestValue get(Long datasetId) {
+        return datasetId != null ? values.get(datasetId) : null;
+    }
+
+    /**
+     * Warm the cache with the last observations of the datasets.
+     *
+     * @param datasets
+     *            the datasets with initialized last observations
+     */
+    public void warmUp(Collection<DatasetEntity> datasets) {
+        for (DatasetEntity dataset : datasets) {
+            if (dataset.getId() != null && dataset.getLastObservation() != null) {
+                update(dataset.getId(), dataset.getLastObservation());
+            }
+        }
+    }
+
+    /**
+     * Update the cache with an inserted or updated observation. Deleted observations invalidate the cached
+     * value if they are the cached latest observation.
+     *
+     * @param data
+     *            the observation
+     * @return <code>true</code>, if the cached value was updated
+     */
+    public boolean update(DataEntity<?> data) {
+        if (data.getDeleted()) {
+            invalidate(data);
+            return false;
+        }
+        if (data.hasParent()) {
+            return false;
+        }
+        Long datasetId = data.resolveDatasetId();
+        return datasetId != null && update(datasetId, data);
+    }
+
+    private boolean update(Long datasetId, DataEntity<?> data) {
+        LatestValue value = LatestValue.of(datasetId, data);
+        if (value == null) {
+            // the observation is not cached, so a cached value of it or of an older observation is stale
+            LatestValue current = values.get(datasetId);
+            if (current != null && data.getId() != null && data.getSamplingTimeEnd() != null
+                    && (current.getObservationId() == data.getId()
+                            || current.getTime() <= data.getSamplingTimeEnd().getTime())) {
+                values.remove(datasetId, current);
+            }
+            return false;
+        }
+        while (true) {
+            LatestValue current = values.get(datasetId);
+            if (current == null) {
+                if (values.putIfAbsent(datasetId, value) == null) {
+                    return true;
+                }
+            } else if (current.getObservationId() != value.getObservationId() && !value.isNewerThan(current)) {
+                return false;
+            } else if (values.replace(datasetId, current, value)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove the cached value if the observation is the cached latest observation.
+     *
+     * @param data
+     *            the deleted observation
+     * @return <code>true</code>, if the cached value was removed
+     */
+    public boolean invalidate(DataEntity<?> data) {
+        Long datasetId = data.resolveDatasetId();
+        if (datasetId == null || data.getId() == null) {
+            return false;
+        }
+        LatestValue current = values.get(datasetId);
+        return current != null && current.getObservationId() == data.getId() && values.remove(datasetId, current);
+    }
+
+    public void invalidate(Long datasetId) {
+        values.remove(datasetId);
+    }
+
+    /**
+     * Remove the cached value of the dataset after the transaction of the session is completed, e.g. for bulk
+     * deletes which bypass the {@link LatestValueEventListener}.
+     *
+     * @param session
+     *            the session of the transaction
+     * @param datasetId
+     *            the dataset id
+     */
+    public void invalidateAfterTransaction(Session session, Long datasetId) {
+        session.unwrap(SessionImplementor.class).getActionQueue()
+                .registerProcess((success, s) -> invalidate(datasetId));
+    }
+
+    public void clear() {
+        values.clear();
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
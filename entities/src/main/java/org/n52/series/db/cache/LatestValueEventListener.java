@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.cache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.n52.series.db.beans.DataEntity;
+
+/**
+ * Hibernate listener which keeps the {@link LatestValueCache} current. The listener is called after the
+ * commit of the transaction, so rolled back observations never reach the cache.
+ *
+ * @since 3.0.0
+ */
+public class LatestValueEventListener
+        implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final long serialVersionUID = 2950587937766411547L;
+
+    private final transient LatestValueCache cache;
+
+    public LatestValueEventListener(LatestValueCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Register a listener for the cache at the session factory.
+     *
+     * @param sessionFactory
+     *            the session factory
+     * @param cache
+     *            the cache to maintain
+     * @return the registered listener
+     */
+    public static LatestValueEventListener register(SessionFactory sessionFactory, LatestValueCache cache) {
+        LatestValueEventListener listener = new LatestValueEventListener(cache);
+        EventListenerRegistry registry = sessionFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        return listener;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof DataEntity) {
+            cache.update((DataEntity<?>) event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof DataEntity) {
+            cache.update((DataEntity<?>) event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof DataEntity) {
+            cache.invalidate((DataEntity<?>) event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // nothing to do, the cache is only updated after successful commits
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // nothing to do, the cache is only updated after successful commits
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // nothing to do, the cache is only updated after successful commits
+    }
+
+    /**
+     * The misspelled method is the abstract method of the
+     * {@link org.hibernate.event.spi.PostActionEventListener} of Hibernate 5.4 and has to be implemented, its
+     * default successor delegates to it.
+     *
+     * @param persister
+     *            the persister of the entity
+     * @return <code>true</code>, if the entity is an observation
+     * @deprecated use {@link #requiresPostCommitHandling(EntityPersister)}
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return DataEntity.class.isAssignableFrom(persister.getMappedClass());
+    }
+}
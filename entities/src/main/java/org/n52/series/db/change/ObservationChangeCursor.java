@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.change;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongFunction;
+
+import org.hibernate.Session;
+import org.n52.series.db.beans.ObservationChangeEntity;
+
+/**
+ * Cursor of a change log consumer which does not miss entries of transactions committed out of id order. The
+ * ids of the change log are assigned when the observations are changed, so an entry of a long running
+ * transaction can become visible after entries with higher ids of transactions committed before, and the ids
+ * need not be contiguous (sequence caches, rolled back transactions). The cursor returns every entry as soon
+ * as it is visible and re-reads the entries of a window after the position, so entries committed late are
+ * returned by a later call. The position only advances over entries which were returned longer than the
+ * window ago: an entry with a lower id was assigned before and has to be committed within the window, which
+ * therefore has to be longer than the longest transaction changing observations.
+ * <p>
+ * The position can be stored by the consumer and used to create the cursor again, entries of the window after
+ * the stored position are returned again by the new cursor. A cursor is not thread safe.
+ *
+ * @since 3.0.0
+ */
+public class ObservationChangeCursor {
+
+    public static final long DEFAULT_WINDOW = 60000L;
+
+    private final long window;
+
+    private final Map<Long, Long> returned = new TreeMap<>();
+
+    private long position;
+
+    /**
+     * @param position
+     *            the id of the last processed entry, <code>0</code> to start with the first entry
+     */
+    public ObservationChangeCursor(long position) {
+        this(position, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param position
+     *            the id of the last processed entry, <code>0</code> to start with the first entry
+     * @param window
+     *            the time in milliseconds, for which returned entries are re-read for entries committed late
+     */
+    public ObservationChangeCursor(long position, long window) {
+        if (window < 0) {
+            throw new IllegalArgumentException("The window must not be negative!");
+        }
+        this.position = position;
+        this.window = window;
+    }
+
+    /**
+     * @return the id up to which all entries are returned
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Get the next entries and advance the cursor.
+     *
+     * @param session
+     *            the session
+     * @param maxResults
+     *            the maximum number of entries
+     * @return the entries, which were not returned before, ordered by id. Entries committed late can have
+     *         lower ids than entries returned by a previous call.
+     */
+    public List<ObservationChangeEntity> next(Session session, int maxResults) {
+        return next(cursor -> session
+                .createNamedQuery(ObservationChangeEntity.QUERY_CHANGES_AFTER, ObservationChangeEntity.class)
+                .setParameter(ObservationChangeEntity.PARAMETER_CURSOR, cursor).setMaxResults(maxResults)
+                .getResultList(), maxResults, System.currentTimeMillis());
+    }
+
+    /**
+     * Read the entries after the position and advance the cursor.
+     *
+     * @param changesAfter
+     *            the query of at most <code>maxResults</code> entries after an id ordered by id
+     * @param maxResults
+     *            the maximum number of entries
+     * @param now
+     *            the current time in milliseconds
+     * @return the entries, which were not returned before
+     */
+    List<ObservationChangeEntity> next(LongFunction<List<ObservationChangeEntity>> changesAfter, int maxResults,
+            long now) {
+        advance(now);
+        List<ObservationChangeEntity> next = new ArrayList<>();
+        long cursor = position;
+        List<ObservationChangeEntity> entries;
+        do {
+            entries = changesAfter.apply(cursor);
+            for (ObservationChangeEntity entry : entries) {
+                if (next.size() == maxResults) {
+                    return next;
+                }
+                if (!returned.containsKey(entry.getId())) {
+                    returned.put(entry.getId(), now);
+                    next.add(entry);
+                }
+                cursor = entry.getId();
+            }
+        } while (entries.size() == maxResults && next.size() < maxResults);
+        return next;
+    }
+
+    private void advance(long now) {
+        Iterator<Map.Entry<Long, Long>> iterator = returned.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Long> entry = iterator.next();
+            if (now - entry.getValue() < window) {
+                return;
+            }
+            position = entry.getKey();
+            iterator.remove();
+        }
+    }
+}
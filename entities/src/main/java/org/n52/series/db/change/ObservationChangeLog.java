@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.change;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.function.Supplier;
+
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.n52.series.db.beans.ObservationChangeEntity.Operation;
+
+/**
+ * Marks the observation deletes of the maintenance tasks for the change log triggers, so that they are logged
+ * with the operation of the task instead of {@link Operation#DELETE}. The marker is a connection local
+ * setting which is read by the triggers: the configuration parameter <code>n52.observation_change</code> for
+ * PostgreSQL, <code>CONTEXT_INFO</code> for SQL Server and the user variable
+ * <code>@n52_observation_change</code> for MySQL. For other databases, which have no change log triggers, the
+ * work is executed without marker.
+ *
+ * @since 3.0.0
+ */
+public final class ObservationChangeLog {
+
+    private static final String POSTGRES_MARKER = "select set_config('n52.observation_change', coalesce(?, ''), true)";
+
+    private static final String SQL_SERVER_MARKER = "declare @marker varbinary(128) = ?; set context_info @marker";
+
+    private static final String MYSQL_MARKER = "set @n52_observation_change = ?";
+
+    private ObservationChangeLog() {
+    }
+
+    /**
+     * Execute the work with the marked operation. Pending changes of the session are flushed before the
+     * marker is removed again, the work has to be executed within a transaction.
+     *
+     * @param <T>
+     *            the result type
+     * @param session
+     *            the session
+     * @param operation
+     *            the operation to log for deleted observations
+     * @param work
+     *            the work deleting observations
+     * @return the result of the work
+     */
+    public static <T> T withOperation(Session session, Operation operation, Supplier<T> work) {
+        String sql = getMarkerStatement(
+                session.getSessionFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect());
+        if (sql == null) {
+            return work.get();
+        }
+        mark(session, sql, operation.getCode());
+        try {
+            T result = work.get();
+            session.flush();
+            return result;
+        } finally {
+            mark(session, sql, null);
+        }
+    }
+
+    static String getMarkerStatement(Dialect dialect) {
+        if (dialect instanceof PostgreSQL81Dialect) {
+            return POSTGRES_MARKER;
+        } else if (dialect instanceof SQLServerDialect) {
+            return SQL_SERVER_MARKER;
+        } else if (dialect instanceof MySQLDialect) {
+            return MYSQL_MARKER;
+        }
+        return null;
+    }
+
+    private static void mark(Session session, String sql, String code) {
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                if (SQL_SERVER_MARKER.equals(sql)) {
+                    statement.setBytes(1, code != null ? code.getBytes(StandardCharsets.US_ASCII) : new byte[] { 0 });
+                } else {
+                    statement.setString(1, code);
+                }
+                statement.execute();
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.chunk;
+
+/**
+ * Immutable statistics of the valid values of a {@link SeriesChunk}.
+ *
+ * @since 3.0.0
+ */
+public final class ChunkStatistics {
+
+    private final long count;
+
+    private final double min;
+
+    private final double max;
+
+    private final double sum;
+
+    ChunkStatistics(long count, double min, double max, double sum) {
+        this.count = count;
+        this.min = count > 0 ? min : Double.NaN;
+        this.max = count > 0 ? max : Double.NaN;
+        this.sum = sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the minimum or {@link Double#NaN} if no valid value exists
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the maximum or {@link Double#NaN} if no valid value exists
+     */
+    public double getMax() {
+        return max;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the mean or {@link Double#NaN} if no valid value exists
+     */
+    public double getMean() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        return sb.append(getClass().getSimpleName()).append(" [").append(" count: ").append(count).append(", min: ")
+                .append(min).append(", max: ").append(max).append(", sum: ").append(sum).append(" ]").toString();
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.chunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only chunk of a series stored as primitive columns in a single {@link ByteBuffer}. The buffer may live
+ * on the heap, off-heap (direct) or in a memory-mapped file, so that hot windows of busy datasets can be read
+ * and aggregated without the database and without one object per observation.
+ * <p>
+ * Layout (little endian): a header with magic, version, value kind, size and dataset id, followed by the
+ * sorted times (epoch millis), the values (double or long) and the no-data and deleted bitmaps (one bit per
+ * value).
+ *
+ * @since 3.0.0
+ */
+public final class SeriesChunk {
+
+    static final int MAGIC = 0x43533235;
+
+    static final byte VERSION = 1;
+
+    static final int HEADER_SIZE = 24;
+
+    private static final int MAGIC_OFFSET = 0;
+
+    private static final int VERSION_OFFSET = 4;
+
+    private static final int KIND_OFFSET = 5;
+
+    private static final int SIZE_OFFSET = 8;
+
+    private static final int DATASET_OFFSET = 16;
+
+    private final ByteBuffer buffer;
+
+    private final long datasetId;
+
+    private final ValueKind kind;
+
+    private final int size;
+
+    private final LongBuffer times;
+
+    private final DoubleBuffer doubles;
+
+    private final LongBuffer longs;
+
+    private final LongBuffer noData;
+
+    private final LongBuffer deleted;
+
+    private SeriesChunk(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (this.buffer.remaining() < HEADER_SIZE || this.buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IllegalArgumentException("The buffer does not contain a series chunk!");
+        }
+        if (this.buffer.get(VERSION_OFFSET) != VERSION) {
+            throw new IllegalArgumentException("Unsupported series chunk version: " + this.buffer.get(VERSION_OFFSET));
+        }
+        int k = this.buffer.get(KIND_OFFSET);
+        if (k < 0 || k >= ValueKind.values().length) {
+            throw new IllegalArgumentException("Unknown series chunk value kind: " + k);
+        }
+        this.kind = ValueKind.values()[k];
+        this.size = this.buffer.getInt(SIZE_OFFSET);
+        this.datasetId = this.buffer.getLong(DATASET_OFFSET);
+        if (size < 0 || this.buffer.capacity() < getBufferSize(size)) {
+            throw new IllegalArgumentException("The series chunk is truncated!");
+        }
+        int words = getBitmapWords(size);
+        this.times = slice(HEADER_SIZE, size).asLongBuffer();
+        ByteBuffer values = slice(HEADER_SIZE + size * Long.BYTES, size);
+        this.doubles = kind == ValueKind.DOUBLE ? values.asDoubleBuffer() : null;
+        this.longs = kind == ValueKind.LONG ? values.asLongBuffer() : null;
+        this.noData = slice(HEADER_SIZE + 2 * size * Long.BYTES, words).asLongBuffer();
+        this.deleted = slice(HEADER_SIZE + (2 * size + words) * Long.BYTES, words).asLongBuffer();
+    }
+
+    /**
+     * Wrap a buffer created by {@link SeriesChunkBuilder} or read from a chunk file.
+     *
+     * @param buffer
+     *            the buffer, positioned at the chunk header
+     * @return the chunk
+     * @throws IllegalArgumentException
+     *             if the buffer does not contain a valid chunk
+     */
+    public static SeriesChunk wrap(ByteBuffer buffer) {
+        return new SeriesChunk(buffer.slice());
+    }
+
+    /**
+     * Map a chunk file read-only into memory.
+     *
+     * @param path
+     *            the chunk file
+     * @return the chunk
+     * @throws IOException
+     *             if the file could not be mapped
+     */
+    public static SeriesChunk map(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SeriesChunk(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write the chunk to a file. The file is written to a temporary file first and moved afterwards, so that
+     * readers never map a partially written chunk.
+     *
+     * @param path
+     *            the target file
+     * @throws IOException
+     *             if the file could not be written
+     * @throws IllegalArgumentException
+     *             if the path is a root without file name and parent directory
+     */
+    public void writeTo(Path path) throws IOException {
+        Path target = path.toAbsolutePath();
+        Path directory = target.getParent();
+        Path fileName = target.getFileName();
+        if (directory == null || fileName == null) {
+            throw new IllegalArgumentException("The chunk file has to be located in a directory: " + path);
+        }
+        Path tmp = Files.createTempFile(directory, fileName.toString(), ".tmp");
+        try {
+            FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE);
+            try {
+                ByteBuffer source = buffer.duplicate();
+                source.position(0).limit(getBufferSize(size));
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static int getBitmapWords(int size) {
+        return (size + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    static int getBufferSize(int size) {
+        return HEADER_SIZE + (2 * size + 2 * getBitmapWords(size)) * Long.BYTES;
+    }
+
+    static void writeHeader(ByteBuffer buffer, long datasetId, ValueKind kind, int size) {
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.put(VERSION_OFFSET, VERSION);
+        buffer.put(KIND_OFFSET, (byte) kind.ordinal());
+        buffer.putInt(SIZE_OFFSET, size);
+        buffer.putLong(DATASET_OFFSET, datasetId);
+    }
+
+    public long getDatasetId() {
+        return datasetId;
+    }
+
+    public ValueKind getKind() {
+        return kind;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isDirect() {
+        return buffer.isDirect();
+    }
+
+    public long getTime(int index) {
+        return times.get(index);
+    }
+
+    /**
+     * @return the first time or {@link Long#MIN_VALUE} if the chunk is empty
+     */
+    public long getStartTime() {
+        return size > 0 ? times.get(0) : Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the last time or {@link Long#MIN_VALUE} if the chunk is empty
+     */
+    public long getEndTime() {
+        return size > 0 ? times.get(size - 1) : Long.MIN_VALUE;
+    }
+
+    public double getDouble(int index) {
+        return doubles != null ? doubles.get(index) : longs.get(index);
+    }
+
+    public long getLong(int index) {
+        return longs != null ? longs.get(index) : (long) doubles.get(index);
+    }
+
+    public boolean isNoData(int index) {
+        return isSet(noData, index);
+    }
+
+    public boolean isDeleted(int index) {
+        return isSet(deleted, index);
+    }
+
+    /**
+     * Check if the value is neither a no-data value nor deleted.
+     *
+     * @param index
+     *            the value index
+     * @return <code>true</code>, if the value is valid
+     */
+    public boolean isValid(int index) {
+        return !isNoData(index) && !isDeleted(index);
+    }
+
+    /**
+     * Get the index of the first value with a time equal to or after the time.
+     *
+     * @param time
+     *            the time
+     * @return the index, {@link #size()} if all values are before the time
+     */
+    public int indexOf(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times.get(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public ChunkStatistics getStatistics() {
+        return getStatistics(0, size);
+    }
+
+    /**
+     * Calculate the statistics of the valid values within the time range.
+     *
+     * @param start
+     *            the start time (inclusive)
+     * @param end
+     *            the end time (inclusive)
+     * @return the statistics
+     */
+    public ChunkStatistics getStatistics(long start, long end) {
+        return getStatistics(indexOf(start), end == Long.MAX_VALUE ? size : indexOf(end + 1));
+    }
+
+    private ChunkStatistics getStatistics(int from, int to) {
+        long count = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        int i = from;
+        while (i < to) {
+            int word = i / Long.SIZE;
+            int wordEnd = Math.min(to, (word + 1) * Long.SIZE);
+            long invalid = noData.get(word) | deleted.get(word);
+            if (invalid == 0) {
+                // fast path: plain loops over the column without per value checks
+                count += wordEnd - i;
+                if (doubles != null) {
+                    for (; i < wordEnd; i++) {
+                        double v = doubles.get(i);
+                        min = Math.min(min, v);
+                        max = Math.max(max, v);
+                        sum += v;
+                    }
+                } else {
+                    for (; i < wordEnd; i++) {
+                        double v = longs.get(i);
+                        min = Math.min(min, v);
+                        max = Math.max(max, v);
+                        sum += v;
+                    }
+                }
+            } else {
+                for (; i < wordEnd; i++) {
+                    if ((invalid & 1L << i) == 0) {
+                        double v = getDouble(i);
+                        min = Math.min(min, v);
+                        max = Math.max(max, v);
+                        sum += v;
+                        count++;
+                    }
+                }
+            }
+        }
+        return new ChunkStatistics(count, min, max, sum);
+    }
+
+    private boolean isSet(LongBuffer bitmap, int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return (bitmap.get(index / Long.SIZE) & 1L << index) != 0;
+    }
+
+    private ByteBuffer slice(int offset, int longs) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(offset).limit(offset + longs * Long.BYTES);
+        return b.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * The value column type, double for quantities and long for counts and booleans.
+     */
+    public enum ValueKind {
+        DOUBLE, LONG;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.chunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+
+import org.n52.series.db.beans.BooleanDataEntity;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.chunk.SeriesChunk.ValueKind;
+
+/**
+ * Builder for {@link SeriesChunk}s. Values have to be added in ascending time order, e.g. as read from the
+ * database ordered by the phenomenon time. The time of an observation is the end of the phenomenon time.
+ *
+ * @since 3.0.0
+ */
+public final class SeriesChunkBuilder {
+
+    private static final int MAX_SIZE = (Integer.MAX_VALUE - SeriesChunk.HEADER_SIZE) / (3 * Long.BYTES);
+
+    private final long datasetId;
+
+    private final ValueKind kind;
+
+    private final BitSet noData = new BitSet();
+
+    private final BitSet deleted = new BitSet();
+
+    private Collection<String> noDataValues = Collections.emptySet();
+
+    private long[] times;
+
+    private long[] values;
+
+    private int size;
+
+    private SeriesChunkBuilder(long datasetId, ValueKind kind, int capacity) {
+        this.datasetId = datasetId;
+        this.kind = kind;
+        this.times = new long[Math.max(capacity, 16)];
+        this.values = new long[times.length];
+    }
+
+    /**
+     * Create a builder for quantity observations.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param capacity
+     *            the expected number of values
+     * @return the builder
+     */
+    public static SeriesChunkBuilder forQuantity(long datasetId, int capacity) {
+        return new SeriesChunkBuilder(datasetId, ValueKind.DOUBLE, capacity);
+    }
+
+    /**
+     * Create a builder for count or boolean observations.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param capacity
+     *            the expected number of values
+     * @return the builder
+     */
+    public static SeriesChunkBuilder forCount(long datasetId, int capacity) {
+        return new SeriesChunkBuilder(datasetId, ValueKind.LONG, capacity);
+    }
+
+    /**
+     * Set the values which are marked as no-data, see {@link DataEntity#isNoDataValue(Collection)}.
+     *
+     * @param noDataValues
+     *            the no-data values
+     * @return this
+     */
+    public SeriesChunkBuilder setNoDataValues(Collection<String> noDataValues) {
+        this.noDataValues = noDataValues != null ? noDataValues : Collections.emptySet();
+        return this;
+    }
+
+    public SeriesChunkBuilder add(QuantityDataEntity data) {
+        checkKind(ValueKind.DOUBLE);
+        double value = data.getValue() != null ? data.getValue().doubleValue() : Double.NaN;
+        return append(getTime(data), Double.doubleToRawLongBits(value), isNoData(data), data.getDeleted());
+    }
+
+    public SeriesChunkBuilder add(CountDataEntity data) {
+        checkKind(ValueKind.LONG);
+        long value = data.getValue() != null ? data.getValue() : 0L;
+        return append(getTime(data), value, isNoData(data), data.getDeleted());
+    }
+
+    public SeriesChunkBuilder add(BooleanDataEntity data) {
+        checkKind(ValueKind.LONG);
+        long value = Boolean.TRUE.equals(data.getValue()) ? 1L : 0L;
+        return append(getTime(data), value, isNoData(data), data.getDeleted());
+    }
+
+    public SeriesChunkBuilder add(long time, double value, boolean isNoData, boolean isDeleted) {
+        checkKind(ValueKind.DOUBLE);
+        return append(time, Double.doubleToRawLongBits(value), isNoData, isDeleted);
+    }
+
+    public SeriesChunkBuilder add(long time, long value, boolean isNoData, boolean isDeleted) {
+        checkKind(ValueKind.LONG);
+        return append(time, value, isNoData, isDeleted);
+    }
+
+    /**
+     * Add the observations, only quantity, count and boolean observations are supported.
+     *
+     * @param data
+     *            the observations in ascending time order
+     * @return this
+     * @throws IllegalArgumentException
+     *             if an observation type is not supported
+     */
+    public SeriesChunkBuilder addAll(Collection<? extends DataEntity<?>> data) {
+        for (DataEntity<?> d : data) {
+            if (d instanceof QuantityDataEntity) {
+                add((QuantityDataEntity) d);
+            } else if (d instanceof CountDataEntity) {
+                add((CountDataEntity) d);
+            } else if (d instanceof BooleanDataEntity) {
+                add((BooleanDataEntity) d);
+            } else {
+                throw new IllegalArgumentException("Unsupported observation type: " + d.getClass().getSimpleName());
+            }
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Build a chunk stored on the heap.
+     *
+     * @return the chunk
+     */
+    public SeriesChunk build() {
+        return SeriesChunk.wrap(fill(ByteBuffer.allocate(SeriesChunk.getBufferSize(size))));
+    }
+
+    /**
+     * Build a chunk, write it to the file and map the file into memory.
+     *
+     * @param path
+     *            the chunk file
+     * @return the memory-mapped chunk
+     * @throws IOException
+     *             if the file could not be written or mapped
+     */
+    public SeriesChunk build(Path path) throws IOException {
+        build().writeTo(path);
+        return SeriesChunk.map(path);
+    }
+
+    /**
+     * Build a chunk stored off-heap.
+     *
+     * @return the chunk
+     */
+    public SeriesChunk buildDirect() {
+        return SeriesChunk.wrap(fill(ByteBuffer.allocateDirect(SeriesChunk.getBufferSize(size))));
+    }
+
+    private ByteBuffer fill(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        SeriesChunk.writeHeader(buffer, datasetId, kind, size);
+        buffer.position(SeriesChunk.HEADER_SIZE);
+        buffer.asLongBuffer().put(times, 0, size);
+        buffer.position(SeriesChunk.HEADER_SIZE + size * Long.BYTES);
+        buffer.asLongBuffer().put(values, 0, size);
+        int words = SeriesChunk.getBitmapWords(size);
+        buffer.position(SeriesChunk.HEADER_SIZE + 2 * size * Long.BYTES);
+        buffer.asLongBuffer().put(Arrays.copyOf(noData.toLongArray(), words));
+        buffer.position(SeriesChunk.HEADER_SIZE + (2 * size + words) * Long.BYTES);
+        buffer.asLongBuffer().put(Arrays.copyOf(deleted.toLongArray(), words));
+        buffer.clear();
+        return buffer;
+    }
+
+    private SeriesChunkBuilder append(long time, long value, boolean isNoData, boolean isDeleted) {
+        if (size > 0 && time < times[size - 1]) {
+            throw new IllegalArgumentException(
+                    String.format("Values have to be added in time order: %d < %d", time, times[size - 1]));
+        }
+        if (size == times.length) {
+            if (size == MAX_SIZE) {
+                throw new IllegalStateException("The maximum chunk size is reached: " + MAX_SIZE);
+            }
+            int capacity = (int) Math.min(MAX_SIZE, size * 2L);
+            times = Arrays.copyOf(times, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        times[size] = time;
+        values[size] = value;
+        noData.set(size, isNoData);
+        deleted.set(size, isDeleted);
+        size++;
+        return this;
+    }
+
+    private boolean isNoData(DataEntity<?> data) {
+        return data.getValue() == null || data.isNoDataValue(noDataValues);
+    }
+
+    private long getTime(DataEntity<?> data) {
+        Date time = data.getSamplingTimeEnd() != null ? data.getSamplingTimeEnd() : data.getSamplingTimeStart();
+        if (time == null) {
+            throw new IllegalArgumentException("The observation has no phenomenon time!");
+        }
+        return time.getTime();
+    }
+
+    private void checkKind(ValueKind expected) {
+        if (kind != expected) {
+            throw new IllegalStateException("The builder creates " + kind + " chunks, not " + expected);
+        }
+    }
+}
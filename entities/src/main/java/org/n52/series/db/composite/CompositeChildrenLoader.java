@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.composite;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.n52.series.db.beans.CompositeDataEntity;
+import org.n52.series.db.beans.DataEntity;
+
+/**
+ * Loads the child observations of many profile, complex or data array observations with one query per batch
+ * of parents instead of one query per parent. The children are returned in
+ * {@link CompositeDataEntity#CHILD_ORDER}, so no sorting is required.
+ *
+ * @since 3.0.0
+ */
+public class CompositeChildrenLoader {
+
+    /**
+     * Default number of parents per query, below the 1000 expressions Oracle supports in an in-list.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final int batchSize;
+
+    public CompositeChildrenLoader() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize
+     *            the maximum number of parents per query
+     */
+    public CompositeChildrenLoader(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size has to be positive!");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Load the children of the composite observations.
+     *
+     * @param session
+     *            the session
+     * @param parents
+     *            the composite observations
+     * @return the ordered children by parent id, parents without children are not contained
+     */
+    public Map<Long, List<DataEntity<?>>> load(Session session, Collection<? extends CompositeDataEntity> parents) {
+        Collection<Long> ids = new LinkedHashSet<>();
+        for (CompositeDataEntity parent : parents) {
+            if (parent.getId() != null) {
+                ids.add(parent.getId());
+            }
+        }
+        return loadByIds(session, ids);
+    }
+
+    /**
+     * Load the children of the composite observations with the ids.
+     *
+     * @param session
+     *            the session
+     * @param parentIds
+     *            the ids of the composite observations
+     * @return the ordered children by parent id, parents without children are not contained
+     */
+    public Map<Long, List<DataEntity<?>>> loadByIds(Session session, Collection<Long> parentIds) {
+        Map<Long, List<DataEntity<?>>> children = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(parentIds);
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            for (DataEntity<?> child : query(session, ids.subList(start, Math.min(start + batchSize, ids.size())))) {
+                children.computeIfAbsent(child.getParent(), k -> new ArrayList<>()).add(child);
+            }
+        }
+        return children;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DataEntity<?>> query(Session session, List<Long> ids) {
+        return session.getNamedQuery(CompositeDataEntity.QUERY_CHILDREN)
+                .setParameterList(CompositeDataEntity.PARAMETER_PARENTS, ids).list();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.deletion;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ObservationChangeEntity.Operation;
+import org.n52.series.db.cache.LatestValueCache;
+import org.n52.series.db.change.ObservationChangeLog;
+
+/**
+ * Set-based deletion of a dataset with its observations and parameters. Instead of loading every child entity
+ * into the session for the <code>cascade="remove"</code> mappings, the dataset is deleted with a few native
+ * statements which are mapped per concept in the <code>DatasetResource.hbm.xml</code> files.
+ * <p>
+ * The dependent rows (translations, parameter links, related observations and datasets, references, blocks,
+ * segments, policies) are deleted explicitly before the observations and the dataset, so the deletion does
+ * not depend on <code>ON DELETE CASCADE</code> foreign keys and works for existing schemas. The parameters
+ * are deleted in batches of ids after their links. The child observations of profile, complex and data array
+ * observations are deleted before their parents. The deleted observations are logged as
+ * {@link Operation#REMOVE} in the observation change log. The entry of the dataset in the optional
+ * {@link LatestValueCache} is invalidated after the transaction. The method has to be called within a
+ * transaction of the caller.
+ *
+ * @since 3.0.0
+ */
+public class DatasetDeletion {
+
+    /**
+     * Named query to remove the references from the dataset to its first and last observation.
+     */
+    public static final String QUERY_UNLINK_OBSERVATIONS = "DatasetDeletion.unlinkObservations";
+
+    /**
+     * Named query for the ids of the parameters of the observations of the dataset, not mapped for the simple
+     * concept.
+     */
+    public static final String QUERY_OBSERVATION_PARAMETER_IDS = "DatasetDeletion.observationParameterIds";
+
+    /**
+     * Named query to delete the links of the observations to the parameters, parameter
+     * {@link #PARAMETER_IDS}.
+     */
+    public static final String QUERY_OBSERVATION_PARAMETER_LINKS = "DatasetDeletion.observationParameterLinks";
+
+    /**
+     * Named query for the ids of the parameters of the dataset, not mapped for the simple concept.
+     */
+    public static final String QUERY_DATASET_PARAMETER_IDS = "DatasetDeletion.datasetParameterIds";
+
+    /**
+     * Named query to delete the links of the dataset to the parameters, parameter {@link #PARAMETER_IDS}.
+     */
+    public static final String QUERY_DATASET_PARAMETER_LINKS = "DatasetDeletion.datasetParameterLinks";
+
+    /**
+     * Named query to delete the parameters, parameter {@link #PARAMETER_IDS}.
+     */
+    public static final String QUERY_PARAMETERS = "DatasetDeletion.parameters";
+
+    /**
+     * Named queries to delete the rows which reference the observations or the dataset, in this order.
+     * Queries of tables which do not exist in a concept or profile are not mapped.
+     */
+    public static final List<String> QUERIES_DEPENDENT_ROWS =
+            Collections.unmodifiableList(Arrays.asList("DatasetDeletion.observationTranslations",
+                    "DatasetDeletion.relatedObservations", "DatasetDeletion.observationValues",
+                    "DatasetDeletion.datasetTranslations", "DatasetDeletion.relatedDatasets",
+                    "DatasetDeletion.datasetReferences", "DatasetDeletion.datastreams", "DatasetDeletion.samplings",
+                    "DatasetDeletion.measuringPrograms", "DatasetDeletion.observationBlocks",
+                    "DatasetDeletion.trajectorySegments", "DatasetDeletion.retentionPolicies",
+                    "DatasetDeletion.proxyCacheChunks", "DatasetDeletion.proxyCachePolicies"));
+
+    /**
+     * Named query to delete the child observations of the dataset.
+     */
+    public static final String QUERY_CHILD_OBSERVATIONS = "DatasetDeletion.childObservations";
+
+    /**
+     * Named query to delete the observations of the dataset.
+     */
+    public static final String QUERY_OBSERVATIONS = "DatasetDeletion.observations";
+
+    /**
+     * Named query to delete the dataset.
+     */
+    public static final String QUERY_DATASET = "DatasetDeletion.dataset";
+
+    public static final String PARAMETER_DATASET = "dataset";
+    public static final String PARAMETER_IDS = "ids";
+
+    /**
+     * The maximum number of parameters deleted per statement, which is the maximum number of expressions in
+     * an Oracle in list.
+     */
+    public static final int PARAMETER_BATCH_SIZE = 1000;
+
+    private final LatestValueCache latestValueCache;
+
+    public DatasetDeletion() {
+        this(null);
+    }
+
+    /**
+     * @param latestValueCache
+     *            the cache whose entries of deleted datasets are invalidated after the transaction, may be
+     *            <code>null</code>
+     */
+    public DatasetDeletion(LatestValueCache latestValueCache) {
+        this.latestValueCache = latestValueCache;
+    }
+
+    /**
+     * Delete the dataset and remove it from the session.
+     *
+     * @param session
+     *            the session
+     * @param dataset
+     *            the dataset to delete
+     * @return the number of deleted observations
+     */
+    public int delete(Session session, DatasetEntity dataset) {
+        session.flush();
+        int deleted = delete(session, dataset.getId());
+        if (session.contains(dataset)) {
+            session.evict(dataset);
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete the dataset. Entities of the dataset which are already loaded into the session are not removed
+     * from the session.
+     *
+     * @param session
+     *            the session
+     * @param datasetId
+     *            the id of the dataset to delete
+     * @return the number of deleted observations
+     */
+    public int delete(Session session, long datasetId) {
+        if (latestValueCache != null) {
+            latestValueCache.invalidateAfterTransaction(session, datasetId);
+        }
+        return ObservationChangeLog.withOperation(session, Operation.REMOVE, () -> {
+            execute(session, QUERY_UNLINK_OBSERVATIONS, datasetId);
+            deleteParameters(session, QUERY_OBSERVATION_PARAMETER_IDS, QUERY_OBSERVATION_PARAMETER_LINKS, datasetId);
+            deleteParameters(session, QUERY_DATASET_PARAMETER_IDS, QUERY_DATASET_PARAMETER_LINKS, datasetId);
+            for (String query : QUERIES_DEPENDENT_ROWS) {
+                execute(session, query, datasetId);
+            }
+            int deleted = execute(session, QUERY_CHILD_OBSERVATIONS, datasetId);
+            deleted += execute(session, QUERY_OBSERVATIONS, datasetId);
+            execute(session, QUERY_DATASET, datasetId);
+            return deleted;
+        });
+    }
+
+    private void deleteParameters(Session session, String idQuery, String linkQuery, long datasetId) {
+        if (!isMapped(session, idQuery)) {
+            return;
+        }
+        List<?> ids;
+        do {
+            ids = session.getNamedQuery(idQuery).setParameter(PARAMETER_DATASET, datasetId)
+                    .setMaxResults(PARAMETER_BATCH_SIZE).getResultList();
+            if (!ids.isEmpty()) {
+                session.getNamedQuery(linkQuery).setParameterList(PARAMETER_IDS, ids).executeUpdate();
+                session.getNamedQuery(QUERY_PARAMETERS).setParameterList(PARAMETER_IDS, ids).executeUpdate();
+            }
+        } while (ids.size() == PARAMETER_BATCH_SIZE);
+    }
+
+    private int execute(Session session, String query, long datasetId) {
+        if (!isMapped(session, query)) {
+            return 0;
+        }
+        return session.getNamedQuery(query).setParameter(PARAMETER_DATASET, datasetId).executeUpdate();
+    }
+
+    /**
+     * Check if the named native query is mapped in the concept of the session.
+     *
+     * @param session
+     *            the session
+     * @param query
+     *            the name of the query
+     * @return <code>true</code>, if the query is mapped
+     */
+    public static boolean isMapped(Session session, String query) {
+        // an unknown query marks the transaction of the session for rollback, so it is looked up in another
+        // session
+        StatelessSession lookup = session.getSessionFactory().openStatelessSession();
+        try {
+            lookup.getNamedNativeQuery(query);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        } finally {
+            lookup.close();
+        }
+    }
+}
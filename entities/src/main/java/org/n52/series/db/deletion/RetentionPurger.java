@@ -0,0 +1,330 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.deletion;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ObservationChangeEntity.Operation;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.RetentionPolicyEntity;
+import org.n52.series.db.cache.LatestValueCache;
+import org.n52.series.db.change.ObservationChangeLog;
+
+/**
+ * Deletes the observations which are expired according to the {@link RetentionPolicyEntity}s. The expired
+ * observations of a dataset are deleted in chunks of ids, each chunk in its own transaction, so that no long
+ * running deletes lock the observation table. Before, the observation blocks which end before the expiration
+ * are deleted.
+ * <p>
+ * An observation expires if its phenomenon end time is before the expiration, the expired observations are
+ * selected along the index on dataset and phenomenon end time. Child observations of profile, complex and
+ * data array observations are deleted with their parents. Like the {@link DatasetDeletion}, the translations,
+ * parameters, values and related observations of a chunk are deleted explicitly, so no
+ * <code>ON DELETE CASCADE</code> foreign keys are required. The first and last observation of the dataset are
+ * moved to the remaining observations in the transaction of the chunk which deletes them, and the entry of
+ * the dataset in the optional {@link LatestValueCache} is invalidated after each chunk. The deleted
+ * observations are logged as {@link Operation#PURGE} in the observation change log. The methods begin and
+ * commit their own transactions and must not be called within a transaction.
+ *
+ * @since 3.0.0
+ */
+public class RetentionPurger {
+
+    /**
+     * Named query for the ids of the expired observations without parent, parameters
+     * {@link #PARAMETER_DATASET} and {@link #PARAMETER_BEFORE}, ordered by phenomenon end time.
+     */
+    public static final String QUERY_EXPIRED_OBSERVATIONS = "RetentionPurge.expiredObservations";
+
+    /**
+     * Named query for the remaining observations without parent, parameters {@link #PARAMETER_DATASET},
+     * {@link #PARAMETER_IDS} and {@link #PARAMETER_DELETED}, ordered by phenomenon start time.
+     */
+    public static final String QUERY_FIRST_OBSERVATION = "RetentionPurge.firstObservation";
+
+    /**
+     * Named query for the remaining observations without parent, parameters {@link #PARAMETER_DATASET},
+     * {@link #PARAMETER_IDS} and {@link #PARAMETER_DELETED}, ordered descending by phenomenon end time.
+     */
+    public static final String QUERY_LAST_OBSERVATION = "RetentionPurge.lastObservation";
+
+    /**
+     * Named query to delete the observation blocks which end before the expiration, parameters
+     * {@link #PARAMETER_DATASET} and {@link #PARAMETER_BEFORE}.
+     */
+    public static final String QUERY_BLOCKS = "RetentionPurge.blocks";
+
+    /**
+     * Named query for the ids of the parameters of the observations and their children, parameter
+     * {@link #PARAMETER_IDS}, not mapped for the simple concept.
+     */
+    public static final String QUERY_PARAMETER_IDS = "RetentionPurge.parameterIds";
+
+    /**
+     * Named query to delete the links of the observations to the parameters, parameter
+     * {@link #PARAMETER_PARAMETERS}.
+     */
+    public static final String QUERY_PARAMETER_LINKS = "RetentionPurge.parameterLinks";
+
+    /**
+     * Named query to delete the parameters, parameter {@link #PARAMETER_PARAMETERS}.
+     */
+    public static final String QUERY_PARAMETERS = "RetentionPurge.parameters";
+
+    /**
+     * Named queries to delete the rows which reference the observations or their children, parameter
+     * {@link #PARAMETER_IDS}, in this order. Queries of tables which do not exist in a concept are not
+     * mapped.
+     */
+    public static final List<String> QUERIES_DEPENDENT_ROWS =
+            Collections.unmodifiableList(Arrays.asList("RetentionPurge.observationTranslations",
+                    "RetentionPurge.relatedObservations", "RetentionPurge.observationValues"));
+
+    /**
+     * Named query to delete the children of the observations, parameter {@link #PARAMETER_IDS}.
+     */
+    public static final String QUERY_CHILD_OBSERVATIONS = "RetentionPurge.childObservations";
+
+    /**
+     * Named query to delete the observations, parameter {@link #PARAMETER_IDS}.
+     */
+    public static final String QUERY_OBSERVATIONS = "RetentionPurge.observations";
+
+    public static final String PARAMETER_DATASET = "dataset";
+    public static final String PARAMETER_BEFORE = "before";
+    public static final String PARAMETER_DELETED = "deleted";
+    public static final String PARAMETER_IDS = "ids";
+    public static final String PARAMETER_PARAMETERS = "parameters";
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final int chunkSize;
+
+    private final LatestValueCache latestValueCache;
+
+    public RetentionPurger() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize
+     *            the maximum number of observations without parent deleted per transaction
+     */
+    public RetentionPurger(int chunkSize) {
+        this(chunkSize, null);
+    }
+
+    /**
+     * @param chunkSize
+     *            the maximum number of observations without parent deleted per transaction
+     * @param latestValueCache
+     *            the cache whose entries of purged datasets are invalidated, may be <code>null</code>
+     */
+    public RetentionPurger(int chunkSize, LatestValueCache latestValueCache) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size has to be positive!");
+        }
+        this.chunkSize = chunkSize;
+        this.latestValueCache = latestValueCache;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Purge the expired observations of all datasets with an expiring retention policy.
+     *
+     * @param session
+     *            the session
+     * @param now
+     *            the current time
+     * @return the number of deleted observations
+     */
+    public long purge(Session session, Date now) {
+        long deleted = 0;
+        for (Map.Entry<Long, RetentionPolicyEntity> entry : inTransaction(session, () -> getPolicies(session))
+                .entrySet()) {
+            if (entry.getValue().isExpiring()) {
+                DatasetEntity dataset = inTransaction(session, () -> session.get(DatasetEntity.class, entry.getKey()));
+                deleted += purge(session, dataset, new Date(now.getTime() - entry.getValue().getRetention()));
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Purge the observations of the dataset which end before the expiration.
+     *
+     * @param session
+     *            the session
+     * @param dataset
+     *            the dataset
+     * @param before
+     *            the expiration
+     * @return the number of deleted observations
+     */
+    public long purge(Session session, DatasetEntity dataset, Date before) {
+        inTransaction(session,
+                () -> session.createNamedQuery(QUERY_BLOCKS).setParameter(PARAMETER_DATASET, dataset.getId())
+                        .setParameter(PARAMETER_BEFORE, before).executeUpdate());
+        long deleted = 0;
+        int purged;
+        do {
+            purged = inTransaction(session, () -> ObservationChangeLog.withOperation(session, Operation.PURGE,
+                    () -> purgeChunk(session, dataset, before)));
+            if (purged > 0 && latestValueCache != null) {
+                latestValueCache.invalidate(dataset.getId());
+            }
+            deleted += purged;
+        } while (purged > 0);
+        return deleted;
+    }
+
+    /**
+     * Get the retention policies which apply to the datasets. Dataset policies override phenomenon policies,
+     * which override category policies.
+     *
+     * @param session
+     *            the session
+     * @return the policies by dataset id
+     */
+    public Map<Long, RetentionPolicyEntity> getPolicies(Session session) {
+        List<RetentionPolicyEntity> policies = session
+                .createNamedQuery(RetentionPolicyEntity.QUERY_POLICIES, RetentionPolicyEntity.class).getResultList();
+        Map<Long, RetentionPolicyEntity> applied = new LinkedHashMap<>();
+        for (RetentionPolicyEntity policy : policies) {
+            if (policy.isSetCategory()) {
+                session.createNamedQuery(RetentionPolicyEntity.QUERY_CATEGORY_DATASETS, DatasetEntity.class)
+                        .setParameter(RetentionPolicyEntity.PARAMETER_CATEGORY, policy.getCategory().getId())
+                        .getResultList().forEach(d -> applied.put(d.getId(), policy));
+            }
+        }
+        for (RetentionPolicyEntity policy : policies) {
+            if (policy.isSetPhenomenon()) {
+                session.createNamedQuery(RetentionPolicyEntity.QUERY_PHENOMENON_DATASETS, DatasetEntity.class)
+                        .setParameter(RetentionPolicyEntity.PARAMETER_PHENOMENON, policy.getPhenomenon().getId())
+                        .getResultList().forEach(d -> applied.put(d.getId(), policy));
+            }
+        }
+        for (RetentionPolicyEntity policy : policies) {
+            if (policy.isSetDataset()) {
+                applied.put(policy.getDataset().getId(), policy);
+            }
+        }
+        return applied;
+    }
+
+    private int purgeChunk(Session session, DatasetEntity dataset, Date before) {
+        List<Long> ids = session.createNamedQuery(QUERY_EXPIRED_OBSERVATIONS, Long.class)
+                .setParameter(PARAMETER_DATASET, dataset.getId()).setParameter(PARAMETER_BEFORE, before)
+                .setMaxResults(chunkSize).getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        updateSummary(session, dataset, ids);
+        if (DatasetDeletion.isMapped(session, QUERY_PARAMETER_IDS)) {
+            deleteParameters(session, ids);
+        }
+        for (String query : QUERIES_DEPENDENT_ROWS) {
+            if (DatasetDeletion.isMapped(session, query)) {
+                session.getNamedQuery(query).setParameterList(PARAMETER_IDS, ids).executeUpdate();
+            }
+        }
+        int deleted =
+                session.getNamedQuery(QUERY_CHILD_OBSERVATIONS).setParameterList(PARAMETER_IDS, ids).executeUpdate();
+        return deleted
+                + session.getNamedQuery(QUERY_OBSERVATIONS).setParameterList(PARAMETER_IDS, ids).executeUpdate();
+    }
+
+    private void deleteParameters(Session session, List<Long> ids) {
+        List<?> parameters =
+                session.getNamedQuery(QUERY_PARAMETER_IDS).setParameterList(PARAMETER_IDS, ids).getResultList();
+        for (int i = 0; i < parameters.size(); i += DatasetDeletion.PARAMETER_BATCH_SIZE) {
+            List<?> batch =
+                    parameters.subList(i, Math.min(i + DatasetDeletion.PARAMETER_BATCH_SIZE, parameters.size()));
+            session.getNamedQuery(QUERY_PARAMETER_LINKS).setParameterList(PARAMETER_PARAMETERS, batch).executeUpdate();
+            session.getNamedQuery(QUERY_PARAMETERS).setParameterList(PARAMETER_PARAMETERS, batch).executeUpdate();
+        }
+    }
+
+    /**
+     * Move the first and last observation of the dataset to the remaining observations if they are deleted
+     * with the chunk, so the dataset matches the committed observations after each chunk.
+     */
+    private void updateSummary(Session session, DatasetEntity dataset, List<Long> ids) {
+        boolean first = dataset.getFirstObservation() == null || ids.contains(dataset.getFirstObservation().getId());
+        boolean last = dataset.getLastObservation() != null && ids.contains(dataset.getLastObservation().getId());
+        if (!first && !last) {
+            return;
+        }
+        DataEntity<?> remaining = getRemaining(session, QUERY_FIRST_OBSERVATION, dataset, ids);
+        if (remaining == null) {
+            dataset.setFirstObservation(null).setFirstValueAt(null).setFirstQuantityValue(null)
+                    .setLastObservation(null).setLastValueAt(null).setLastQuantityValue(null);
+        } else {
+            if (first) {
+                dataset.setFirstObservation(remaining).setFirstValueAt(remaining.getSamplingTimeStart())
+                        .setFirstQuantityValue(getQuantityValue(remaining));
+            }
+            if (last) {
+                DataEntity<?> latest = getRemaining(session, QUERY_LAST_OBSERVATION, dataset, ids);
+                dataset.setLastObservation(latest).setLastValueAt(latest.getSamplingTimeEnd())
+                        .setLastQuantityValue(getQuantityValue(latest));
+            }
+        }
+        if (!session.contains(dataset)) {
+            session.update(dataset);
+        }
+        session.flush();
+    }
+
+    private DataEntity<?> getRemaining(Session session, String query, DatasetEntity dataset, List<Long> ids) {
+        return session.createNamedQuery(query, DataEntity.class).setParameter(PARAMETER_DATASET, dataset.getId())
+                .setParameterList(PARAMETER_IDS, ids).setParameter(PARAMETER_DELETED, false).setMaxResults(1)
+                .uniqueResultOptional().orElse(null);
+    }
+
+    private BigDecimal getQuantityValue(DataEntity<?> data) {
+        return data instanceof QuantityDataEntity ? ((QuantityDataEntity) data).getValue() : null;
+    }
+
+    private <T> T inTransaction(Session session, Supplier<T> work) {
+        Transaction transaction = session.beginTransaction();
+        try {
+            T result = work.get();
+            transaction.commit();
+            return result;
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        }
+    }
+}
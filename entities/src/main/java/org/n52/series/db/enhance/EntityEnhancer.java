@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.enhance;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hibernate.bytecode.enhance.spi.DefaultEnhancementContext;
+import org.hibernate.bytecode.enhance.spi.Enhancer;
+import org.hibernate.bytecode.enhance.spi.UnloadedClass;
+import org.hibernate.bytecode.enhance.spi.UnloadedField;
+import org.hibernate.bytecode.internal.bytebuddy.BytecodeProviderImpl;
+
+/**
+ * Build time bytecode enhancement of the entities, executed by the entities module after compilation. The
+ * enhancement lets Hibernate load the properties which are mapped with <code>lazy="true"</code>, e.g. XML
+ * encoded descriptions, on first access instead of with every entity.
+ * <p>
+ * The Hibernate enhancement plugins only enhance classes annotated with JPA annotations, the entities are
+ * mapped with hbm.xml files. So the classes declaring lazy properties and their subclasses are passed
+ * explicitly and enhanced as entities. Hibernate accesses all properties of enhanced entities by field
+ * instead of by their getters and setters, also the inherited ones, so these classes must not keep logic in
+ * the accessors of mapped properties. Inline dirty tracking is not enabled, because the hbm.xml files map
+ * properties and the tracking is based on the field names. Classes which are already enhanced are skipped.
+ * <p>
+ * Byte Buddy of Hibernate 5.4 has to be run with <code>-Dnet.bytebuddy.experimental=true</code> on JDKs newer
+ * than 14 to read their class files.
+ *
+ * @since 3.0.0
+ */
+@SuppressWarnings("uncommentedmain")
+public final class EntityEnhancer {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Path classes;
+
+    private final ClassLoader classLoader;
+
+    private final Set<String> roots;
+
+    private final Set<String> entities = new HashSet<>();
+
+    /**
+     * @param classes
+     *            the directory of the compiled classes
+     * @param parent
+     *            the class loader of the dependencies
+     * @param roots
+     *            the names of the classes which are enhanced together with their subclasses
+     * @throws IOException
+     *             if the directory can not be read
+     */
+    public EntityEnhancer(Path classes, ClassLoader parent, Collection<String> roots) throws IOException {
+        this.classes = classes;
+        this.roots = new HashSet<>(roots);
+        URL[] urls = new URL[] { classes.toUri().toURL() };
+        this.classLoader =
+                AccessController.doPrivileged((PrivilegedAction<ClassLoader>) () -> new URLClassLoader(urls, parent));
+    }
+
+    /**
+     * Enhance the root classes and their subclasses in the directory.
+     *
+     * @return the number of enhanced classes
+     * @throws IOException
+     *             if a class file can not be read or written
+     * @throws ClassNotFoundException
+     *             if a class can not be loaded
+     */
+    public int enhance() throws IOException, ClassNotFoundException {
+        List<Path> files = getClassFiles();
+        for (Path file : files) {
+            Class<?> type = Class.forName(getClassName(file), false, classLoader);
+            if (isEnhanced(type)) {
+                entities.add(type.getName());
+            }
+        }
+        Enhancer enhancer = new BytecodeProviderImpl().getEnhancer(new EntityEnhancementContext());
+        int enhanced = 0;
+        for (Path file : files) {
+            String name = getClassName(file);
+            if (entities.contains(name)) {
+                byte[] bytes = enhancer.enhance(name, Files.readAllBytes(file));
+                if (bytes != null) {
+                    Files.write(file, bytes);
+                    enhanced++;
+                }
+            }
+        }
+        return enhanced;
+    }
+
+    private boolean isEnhanced(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            if (roots.contains(c.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Path> getClassFiles() throws IOException {
+        Stream<Path> paths = Files.walk(classes);
+        try {
+            return paths.filter(p -> p.toString().endsWith(CLASS_SUFFIX)).sorted().collect(Collectors.toList());
+        } finally {
+            paths.close();
+        }
+    }
+
+    private String getClassName(Path file) {
+        String name = classes.relativize(file).toString();
+        return name.substring(0, name.length() - CLASS_SUFFIX.length()).replace(File.separatorChar, '.');
+    }
+
+    public static void main(String[] args) {
+        if (args == null || args.length < 2) {
+            System.err.println("Usage: EntityEnhancer <classes directory> <class>...");
+            System.exit(1);
+        }
+        try {
+            List<String> roots = Arrays.asList(args).subList(1, args.length);
+            int enhanced =
+                    new EntityEnhancer(Paths.get(args[0]), EntityEnhancer.class.getClassLoader(), roots).enhance();
+            System.out.println(String.format("Enhanced %d entity classes in %s", enhanced, args[0]));
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("ERROR: Could not enhance the entity classes!");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private class EntityEnhancementContext extends DefaultEnhancementContext {
+
+        @Override
+        public ClassLoader getLoadingClassLoader() {
+            return classLoader;
+        }
+
+        @Override
+        public boolean isEntityClass(UnloadedClass classDescriptor) {
+            return entities.contains(classDescriptor.getName());
+        }
+
+        @Override
+        public boolean isMappedSuperclassClass(UnloadedClass classDescriptor) {
+            return false;
+        }
+
+        @Override
+        public boolean isCompositeClass(UnloadedClass classDescriptor) {
+            return false;
+        }
+
+        @Override
+        public boolean doBiDirectionalAssociationManagement(UnloadedField field) {
+            return false;
+        }
+
+        @Override
+        public boolean doDirtyCheckingInline(UnloadedClass classDescriptor) {
+            return false;
+        }
+
+        @Override
+        public boolean hasLazyLoadableAttributes(UnloadedClass classDescriptor) {
+            return true;
+        }
+
+        @Override
+        public boolean isLazyLoadable(UnloadedField field) {
+            return true;
+        }
+    }
+}
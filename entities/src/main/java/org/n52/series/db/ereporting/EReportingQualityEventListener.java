@@ -0,0 +1,418 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.ereporting;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.LockModeType;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PreDeleteEvent;
+import org.hibernate.event.spi.PreDeleteEventListener;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.IdEntity;
+import org.n52.series.db.beans.ereporting.EReportingProfileDataEntity;
+import org.n52.series.db.beans.ereporting.EReportingQualityAggregator;
+import org.n52.series.db.beans.ereporting.EReportingQualityAggregator.Interval;
+import org.n52.series.db.beans.ereporting.EReportingQualityEntity;
+
+/**
+ * Hibernate listener which maintains the counters of the {@link EReportingQualityEntity}s with the
+ * {@link EReportingQualityAggregator}. The states of the observations before and after the inserts, updates
+ * and deletes of a transaction are collected per session and applied to the quality entities before the
+ * commit, together with the unchanged observations overlapping the changed ones.
+ * <p>
+ * The quality entities are written with a temporary session on the connection of the transaction, after the
+ * final flush of the session, and are locked for the update. Missing quality entities and quality entities of
+ * observations updated without their previous state (e.g. detached observations) are recalculated from all
+ * observations of the dataset, year and primary observation. Bulk deletes, e.g. of the
+ * {@link org.n52.series.db.deletion.DatasetDeletion}, are not tracked.
+ *
+ * @since 3.0.0
+ */
+public class EReportingQualityEventListener
+        implements PreInsertEventListener, PreUpdateEventListener, PreDeleteEventListener {
+
+    private static final long serialVersionUID = 4706386839546120457L;
+
+    private final EReportingQualityAggregator aggregator;
+
+    private final transient Map<EventSource, QualityUpdate> updates = new ConcurrentHashMap<>();
+
+    public EReportingQualityEventListener(EReportingQualityAggregator aggregator) {
+        this.aggregator = Objects.requireNonNull(aggregator);
+    }
+
+    /**
+     * Register a listener for the aggregator at the session factory.
+     *
+     * @param sessionFactory
+     *            the session factory of the e-Reporting concept
+     * @param aggregator
+     *            the aggregator
+     * @return the registered listener
+     */
+    public static EReportingQualityEventListener register(SessionFactory sessionFactory,
+            EReportingQualityAggregator aggregator) {
+        EReportingQualityEventListener listener = new EReportingQualityEventListener(aggregator);
+        EventListenerRegistry registry = sessionFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.PRE_INSERT, listener);
+        registry.appendListeners(EventType.PRE_UPDATE, listener);
+        registry.appendListeners(EventType.PRE_DELETE, listener);
+        return listener;
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        if (event.getEntity() instanceof DataEntity
+                && ((DataEntity<?>) event.getEntity()).getEreportingProfile() != null) {
+            getUpdate(event.getSession()).changes.computeIfAbsent(event.getEntity(), e -> new Change(null, false));
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        if (event.getEntity() instanceof DataEntity) {
+            State previous = event.getOldState() != null ? State.of(event.getPersister(), event.getOldState()) : null;
+            if (((DataEntity<?>) event.getEntity()).getEreportingProfile() != null
+                    || previous != null && previous.profile != null) {
+                getUpdate(event.getSession()).changes.computeIfAbsent(event.getEntity(),
+                        e -> new Change(previous, previous == null));
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onPreDelete(PreDeleteEvent event) {
+        if (event.getEntity() instanceof DataEntity && event.getDeletedState() != null) {
+            State previous = State.of(event.getPersister(), event.getDeletedState());
+            if (previous.profile != null) {
+                getUpdate(event.getSession()).changes.computeIfAbsent(event.getEntity(),
+                        e -> new Change(previous, false)).deleted = true;
+            }
+        }
+        return false;
+    }
+
+    private Object readResolve() {
+        // the collected changes belong to the sessions of the serializing process
+        return new EReportingQualityEventListener(aggregator);
+    }
+
+    private QualityUpdate getUpdate(EventSource session) {
+        return updates.computeIfAbsent(session, s -> {
+            QualityUpdate update = new QualityUpdate(s);
+            s.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) update);
+            s.getActionQueue().registerProcess((AfterTransactionCompletionProcess) update);
+            return update;
+        });
+    }
+
+    /**
+     * The changes of the observations of a session within the current transaction.
+     */
+    private final class QualityUpdate
+            implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        private final EventSource session;
+
+        private final Map<Object, Change> changes = new IdentityHashMap<>();
+
+        QualityUpdate(EventSource session) {
+            this.session = session;
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor current) {
+            updates.remove(session);
+            Map<Key, KeyChanges> keys = new LinkedHashMap<>();
+            for (Map.Entry<Object, Change> entry : changes.entrySet()) {
+                DataEntity<?> data = (DataEntity<?>) entry.getKey();
+                Change change = entry.getValue();
+                State after = change.deleted ? null : State.of(data);
+                if (change.previous != null && change.previous.isContributing()) {
+                    keys.computeIfAbsent(change.previous.getKey(), k -> new KeyChanges()).add(data, change.previous,
+                            true);
+                }
+                if (after != null && after.isContributing()) {
+                    KeyChanges keyChanges = keys.computeIfAbsent(after.getKey(), k -> new KeyChanges());
+                    keyChanges.add(data, after, false);
+                    keyChanges.recalculate |= change.unknown;
+                }
+            }
+            if (keys.isEmpty()) {
+                return;
+            }
+            Session temporary = current.sessionWithOptions().connection().autoClose(false)
+                    .connectionHandlingMode(
+                            PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION)
+                    .openSession();
+            try {
+                for (Map.Entry<Key, KeyChanges> entry : keys.entrySet()) {
+                    update(temporary, entry.getKey(), entry.getValue());
+                }
+                temporary.flush();
+            } finally {
+                temporary.close();
+            }
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor current) {
+            // removes the changes of rolled back transactions
+            updates.remove(session);
+        }
+
+        private void update(Session temporary, Key key, KeyChanges keyChanges) {
+            EReportingQualityEntity quality = temporary
+                    .createNamedQuery(EReportingQualityEntity.QUERY_QUALITY, EReportingQualityEntity.class)
+                    .setParameter(EReportingQualityEntity.PARAMETER_DATASET, key.dataset)
+                    .setParameter(EReportingQualityEntity.PARAMETER_YEAR, key.year)
+                    .setParameter(EReportingQualityEntity.PARAMETER_PRIMARY_OBSERVATION, key.primaryObservation)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE).uniqueResult();
+            Date yearStart = EReportingQualityAggregator.getYearStart(key.year);
+            if (quality == null || keyChanges.recalculate) {
+                if (quality == null) {
+                    quality = aggregator.create(key.dataset, key.year, key.primaryObservation);
+                }
+                Date yearEnd = EReportingQualityAggregator.getYearStart(key.year + 1);
+                aggregator.recalculate(quality,
+                        getIntervals(temporary, quality, yearStart, yearStart, yearEnd, new HashSet<>()));
+            } else {
+                List<Interval> removed = toIntervals(quality, keyChanges.removed);
+                List<Interval> added = toIntervals(quality, keyChanges.added);
+                long start = Long.MAX_VALUE;
+                long end = Long.MIN_VALUE;
+                for (Interval interval : removed) {
+                    start = Math.min(start, interval.getStart());
+                    end = Math.max(end, interval.getEnd());
+                }
+                for (Interval interval : added) {
+                    start = Math.min(start, interval.getStart());
+                    end = Math.max(end, interval.getEnd());
+                }
+                aggregator.update(quality, removed, added,
+                        getIntervals(temporary, quality, yearStart, new Date(start), new Date(end), keyChanges.ids));
+            }
+            temporary.saveOrUpdate(quality);
+        }
+
+        private List<Interval> getIntervals(Session temporary, EReportingQualityEntity quality, Date yearStart,
+                Date start, Date end, Set<Long> excluded) {
+            long duration = EReportingQualityAggregator.getPrimaryObservationDuration(quality.getPrimaryObservation());
+            List<Object[]> rows =
+                    temporary.createNamedQuery(EReportingQualityEntity.QUERY_OBSERVATIONS, Object[].class)
+                            .setParameter(EReportingQualityEntity.PARAMETER_DATASET, quality.getDataset())
+                            .setParameter(EReportingQualityEntity.PARAMETER_PRIMARY_OBSERVATION,
+                                    quality.getPrimaryObservation())
+                            .setParameter(EReportingQualityEntity.PARAMETER_DELETED, false)
+                            .setParameter(EReportingQualityEntity.PARAMETER_YEAR_START, yearStart)
+                            .setParameter(EReportingQualityEntity.PARAMETER_START, start)
+                            .setParameter(EReportingQualityEntity.PARAMETER_EXTENDED_START,
+                                    new Date(start.getTime() - duration))
+                            .setParameter(EReportingQualityEntity.PARAMETER_END, end).getResultList();
+            List<Interval> intervals = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                if (!excluded.contains(row[0])) {
+                    EReportingProfileDataEntity profile = new EReportingProfileDataEntity();
+                    profile.setPrimaryObservation(quality.getPrimaryObservation());
+                    profile.setValidation((Integer) row[3]);
+                    Interval interval = aggregator.toInterval(quality, quality.getDataset(), (Date) row[1],
+                            (Date) row[2], profile);
+                    if (interval != null) {
+                        intervals.add(interval);
+                    }
+                }
+            }
+            return intervals;
+        }
+
+        private List<Interval> toIntervals(EReportingQualityEntity quality, List<State> states) {
+            List<Interval> intervals = new ArrayList<>(states.size());
+            for (State state : states) {
+                Interval interval =
+                        aggregator.toInterval(quality, state.dataset, state.start, state.end, state.profile);
+                if (interval != null) {
+                    intervals.add(interval);
+                }
+            }
+            return intervals;
+        }
+    }
+
+    /**
+     * The change of an observation within a transaction.
+     */
+    private static final class Change {
+
+        /**
+         * The state before the transaction, <code>null</code> for inserted observations.
+         */
+        private final State previous;
+
+        /**
+         * Set for observations which are updated without their previous state.
+         */
+        private final boolean unknown;
+
+        private boolean deleted;
+
+        Change(State previous, boolean unknown) {
+            this.previous = previous;
+            this.unknown = unknown;
+        }
+    }
+
+    /**
+     * The removed and added states of the observations of a quality entity.
+     */
+    private static final class KeyChanges {
+
+        private final List<State> removed = new ArrayList<>();
+
+        private final List<State> added = new ArrayList<>();
+
+        private final Set<Long> ids = new HashSet<>();
+
+        private boolean recalculate;
+
+        void add(DataEntity<?> data, State state, boolean previous) {
+            if (previous) {
+                removed.add(state);
+            } else {
+                added.add(state);
+            }
+            if (data.getId() != null) {
+                ids.add(data.getId());
+            }
+        }
+    }
+
+    /**
+     * The state of an observation which is relevant for the quality entities.
+     */
+    private static final class State {
+
+        private final Long dataset;
+
+        private final Date start;
+
+        private final Date end;
+
+        private final EReportingProfileDataEntity profile;
+
+        private final boolean deleted;
+
+        State(Long dataset, Date start, Date end, EReportingProfileDataEntity profile, boolean deleted) {
+            this.dataset = dataset;
+            this.start = start;
+            this.end = end;
+            this.profile = profile;
+            this.deleted = deleted;
+        }
+
+        static State of(DataEntity<?> data) {
+            Long dataset = data.getDataset() != null ? data.getDataset().getId() : data.getDatasetId();
+            return new State(dataset, data.getSamplingTimeStart(), data.getSamplingTimeEnd(),
+                    data.getEreportingProfile(), data.getDeleted());
+        }
+
+        static State of(EntityPersister persister, Object[] state) {
+            Object dataset = get(persister, state, DataEntity.PROPERTY_DATASET);
+            Object deleted = get(persister, state, DataEntity.PROPERTY_DELETED);
+            return new State(dataset instanceof IdEntity ? ((IdEntity) dataset).getId() : null,
+                    (Date) get(persister, state, DataEntity.PROPERTY_SAMPLING_TIME_START),
+                    (Date) get(persister, state, DataEntity.PROPERTY_SAMPLING_TIME_END),
+                    (EReportingProfileDataEntity) get(persister, state, DataEntity.PROPERTY_EREPORTING_PROFILE),
+                    Boolean.TRUE.equals(deleted));
+        }
+
+        private static Object get(EntityPersister persister, Object[] state, String property) {
+            Integer index = persister.getEntityMetamodel().getPropertyIndexOrNull(property);
+            return index != null ? state[index] : null;
+        }
+
+        boolean isContributing() {
+            return !deleted && dataset != null && start != null && profile != null
+                    && profile.getPrimaryObservation() != null;
+        }
+
+        Key getKey() {
+            return new Key(dataset, EReportingQualityAggregator.getYear(start), profile.getPrimaryObservation());
+        }
+    }
+
+    /**
+     * The dataset, year and primary observation of a quality entity.
+     */
+    private static final class Key {
+
+        private final long dataset;
+
+        private final int year;
+
+        private final String primaryObservation;
+
+        Key(long dataset, int year, String primaryObservation) {
+            this.dataset = dataset;
+            this.year = year;
+            this.primaryObservation = primaryObservation;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dataset, year, primaryObservation);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return dataset == other.dataset && year == other.year
+                    && primaryObservation.equals(other.primaryObservation);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.history;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.ProcedureHistoryEntity;
+
+/**
+ * Access to the procedure descriptions stored in the {@link ProcedureHistoryEntity}s. The description valid
+ * at a time is queried with one probe of the index on procedure, start and end time instead of loading the
+ * history of the procedure, the currently valid description is referenced by
+ * {@link ProcedureEntity#getCurrentDescription()}. The methods have to be called within a transaction.
+ *
+ * @since 3.0.0
+ */
+public class ProcedureDescriptions {
+
+    /**
+     * Get the description of the procedure which is valid at the time. If several descriptions are valid, the
+     * one with the latest start time is returned.
+     *
+     * @param session
+     *            the session
+     * @param procedure
+     *            the procedure id
+     * @param time
+     *            the time
+     * @return the valid description or <code>null</code>
+     */
+    public ProcedureHistoryEntity getValidAt(Session session, long procedure, Date time) {
+        List<ProcedureHistoryEntity> descriptions =
+                session.createNamedQuery(ProcedureHistoryEntity.QUERY_VALID_AT, ProcedureHistoryEntity.class)
+                        .setParameter(ProcedureHistoryEntity.PARAMETER_PROCEDURE, procedure)
+                        .setParameter(ProcedureHistoryEntity.PARAMETER_TIME, time).setMaxResults(1).getResultList();
+        return descriptions.isEmpty() ? null : descriptions.get(0);
+    }
+
+    /**
+     * Get the current description of the procedure, queried if the procedure does not reference one.
+     *
+     * @param session
+     *            the session
+     * @param procedure
+     *            the procedure
+     * @return the current description or <code>null</code>
+     */
+    public ProcedureHistoryEntity getCurrent(Session session, ProcedureEntity procedure) {
+        if (procedure.isSetCurrentDescription()) {
+            return procedure.getCurrentDescription();
+        }
+        return getValidAt(session, procedure.getId(), new Date());
+    }
+
+    /**
+     * Insert a description of the procedure and keep the descriptions without end time consecutive: those
+     * which start before an inserted description without end time end with its start time, the inserted
+     * description ends with the start of the following one. An inserted description without end time, which
+     * starts after all other descriptions, becomes the current description of the procedure.
+     *
+     * @param session
+     *            the session
+     * @param description
+     *            the description with procedure and start time
+     * @return the inserted description
+     */
+    public ProcedureHistoryEntity insert(Session session, ProcedureHistoryEntity description) {
+        ProcedureEntity procedure = description.getProcedure();
+        if (procedure == null || description.getStartTime() == null) {
+            throw new IllegalArgumentException("The description requires a procedure and a start time!");
+        }
+        if (description.getEndTime() == null && procedure.getId() != null) {
+            for (ProcedureHistoryEntity open : session
+                    .createNamedQuery(ProcedureHistoryEntity.QUERY_OPEN, ProcedureHistoryEntity.class)
+                    .setParameter(ProcedureHistoryEntity.PARAMETER_PROCEDURE, procedure.getId()).getResultList()) {
+                if (open.getStartTime().before(description.getStartTime())) {
+                    open.setEndTime(description.getStartTime());
+                } else if (description.getEndTime() == null) {
+                    // ordered by start time, so the first following description ends the inserted one
+                    description.setEndTime(open.getStartTime());
+                }
+            }
+        }
+        session.save(description);
+        if (description.getEndTime() == null) {
+            procedure.setCurrentDescription(description);
+        }
+        return description;
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.proxy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.n52.series.db.beans.ProxyCacheChunkEntity;
+import org.n52.series.db.beans.ProxyCachePolicyEntity;
+import org.n52.series.db.deletion.DatasetDeletion;
+
+/**
+ * {@link ProxyCacheStore} backed by the proxy_cache_chunk and proxy_cache_policy tables of the proxy concept.
+ * The sizes are summed and the access times and evicted chunks are updated with queries, so the content of
+ * the chunks is only loaded for the requested time ranges and only written once. The store uses the session
+ * of the caller, which has to handle the transaction.
+ *
+ * @since 3.0.0
+ */
+public class HibernateProxyCacheStore implements ProxyCacheStore {
+
+    public static final String QUERY_CHUNKS = "ProxyCache.chunks";
+    public static final String QUERY_DATASET_CHUNKS = "ProxyCache.datasetChunks";
+    public static final String QUERY_CHUNK_SIZES = "ProxyCache.chunkSizes";
+    public static final String QUERY_DATASET_CHUNK_SIZES = "ProxyCache.datasetChunkSizes";
+    public static final String QUERY_SIZE = "ProxyCache.size";
+    public static final String QUERY_DATASET_SIZE = "ProxyCache.datasetSize";
+    public static final String QUERY_POLICY = "ProxyCache.policy";
+    public static final String QUERY_TOUCH = "ProxyCache.touch";
+    public static final String QUERY_DELETE = "ProxyCache.delete";
+
+    public static final String PARAMETER_DATASET = "dataset";
+    public static final String PARAMETER_START = "start";
+    public static final String PARAMETER_END = "end";
+    public static final String PARAMETER_LAST_ACCESS = "lastAccess";
+    public static final String PARAMETER_IDS = "ids";
+
+    private final Session session;
+
+    public HibernateProxyCacheStore(Session session) {
+        this.session = session;
+    }
+
+    @Override
+    public List<ProxyCacheChunkEntity> getChunks(Long datasetId, Date start, Date end) {
+        return session.createNamedQuery(QUERY_CHUNKS, ProxyCacheChunkEntity.class)
+                .setParameter(PARAMETER_DATASET, datasetId).setParameter(PARAMETER_START, start)
+                .setParameter(PARAMETER_END, end).getResultList();
+    }
+
+    @Override
+    public List<ProxyCacheChunkEntity> getChunks(Long datasetId) {
+        return session.createNamedQuery(QUERY_DATASET_CHUNKS, ProxyCacheChunkEntity.class)
+                .setParameter(PARAMETER_DATASET, datasetId).getResultList();
+    }
+
+    @Override
+    public Map<Long, Long> getChunkSizes() {
+        return toChunkSizes(session.createNamedQuery(QUERY_CHUNK_SIZES, Object[].class).getResultList());
+    }
+
+    @Override
+    public Map<Long, Long> getChunkSizes(Long datasetId) {
+        return toChunkSizes(session.createNamedQuery(QUERY_DATASET_CHUNK_SIZES, Object[].class)
+                .setParameter(PARAMETER_DATASET, datasetId).getResultList());
+    }
+
+    @Override
+    public long getSize() {
+        return session.createNamedQuery(QUERY_SIZE, Number.class).getSingleResult().longValue();
+    }
+
+    @Override
+    public long getSize(Long datasetId) {
+        return session.createNamedQuery(QUERY_DATASET_SIZE, Number.class).setParameter(PARAMETER_DATASET, datasetId)
+                .getSingleResult().longValue();
+    }
+
+    @Override
+    public ProxyCachePolicyEntity getPolicy(Long datasetId) {
+        return session.createNamedQuery(QUERY_POLICY, ProxyCachePolicyEntity.class)
+                .setParameter(PARAMETER_DATASET, datasetId).uniqueResult();
+    }
+
+    @Override
+    public void touch(Collection<Long> chunkIds, Date lastAccess) {
+        for (List<Long> ids : partition(chunkIds)) {
+            session.createNamedQuery(QUERY_TOUCH).setParameter(PARAMETER_LAST_ACCESS, lastAccess)
+                    .setParameterList(PARAMETER_IDS, ids).executeUpdate();
+        }
+    }
+
+    @Override
+    public void save(ProxyCacheChunkEntity chunk) {
+        session.saveOrUpdate(chunk);
+    }
+
+    @Override
+    public void delete(ProxyCacheChunkEntity chunk) {
+        session.delete(chunk);
+    }
+
+    @Override
+    public void delete(Collection<Long> chunkIds) {
+        for (List<Long> ids : partition(chunkIds)) {
+            session.createNamedQuery(QUERY_DELETE).setParameterList(PARAMETER_IDS, ids).executeUpdate();
+        }
+    }
+
+    private Map<Long, Long> toChunkSizes(List<Object[]> rows) {
+        Map<Long, Long> sizes = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            sizes.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return sizes;
+    }
+
+    private List<List<Long>> partition(Collection<Long> chunkIds) {
+        List<List<Long>> partitions = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(chunkIds);
+        for (int i = 0; i < ids.size(); i += DatasetDeletion.PARAMETER_BATCH_SIZE) {
+            partitions.add(ids.subList(i, Math.min(ids.size(), i + DatasetDeletion.PARAMETER_BATCH_SIZE)));
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.proxy;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.n52.series.db.beans.ProxyCacheChunkEntity;
+import org.n52.series.db.beans.ProxyCachePolicyEntity;
+
+/**
+ * {@link ProxyCacheStore} that keeps the chunks and policies in memory, e.g. for tests or short living
+ * proxies.
+ *
+ * @since 3.0.0
+ */
+public class InMemoryProxyCacheStore implements ProxyCacheStore {
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private final Map<Long, ProxyCacheChunkEntity> chunks = new ConcurrentHashMap<>();
+
+    private final Map<Long, ProxyCachePolicyEntity> policies = new ConcurrentHashMap<>();
+
+    @Override
+    public List<ProxyCacheChunkEntity> getChunks(Long datasetId, Date start, Date end) {
+        return chunks.values().stream().filter(c -> datasetId.equals(c.getDatasetId()) && c.overlaps(start, end))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ProxyCacheChunkEntity> getChunks(Long datasetId) {
+        return chunks.values().stream().filter(c -> datasetId.equals(c.getDatasetId())).collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Long, Long> getChunkSizes() {
+        return toChunkSizes(chunks.values().stream());
+    }
+
+    @Override
+    public Map<Long, Long> getChunkSizes(Long datasetId) {
+        return toChunkSizes(chunks.values().stream().filter(c -> datasetId.equals(c.getDatasetId())));
+    }
+
+    @Override
+    public long getSize() {
+        return chunks.values().stream().mapToLong(ProxyCacheChunkEntity::getSize).sum();
+    }
+
+    @Override
+    public long getSize(Long datasetId) {
+        return chunks.values().stream().filter(c -> datasetId.equals(c.getDatasetId()))
+                .mapToLong(ProxyCacheChunkEntity::getSize).sum();
+    }
+
+    @Override
+    public ProxyCachePolicyEntity getPolicy(Long datasetId) {
+        return policies.get(datasetId);
+    }
+
+    public void setPolicy(ProxyCachePolicyEntity policy) {
+        policies.put(policy.getDatasetId(), policy);
+    }
+
+    @Override
+    public void touch(Collection<Long> chunkIds, Date lastAccess) {
+        for (Long id : chunkIds) {
+            ProxyCacheChunkEntity chunk = chunks.get(id);
+            if (chunk != null) {
+                chunk.setLastAccess(lastAccess);
+            }
+        }
+    }
+
+    @Override
+    public void save(ProxyCacheChunkEntity chunk) {
+        if (chunk.getId() == null) {
+            chunk.setId(ids.incrementAndGet());
+        }
+        chunks.put(chunk.getId(), chunk);
+    }
+
+    @Override
+    public void delete(ProxyCacheChunkEntity chunk) {
+        if (chunk.getId() != null) {
+            chunks.remove(chunk.getId());
+        }
+    }
+
+    @Override
+    public void delete(Collection<Long> chunkIds) {
+        chunks.keySet().removeAll(chunkIds);
+    }
+
+    public int size() {
+        return chunks.size();
+    }
+
+    private Map<Long, Long> toChunkSizes(Stream<ProxyCacheChunkEntity> stream) {
+        return stream
+                .sorted(Comparator.comparing(ProxyCacheChunkEntity::getLastAccess,
+                        Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.toMap(ProxyCacheChunkEntity::getId, ProxyCacheChunkEntity::getSize, (a, b) -> a,
+                        LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.proxy;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ProxyCacheChunkEntity;
+import org.n52.series.db.beans.ProxyCachePolicyEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-through cache for the values of proxied datasets. Requested time ranges are served from the cached
+ * chunks, only the gaps which are not covered by valid chunks are fetched from the remote source. Expired
+ * chunks are removed on access and the least recently accessed chunks are evicted if the cached chunks of a
+ * dataset exceed the maximum size of the {@link ProxyCachePolicyEntity} or all cached chunks exceed the
+ * maximum size of the cache. Datasets without a policy use the defaults of the
+ * {@link ProxyCachePolicyEntity}.
+ *
+ * @since 3.0.0
+ */
+public class ProxyCache {
+
+    /**
+     * Default maximum size of all cached chunks (256 MB) in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 256 * 1024 * 1024L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProxyCache.class);
+
+    private static final Comparator<ProxyCacheChunkEntity> BY_TIME_START =
+            Comparator.comparing(ProxyCacheChunkEntity::getTimeStart);
+
+    private final ProxyCacheStore store;
+
+    private final ProxyConnector connector;
+
+    private final long maxSize;
+
+    public ProxyCache(ProxyCacheStore store, ProxyConnector connector) {
+        this(store, connector, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param store
+     *            the store of the chunks and policies
+     * @param connector
+     *            the connector to the remote sources
+     * @param maxSize
+     *            the maximum size of all cached chunks in bytes, values less than 1 disable the eviction
+     */
+    public ProxyCache(ProxyCacheStore store, ProxyConnector connector, long maxSize) {
+        this.store = store;
+        this.connector = connector;
+        this.maxSize = maxSize;
+    }
+
+    public List<ProxyCacheChunkEntity> read(DatasetEntity dataset, Date start, Date end) throws Exception {
+        return read(dataset, start, end, new Date());
+    }
+
+    /**
+     * Get the chunks covering the time range [start, end) of the dataset, missing ranges are fetched from the
+     * remote source and stored.
+     *
+     * @param dataset
+     *            the proxied dataset
+     * @param start
+     *            the start of the time range
+     * @param end
+     *            the end of the time range
+     * @param now
+     *            the current time used for expiration and access bookkeeping
+     * @return the chunks ordered by time
+     * @throws Exception
+     *             if missing values could not be fetched
+     */
+    public List<ProxyCacheChunkEntity> read(DatasetEntity dataset, Date start, Date end, Date now) throws Exception {
+        ProxyCachePolicyEntity policy = getPolicy(dataset.getId());
+        List<ProxyCacheChunkEntity> chunks = new LinkedList<>();
+        Set<Long> requested = new HashSet<>();
+        for (ProxyCacheChunkEntity chunk : store.getChunks(dataset.getId(), start, end)) {
+            if (chunk.isExpired(policy.getTtl(), now)) {
+                store.delete(chunk);
+            } else {
+                chunks.add(chunk);
+                requested.add(chunk.getId());
+            }
+        }
+        // only the access time of cached chunks is updated, their content is not written again
+        store.touch(requested, now);
+        for (TimeRange gap : getGaps(chunks, start, end)) {
+            LOG.debug("Fetch missing range {} of dataset {}", gap, dataset.getId());
+            ProxyCacheChunkEntity chunk = connector.fetch(dataset, gap.getStart(), gap.getEnd());
+            if (chunk != null) {
+                chunk.setDataset(dataset).setDatasetId(dataset.getId()).setTimeStart(gap.getStart())
+                        .setTimeEnd(gap.getEnd()).setFetched(now).setLastAccess(now);
+                store.save(chunk);
+                chunks.add(chunk);
+                requested.add(chunk.getId());
+            }
+        }
+        if (policy.getMaxSize() > 0) {
+            long excess = store.getSize(dataset.getId()) - policy.getMaxSize();
+            if (excess > 0) {
+                evict(store.getChunkSizes(dataset.getId()), excess, requested);
+            }
+        }
+        if (maxSize > 0) {
+            long excess = store.getSize() - maxSize;
+            if (excess > 0) {
+                evict(store.getChunkSizes(), excess, requested);
+            }
+        }
+        return chunks.stream().sorted(BY_TIME_START).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the ranges of [start, end) that are not covered by the chunks.
+     *
+     * @param chunks
+     *            the cached chunks
+     * @param start
+     *            the start of the time range
+     * @param end
+     *            the end of the time range
+     * @return the uncovered ranges ordered by time
+     */
+    public static List<TimeRange> getGaps(List<ProxyCacheChunkEntity> chunks, Date start, Date end) {
+        List<TimeRange> gaps = new LinkedList<>();
+        long cursor = start.getTime();
+        for (ProxyCacheChunkEntity chunk : chunks.stream().sorted(BY_TIME_START).collect(Collectors.toList())) {
+            long chunkStart = chunk.getTimeStart().getTime();
+            long chunkEnd = chunk.getTimeEnd().getTime();
+            if (chunkStart > cursor) {
+                gaps.add(new TimeRange(cursor, Math.min(chunkStart, end.getTime())));
+            }
+            cursor = Math.max(cursor, chunkEnd);
+            if (cursor >= end.getTime()) {
+                return gaps;
+            }
+        }
+        if (cursor < end.getTime()) {
+            gaps.add(new TimeRange(cursor, end.getTime()));
+        }
+        return gaps;
+    }
+
+    private void evict(Map<Long, Long> chunkSizes, long excess, Set<Long> requested) {
+        List<Long> evicted = new LinkedList<>();
+        long size = excess;
+        for (Map.Entry<Long, Long> chunk : chunkSizes.entrySet()) {
+            if (size <= 0) {
+                break;
+            }
+            if (!requested.contains(chunk.getKey())) {
+                evicted.add(chunk.getKey());
+                size -= chunk.getValue();
+            }
+        }
+        LOG.debug("Evict chunks {}", evicted);
+        store.delete(evicted);
+    }
+
+    private ProxyCachePolicyEntity getPolicy(Long datasetId) {
+        ProxyCachePolicyEntity policy = store.getPolicy(datasetId);
+        return policy != null ? policy : new ProxyCachePolicyEntity().setDatasetId(datasetId);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.proxy;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.n52.series.db.beans.ProxyCacheChunkEntity;
+import org.n52.series.db.beans.ProxyCachePolicyEntity;
+
+/**
+ * Persistence of the cached chunks and policies of proxied datasets, e.g. backed by the proxy_cache_chunk and
+ * proxy_cache_policy tables.
+ *
+ * @since 3.0.0
+ */
+public interface ProxyCacheStore {
+
+    /**
+     * Get the chunks of the dataset that overlap the time range [start, end).
+     *
+     * @param datasetId
+     *            the dataset id
+     * @param start
+     *            the start of the time range
+     * @param end
+     *            the end of the time range
+     * @return the overlapping chunks
+     */
+    List<ProxyCacheChunkEntity> getChunks(Long datasetId, Date start, Date end);
+
+    /**
+     * Get all chunks of the dataset.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @return the chunks of the dataset
+     */
+    List<ProxyCacheChunkEntity> getChunks(Long datasetId);
+
+    /**
+     * Get the ids and sizes of all chunks, without their content.
+     *
+     * @return the sizes of the chunks by id, ordered by the last access, chunks never accessed first
+     */
+    Map<Long, Long> getChunkSizes();
+
+    /**
+     * Get the ids and sizes of the chunks of the dataset, without their content.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @return the sizes of the chunks by id, ordered by the last access, chunks never accessed first
+     */
+    Map<Long, Long> getChunkSizes(Long datasetId);
+
+    /**
+     * Get the size of all chunks.
+     *
+     * @return the sum of the sizes in bytes
+     */
+    long getSize();
+
+    /**
+     * Get the size of the chunks of the dataset.
+     *
+     * @param datasetId
+     *            the dataset id
+     * @return the sum of the sizes in bytes
+     */
+    long getSize(Long datasetId);
+
+    ProxyCachePolicyEntity getPolicy(Long datasetId);
+
+    /**
+     * Set the last access of the chunks without writing their content.
+     *
+     * @param chunkIds
+     *            the ids of the chunks
+     * @param lastAccess
+     *            the time of the access
+     */
+    void touch(Collection<Long> chunkIds, Date lastAccess);
+
+    void save(ProxyCacheChunkEntity chunk);
+
+    void delete(ProxyCacheChunkEntity chunk);
+
+    /**
+     * Delete the chunks without loading them.
+     *
+     * @param chunkIds
+     *            the ids of the chunks
+     */
+    void delete(Collection<Long> chunkIds);
+}
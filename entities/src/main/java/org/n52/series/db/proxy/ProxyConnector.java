@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.proxy;
+
+import java.util.Date;
+
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ProxyCacheChunkEntity;
+
+/**
+ * Connector to the remote source of a proxied dataset, see
+ * {@link org.n52.series.db.beans.ServiceEntity#getConnector()}.
+ *
+ * @since 3.0.0
+ */
+@FunctionalInterface
+public interface ProxyConnector {
+
+    /**
+     * Fetch the values of the dataset in the time range [start, end) from the remote source.
+     *
+     * @param dataset
+     *            the proxied dataset
+     * @param start
+     *            the start of the time range
+     * @param end
+     *            the end of the time range
+     * @return the chunk with the content and value count of the fetched values, the time range and dataset
+     *         are set by the cache
+     * @throws Exception
+     *             if the values could not be fetched
+     */
+    ProxyCacheChunkEntity fetch(DatasetEntity dataset, Date start, Date end) throws Exception;
+}
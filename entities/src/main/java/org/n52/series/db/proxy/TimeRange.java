@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.proxy;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Half-open time range [start, end).
+ *
+ * @since 3.0.0
+ */
+public class TimeRange {
+
+    private final long start;
+
+    private final long end;
+
+    public TimeRange(Date start, Date end) {
+        this(start.getTime(), end.getTime());
+    }
+
+    public TimeRange(long start, long end) {
+        if (end < start) {
+            throw new IllegalArgumentException("The end of the time range should not be before the start!");
+        }
+        this.start = start;
+        this.end = end;
+    }
+
+    public Date getStart() {
+        return new Date(start);
+    }
+
+    public Date getEnd() {
+        return new Date(end);
+    }
+
+    public long getDuration() {
+        return end - start;
+    }
+
+    public boolean isEmpty() {
+        return start == end;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || !(obj instanceof TimeRange)) {
+            return false;
+        }
+        TimeRange other = (TimeRange) obj;
+        return start == other.start && end == other.end;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%tFT%<tT.%<tLZ, %tFT%<tT.%<tLZ)", getStart(), getEnd());
+    }
+}
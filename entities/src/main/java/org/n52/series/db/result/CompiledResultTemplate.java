@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.result;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.n52.series.db.beans.ResultTemplateEntity;
+
+/**
+ * Compiled representation of a {@link ResultTemplateEntity}. The XML encoded structure and encoding are
+ * parsed once into the flattened fields and the text encoding separators, so that result insertions do not
+ * have to parse the template again.
+ *
+ * @since 3.0.0
+ */
+public class CompiledResultTemplate {
+
+    public static final String DEFAULT_TOKEN_SEPARATOR = ",";
+
+    public static final String DEFAULT_BLOCK_SEPARATOR = "@@";
+
+    public static final String DEFAULT_DECIMAL_SEPARATOR = ".";
+
+    private final Long id;
+
+    private final String identifier;
+
+    private final Long version;
+
+    private final List<ResultField> fields;
+
+    private final String tokenSeparator;
+
+    private final String blockSeparator;
+
+    private final String decimalSeparator;
+
+    public CompiledResultTemplate(Long id, String identifier, Long version, List<ResultField> fields,
+            String tokenSeparator, String blockSeparator, String decimalSeparator) {
+        this.id = id;
+        this.identifier = identifier;
+        this.version = version;
+        this.fields = Collections.unmodifiableList(fields);
+        this.tokenSeparator = tokenSeparator;
+        this.blockSeparator = blockSeparator;
+        this.decimalSeparator = decimalSeparator;
+    }
+
+    /**
+     * Compile the result structure and encoding of the template.
+     *
+     * @param template
+     *            the result template to compile
+     * @return the compiled result template
+     * @throws IllegalArgumentException
+     *             if the structure or encoding can not be parsed
+     */
+    public static CompiledResultTemplate compile(ResultTemplateEntity template) {
+        return new ResultTemplateParser().parse(template);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * @return the persisted version of the compiled template
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public List<ResultField> getFields() {
+        return fields;
+    }
+
+    public int getFieldCount() {
+        return fields.size();
+    }
+
+    /**
+     * Get the index of the field with the name.
+     *
+     * @param name
+     *            the field name
+     * @return the index or <code>-1</code> if no field with the name exists
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).getName() != null && fields.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getTokenSeparator() {
+        return tokenSeparator;
+    }
+
+    public String getBlockSeparator() {
+        return blockSeparator;
+    }
+
+    public String getDecimalSeparator() {
+        return decimalSeparator;
+    }
+
+    /**
+     * Check if this compiled template is still valid for the template.
+     *
+     * @param template
+     *            the result template
+     * @return <code>true</code>, if the template has the same id and version
+     */
+    public boolean isCompiledFrom(ResultTemplateEntity template) {
+        return Objects.equals(getId(), template.getId()) && Objects.equals(getVersion(), template.getVersion());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.result;
+
+/**
+ * Handler for the blocks decoded by the {@link SweTextResultDecoder}, e.g. to add the observations of a block
+ * to a JDBC or Hibernate batch.
+ *
+ * @since 3.0.0
+ */
+public interface ResultBlockHandler {
+
+    /**
+     * Handle a decoded block. The values array is reused for the next block and must not be kept by the
+     * handler.
+     *
+     * @param template
+     *            the compiled result template
+     * @param values
+     *            the values of the block in the order of the template fields
+     * @throws Exception
+     *             if the block can not be handled
+     */
+    void handle(CompiledResultTemplate template, String[] values) throws Exception;
+
+    /**
+     * Flush the handled blocks, called after each batch and at the end of the result.
+     *
+     * @throws Exception
+     *             if the blocks can not be flushed
+     */
+    default void flush() throws Exception {
+    }
+}
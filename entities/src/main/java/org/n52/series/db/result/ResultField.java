@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.result;
+
+/**
+ * Leaf component of a compiled SWE result structure. Nested records and vectors are flattened so that each
+ * {@link ResultField} corresponds to one token of an encoded block.
+ *
+ * @since 3.0.0
+ */
+public class ResultField {
+
+    private final String name;
+
+    private final String definition;
+
+    private final FieldType type;
+
+    private final String uom;
+
+    public ResultField(String name, String definition, FieldType type, String uom) {
+        this.name = name;
+        this.definition = definition;
+        this.type = type;
+        this.uom = uom;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDefinition() {
+        return definition;
+    }
+
+    public FieldType getType() {
+        return type;
+    }
+
+    public String getUom() {
+        return uom;
+    }
+
+    public boolean isSetUom() {
+        return getUom() != null && !getUom().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [name=%s, definition=%s, type=%s, uom=%s]", getClass().getSimpleName(), name,
+                definition, type, uom);
+    }
+
+    public enum FieldType {
+        TIME, TIME_RANGE, QUANTITY, COUNT, BOOLEAN, CATEGORY, TEXT, OTHER;
+
+        public static FieldType fromElementName(String localName) {
+            switch (localName) {
+                case "Time":
+                    return TIME;
+                case "TimeRange":
+                    return TIME_RANGE;
+                case "Quantity":
+                    return QUANTITY;
+                case "Count":
+                    return COUNT;
+                case "Boolean":
+                    return BOOLEAN;
+                case "Category":
+                    return CATEGORY;
+                case "Text":
+                    return TEXT;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+}
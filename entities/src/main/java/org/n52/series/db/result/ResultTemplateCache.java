@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.result;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.n52.series.db.beans.ResultTemplateEntity;
+
+/**
+ * Cache of {@link CompiledResultTemplate}s keyed by the result template id. A cached entry is recompiled if
+ * the persisted version of the template has changed, which is read without loading the lazy structure and
+ * encoding. Changes of the template which are not yet flushed are not detected, the entry has to be
+ * invalidated if such a template is used.
+ *
+ * @since 3.0.0
+ */
+public class ResultTemplateCache {
+
+    private final Map<Long, CompiledResultTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Get the compiled result template, compile it if not cached or changed.
+     *
+     * @param template
+     *            the result template
+     * @return the compiled result template
+     */
+    public CompiledResultTemplate get(ResultTemplateEntity template) {
+        if (template.getId() == null) {
+            return CompiledResultTemplate.compile(template);
+        }
+        CompiledResultTemplate compiled = templates.get(template.getId());
+        if (compiled == null || !compiled.isCompiledFrom(template)) {
+            compiled = CompiledResultTemplate.compile(template);
+            templates.put(template.getId(), compiled);
+        }
+        return compiled;
+    }
+
+    public boolean contains(Long id) {
+        return templates.containsKey(id);
+    }
+
+    public void invalidate(Long id) {
+        templates.remove(id);
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+
+    public int size() {
+        return templates.size();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.result;
+
+import java.io.StringReader;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.series.db.result.ResultField.FieldType;
+
+/**
+ * Parser for the XML encoded SWE result structure (swe:DataRecord) and text encoding (swe:TextEncoding) of a
+ * {@link ResultTemplateEntity}. Nested swe:DataRecord and swe:Vector components are flattened in document
+ * order.
+ *
+ * @since 3.0.0
+ */
+public class ResultTemplateParser {
+
+    private static final String FIELD = "field";
+
+    private static final String COORDINATE = "coordinate";
+
+    private static final String DATA_RECORD = "DataRecord";
+
+    private static final String VECTOR = "Vector";
+
+    private static final String UOM = "uom";
+
+    private static final String TEXT_ENCODING = "TextEncoding";
+
+    private static final String XLINK_NS = "http://www.w3.org/1999/xlink";
+
+    private final XMLInputFactory factory;
+
+    public ResultTemplateParser() {
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    public CompiledResultTemplate parse(ResultTemplateEntity template) {
+        if (!template.isSetStructure()) {
+            throw new IllegalArgumentException(
+                    String.format("The result template '%s' has no structure!", template.getIdentifier()));
+        }
+        try {
+            List<ResultField> fields = parseStructure(template.getStructure());
+            String[] separators = parseEncoding(template.getEncoding());
+            return new CompiledResultTemplate(template.getId(), template.getIdentifier(), template.getVersion(),
+                    fields, separators[0], separators[1], separators[2]);
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException(
+                    String.format("Error while parsing the result template '%s'!", template.getIdentifier()), e);
+        }
+    }
+
+    private List<ResultField> parseStructure(String structure) throws XMLStreamException {
+        List<ResultField> fields = new LinkedList<>();
+        Deque<String> elements = new LinkedList<>();
+        Deque<String> names = new LinkedList<>();
+        String leaf = null;
+        String definition = null;
+        String uom = null;
+        XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(structure));
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String localName = reader.getLocalName();
+                    String parent = elements.peek();
+                    if (FIELD.equals(localName) || COORDINATE.equals(localName)) {
+                        names.push(nullToEmpty(reader.getAttributeValue(null, "name")));
+                    } else if (isComponentParent(parent) && !DATA_RECORD.equals(localName)
+                            && !VECTOR.equals(localName)) {
+                        leaf = localName;
+                        definition = reader.getAttributeValue(null, "definition");
+                        uom = null;
+                    } else if (leaf != null && UOM.equals(localName)) {
+                        uom = reader.getAttributeValue(null, "code");
+                        if (uom == null) {
+                            uom = reader.getAttributeValue(XLINK_NS, "href");
+                        }
+                    }
+                    elements.push(localName);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String localName = elements.pop();
+                    if (FIELD.equals(localName) || COORDINATE.equals(localName)) {
+                        names.pop();
+                    } else if (localName.equals(leaf) && isComponentParent(elements.peek())) {
+                        fields.add(new ResultField(names.peek(), definition, FieldType.fromElementName(leaf), uom));
+                        leaf = null;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("The result structure does not contain any field!");
+        }
+        return fields;
+    }
+
+    private String[] parseEncoding(String encoding) throws XMLStreamException {
+        String[] separators = new String[] { CompiledResultTemplate.DEFAULT_TOKEN_SEPARATOR,
+                CompiledResultTemplate.DEFAULT_BLOCK_SEPARATOR, CompiledResultTemplate.DEFAULT_DECIMAL_SEPARATOR };
+        if (encoding == null || encoding.isEmpty()) {
+            return separators;
+        }
+        XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(encoding));
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && TEXT_ENCODING.equals(reader.getLocalName())) {
+                    separators[0] = getSeparator(reader, "tokenSeparator", separators[0]);
+                    separators[1] = getSeparator(reader, "blockSeparator", separators[1]);
+                    separators[2] = getSeparator(reader, "decimalSeparator", separators[2]);
+                    return separators;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        throw new IllegalArgumentException("Only the swe:TextEncoding is supported for result templates!");
+    }
+
+    private String getSeparator(XMLStreamReader reader, String name, String defaultValue) {
+        String value = reader.getAttributeValue(null, name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
+    }
+
+    private boolean isComponentParent(String element) {
+        return FIELD.equals(element) || COORDINATE.equals(element);
+    }
+
+    private String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
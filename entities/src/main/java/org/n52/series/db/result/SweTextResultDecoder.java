@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.result;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Streaming decoder for SWE text encoded result values. The values are read from a {@link Reader} and each
+ * block is passed to a {@link ResultBlockHandler} as soon as it is complete, the handler is flushed after
+ * each batch. Only the current block is kept in memory, so the size of the result values does not affect the
+ * memory consumption.
+ *
+ * @since 3.0.0
+ */
+public class SweTextResultDecoder {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final DateTimeFormatter TIME_FORMATTER = ISODateTimeFormat.dateTimeParser().withOffsetParsed();
+
+    private final int batchSize;
+
+    public SweTextResultDecoder() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    public SweTextResultDecoder(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size should be greater than 0!");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Decode the result values.
+     *
+     * @param template
+     *            the compiled result template
+     * @param values
+     *            the reader of the text encoded result values
+     * @param handler
+     *            the handler for the decoded blocks
+     * @return the number of decoded blocks
+     * @throws IOException
+     *             if the values can not be read
+     * @throws IllegalArgumentException
+     *             if a block does not match the template
+     * @throws Exception
+     *             if the handler fails
+     */
+    public long decode(CompiledResultTemplate template, Reader values, ResultBlockHandler handler) throws Exception {
+        String tokenSeparator = template.getTokenSeparator();
+        String blockSeparator = template.getBlockSeparator();
+        String[] block = new String[template.getFieldCount()];
+        StringBuilder token = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE];
+        int index = 0;
+        long blocks = 0;
+        int read;
+        while ((read = values.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                token.append(buffer[i]);
+                if (endsWith(token, blockSeparator)) {
+                    token.setLength(token.length() - blockSeparator.length());
+                    index = addToken(block, index, token, blocks, true);
+                    if (index > 0) {
+                        blocks = handleBlock(template, handler, block, index, blocks);
+                    }
+                    index = 0;
+                } else if (endsWith(token, tokenSeparator)) {
+                    token.setLength(token.length() - tokenSeparator.length());
+                    index = addToken(block, index, token, blocks, false);
+                }
+            }
+        }
+        index = addToken(block, index, token, blocks, true);
+        if (index > 0) {
+            blocks = handleBlock(template, handler, block, index, blocks);
+        }
+        if (blocks % batchSize != 0) {
+            handler.flush();
+        }
+        return blocks;
+    }
+
+    /**
+     * Parse a time value of the block.
+     *
+     * @param value
+     *            the ISO 8601 encoded time
+     * @return the parsed time
+     */
+    public static Date parseTime(String value) {
+        return TIME_FORMATTER.parseDateTime(value).toDate();
+    }
+
+    /**
+     * Parse a decimal value of the block.
+     *
+     * @param template
+     *            the compiled result template
+     * @param value
+     *            the encoded decimal value
+     * @return the parsed value or <code>null</code> if the value is empty
+     */
+    public static BigDecimal parseDecimal(CompiledResultTemplate template, String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        String decimalSeparator = template.getDecimalSeparator();
+        return new BigDecimal(CompiledResultTemplate.DEFAULT_DECIMAL_SEPARATOR.equals(decimalSeparator) ? value
+                : value.replace(decimalSeparator, CompiledResultTemplate.DEFAULT_DECIMAL_SEPARATOR));
+    }
+
+    private int addToken(String[] block, int index, StringBuilder token, long blocks, boolean endOfBlock) {
+        String value = token.toString().trim();
+        token.setLength(0);
+        if (endOfBlock && index == 0 && value.isEmpty()) {
+            // whitespace between blocks or trailing block separator
+            return 0;
+        }
+        if (index >= block.length) {
+            throw new IllegalArgumentException(String
+                    .format("Block %d contains more than the %d values of the template!", blocks + 1, block.length));
+        }
+        block[index] = value;
+        return index + 1;
+    }
+
+    private long handleBlock(CompiledResultTemplate template, ResultBlockHandler handler, String[] block, int size,
+            long blocks) throws Exception {
+        if (size != block.length) {
+            throw new IllegalArgumentException(
+                    String.format("Block %d contains %d values, expected are %d!", blocks + 1, size, block.length));
+        }
+        handler.handle(template, block);
+        long handled = blocks + 1;
+        if (handled % batchSize == 0) {
+            handler.flush();
+        }
+        return handled;
+    }
+
+    private boolean endsWith(StringBuilder builder, String suffix) {
+        int offset = builder.length() - suffix.length();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (builder.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.snapshot;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of an observation. Only scalar values (quantity, count, boolean, text and category) are
+ * kept, the value of other observation types is not part of the snapshot.
+ *
+ * @since 3.0.0
+ */
+public final class DataSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 6043373960137419728L;
+
+    private final long id;
+
+    private final long datasetId;
+
+    private final long samplingTimeStart;
+
+    private final long samplingTimeEnd;
+
+    private final long resultTime;
+
+    private final Long parent;
+
+    private final boolean deleted;
+
+    private final ValueKind kind;
+
+    private final Object value;
+
+    public DataSnapshot(long id, long datasetId, long samplingTimeStart, long samplingTimeEnd, long resultTime,
+            Long parent, boolean deleted, ValueKind kind, Object value) {
+        this.id = id;
+        this.datasetId = datasetId;
+        this.samplingTimeStart = samplingTimeStart;
+        this.samplingTimeEnd = samplingTimeEnd;
+        this.resultTime = resultTime;
+        this.parent = parent;
+        this.deleted = deleted;
+        this.kind = kind != null ? kind : ValueKind.NONE;
+        this.value = this.kind == ValueKind.NONE ? null : value;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getDatasetId() {
+        return datasetId;
+    }
+
+    public long getSamplingTimeStartMillis() {
+        return samplingTimeStart;
+    }
+
+    public Date getSamplingTimeStart() {
+        return toDate(samplingTimeStart);
+    }
+
+    public long getSamplingTimeEndMillis() {
+        return samplingTimeEnd;
+    }
+
+    public Date getSamplingTimeEnd() {
+        return toDate(samplingTimeEnd);
+    }
+
+    public long getResultTimeMillis() {
+        return resultTime;
+    }
+
+    public Date getResultTime() {
+        return toDate(resultTime);
+    }
+
+    public Long getParent() {
+        return parent;
+    }
+
+    public boolean hasParent() {
+        return parent != null;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public ValueKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Get the value, {@link BigDecimal} for quantity, {@link Integer} for count, {@link Boolean} for boolean
+     * and {@link String} for text or category observations.
+     *
+     * @return the value or <code>null</code>
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    private static Date toDate(long time) {
+        return time != DatasetSnapshot.NO_TIME ? new Date(time) : null;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, datasetId, samplingTimeStart, samplingTimeEnd, resultTime, parent, deleted, kind,
+                value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DataSnapshot)) {
+            return false;
+        }
+        DataSnapshot other = (DataSnapshot) obj;
+        return id == other.id && datasetId == other.datasetId && samplingTimeStart == other.samplingTimeStart
+                && samplingTimeEnd == other.samplingTimeEnd && resultTime == other.resultTime
+                && deleted == other.deleted && kind == other.kind && Objects.equals(parent, other.parent)
+                && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        return sb.append(getClass().getSimpleName()).append(" [").append(" id: ").append(id).append(", dataset: ")
+                .append(datasetId).append(", value: ").append(value).append(" ]").toString();
+    }
+
+    public enum ValueKind {
+        NONE, QUANTITY, COUNT, BOOLEAN, TEXT;
+    }
+}
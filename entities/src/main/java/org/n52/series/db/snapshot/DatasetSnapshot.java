@@ -0,0 +1,447 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.snapshot;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of a dataset. Holds the ids and labels of the referenced entities, the flags and the
+ * first/last value summary, but no Hibernate managed object graph. Use {@link SnapshotConverter} to create it
+ * from a {@link org.n52.series.db.beans.DatasetEntity} and {@link SnapshotCodec} for the binary
+ * representation.
+ *
+ * @since 3.0.0
+ */
+public final class DatasetSnapshot implements Serializable {
+
+    /**
+     * Marker for not set times.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    static final int FLAG_PUBLISHED = 1;
+
+    static final int FLAG_DELETED = 1 << 1;
+
+    static final int FLAG_DISABLED = 1 << 2;
+
+    static final int FLAG_HIDDEN = 1 << 3;
+
+    static final int FLAG_MOBILE = 1 << 4;
+
+    static final int FLAG_INSITU = 1 << 5;
+
+    private static final long serialVersionUID = -1403458263826539172L;
+
+    private final long id;
+
+    private final String identifier;
+
+    private final String name;
+
+    private final String datasetType;
+
+    private final String observationType;
+
+    private final String valueType;
+
+    private final ReferenceSnapshot procedure;
+
+    private final ReferenceSnapshot phenomenon;
+
+    private final ReferenceSnapshot offering;
+
+    private final ReferenceSnapshot feature;
+
+    private final ReferenceSnapshot category;
+
+    private final ReferenceSnapshot platform;
+
+    private final ReferenceSnapshot unit;
+
+    private final int flags;
+
+    private final long firstValueAt;
+
+    private final long lastValueAt;
+
+    private final BigDecimal firstQuantityValue;
+
+    private final BigDecimal lastQuantityValue;
+
+    private final long observationCount;
+
+    private DatasetSnapshot(Builder builder) {
+        this.id = builder.id;
+        this.identifier = builder.identifier;
+        this.name = builder.name;
+        this.datasetType = builder.datasetType;
+        this.observationType = builder.observationType;
+        this.valueType = builder.valueType;
+        this.procedure = builder.procedure;
+        this.phenomenon = builder.phenomenon;
+        this.offering = builder.offering;
+        this.feature = builder.feature;
+        this.category = builder.category;
+        this.platform = builder.platform;
+        this.unit = builder.unit;
+        this.flags = builder.flags;
+        this.firstValueAt = builder.firstValueAt;
+        this.lastValueAt = builder.lastValueAt;
+        this.firstQuantityValue = builder.firstQuantityValue;
+        this.lastQuantityValue = builder.lastQuantityValue;
+        this.observationCount = builder.observationCount;
+    }
+
+    public static Builder builder(long id) {
+        return new Builder(id);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDatasetType() {
+        return datasetType;
+    }
+
+    public String getObservationType() {
+        return observationType;
+    }
+
+    public String getValueType() {
+        return valueType;
+    }
+
+    public ReferenceSnapshot getProcedure() {
+        return procedure;
+    }
+
+    public ReferenceSnapshot getPhenomenon() {
+        return phenomenon;
+    }
+
+    public ReferenceSnapshot getOffering() {
+        return offering;
+    }
+
+    public ReferenceSnapshot getFeature() {
+        return feature;
+    }
+
+    public ReferenceSnapshot getCategory() {
+        return category;
+    }
+
+    public ReferenceSnapshot getPlatform() {
+        return platform;
+    }
+
+    public ReferenceSnapshot getUnit() {
+        return unit;
+    }
+
+    int getFlags() {
+        return flags;
+    }
+
+    public boolean isPublished() {
+        return (flags & FLAG_PUBLISHED) != 0;
+    }
+
+    public boolean isDeleted() {
+        return (flags & FLAG_DELETED) != 0;
+    }
+
+    public boolean isDisabled() {
+        return (flags & FLAG_DISABLED) != 0;
+    }
+
+    public boolean isHidden() {
+        return (flags & FLAG_HIDDEN) != 0;
+    }
+
+    public boolean isMobile() {
+        return (flags & FLAG_MOBILE) != 0;
+    }
+
+    public boolean isInsitu() {
+        return (flags & FLAG_INSITU) != 0;
+    }
+
+    public long getFirstValueAtMillis() {
+        return firstValueAt;
+    }
+
+    public Date getFirstValueAt() {
+        return isSetFirstValueAt() ? new Date(firstValueAt) : null;
+    }
+
+    public boolean isSetFirstValueAt() {
+        return firstValueAt != NO_TIME;
+    }
+
+    public long getLastValueAtMillis() {
+        return lastValueAt;
+    }
+
+    public Date getLastValueAt() {
+        return isSetLastValueAt() ? new Date(lastValueAt) : null;
+    }
+
+    public boolean isSetLastValueAt() {
+        return lastValueAt != NO_TIME;
+    }
+
+    public BigDecimal getFirstQuantityValue() {
+        return firstQuantityValue;
+    }
+
+    public BigDecimal getLastQuantityValue() {
+        return lastQuantityValue;
+    }
+
+    public long getObservationCount() {
+        return observationCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, identifier, name, datasetType, observationType, valueType, procedure, phenomenon,
+                offering, feature, category, platform, unit, flags, firstValueAt, lastValueAt, firstQuantityValue,
+                lastQuantityValue, observationCount);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DatasetSnapshot)) {
+            return false;
+        }
+        DatasetSnapshot other = (DatasetSnapshot) obj;
+        return id == other.id && flags == other.flags && firstValueAt == other.firstValueAt
+                && lastValueAt == other.lastValueAt && observationCount == other.observationCount
+                && Objects.equals(identifier, other.identifier) && Objects.equals(name, other.name)
+                && Objects.equals(datasetType, other.datasetType)
+                && Objects.equals(observationType, other.observationType) && Objects.equals(valueType, other.valueType)
+                && Objects.equals(procedure, other.procedure) && Objects.equals(phenomenon, other.phenomenon)
+                && Objects.equals(offering, other.offering) && Objects.equals(feature, other.feature)
+                && Objects.equals(category, other.category) && Objects.equals(platform, other.platform)
+                && Objects.equals(unit, other.unit) && Objects.equals(firstQuantityValue, other.firstQuantityValue)
+                && Objects.equals(lastQuantityValue, other.lastQuantityValue);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        return sb.append(getClass().getSimpleName()).append(" [").append(" id: ").append(id).append(" , phenomenon: ")
+                .append(phenomenon).append(" , procedure: ").append(procedure).append(" , offering: ").append(offering)
+                .append(" , feature: ").append(feature).append(" ]").toString();
+    }
+
+    /**
+     * Builder for {@link DatasetSnapshot}s.
+     */
+    public static final class Builder {
+
+        private final long id;
+
+        private String identifier;
+
+        private String name;
+
+        private String datasetType;
+
+        private String observationType;
+
+        private String valueType;
+
+        private ReferenceSnapshot procedure;
+
+        private ReferenceSnapshot phenomenon;
+
+        private ReferenceSnapshot offering;
+
+        private ReferenceSnapshot feature;
+
+        private ReferenceSnapshot category;
+
+        private ReferenceSnapshot platform;
+
+        private ReferenceSnapshot unit;
+
+        private int flags;
+
+        private long firstValueAt = NO_TIME;
+
+        private long lastValueAt = NO_TIME;
+
+        private BigDecimal firstQuantityValue;
+
+        private BigDecimal lastQuantityValue;
+
+        private long observationCount;
+
+        private Builder(long id) {
+            this.id = id;
+        }
+
+        public Builder setIdentifier(String identifier) {
+            this.identifier = identifier;
+            return this;
+        }
+
+        public Builder setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder setDatasetType(String datasetType) {
+            this.datasetType = datasetType;
+            return this;
+        }
+
+        public Builder setObservationType(String observationType) {
+            this.observationType = observationType;
+            return this;
+        }
+
+        public Builder setValueType(String valueType) {
+            this.valueType = valueType;
+            return this;
+        }
+
+        public Builder setProcedure(ReferenceSnapshot procedure) {
+            this.procedure = procedure;
+            return this;
+        }
+
+        public Builder setPhenomenon(ReferenceSnapshot phenomenon) {
+            this.phenomenon = phenomenon;
+            return this;
+        }
+
+        public Builder setOffering(ReferenceSnapshot offering) {
+            this.offering = offering;
+            return this;
+        }
+
+        public Builder setFeature(ReferenceSnapshot feature) {
+            this.feature = feature;
+            return this;
+        }
+
+        public Builder setCategory(ReferenceSnapshot category) {
+            this.category = category;
+            return this;
+        }
+
+        public Builder setPlatform(ReferenceSnapshot platform) {
+            this.platform = platform;
+            return this;
+        }
+
+        public Builder setUnit(ReferenceSnapshot unit) {
+            this.unit = unit;
+            return this;
+        }
+
+        public Builder setPublished(boolean published) {
+            return setFlag(FLAG_PUBLISHED, published);
+        }
+
+        public Builder setDeleted(boolean deleted) {
+            return setFlag(FLAG_DELETED, deleted);
+        }
+
+        public Builder setDisabled(boolean disabled) {
+            return setFlag(FLAG_DISABLED, disabled);
+        }
+
+        public Builder setHidden(boolean hidden) {
+            return setFlag(FLAG_HIDDEN, hidden);
+        }
+
+        public Builder setMobile(boolean mobile) {
+            return setFlag(FLAG_MOBILE, mobile);
+        }
+
+        public Builder setInsitu(boolean insitu) {
+            return setFlag(FLAG_INSITU, insitu);
+        }
+
+        Builder setFlags(int flags) {
+            this.flags = flags;
+            return this;
+        }
+
+        public Builder setFirstValueAt(Date firstValueAt) {
+            return setFirstValueAt(firstValueAt != null ? firstValueAt.getTime() : NO_TIME);
+        }
+
+        public Builder setFirstValueAt(long firstValueAt) {
+            this.firstValueAt = firstValueAt;
+            return this;
+        }
+
+        public Builder setLastValueAt(Date lastValueAt) {
+            return setLastValueAt(lastValueAt != null ? lastValueAt.getTime() : NO_TIME);
+        }
+
+        public Builder setLastValueAt(long lastValueAt) {
+            this.lastValueAt = lastValueAt;
+            return this;
+        }
+
+        public Builder setFirstQuantityValue(BigDecimal firstQuantityValue) {
+            this.firstQuantityValue = firstQuantityValue;
+            return this;
+        }
+
+        public Builder setLastQuantityValue(BigDecimal lastQuantityValue) {
+            this.lastQuantityValue = lastQuantityValue;
+            return this;
+        }
+
+        public Builder setObservationCount(long observationCount) {
+            this.observationCount = observationCount;
+            return this;
+        }
+
+        public DatasetSnapshot build() {
+            return new DatasetSnapshot(this);
+        }
+
+        private Builder setFlag(int flag, boolean set) {
+            this.flags = set ? flags | flag : flags & ~flag;
+            return this;
+        }
+    }
+}
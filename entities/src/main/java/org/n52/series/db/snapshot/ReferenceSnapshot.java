@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.snapshot;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of a referenced entity, e.g. procedure, phenomenon or feature, holding only the id and
+ * the labels.
+ *
+ * @since 3.0.0
+ */
+public final class ReferenceSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 3385460346227463581L;
+
+    private final long id;
+
+    private final String identifier;
+
+    private final String name;
+
+    public ReferenceSnapshot(long id, String identifier, String name) {
+        this.id = id;
+        this.identifier = identifier;
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the name or, if not set, the identifier.
+     *
+     * @return the label
+     */
+    public String getLabel() {
+        return name != null && !name.isEmpty() ? name : identifier;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, identifier, name);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ReferenceSnapshot)) {
+            return false;
+        }
+        ReferenceSnapshot other = (ReferenceSnapshot) obj;
+        return id == other.id && Objects.equals(identifier, other.identifier) && Objects.equals(name, other.name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        return sb.append(getClass().getSimpleName()).append(" [").append(" id: ").append(id).append(", identifier: ")
+                .append(identifier).append(" ]").toString();
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import org.n52.series.db.snapshot.DataSnapshot.ValueKind;
+
+/**
+ * Compact binary codec for snapshots. Ids and counts are written as variable length integers, times as
+ * zig-zag encoded deltas and strings as length prefixed UTF-8. Each record starts with the format version and
+ * the record type, so that readers can reject data written by an incompatible version.
+ *
+ * @since 3.0.0
+ */
+public final class SnapshotCodec {
+
+    /**
+     * The current format version.
+     */
+    public static final byte VERSION = 1;
+
+    private static final byte TYPE_DATASET = 1;
+
+    private static final byte TYPE_DATA = 2;
+
+    private static final int HAS_FIRST_VALUE_AT = 1;
+
+    private static final int HAS_LAST_VALUE_AT = 1 << 1;
+
+    private static final int HAS_FIRST_QUANTITY = 1 << 2;
+
+    private static final int HAS_LAST_QUANTITY = 1 << 3;
+
+    private static final int HAS_START = 1;
+
+    private static final int HAS_END = 1 << 1;
+
+    private static final int HAS_RESULT_TIME = 1 << 2;
+
+    private static final int HAS_PARENT = 1 << 3;
+
+    private static final int IS_DELETED = 1 << 4;
+
+    private static final int KIND_SHIFT = 5;
+
+    private SnapshotCodec() {
+    }
+
+    public static byte[] encode(DatasetSnapshot snapshot) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try {
+            write(snapshot, new DataOutputStream(out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] encode(DataSnapshot snapshot) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+        try {
+            write(snapshot, new DataOutputStream(out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a dataset snapshot.
+     *
+     * @param bytes
+     *            the encoded snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException
+     *             if the bytes are not a valid dataset snapshot
+     */
+    public static DatasetSnapshot decodeDataset(byte[] bytes) {
+        try {
+            return readDataset(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid dataset snapshot!", e);
+        }
+    }
+
+    /**
+     * Decode an observation snapshot.
+     *
+     * @param bytes
+     *            the encoded snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException
+     *             if the bytes are not a valid observation snapshot
+     */
+    public static DataSnapshot decodeData(byte[] bytes) {
+        try {
+            return readData(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid observation snapshot!", e);
+        }
+    }
+
+    public static void write(DatasetSnapshot snapshot, DataOutput out) throws IOException {
+        writeHeader(out, TYPE_DATASET);
+        writeVarLong(out, snapshot.getId());
+        writeString(out, snapshot.getIdentifier());
+        writeString(out, snapshot.getName());
+        writeString(out, snapshot.getDatasetType());
+        writeString(out, snapshot.getObservationType());
+        writeString(out, snapshot.getValueType());
+        ReferenceSnapshot[] references = getReferences(snapshot);
+        int present = 0;
+        for (int i = 0; i < references.length; i++) {
+            if (references[i] != null) {
+                present |= 1 << i;
+            }
+        }
+        out.writeByte(present);
+        for (ReferenceSnapshot reference : references) {
+            if (reference != null) {
+                writeVarLong(out, reference.getId());
+                writeString(out, reference.getIdentifier());
+                writeString(out, reference.getName());
+            }
+        }
+        out.writeByte(snapshot.getFlags());
+        int summary = (snapshot.isSetFirstValueAt() ? HAS_FIRST_VALUE_AT : 0)
+                | (snapshot.isSetLastValueAt() ? HAS_LAST_VALUE_AT : 0)
+                | (snapshot.getFirstQuantityValue() != null ? HAS_FIRST_QUANTITY : 0)
+                | (snapshot.getLastQuantityValue() != null ? HAS_LAST_QUANTITY : 0);
+        out.writeByte(summary);
+        if (snapshot.isSetFirstValueAt()) {
+            writeZigZag(out, snapshot.getFirstValueAtMillis());
+        }
+        if (snapshot.isSetLastValueAt()) {
+            writeZigZag(out,
+                    snapshot.isSetFirstValueAt() ? snapshot.getLastValueAtMillis() - snapshot.getFirstValueAtMillis()
+                            : snapshot.getLastValueAtMillis());
+        }
+        if (snapshot.getFirstQuantityValue() != null) {
+            writeDecimal(out, snapshot.getFirstQuantityValue());
+        }
+        if (snapshot.getLastQuantityValue() != null) {
+            writeDecimal(out, snapshot.getLastQuantityValue());
+        }
+        writeVarLong(out, snapshot.getObservationCount());
+    }
+
+    public static void write(DataSnapshot snapshot, DataOutput out) throws IOException {
+        writeHeader(out, TYPE_DATA);
+        writeVarLong(out, snapshot.getId());
+        writeVarLong(out, snapshot.getDatasetId());
+        long start = snapshot.getSamplingTimeStartMillis();
+        long end = snapshot.getSamplingTimeEndMillis();
+        long resultTime = snapshot.getResultTimeMillis();
+        int header =
+                (start != DatasetSnapshot.NO_TIME ? HAS_START : 0) | (end != DatasetSnapshot.NO_TIME ? HAS_END : 0)
+                        | (resultTime != DatasetSnapshot.NO_TIME ? HAS_RESULT_TIME : 0)
+                        | (snapshot.hasParent() ? HAS_PARENT : 0) | (snapshot.isDeleted() ? IS_DELETED : 0)
+                        | snapshot.getKind().ordinal() << KIND_SHIFT;
+        out.writeByte(header);
+        if (start != DatasetSnapshot.NO_TIME) {
+            writeZigZag(out, start);
+        }
+        // end and result time are usually equal or close to the start, so only the difference is written
+        long reference = start;
+        if (end != DatasetSnapshot.NO_TIME) {
+            writeZigZag(out, reference != DatasetSnapshot.NO_TIME ? end - reference : end);
+            reference = end;
+        }
+        if (resultTime != DatasetSnapshot.NO_TIME) {
+            writeZigZag(out, reference != DatasetSnapshot.NO_TIME ? resultTime - reference : resultTime);
+        }
+        if (snapshot.hasParent()) {
+            writeVarLong(out, snapshot.getParent());
+        }
+        Object value = snapshot.getValue();
+        switch (snapshot.getKind()) {
+            case QUANTITY:
+                writeDecimal(out, (BigDecimal) value);
+                break;
+            case COUNT:
+                writeZigZag(out, value != null ? ((Integer) value).longValue() : 0L);
+                out.writeBoolean(value != null);
+                break;
+            case BOOLEAN:
+                out.writeByte(value == null ? 0 : ((Boolean) value) ? 1 : 2);
+                break;
+            case TEXT:
+                writeString(out, (String) value);
+                break;
+            case NONE:
+            default:
+                break;
+        }
+    }
+
+    public static DatasetSnapshot readDataset(DataInput in) throws IOException {
+        readHeader(in, TYPE_DATASET);
+        DatasetSnapshot.Builder builder = DatasetSnapshot.builder(readVarLong(in)).setIdentifier(readString(in))
+                .setName(readString(in)).setDatasetType(readString(in)).setObservationType(readString(in))
+                .setValueType(readString(in));
+        int present = in.readUnsignedByte();
+        ReferenceSnapshot[] references = new ReferenceSnapshot[7];
+        for (int i = 0; i < references.length; i++) {
+            if ((present & 1 << i) != 0) {
+                references[i] = new ReferenceSnapshot(readVarLong(in), readString(in), readString(in));
+            }
+        }
+        builder.setProcedure(references[0]).setPhenomenon(references[1]).setOffering(references[2])
+                .setFeature(references[3]).setCategory(references[4]).setPlatform(references[5]).setUnit(references[6])
+                .setFlags(in.readUnsignedByte());
+        int summary = in.readUnsignedByte();
+        long first = DatasetSnapshot.NO_TIME;
+        if ((summary & HAS_FIRST_VALUE_AT) != 0) {
+            first = readZigZag(in);
+            builder.setFirstValueAt(first);
+        }
+        if ((summary & HAS_LAST_VALUE_AT) != 0) {
+            long last = readZigZag(in);
+            builder.setLastValueAt(first != DatasetSnapshot.NO_TIME ? first + last : last);
+        }
+        if ((summary & HAS_FIRST_QUANTITY) != 0) {
+            builder.setFirstQuantityValue(readDecimal(in));
+        }
+        if ((summary & HAS_LAST_QUANTITY) != 0) {
+            builder.setLastQuantityValue(readDecimal(in));
+        }
+        return builder.setObservationCount(readVarLong(in)).build();
+    }
+
+    public static DataSnapshot readData(DataInput in) throws IOException {
+        readHeader(in, TYPE_DATA);
+        long id = readVarLong(in);
+        long datasetId = readVarLong(in);
+        int header = in.readUnsignedByte();
+        int kindOrdinal = header >>> KIND_SHIFT;
+        if (kindOrdinal >= ValueKind.values().length) {
+            throw new IOException("Unknown value kind: " + kindOrdinal);
+        }
+        ValueKind kind = ValueKind.values()[kindOrdinal];
+        long start = DatasetSnapshot.NO_TIME;
+        long end = DatasetSnapshot.NO_TIME;
+        long resultTime = DatasetSnapshot.NO_TIME;
+        if ((header & HAS_START) != 0) {
+            start = readZigZag(in);
+        }
+        long reference = start;
+        if ((header & HAS_END) != 0) {
+            long delta = readZigZag(in);
+            end = reference != DatasetSnapshot.NO_TIME ? reference + delta : delta;
+            reference = end;
+        }
+        if ((header & HAS_RESULT_TIME) != 0) {
+            long delta = readZigZag(in);
+            resultTime = reference != DatasetSnapshot.NO_TIME ? reference + delta : delta;
+        }
+        Long parent = (header & HAS_PARENT) != 0 ? readVarLong(in) : null;
+        Object value = null;
+        switch (kind) {
+            case QUANTITY:
+                value = readDecimal(in);
+                break;
+            case COUNT:
+                long count = readZigZag(in);
+                value = in.readBoolean() ? (int) count : null;
+                break;
+            case BOOLEAN:
+                int b = in.readUnsignedByte();
+                value = b == 0 ? null : b == 1;
+                break;
+            case TEXT:
+                value = readString(in);
+                break;
+            case NONE:
+            default:
+                break;
+        }
+        return new DataSnapshot(id, datasetId, start, end, resultTime, parent, (header & IS_DELETED) != 0, kind,
+                value);
+    }
+
+    private static ReferenceSnapshot[] getReferences(DatasetSnapshot snapshot) {
+        return new ReferenceSnapshot[] { snapshot.getProcedure(), snapshot.getPhenomenon(), snapshot.getOffering(),
+                snapshot.getFeature(), snapshot.getCategory(), snapshot.getPlatform(), snapshot.getUnit() };
+    }
+
+    private static void writeHeader(DataOutput out, byte type) throws IOException {
+        out.writeByte(VERSION);
+        out.writeByte(type);
+    }
+
+    private static void readHeader(DataInput in, byte type) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        byte t = in.readByte();
+        if (t != type) {
+            throw new IOException("Unexpected snapshot type: " + t);
+        }
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer!");
+    }
+
+    private static void writeZigZag(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigZag(DataInput in) throws IOException {
+        long v = readVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length + 1L);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        long length = readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > Integer.MAX_VALUE) {
+            throw new IOException("String too long: " + (length - 1));
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+        } else {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            writeVarLong(out, unscaled.length + 1L);
+            out.write(unscaled);
+            writeZigZag(out, value.scale());
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        long length = readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > Integer.MAX_VALUE) {
+            throw new IOException("Decimal too long: " + (length - 1));
+        }
+        byte[] unscaled = new byte[(int) (length - 1)];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), (int) readZigZag(in));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.snapshot;
+
+import java.util.Date;
+
+import org.n52.series.db.beans.BooleanDataEntity;
+import org.n52.series.db.beans.CategoryDataEntity;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.TextDataEntity;
+import org.n52.series.db.snapshot.DataSnapshot.ValueKind;
+
+/**
+ * Converts entities to snapshots. Only the ids and labels of referenced entities are read, translations,
+ * parameters and other collections are not touched.
+ *
+ * @since 3.0.0
+ */
+public final class SnapshotConverter {
+
+    private SnapshotConverter() {
+    }
+
+    /**
+     * Create the snapshot of a referenced entity.
+     *
+     * @param entity
+     *            the entity
+     * @return the snapshot or <code>null</code> if the entity is <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the entity is not persisted
+     */
+    public static ReferenceSnapshot toSnapshot(DescribableEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+        return new ReferenceSnapshot(getId(entity.getId()), entity.getIdentifier(), entity.getName());
+    }
+
+    /**
+     * Create the snapshot of the dataset.
+     *
+     * @param dataset
+     *            the dataset
+     * @return the snapshot or <code>null</code> if the dataset is <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the dataset or a referenced entity is not persisted
+     */
+    public static DatasetSnapshot toSnapshot(DatasetEntity dataset) {
+        if (dataset == null) {
+            return null;
+        }
+        return DatasetSnapshot.builder(getId(dataset.getId())).setIdentifier(dataset.getIdentifier())
+                .setName(dataset.getName())
+                .setDatasetType(dataset.getDatasetType() != null ? dataset.getDatasetType().name() : null)
+                .setObservationType(dataset.getObservationType() != null ? dataset.getObservationType().name() : null)
+                .setValueType(dataset.getValueType() != null ? dataset.getValueType().name() : null)
+                .setProcedure(toSnapshot(dataset.getProcedure())).setPhenomenon(toSnapshot(dataset.getPhenomenon()))
+                .setOffering(toSnapshot(dataset.getOffering())).setFeature(toSnapshot(dataset.getFeature()))
+                .setCategory(toSnapshot(dataset.getCategory())).setPlatform(toSnapshot(dataset.getPlatform()))
+                .setUnit(toSnapshot(dataset.getUnit())).setPublished(Boolean.TRUE.equals(dataset.isPublished()))
+                .setDeleted(dataset.isDeleted()).setDisabled(dataset.isDisabled()).setHidden(dataset.isHidden())
+                .setMobile(dataset.isMobile()).setInsitu(dataset.isInsitu()).setFirstValueAt(dataset.getFirstValueAt())
+                .setLastValueAt(dataset.getLastValueAt()).setFirstQuantityValue(dataset.getFirstQuantityValue())
+                .setLastQuantityValue(dataset.getLastQuantityValue())
+                .setObservationCount(dataset.getObservationCount()).build();
+    }
+
+    /**
+     * Create the snapshot of the observation.
+     *
+     * @param data
+     *            the observation
+     * @return the snapshot or <code>null</code> if the observation is <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the observation or its dataset is not persisted
+     */
+    public static DataSnapshot toSnapshot(DataEntity<?> data) {
+        if (data == null) {
+            return null;
+        }
+        return new DataSnapshot(getId(data.getId()), getId(data.resolveDatasetId()),
+                toMillis(data.getSamplingTimeStart()), toMillis(data.getSamplingTimeEnd()),
+                toMillis(data.getResultTime()), data.getParent(), data.getDeleted(), getValueKind(data),
+                data.getValue());
+    }
+
+    private static ValueKind getValueKind(DataEntity<?> data) {
+        if (data instanceof QuantityDataEntity) {
+            return ValueKind.QUANTITY;
+        } else if (data instanceof CountDataEntity) {
+            return ValueKind.COUNT;
+        } else if (data instanceof BooleanDataEntity) {
+            return ValueKind.BOOLEAN;
+        } else if (data instanceof TextDataEntity || data instanceof CategoryDataEntity) {
+            return ValueKind.TEXT;
+        }
+        return ValueKind.NONE;
+    }
+
+    private static long getId(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Snapshots are only supported for persisted entities!");
+        }
+        return id;
+    }
+
+    private static long toMillis(Date date) {
+        return date != null ? date.getTime() : DatasetSnapshot.NO_TIME;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.sta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PreDeleteEvent;
+import org.hibernate.event.spi.PreDeleteEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.n52.series.db.beans.PlatformEntity;
+import org.n52.series.db.beans.sta.HistoricalLocationEntity;
+
+/**
+ * Hibernate listener which maintains the latest historical location of the platforms (things) from the owning
+ * side, the {@link HistoricalLocationEntity#getThing() thing} of the saved and deleted historical locations.
+ * The things of a transaction are collected per session and their latest historical location is recalculated
+ * with one statement before the commit, after the final flush of the session.
+ * <p>
+ * The reference to a deleted historical location is removed before the delete, so the foreign key
+ * <code>fk_platform_latest_hist_loc</code> is not violated, and the next latest historical location is set
+ * before the commit. Deletes which bypass the session, e.g. native statements, have to clear the reference
+ * themselves ({@link PlatformEntity#QUERY_CLEAR_LATEST_HISTORICAL_LOCATION}).
+ *
+ * @since 3.0.0
+ */
+public class LatestHistoricalLocationEventListener implements PostInsertEventListener, PreDeleteEventListener {
+
+    private static final long serialVersionUID = 7040395683374361432L;
+
+    private static final int MAX_IDS = 500;
+
+    private final transient Map<EventSource, LocationUpdate> updates = new ConcurrentHashMap<>();
+
+    /**
+     * Register a listener at the session factory.
+     *
+     * @param sessionFactory
+     *            the session factory
+     * @return the registered listener
+     */
+    public static LatestHistoricalLocationEventListener register(SessionFactory sessionFactory) {
+        LatestHistoricalLocationEventListener listener = new LatestHistoricalLocationEventListener();
+        EventListenerRegistry registry = sessionFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.PRE_DELETE, listener);
+        return listener;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof HistoricalLocationEntity) {
+            add(event.getSession(), (HistoricalLocationEntity) event.getEntity());
+        }
+    }
+
+    @Override
+    public boolean onPreDelete(PreDeleteEvent event) {
+        if (event.getEntity() instanceof HistoricalLocationEntity) {
+            HistoricalLocationEntity historicalLocation = (HistoricalLocationEntity) event.getEntity();
+            execute(event.getSession(),
+                    temporary -> temporary.createNamedQuery(PlatformEntity.QUERY_CLEAR_LATEST_HISTORICAL_LOCATION)
+                            .setParameter(PlatformEntity.PARAMETER_HISTORICAL_LOCATION, historicalLocation.getId())
+                            .executeUpdate());
+            add(event.getSession(), historicalLocation);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void add(EventSource session, HistoricalLocationEntity historicalLocation) {
+        if (historicalLocation.hasThing() && historicalLocation.getThing().getId() != null) {
+            updates.computeIfAbsent(session, this::createUpdate).add(historicalLocation.getThing().getId());
+        }
+    }
+
+    private Object readResolve() {
+        // the collected things belong to the sessions of the serializing process
+        return new LatestHistoricalLocationEventListener();
+    }
+
+    private LocationUpdate createUpdate(EventSource session) {
+        LocationUpdate update = new LocationUpdate(session);
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) update);
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) update);
+        return update;
+    }
+
+    /**
+     * Execute the work with a temporary session on the connection of the transaction, so the session, which
+     * may be flushing, is not flushed by the statements.
+     */
+    private static void execute(SharedSessionContractImplementor session, Consumer<Session> work) {
+        Session temporary = ((SessionImplementor) session).sessionWithOptions().connection().autoClose(false)
+                .connectionHandlingMode(
+                        PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION)
+                .openSession();
+        try {
+            work.accept(temporary);
+        } finally {
+            temporary.close();
+        }
+    }
+
+    /**
+     * The things of the historical locations saved or deleted by a session within the current transaction.
+     */
+    private final class LocationUpdate
+            implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        private final EventSource session;
+
+        private final Set<Long> things = new TreeSet<>();
+
+        LocationUpdate(EventSource session) {
+            this.session = session;
+        }
+
+        void add(Long thing) {
+            things.add(thing);
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor current) {
+            updates.remove(session);
+            List<Long> ids = new ArrayList<>(things);
+            execute(current, temporary -> {
+                // chunked for the limit of in lists (Oracle)
+                for (int i = 0; i < ids.size(); i += MAX_IDS) {
+                    temporary.createNamedQuery(PlatformEntity.QUERY_UPDATE_LATEST_HISTORICAL_LOCATION)
+                            .setParameterList(PlatformEntity.PARAMETER_IDS,
+                                    ids.subList(i, Math.min(i + MAX_IDS, ids.size())))
+                            .executeUpdate();
+                }
+            });
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor current) {
+            // removes the things of rolled back transactions
+            updates.remove(session);
+        }
+    }
+}
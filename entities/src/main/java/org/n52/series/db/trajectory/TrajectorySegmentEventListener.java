@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.trajectory;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.LockModeType;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.TrajectorySegmentEntity;
+
+/**
+ * Hibernate listener which maintains the {@link TrajectorySegmentEntity}s of mobile datasets from the
+ * inserted observations with a point sampling geometry. The positions inserted within a transaction are
+ * collected per session and merged into their segments before the commit, so each segment is rewritten once
+ * per transaction instead of once per observation.
+ * <p>
+ * The segments are written with a temporary session on the connection of the transaction, after the final
+ * flush of the session. Existing segments are locked for the update, so concurrent transactions do not lose
+ * positions. If concurrent transactions create the same segment, one of them fails with the unique constraint
+ * of the segments.
+ *
+ * @since 3.0.0
+ */
+public class TrajectorySegmentEventListener implements PreInsertEventListener {
+
+    private static final long serialVersionUID = -4325279236186734590L;
+
+    private final long bucketSize;
+
+    private final transient Map<EventSource, SegmentUpdate> updates = new ConcurrentHashMap<>();
+
+    public TrajectorySegmentEventListener() {
+        this(TrajectorySegmentEntity.DEFAULT_BUCKET_SIZE);
+    }
+
+    /**
+     * @param bucketSize
+     *            the size of the time buckets of the segments in milliseconds
+     */
+    public TrajectorySegmentEventListener(long bucketSize) {
+        if (bucketSize <= 0) {
+            throw new IllegalArgumentException("The bucket size should be greater than 0!");
+        }
+        this.bucketSize = bucketSize;
+    }
+
+    /**
+     * Register a listener with the bucket size at the session factory.
+     *
+     * @param sessionFactory
+     *            the session factory
+     * @param bucketSize
+     *            the size of the time buckets of the segments in milliseconds
+     * @return the registered listener
+     */
+    public static TrajectorySegmentEventListener register(SessionFactory sessionFactory, long bucketSize) {
+        TrajectorySegmentEventListener listener = new TrajectorySegmentEventListener(bucketSize);
+        sessionFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class).appendListeners(EventType.PRE_INSERT, listener);
+        return listener;
+    }
+
+    public long getBucketSize() {
+        return bucketSize;
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        if (event.getEntity() instanceof DataEntity) {
+            DataEntity<?> data = (DataEntity<?>) event.getEntity();
+            if (data.isSetGeometryEntity() && data.getGeometryEntity().getGeometry() instanceof Point
+                    && data.getSamplingTimeStart() != null && data.getDataset() != null
+                    && data.getDataset().getId() != null) {
+                updates.computeIfAbsent(event.getSession(), this::createUpdate).add(data);
+            }
+        }
+        return false;
+    }
+
+    private Object readResolve() {
+        // the collected positions belong to the sessions of the serializing process
+        return new TrajectorySegmentEventListener(bucketSize);
+    }
+
+    private SegmentUpdate createUpdate(EventSource session) {
+        SegmentUpdate update = new SegmentUpdate(session);
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) update);
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) update);
+        return update;
+    }
+
+    /**
+     * The positions inserted by a session within the current transaction.
+     */
+    private final class SegmentUpdate
+            implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        private final EventSource session;
+
+        private final Map<Long, Map<Long, SortedMap<Long, Coordinate>>> positions = new LinkedHashMap<>();
+
+        private final Map<Long, GeometryFactory> factories = new HashMap<>();
+
+        SegmentUpdate(EventSource session) {
+            this.session = session;
+        }
+
+        void add(DataEntity<?> data) {
+            Point point = (Point) data.getGeometryEntity().getGeometry();
+            Long dataset = data.getDataset().getId();
+            Date time = data.getSamplingTimeStart();
+            positions.computeIfAbsent(dataset, k -> new TreeMap<>())
+                    .computeIfAbsent(TrajectorySegmentEntity.getBucketStart(time, bucketSize), k -> new TreeMap<>())
+                    .put(time.getTime(), point.getCoordinate());
+            factories.putIfAbsent(dataset, new GeometryFactory(point.getPrecisionModel(), point.getSRID()));
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor current) {
+            updates.remove(session);
+            Session temporary = current.sessionWithOptions().connection().autoClose(false)
+                    .connectionHandlingMode(
+                            PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION)
+                    .openSession();
+            try {
+                for (Map.Entry<Long, Map<Long, SortedMap<Long, Coordinate>>> entry : positions.entrySet()) {
+                    DatasetEntity dataset = temporary.get(DatasetEntity.class, entry.getKey());
+                    if (dataset != null && dataset.isMobile()) {
+                        update(temporary, dataset, entry.getValue(), factories.get(entry.getKey()));
+                    }
+                }
+                temporary.flush();
+            } finally {
+                temporary.close();
+            }
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor current) {
+            // removes the positions of rolled back transactions
+            updates.remove(session);
+        }
+
+        private void update(Session temporary, DatasetEntity dataset, Map<Long, SortedMap<Long, Coordinate>> buckets,
+                GeometryFactory factory) {
+            for (Map.Entry<Long, SortedMap<Long, Coordinate>> bucket : buckets.entrySet()) {
+                Date start = new Date(bucket.getKey());
+                TrajectorySegmentEntity segment = temporary
+                        .createNamedQuery(TrajectorySegmentEntity.QUERY_SEGMENT, TrajectorySegmentEntity.class)
+                        .setParameter(TrajectorySegmentEntity.PARAMETER_DATASET, dataset.getId())
+                        .setParameter(TrajectorySegmentEntity.PARAMETER_START, start)
+                        .setLockMode(LockModeType.PESSIMISTIC_WRITE).uniqueResult();
+                if (segment == null) {
+                    segment = new TrajectorySegmentEntity(dataset, start, bucketSize);
+                }
+                segment.addPositions(bucket.getValue(), factory);
+                temporary.saveOrUpdate(segment);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.archive;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.QuantityDataEntity;
+
+public class ObservationBlockCodecTest {
+
+    @Test
+    public void when_regularSeriesEncoded_then_decodedObservationsAreEqual() {
+        List<ArchivedObservation> observations = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            long time = 1_500_000_000_000L + i * 600_000L;
+            observations.add(new ArchivedObservation(100L + i, 1L, time, time, time, 10.0 + (i % 10) * 0.5));
+        }
+
+        byte[] content = ObservationBlockCodec.encode(observations);
+
+        MatcherAssert.assertThat(ObservationBlockCodec.decode(1L, content), is(observations));
+        // 1000 observations of about 56 bytes per row in the observation table
+        assertTrue(content.length < 2000, "Block too large: " + content.length);
+    }
+
+    @Test
+    public void when_irregularSeriesWithGapsEncoded_then_decodedObservationsAreEqual() {
+        List<ArchivedObservation> observations = new ArrayList<>();
+        observations.add(new ArchivedObservation(5L, 2L, -1000L, 0L, null, -3.25));
+        observations.add(new ArchivedObservation(9L, 2L, 7L, 7L, 100_000L, null));
+        observations.add(new ArchivedObservation(3L, 2L, 7L, 9_000_000_000L, null, Double.MAX_VALUE));
+        observations.add(new ArchivedObservation(Long.MAX_VALUE, 2L, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2,
+                Long.MIN_VALUE / 2, 0.1));
+        observations.add(new ArchivedObservation(11L, 2L, Long.MAX_VALUE / 2 + 1, Long.MAX_VALUE / 2 + 1, 0L, 0.1));
+
+        MatcherAssert.assertThat(ObservationBlockCodec.decode(2L, ObservationBlockCodec.encode(observations)),
+                is(observations));
+        MatcherAssert.assertThat(
+                ObservationBlockCodec.decode(2L, ObservationBlockCodec.encode(Collections.emptyList())).size(), is(0));
+    }
+
+    @Test
+    public void when_unknownEncoding_then_exceptionIsThrown() {
+        byte[] content = ObservationBlockCodec.encode(Collections.emptyList());
+        content[0] = (byte) (ObservationBlockCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> ObservationBlockCodec.decode(1L, content));
+    }
+
+    @Test
+    public void when_observationHasAdditionalInformation_then_itIsNotCompactable() {
+        QuantityDataEntity data = new QuantityDataEntity();
+        data.setSamplingTimeStart(new Date(0L));
+        data.setSamplingTimeEnd(new Date(0L));
+        data.setValue(new BigDecimal("1.5"));
+        assertTrue(ObservationArchive.isCompactable(data));
+
+        data.setValue(new BigDecimal("0.12345678901234567891"));
+        assertFalse(ObservationArchive.isCompactable(data));
+
+        data.setValue(new BigDecimal("1.5"));
+        data.setValidTimeStart(new Date(0L));
+        assertFalse(ObservationArchive.isCompactable(data));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.parameter.ParameterQuantityEntity;
+
+public class EntityEqualityTest {
+
+    @Test
+    public void when_sameIdAndDifferentNaturalKey_then_sameHashCode() {
+        QuantityDataEntity observation = createObservation(1L, 1L, 0);
+        QuantityDataEntity other = createObservation(1L, 2L, 1000);
+        MatcherAssert.assertThat(observation.equals(other), is(true));
+        MatcherAssert.assertThat(observation.hashCode(), is(other.hashCode()));
+    }
+
+    @Test
+    public void when_idAssigned_then_hashCodeOfId() {
+        QuantityDataEntity observation = createObservation(null, 2L, 1000);
+        observation.setId(1L);
+        MatcherAssert.assertThat(observation.hashCode(), is(createObservation(1L, 1L, 0).hashCode()));
+    }
+
+    @Test
+    public void when_transientWithDifferentVerticals_then_differentHashCodes() {
+        QuantityDataEntity observation = createObservation(null, 1L, 0);
+        observation.setVerticalFrom(BigDecimal.ONE);
+        observation.setVerticalTo(BigDecimal.ONE);
+        QuantityDataEntity other = createObservation(null, 1L, 0);
+        other.setVerticalFrom(BigDecimal.TEN);
+        other.setVerticalTo(BigDecimal.TEN);
+        MatcherAssert.assertThat(observation.equals(other), is(false));
+        MatcherAssert.assertThat(observation.hashCode() == other.hashCode(), is(false));
+        other.setVerticalFrom(new BigDecimal("1.00"));
+        other.setVerticalTo(new BigDecimal("1.00"));
+        MatcherAssert.assertThat(observation.equals(other), is(true));
+        MatcherAssert.assertThat(observation.hashCode(), is(other.hashCode()));
+    }
+
+    @Test
+    public void when_differentIds_then_notEqual() {
+        MatcherAssert.assertThat(createObservation(1L, 1L, 0).equals(createObservation(2L, 1L, 0)), is(false));
+    }
+
+    @Test
+    public void when_transientWithSameNaturalKey_then_equal() {
+        QuantityDataEntity observation = createObservation(null, 1L, 0);
+        QuantityDataEntity other = createObservation(null, 1L, 0);
+        other.setVerticalFrom(new BigDecimal("0.000"));
+        MatcherAssert.assertThat(observation.equals(other), is(true));
+        MatcherAssert.assertThat(observation.hashCode(), is(other.hashCode()));
+        MatcherAssert.assertThat(observation.equals(createObservation(null, 2L, 0)), is(false));
+    }
+
+    @Test
+    public void when_settingTime_then_hashCodeUpdated() {
+        QuantityDataEntity observation = createObservation(null, 1L, 0);
+        int hashCode = observation.hashCode();
+        observation.setSamplingTimeStart(new Date(1000));
+        MatcherAssert.assertThat(observation.hashCode() == hashCode, is(false));
+        QuantityDataEntity other = createObservation(null, 1L, 0);
+        other.setSamplingTimeStart(new Date(1000));
+        MatcherAssert.assertThat(observation.hashCode(), is(other.hashCode()));
+    }
+
+    @Test
+    public void when_transientParametersWithDifferentValues_then_notEqual() {
+        ParameterQuantityEntity parameter = new ParameterQuantityEntity();
+        parameter.setName("height");
+        parameter.setValue(BigDecimal.ONE);
+        ParameterQuantityEntity other = new ParameterQuantityEntity();
+        other.setName("height");
+        other.setValue(BigDecimal.TEN);
+        MatcherAssert.assertThat(parameter.equals(other), is(false));
+        other.setValue(BigDecimal.ONE);
+        MatcherAssert.assertThat(parameter.equals(other), is(true));
+        MatcherAssert.assertThat(parameter.hashCode(), is(other.hashCode()));
+    }
+
+    private QuantityDataEntity createObservation(Long id, Long dataset, long time) {
+        QuantityDataEntity observation = new QuantityDataEntity();
+        observation.setId(id);
+        observation.setDatasetId(dataset);
+        observation.setSamplingTimeStart(new Date(time));
+        observation.setSamplingTimeEnd(new Date(time));
+        return observation;
+    }
+}
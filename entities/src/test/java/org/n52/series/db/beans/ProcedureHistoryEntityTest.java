@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.Date;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+public class ProcedureHistoryEntityTest {
+
+    @Test
+    public void when_timeWithinValidity_then_valid() {
+        ProcedureHistoryEntity description =
+                new ProcedureHistoryEntity().setStartTime(new Date(1000)).setEndTime(new Date(2000));
+        MatcherAssert.assertThat(description.isValidAt(new Date(1000)), is(true));
+        MatcherAssert.assertThat(description.isValidAt(new Date(1999)), is(true));
+    }
+
+    @Test
+    public void when_timeOutsideValidity_then_notValid() {
+        ProcedureHistoryEntity description =
+                new ProcedureHistoryEntity().setStartTime(new Date(1000)).setEndTime(new Date(2000));
+        MatcherAssert.assertThat(description.isValidAt(new Date(999)), is(false));
+        MatcherAssert.assertThat(description.isValidAt(new Date(2000)), is(false));
+    }
+
+    @Test
+    public void when_noEndTime_then_validAfterStart() {
+        ProcedureHistoryEntity description = new ProcedureHistoryEntity().setStartTime(new Date(1000));
+        MatcherAssert.assertThat(description.isValidAt(new Date(Long.MAX_VALUE)), is(true));
+        MatcherAssert.assertThat(description.isValidAt(new Date(0)), is(false));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+public class ProfileDataEntityTest {
+
+    @Test
+    public void when_settingChildren_then_orderedByVerticalAndTime() {
+        ProfileDataEntity profile = new ProfileDataEntity();
+        profile.setValue(new HashSet<>(Arrays.asList(createChild(3L, 10, 0), createChild(1L, 5, 1000),
+                createChild(2L, 5, 0), createChild(null, 0, 0))));
+
+        List<Long> ids = profile.getValue().stream().map(DataEntity::getId).collect(Collectors.toList());
+        MatcherAssert.assertThat(ids, is(Arrays.asList(null, 2L, 1L, 3L)));
+    }
+
+    @Test
+    public void when_gettingChildren_then_sameInstanceReturned() {
+        ProfileDataEntity profile = new ProfileDataEntity();
+        profile.setValue(new HashSet<>(Arrays.asList(createChild(1L, 5, 0), createChild(2L, 0, 0))));
+
+        MatcherAssert.assertThat(profile.getValue() == profile.getValue(), is(true));
+    }
+
+    private DataEntity<?> createChild(Long id, int vertical, long time) {
+        QuantityDataEntity child = new QuantityDataEntity();
+        child.setId(id);
+        child.setVerticalFrom(BigDecimal.valueOf(vertical));
+        child.setSamplingTimeStart(new Date(time));
+        child.setSamplingTimeEnd(new Date(time));
+        return child;
+    }
+}
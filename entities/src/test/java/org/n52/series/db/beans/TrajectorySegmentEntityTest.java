@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+public class TrajectorySegmentEntityTest {
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    @Test
+    public void when_creatingSegment_then_bucketContainsTime() {
+        Date time = DateTime.parse("2020-07-17T21:14:35.022Z").toDate();
+        TrajectorySegmentEntity segment =
+                new TrajectorySegmentEntity(null, time, TrajectorySegmentEntity.DEFAULT_BUCKET_SIZE);
+        MatcherAssert.assertThat(segment.getBucketStart().getTime(),
+                is(DateTime.parse("2020-07-17T00:00:00.000Z").getMillis()));
+        MatcherAssert.assertThat(segment.getBucketEnd().getTime(),
+                is(DateTime.parse("2020-07-18T00:00:00.000Z").getMillis()));
+        assertTrue(segment.covers(time));
+        assertFalse(segment.covers(segment.getBucketEnd()));
+    }
+
+    @Test
+    public void when_addingPositionsUnordered_then_positionsAreOrderedByTime() {
+        TrajectorySegmentEntity segment = createSegment();
+        segment.addPosition(createTime(3), new Coordinate(3, 3), factory);
+        segment.addPosition(createTime(1), new Coordinate(1, 1), factory);
+        segment.addPosition(createTime(2), new Coordinate(2, 2), factory);
+
+        Coordinate[] coordinates = segment.getCoordinates();
+        MatcherAssert.assertThat(segment.getPositions(), is(3));
+        MatcherAssert.assertThat(coordinates[0].getX(), is(1.0));
+        MatcherAssert.assertThat(coordinates[2].getX(), is(3.0));
+        MatcherAssert.assertThat(segment.getTimeStart().getTime(), is(createTime(1).getTime()));
+        MatcherAssert.assertThat(segment.getTimeEnd().getTime(), is(createTime(3).getTime()));
+    }
+
+    @Test
+    public void when_addingPositionWithSameTime_then_positionIsReplaced() {
+        TrajectorySegmentEntity segment = createSegment();
+        segment.addPosition(createTime(1), new Coordinate(1, 1), factory);
+        segment.addPosition(createTime(1), new Coordinate(5, 5), factory);
+
+        MatcherAssert.assertThat(segment.getPositions(), is(1));
+        MatcherAssert.assertThat(segment.getCoordinates()[0].getX(), is(5.0));
+    }
+
+    @Test
+    public void when_addingPositionOutsideBucket_then_positionIsIgnored() {
+        TrajectorySegmentEntity segment = createSegment();
+        assertFalse(segment.addPosition(DateTime.parse("2020-07-18T01:00:00.000Z").toDate(), new Coordinate(1, 1),
+                factory));
+        MatcherAssert.assertThat(segment.getPositions(), is(0));
+    }
+
+    @Test
+    public void when_addingPositionsInBatch_then_positionsAreMerged() {
+        TrajectorySegmentEntity segment = createSegment();
+        segment.addPosition(createTime(2), new Coordinate(2, 2), factory);
+        segment.addPosition(createTime(4), new Coordinate(4, 4), factory);
+        SortedMap<Long, Coordinate> positions = new TreeMap<>();
+        positions.put(createTime(1).getTime(), new Coordinate(1, 1));
+        positions.put(createTime(4).getTime(), new Coordinate(5, 5));
+        positions.put(createTime(6).getTime(), new Coordinate(6, 6));
+        positions.put(DateTime.parse("2020-07-18T01:00:00.000Z").getMillis(), new Coordinate(7, 7));
+
+        MatcherAssert.assertThat(segment.addPositions(positions, factory), is(3));
+        Coordinate[] coordinates = segment.getCoordinates();
+        MatcherAssert.assertThat(segment.getPositions(), is(4));
+        MatcherAssert.assertThat(coordinates[0].getX(), is(1.0));
+        MatcherAssert.assertThat(coordinates[1].getX(), is(2.0));
+        MatcherAssert.assertThat(coordinates[2].getX(), is(5.0));
+        MatcherAssert.assertThat(coordinates[3].getX(), is(6.0));
+    }
+
+    private TrajectorySegmentEntity createSegment() {
+        return new TrajectorySegmentEntity(null, createTime(0), TrajectorySegmentEntity.DEFAULT_BUCKET_SIZE);
+    }
+
+    private Date createTime(int minute) {
+        return DateTime.parse("2020-07-17T12:00:00.000Z").plusMinutes(minute).toDate();
+    }
+}
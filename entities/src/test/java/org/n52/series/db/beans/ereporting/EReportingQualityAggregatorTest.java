@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans.ereporting;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.QuantityDataEntity;
+
+public class EReportingQualityAggregatorTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private final EReportingQualityAggregator aggregator = new EReportingQualityAggregator();
+
+    @Test
+    public void when_addingObservations_then_countersAreUpdated() {
+        EReportingQualityEntity quality = aggregator.create(1L, 2020, "hour");
+        assertTrue(aggregator.add(quality, createData("2020-01-01T00:00:00.000Z", 1)));
+        assertTrue(aggregator.add(quality, createData("2020-01-01T01:00:00.000Z", -1)));
+
+        MatcherAssert.assertThat(quality.getObservationCount(), is(2L));
+        MatcherAssert.assertThat(quality.getValidCount(), is(1L));
+        MatcherAssert.assertThat(quality.getCoveredTime(), is(2 * HOUR));
+        MatcherAssert.assertThat(quality.getValidTime(), is(HOUR));
+        MatcherAssert.assertThat(quality.getTimeCoverageFlag(), is(false));
+        MatcherAssert.assertThat(quality.getDataCaptureFlag(), is(false));
+    }
+
+    @Test
+    public void when_revalidatingObservation_then_validCountersAreUpdated() {
+        EReportingQualityEntity quality = aggregator.create(1L, 2020, "hour");
+        QuantityDataEntity data = createData("2020-01-01T00:00:00.000Z", -1);
+        aggregator.add(quality, data);
+        data.getEreportingProfile().setValidation(1);
+        assertTrue(aggregator.revalidate(quality, data, -1));
+
+        MatcherAssert.assertThat(quality.getValidCount(), is(1L));
+        MatcherAssert.assertThat(quality.getValidTime(), is(HOUR));
+        MatcherAssert.assertThat(quality.getDataCaptureFlag(), is(true));
+
+        aggregator.remove(quality, data);
+        MatcherAssert.assertThat(quality.getObservationCount(), is(0L));
+        MatcherAssert.assertThat(quality.getValidCount(), is(0L));
+        MatcherAssert.assertThat(quality.getCoveredTime(), is(0L));
+    }
+
+    @Test
+    public void when_observationOfOtherYear_then_countersAreUnchanged() {
+        EReportingQualityEntity quality = aggregator.create(1L, 2020, "hour");
+        assertFalse(aggregator.add(quality, createData("2019-12-31T23:00:00.000Z", 1)));
+        MatcherAssert.assertThat(quality.getObservationCount(), is(0L));
+    }
+
+    @Test
+    public void when_addingOverlappingObservations_then_timeIsCountedOnce() {
+        EReportingQualityEntity quality = aggregator.create(1L, 2020, "hour");
+        QuantityDataEntity first = createData("2020-01-01T00:00:00.000Z", "2020-01-01T02:00:00.000Z", -1);
+        QuantityDataEntity second = createData("2020-01-01T01:00:00.000Z", "2020-01-01T03:00:00.000Z", 1);
+        assertTrue(aggregator.add(quality, first));
+        assertTrue(aggregator.add(quality, second, Collections.singletonList(first)));
+
+        MatcherAssert.assertThat(quality.getObservationCount(), is(2L));
+        MatcherAssert.assertThat(quality.getCoveredTime(), is(3 * HOUR));
+        MatcherAssert.assertThat(quality.getValidTime(), is(2 * HOUR));
+
+        assertTrue(aggregator.remove(quality, first, Collections.singletonList(second)));
+        MatcherAssert.assertThat(quality.getObservationCount(), is(1L));
+        MatcherAssert.assertThat(quality.getCoveredTime(), is(2 * HOUR));
+        MatcherAssert.assertThat(quality.getValidTime(), is(2 * HOUR));
+    }
+
+    @Test
+    public void when_observationOfOtherDataset_then_countersAreUnchanged() {
+        EReportingQualityEntity quality = aggregator.create(2L, 2020, "hour");
+        assertFalse(aggregator.add(quality, createData("2020-01-01T00:00:00.000Z", 1)));
+        MatcherAssert.assertThat(quality.getObservationCount(), is(0L));
+    }
+
+    private QuantityDataEntity createData(String time, int validation) {
+        return createData(time, time, validation);
+    }
+
+    private QuantityDataEntity createData(String start, String end, int validation) {
+        QuantityDataEntity data = new QuantityDataEntity();
+        data.setDatasetId(1L);
+        data.setSamplingTimeStart(DateTime.parse(start).toDate());
+        data.setSamplingTimeEnd(DateTime.parse(end).toDate());
+        EReportingProfileDataEntity profile = new EReportingProfileDataEntity();
+        profile.setPrimaryObservation("hour");
+        profile.setValidation(validation);
+        data.setEreportingProfile(profile);
+        return data;
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ProfileDataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.TextDataEntity;
+import org.n52.series.db.cache.LatestValue.ValueType;
+
+public class LatestValueCacheTest {
+
+    private final LatestValueCache cache = new LatestValueCache();
+
+    @Test
+    public void when_newerObservation_then_latestValueIsReplaced() {
+        assertTrue(cache.update(createQuantity(1L, 1000L, "1.5")));
+        assertTrue(cache.update(createQuantity(2L, 2000L, "2.5")));
+        assertFalse(cache.update(createQuantity(3L, 1500L, "3.5")));
+
+        LatestValue value = cache.get(1L);
+        MatcherAssert.assertThat(value.getObservationId(), is(2L));
+        MatcherAssert.assertThat(value.getType(), is(ValueType.QUANTITY));
+        MatcherAssert.assertThat(value.getDoubleValue(), is(2.5));
+    }
+
+    @Test
+    public void when_latestObservationDeleted_then_latestValueIsInvalidated() {
+        QuantityDataEntity data = createQuantity(1L, 1000L, "1.5");
+        cache.update(data);
+        assertFalse(cache.invalidate(createQuantity(2L, 500L, "1.0")));
+        assertTrue(cache.invalidate(data));
+        MatcherAssert.assertThat(cache.get(1L), nullValue());
+    }
+
+    @Test
+    public void when_warmingUp_then_lastObservationsAreCached() {
+        CountDataEntity data = new CountDataEntity();
+        data.setId(5L);
+        data.setSamplingTimeEnd(new Date(1000L));
+        data.setValue(42);
+        DatasetEntity dataset = new DatasetEntity();
+        dataset.setId(7L);
+        dataset.setLastObservation(data);
+
+        cache.warmUp(Collections.singleton(dataset));
+
+        MatcherAssert.assertThat(cache.get(7L).getType(), is(ValueType.COUNT));
+        MatcherAssert.assertThat(cache.get(7L).getLongValue(), is(42L));
+    }
+
+    @Test
+    public void when_nonScalarValue_then_latestValueIsNotCached() {
+        cache.update(createQuantity(1L, 1000L, "1.5"));
+        ProfileDataEntity profile = new ProfileDataEntity();
+        profile.setId(2L);
+        profile.setDatasetId(1L);
+        profile.setSamplingTimeEnd(new Date(2000L));
+        profile.setValue(Collections.emptySet());
+
+        assertFalse(cache.update(profile));
+        MatcherAssert.assertThat(cache.get(1L), nullValue());
+    }
+
+    @Test
+    public void when_textValue_then_latestValueIsCached() {
+        TextDataEntity data = new TextDataEntity();
+        data.setId(1L);
+        data.setDatasetId(1L);
+        data.setSamplingTimeEnd(new Date(1000L));
+        data.setValue("text");
+
+        assertTrue(cache.update(data));
+        MatcherAssert.assertThat(cache.get(1L).getType(), is(ValueType.OTHER));
+        MatcherAssert.assertThat(cache.get(1L).getValue(), is("text"));
+    }
+
+    private QuantityDataEntity createQuantity(Long id, long time, String value) {
+        QuantityDataEntity data = new QuantityDataEntity();
+        data.setId(id);
+        data.setDatasetId(1L);
+        data.setSamplingTimeEnd(new Date(time));
+        data.setValue(new BigDecimal(value));
+        return data;
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.change;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.ObservationChangeEntity;
+
+public class ObservationChangeCursorTest {
+
+    private final TreeSet<Long> committed = new TreeSet<>();
+
+    @Test
+    public void when_idsAreNotContiguous_then_allEntriesAreReturnedAtOnce() {
+        ObservationChangeCursor cursor = new ObservationChangeCursor(0L, 1000L);
+        commit(10, 20, 50);
+        MatcherAssert.assertThat(next(cursor, 10, 0L), is(Arrays.asList(10L, 20L, 50L)));
+        MatcherAssert.assertThat(next(cursor, 10, 100L), is(Arrays.asList()));
+        MatcherAssert.assertThat(cursor.getPosition(), is(0L));
+
+        MatcherAssert.assertThat(next(cursor, 10, 1000L), is(Arrays.asList()));
+        MatcherAssert.assertThat(cursor.getPosition(), is(50L));
+    }
+
+    @Test
+    public void when_entryIsCommittedLate_then_itIsReturnedByALaterCall() {
+        ObservationChangeCursor cursor = new ObservationChangeCursor(0L, 1000L);
+        commit(1, 3, 4);
+        MatcherAssert.assertThat(next(cursor, 10, 0L), is(Arrays.asList(1L, 3L, 4L)));
+
+        // the transaction of entry 2 committed after the transactions of 3 and 4
+        commit(2);
+        commit(5);
+        MatcherAssert.assertThat(next(cursor, 10, 600L), is(Arrays.asList(2L, 5L)));
+        MatcherAssert.assertThat(next(cursor, 10, 1200L), is(Arrays.asList()));
+        MatcherAssert.assertThat(cursor.getPosition(), is(1L));
+
+        MatcherAssert.assertThat(next(cursor, 10, 1600L), is(Arrays.asList()));
+        MatcherAssert.assertThat(cursor.getPosition(), is(5L));
+    }
+
+    @Test
+    public void when_windowIsFull_then_followingEntriesAreRead() {
+        ObservationChangeCursor cursor = new ObservationChangeCursor(0L, 1000L);
+        commit(1, 2, 3, 4);
+        MatcherAssert.assertThat(next(cursor, 2, 0L), is(Arrays.asList(1L, 2L)));
+        MatcherAssert.assertThat(next(cursor, 2, 100L), is(Arrays.asList(3L, 4L)));
+        commit(6);
+        MatcherAssert.assertThat(next(cursor, 2, 200L), is(Arrays.asList(6L)));
+    }
+
+    @Test
+    public void when_cursorIsCreatedAgain_then_entriesOfTheWindowAreReturnedAgain() {
+        ObservationChangeCursor cursor = new ObservationChangeCursor(0L, 1000L);
+        commit(1, 2);
+        MatcherAssert.assertThat(next(cursor, 10, 0L), is(Arrays.asList(1L, 2L)));
+        commit(3);
+        MatcherAssert.assertThat(next(cursor, 10, 1000L), is(Arrays.asList(3L)));
+
+        ObservationChangeCursor restored = new ObservationChangeCursor(cursor.getPosition(), 1000L);
+        MatcherAssert.assertThat(next(restored, 10, 1100L), is(Arrays.asList(3L)));
+    }
+
+    private void commit(long... ids) {
+        LongStream.of(ids).forEach(committed::add);
+    }
+
+    private List<Long> next(ObservationChangeCursor cursor, int maxResults, long now) {
+        return cursor.next(after -> committed.tailSet(after, false).stream().limit(maxResults).map(id -> {
+            ObservationChangeEntity entry = new ObservationChangeEntity();
+            entry.setId(id);
+            return entry;
+        }).collect(Collectors.toList()), maxResults, now).stream().map(ObservationChangeEntity::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.chunk;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.BooleanDataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+
+public class SeriesChunkTest {
+
+    @Test
+    public void when_noDataAndDeletedValues_then_statisticsIgnoreThem() {
+        SeriesChunk chunk = SeriesChunkBuilder.forQuantity(1L, 4).setNoDataValues(Collections.singleton("-999"))
+                .addAll(Arrays.asList(createQuantity(1000L, "1.0", false), createQuantity(2000L, "-999", false),
+                        createQuantity(3000L, "5.0", true), createQuantity(4000L, "3.0", false)))
+                .buildDirect();
+
+        assertTrue(chunk.isDirect());
+        assertTrue(chunk.isNoData(1));
+        assertTrue(chunk.isDeleted(2));
+        ChunkStatistics statistics = chunk.getStatistics();
+        MatcherAssert.assertThat(statistics.getCount(), is(2L));
+        MatcherAssert.assertThat(statistics.getMin(), is(1.0));
+        MatcherAssert.assertThat(statistics.getMax(), is(3.0));
+        MatcherAssert.assertThat(statistics.getMean(), is(2.0));
+    }
+
+    @Test
+    public void when_timeRangeGiven_then_onlyValuesInRangeAreAggregated() {
+        SeriesChunkBuilder builder = SeriesChunkBuilder.forQuantity(1L, 0);
+        for (int i = 0; i < 200; i++) {
+            builder.add(i * 1000L, (double) i, false, i == 150);
+        }
+        SeriesChunk chunk = builder.build();
+
+        ChunkStatistics statistics = chunk.getStatistics(100000L, 159000L);
+        MatcherAssert.assertThat(statistics.getCount(), is(59L));
+        MatcherAssert.assertThat(statistics.getMin(), is(100.0));
+        MatcherAssert.assertThat(statistics.getMax(), is(159.0));
+        MatcherAssert.assertThat(chunk.indexOf(100500L), is(101));
+        MatcherAssert.assertThat(chunk.getStatistics(500000L, 600000L).getCount(), is(0L));
+    }
+
+    @Test
+    public void when_chunkWrittenToFile_then_mappedChunkIsEqual() throws IOException {
+        BooleanDataEntity data = new BooleanDataEntity();
+        data.setSamplingTimeEnd(new Date(1000L));
+        data.setValue(true);
+        Path path = Files.createTempFile("series", ".chunk");
+        try {
+            SeriesChunk chunk = SeriesChunkBuilder.forCount(7L, 1).add(data).add(2000L, 0L, false, false).build(path);
+
+            MatcherAssert.assertThat(chunk.getDatasetId(), is(7L));
+            MatcherAssert.assertThat(chunk.getKind(), is(SeriesChunk.ValueKind.LONG));
+            MatcherAssert.assertThat(chunk.size(), is(2));
+            MatcherAssert.assertThat(chunk.getLong(0), is(1L));
+            MatcherAssert.assertThat(chunk.getEndTime(), is(2000L));
+            MatcherAssert.assertThat(chunk.getStatistics().getSum(), is(1.0));
+            assertFalse(chunk.isNoData(0));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void when_writingToRoot_then_exceptionIsThrown() {
+        SeriesChunk chunk = SeriesChunkBuilder.forCount(7L, 1).add(2000L, 0L, false, false).build();
+        Path root = FileSystems.getDefault().getRootDirectories().iterator().next();
+        assertThrows(IllegalArgumentException.class, () -> chunk.writeTo(root));
+    }
+
+    @Test
+    public void when_valuesNotInTimeOrder_then_exceptionIsThrown() {
+        SeriesChunkBuilder builder = SeriesChunkBuilder.forQuantity(1L, 2).add(2000L, 1.0, false, false);
+        assertThrows(IllegalArgumentException.class, () -> builder.add(1000L, 2.0, false, false));
+        assertThrows(IllegalStateException.class, () -> builder.add(3000L, 2L, false, false));
+    }
+
+    private QuantityDataEntity createQuantity(long time, String value, boolean deleted) {
+        QuantityDataEntity data = new QuantityDataEntity();
+        data.setSamplingTimeEnd(new Date(time));
+        data.setValue(new BigDecimal(value));
+        data.setDeleted(deleted);
+        return data;
+    }
+}
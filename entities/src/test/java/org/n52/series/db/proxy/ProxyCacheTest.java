@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.proxy;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ProxyCacheChunkEntity;
+import org.n52.series.db.beans.ProxyCachePolicyEntity;
+
+public class ProxyCacheTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private final List<TimeRange> fetched = new LinkedList<>();
+
+    private InMemoryProxyCacheStore store;
+
+    private ProxyCache cache;
+
+    private DatasetEntity dataset;
+
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryProxyCacheStore();
+        // local stand-in for the remote source
+        cache = new ProxyCache(store, (dataset, start, end) -> {
+            fetched.add(new TimeRange(start, end));
+            return new ProxyCacheChunkEntity().setContent("values".getBytes(StandardCharsets.UTF_8)).setValueCount(1);
+        });
+        dataset = new DatasetEntity();
+        dataset.setId(1L);
+    }
+
+    @Test
+    public void when_rangePartiallyCached_then_onlyGapsAreFetched() throws Exception {
+        Date now = time(0);
+        cache.read(dataset, time(2), time(4), now);
+        fetched.clear();
+
+        List<ProxyCacheChunkEntity> chunks = cache.read(dataset, time(0), time(6), now);
+
+        MatcherAssert.assertThat(fetched.size(), is(2));
+        MatcherAssert.assertThat(fetched.get(0), is(new TimeRange(time(0), time(2))));
+        MatcherAssert.assertThat(fetched.get(1), is(new TimeRange(time(4), time(6))));
+        MatcherAssert.assertThat(chunks.size(), is(3));
+        MatcherAssert.assertThat(chunks.get(1).getTimeStart().getTime(), is(time(2).getTime()));
+    }
+
+    @Test
+    public void when_rangeCached_then_nothingIsFetched() throws Exception {
+        cache.read(dataset, time(0), time(4), time(0));
+        fetched.clear();
+
+        cache.read(dataset, time(1), time(3), time(0));
+
+        MatcherAssert.assertThat(fetched.isEmpty(), is(true));
+    }
+
+    @Test
+    public void when_chunkExpired_then_rangeIsFetchedAgain() throws Exception {
+        store.setPolicy(new ProxyCachePolicyEntity().setDatasetId(1L).setTtl(HOUR));
+        cache.read(dataset, time(0), time(4), time(0));
+        fetched.clear();
+
+        cache.read(dataset, time(0), time(4), time(1));
+
+        MatcherAssert.assertThat(fetched.size(), is(1));
+        MatcherAssert.assertThat(store.size(), is(1));
+    }
+
+    @Test
+    public void when_maxSizeExceeded_then_leastRecentlyAccessedChunksAreEvicted() throws Exception {
+        store.setPolicy(new ProxyCachePolicyEntity().setDatasetId(1L).setTtl(0).setMaxSize(12));
+        cache.read(dataset, time(0), time(1), time(0));
+        cache.read(dataset, time(1), time(2), time(1));
+        cache.read(dataset, time(2), time(3), time(2));
+
+        MatcherAssert.assertThat(store.size(), is(2));
+        MatcherAssert.assertThat(store.getChunks(1L, time(0), time(1)).isEmpty(), is(true));
+    }
+
+    @Test
+    public void when_chunkRead_then_onlyLastAccessIsUpdated() throws Exception {
+        store.setPolicy(new ProxyCachePolicyEntity().setDatasetId(1L).setTtl(0));
+        cache.read(dataset, time(0), time(1), time(0));
+        ProxyCacheChunkEntity chunk = store.getChunks(1L).get(0);
+
+        cache.read(dataset, time(0), time(1), time(2));
+
+        MatcherAssert.assertThat(chunk.getLastAccess().getTime(), is(time(2).getTime()));
+        MatcherAssert.assertThat(chunk.getFetched().getTime(), is(time(0).getTime()));
+    }
+
+    @Test
+    public void when_maxCacheSizeExceeded_then_chunksOfOtherDatasetsAreEvicted() throws Exception {
+        cache = new ProxyCache(store, (dataset, start, end) -> new ProxyCacheChunkEntity()
+                .setContent("values".getBytes(StandardCharsets.UTF_8)).setValueCount(1), 12);
+        DatasetEntity other = new DatasetEntity();
+        other.setId(2L);
+        cache.read(other, time(0), time(1), time(0));
+        cache.read(dataset, time(0), time(1), time(1));
+        cache.read(dataset, time(1), time(2), time(2));
+
+        MatcherAssert.assertThat(store.size(), is(2));
+        MatcherAssert.assertThat(store.getChunks(2L).isEmpty(), is(true));
+    }
+
+    @Test
+    public void when_noPolicy_then_defaultPolicyIsBounded() throws Exception {
+        cache.read(dataset, time(0), time(1), time(0));
+        fetched.clear();
+
+        cache.read(dataset, time(0), time(1), time(2));
+
+        MatcherAssert.assertThat(fetched.size(), is(1));
+    }
+
+    private Date time(int hours) {
+        return new Date(DateTime.parse("2020-01-01T00:00:00.000Z").getMillis() + hours * HOUR);
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.result;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.hamcrest.MatcherAssert;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.ResultTemplateEntity;
+import org.n52.series.db.result.ResultField.FieldType;
+
+public class SweTextResultDecoderTest {
+
+    private static final String STRUCTURE = "<swe:DataRecord xmlns:swe=\"http://www.opengis.net/swe/2.0\">"
+            + "<swe:field name=\"phenomenonTime\"><swe:Time definition=\"phenomenonTime\"/></swe:field>"
+            + "<swe:field name=\"location\"><swe:Vector>"
+            + "<swe:coordinate name=\"lat\"><swe:Quantity><swe:uom code=\"deg\"/></swe:Quantity></swe:coordinate>"
+            + "<swe:coordinate name=\"lon\"><swe:Quantity><swe:uom code=\"deg\"/></swe:Quantity></swe:coordinate>"
+            + "</swe:Vector></swe:field>" + "<swe:field name=\"temperature\"><swe:Quantity definition=\"temperature\">"
+            + "<swe:uom code=\"degC\"/></swe:Quantity></swe:field>" + "</swe:DataRecord>";
+
+    private static final String ENCODING = "<swe:TextEncoding xmlns:swe=\"http://www.opengis.net/swe/2.0\" "
+            + "tokenSeparator=\",\" blockSeparator=\"#\" decimalSeparator=\".\"/>";
+
+    @Test
+    public void when_compilingTemplate_then_fieldsAreFlattened() {
+        CompiledResultTemplate template = CompiledResultTemplate.compile(createTemplate());
+        MatcherAssert.assertThat(template.getFieldCount(), is(4));
+        MatcherAssert.assertThat(template.getFields().get(0).getType(), is(FieldType.TIME));
+        MatcherAssert.assertThat(template.getFields().get(2).getName(), is("lon"));
+        MatcherAssert.assertThat(template.getFields().get(3).getUom(), is("degC"));
+        MatcherAssert.assertThat(template.indexOf("temperature"), is(3));
+        MatcherAssert.assertThat(template.getBlockSeparator(), is("#"));
+    }
+
+    @Test
+    public void when_templateUnchanged_then_cachedTemplateIsReused() {
+        ResultTemplateCache cache = new ResultTemplateCache();
+        ResultTemplateEntity entity = createTemplate();
+        CompiledResultTemplate template = cache.get(entity);
+        MatcherAssert.assertThat(cache.get(entity), sameInstance(template));
+        // the version is incremented when the changed template is flushed
+        entity.setEncoding(ENCODING.replace("#", "@@"));
+        MatcherAssert.assertThat(cache.get(entity), sameInstance(template));
+        entity.setVersion(1L);
+        MatcherAssert.assertThat(cache.get(entity).getBlockSeparator(), is("@@"));
+    }
+
+    @Test
+    public void when_cachedTemplateIsReused_then_lazyContentIsNotAccessed() {
+        ResultTemplateCache cache = new ResultTemplateCache();
+        int[] accesses = new int[1];
+        ResultTemplateEntity entity = new ResultTemplateEntity() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String getStructure() {
+                accesses[0]++;
+                return super.getStructure();
+            }
+        };
+        entity.setId(2L);
+        entity.setVersion(0L);
+        entity.setStructure(STRUCTURE);
+        entity.setEncoding(ENCODING);
+        cache.get(entity);
+        int compiled = accesses[0];
+        cache.get(entity);
+        MatcherAssert.assertThat(accesses[0], is(compiled));
+    }
+
+    @Test
+    public void when_decodingValues_then_blocksAreHandledInBatches() throws Exception {
+        CompiledResultTemplate template = CompiledResultTemplate.compile(createTemplate());
+        List<String> temperatures = new LinkedList<>();
+        int[] flushes = new int[1];
+        long blocks = new SweTextResultDecoder(2).decode(template,
+                new StringReader("2020-01-01T00:00:00Z,52.1,7.6,1.5#\n2020-01-01T01:00:00Z,52.1,7.6,2.5#"
+                        + "2020-01-01T02:00:00Z,,7.6,3.5#"),
+                new ResultBlockHandler() {
+                    @Override
+                    public void handle(CompiledResultTemplate t, String[] values) {
+                        temperatures.add(values[3]);
+                    }
+
+                    @Override
+                    public void flush() {
+                        flushes[0]++;
+                    }
+                });
+        MatcherAssert.assertThat(blocks, is(3L));
+        MatcherAssert.assertThat(flushes[0], is(2));
+        MatcherAssert.assertThat(temperatures.get(2), is("3.5"));
+        MatcherAssert.assertThat(SweTextResultDecoder.parseTime("2020-01-01T01:00:00+01:00").getTime(),
+                is(DateTime.parse("2020-01-01T00:00:00Z").getMillis()));
+    }
+
+    @Test
+    public void when_blockDoesNotMatchTemplate_then_exceptionIsThrown() {
+        CompiledResultTemplate template = CompiledResultTemplate.compile(createTemplate());
+        assertThrows(IllegalArgumentException.class, () -> new SweTextResultDecoder().decode(template,
+                new StringReader("2020-01-01T00:00:00Z,1.5#"), (t, values) -> {
+                }));
+    }
+
+    private ResultTemplateEntity createTemplate() {
+        ResultTemplateEntity template = new ResultTemplateEntity();
+        template.setId(1L);
+        template.setIdentifier("template");
+        template.setVersion(0L);
+        template.setStructure(STRUCTURE);
+        template.setEncoding(ENCODING);
+        return template;
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.snapshot;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.CategoryDataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.UnitEntity;
+import org.n52.series.db.beans.dataset.DatasetType;
+import org.n52.series.db.beans.dataset.ObservationType;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.series.db.snapshot.DataSnapshot.ValueKind;
+
+public class SnapshotCodecTest {
+
+    @Test
+    public void when_encodingDataset_then_decodedSnapshotIsEqual() {
+        DatasetEntity dataset = new DatasetEntity(DatasetType.timeseries, ObservationType.simple, ValueType.quantity);
+        dataset.setId(42L);
+        dataset.setIdentifier("dataset");
+        ProcedureEntity procedure = new ProcedureEntity();
+        procedure.setId(1L);
+        procedure.setIdentifier("procedure");
+        procedure.setName("Procedure");
+        PhenomenonEntity phenomenon = new PhenomenonEntity();
+        phenomenon.setId(2L);
+        phenomenon.setIdentifier("phenomenon");
+        UnitEntity unit = new UnitEntity();
+        unit.setId(3L);
+        unit.setUnit("m");
+        dataset.setProcedure(procedure).setPhenomenon(phenomenon).setUnit(unit);
+        dataset.setPublished(true).setMobile(true);
+        dataset.setFirstValueAt(new Date(1000L)).setLastValueAt(new Date(5000L));
+        dataset.setFirstQuantityValue(new BigDecimal("1.25")).setLastQuantityValue(new BigDecimal("-3.5"));
+        dataset.setObservationCount(17L);
+
+        DatasetSnapshot snapshot = SnapshotConverter.toSnapshot(dataset);
+        DatasetSnapshot decoded = SnapshotCodec.decodeDataset(SnapshotCodec.encode(snapshot));
+
+        MatcherAssert.assertThat(decoded, is(snapshot));
+        MatcherAssert.assertThat(decoded.getProcedure().getLabel(), is("Procedure"));
+        MatcherAssert.assertThat(decoded.getPhenomenon().getLabel(), is("phenomenon"));
+        MatcherAssert.assertThat(decoded.getUnit().getIdentifier(), is("m"));
+        MatcherAssert.assertThat(decoded.getOffering(), nullValue());
+        MatcherAssert.assertThat(decoded.getValueType(), is("quantity"));
+        MatcherAssert.assertThat(decoded.getLastValueAt(), is(new Date(5000L)));
+        MatcherAssert.assertThat(decoded.getLastQuantityValue(), is(new BigDecimal("-3.5")));
+        assertTrue(decoded.isPublished() && decoded.isMobile() && !decoded.isDeleted());
+    }
+
+    @Test
+    public void when_encodingObservations_then_decodedSnapshotsAreEqual() {
+        QuantityDataEntity quantity = new QuantityDataEntity();
+        quantity.setId(5L);
+        quantity.setDatasetId(42L);
+        quantity.setSamplingTimeStart(new Date(1000L));
+        quantity.setSamplingTimeEnd(new Date(1000L));
+        quantity.setResultTime(new Date(2000L));
+        quantity.setValue(new BigDecimal("12.345"));
+        CategoryDataEntity category = new CategoryDataEntity();
+        category.setId(6L);
+        category.setDatasetId(42L);
+        category.setSamplingTimeEnd(new Date(3000L));
+        category.setParent(5L);
+        category.setValue("good");
+
+        DataSnapshot q = SnapshotConverter.toSnapshot(quantity);
+        DataSnapshot c = SnapshotConverter.toSnapshot(category);
+
+        MatcherAssert.assertThat(SnapshotCodec.decodeData(SnapshotCodec.encode(q)), is(q));
+        MatcherAssert.assertThat(SnapshotCodec.decodeData(SnapshotCodec.encode(c)), is(c));
+        MatcherAssert.assertThat(c.getKind(), is(ValueKind.TEXT));
+        MatcherAssert.assertThat(c.getSamplingTimeStart(), nullValue());
+        MatcherAssert.assertThat(c.getParent(), is(5L));
+    }
+
+    @Test
+    public void when_decodingUnknownVersion_then_exceptionIsThrown() {
+        byte[] bytes = SnapshotCodec.encode(DatasetSnapshot.builder(1L).build());
+        bytes[0] = SnapshotCodec.VERSION + 1;
+        assertThrows(IllegalArgumentException.class, () -> SnapshotCodec.decodeDataset(bytes));
+    }
+
+    @Test
+    public void when_convertingTransientEntity_then_exceptionIsThrown() {
+        assertThrows(IllegalArgumentException.class, () -> SnapshotConverter.toSnapshot(new DatasetEntity()));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import org.n52.series.db.generator.migration.Migration;
+import org.n52.series.db.generator.migration.MigrationContext;
+import org.n52.series.db.generator.migration.MigrationDialect;
+import org.n52.series.db.generator.migration.MigrationRunner;
+import org.n52.series.db.generator.migration.Migrations;
+
+/**
+ * Class to create the migration scripts between the versions of the database model or to execute the
+ * migrations online against a database. Executed migrations are resumable, the backfills are committed in
+ * batches of key ranges. Currently supported databases
+ * <ul>
+ * <li>PostgreSQL/PostGIS</li>
+ * <li>Oracle</li>
+ * <li>MySQL</li>
+ * <li>SQL Server</li>
+ * <li>H2/GeoDB</li>
+ * </ul>
+ *
+ * @since 3.0.0
+ */
+@SuppressWarnings("uncommentedmain")
+public final class MigrationGenerator extends AbstractGenerator {
+
+    private MigrationGenerator() {
+        super();
+    }
+
+    private int getMigrationSelection() throws IOException {
+        printToScreen("Which migration should be processed:");
+        printToScreen("0   1.3.0 to 2.0.0");
+        printToScreen("1   2.0.0 to 3.0.0");
+        printToScreen("");
+        printEnterYourSelection();
+
+        return readSelectionFromStdIo();
+    }
+
+    private int getModeSelection() throws IOException {
+        printToScreen("Create the script or execute the migration:");
+        printToScreen("0   create script");
+        printToScreen("1   execute");
+        printToScreen("");
+        printEnterYourSelection();
+
+        return readSelectionFromStdIo();
+    }
+
+    private String readLine(String message) throws IOException {
+        printToScreen(message);
+        BufferedReader br = new BufferedReader(new InputStreamReader(System.in, Charset.forName("UTF-8")));
+        return br.readLine();
+    }
+
+    private Migration getMigration(int selection) {
+        switch (selection) {
+            case 1:
+                return Migrations.update200To300();
+            case 0:
+            default:
+                return Migrations.update130To200();
+        }
+    }
+
+    private void createScript(Migration migration, MigrationDialect dialect, String schema) throws IOException {
+        Path path = Paths.get(createFileName("migration/" + migration.getName() + "_", ".sql", dialect));
+        Files.createDirectories(path.getParent());
+        Files.deleteIfExists(path);
+        MigrationRunner runner = new MigrationRunner(new MigrationContext(dialect, schema));
+        printToScreen(
+                "The generated file was written to: " + Files.write(path, runner.script(migration)).toAbsolutePath());
+    }
+
+    private void run(Migration migration, MigrationDialect dialect, String schema) throws Exception {
+        String url = readLine("JDBC URL of the database:");
+        String user = readLine("User:");
+        String password = readLine("Password:");
+        String batchSize = readLine("Batch size (default=" + MigrationContext.DEFAULT_BATCH_SIZE + "):");
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            MigrationContext context =
+                    new MigrationContext(connection, dialect, schema).setLogger(AbstractGenerator::printToScreen);
+            if (batchSize != null && !batchSize.isEmpty()) {
+                context.setBatchSize(Integer.parseInt(batchSize));
+            }
+            int executed = new MigrationRunner(context).run(migration);
+            printToScreen(
+                    String.format("Finished! Executed %d steps of migration %s.", executed, migration.getName()));
+        }
+    }
+
+    protected boolean execute() throws Exception {
+        MigrationDialect dialect = MigrationDialect.values()[getDialectSelection()];
+        Migration migration = getMigration(getMigrationSelection());
+        String schema = readLine("Schema of the database model, no schema is also valid:");
+        if (getModeSelection() == 1) {
+            run(migration, dialect, schema);
+        } else {
+            createScript(migration, dialect, schema);
+        }
+        return true;
+    }
+
+    protected static MigrationGenerator getInstance() {
+        return new MigrationGenerator();
+    }
+
+    public static void main(String[] args) {
+        try {
+            getInstance().execute();
+        } catch (IOException ioe) {
+            printToScreen("ERROR: IO error trying to read your input!");
+            ioe.printStackTrace();
+            System.exit(1);
+        } catch (Exception e) {
+            printToScreen("ERROR: Could not migrate for unknown reasons!");
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+    }
+
+}
@@ -20,16 +20,22 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 
 import org.hibernate.boot.Metadata;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.dialect.Dialect;
+import org.hibernate.mapping.ForeignKey;
+import org.hibernate.mapping.Table;
 import org.hibernate.tool.hbm2ddl.SchemaExport;
 import org.hibernate.tool.schema.TargetType;
 import org.n52.hibernate.type.SmallBooleanType;
@@ -46,6 +52,8 @@ import org.n52.hibernate.type.SmallBooleanType;
  * <li>SQL Server</li>
  * <li>H2/GeoDB</li>
  * </ul>
+ * Optionally, the foreign keys referencing datasets, observations and parameters are created with
+ * <code>ON DELETE CASCADE</code>, which is required for the set-based deletion of datasets.
  *
  * @author <a href="mailto:c.hollmann@52north.org">Carsten Hollmann</a>
  * @since 1.0.0
@@ -55,6 +63,16 @@ public final class SQLScriptGenerator extends AbstractGenerator {
 
     private static final String PUBLIC = "public";
 
+    private static final String DATASET = "dataset";
+
+    private static final String OBSERVATION = "observation";
+
+    private static final String PARAMETER = "parameter";
+
+    private static final String SQL_SERVER_BATCH = "GO";
+
+    private static final String MYSQL_DELIMITER = "//";
+
     private SQLScriptGenerator(boolean print) {
         super(print);
     }
@@ -107,6 +125,51 @@ public final class SQLScriptGenerator extends AbstractGenerator {
         return readSelectionFromStdIoWithDefault(1) == 1 ? true : false;
     }
 
+    private boolean getCascadeDeletes() throws IOException {
+        printToScreen("Should the foreign keys of datasets and observations cascade deletes (default=false):");
+        printToScreen("0   false");
+        printToScreen("1   true");
+        printToScreen("");
+        printEnterYourSelection();
+
+        return readSelectionFromStdIoWithDefault(0) == 1 ? true : false;
+    }
+
+    /**
+     * Enable <code>ON DELETE CASCADE</code> for the foreign keys of the tables depending on datasets,
+     * observations and parameters, except for the references from a dataset to its first and last
+     * observation. SQL Server does not support cascading self references and multiple cascade paths, so only
+     * the first foreign key between two tables cascades and the child observations have to be deleted first.
+     */
+    private void enableCascadeDeletes(Metadata metadata, DialectSelector dialect) {
+        Set<String> cascading = new HashSet<>();
+        for (Table table : metadata.collectTableMappings()) {
+            for (ForeignKey fk : table.getForeignKeys().values()) {
+                String referenced = fk.getReferencedTable().getName();
+                if (!isCascading(table.getName(), referenced)) {
+                    continue;
+                }
+                if (dialect == DialectSelector.SQL_SERVER && (table.getName().equals(referenced)
+                        || !cascading.add(table.getName() + "->" + referenced))) {
+                    continue;
+                }
+                fk.setCascadeDeleteEnabled(true);
+            }
+        }
+    }
+
+    private boolean isCascading(String table, String referenced) {
+        switch (referenced) {
+            case OBSERVATION:
+                return !DATASET.equals(table);
+            case DATASET:
+            case PARAMETER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     private void printFinished(String fileName) {
         printToSysout("Finished! Check for file: " + fileName + NEW_LINE);
     }
@@ -116,7 +179,7 @@ public final class SQLScriptGenerator extends AbstractGenerator {
     }
 
     private void execute(int dialectSelection, int profileSelection, int conceptSelection, String schema,
-            boolean comments, boolean consoleLog) throws Exception {
+            boolean comments, boolean cascadeDeletes, boolean consoleLog) throws Exception {
         Concept concept = Concept.values()[conceptSelection];
         Profile profile = Profile.values()[profileSelection];
         Configuration configuration = new Configuration().configure("/hibernate.cfg.xml");
@@ -128,8 +191,6 @@ public final class SQLScriptGenerator extends AbstractGenerator {
         p.put("hibernate.dialect", dia.getClass().getName());
         String fileNameCreate = createFileName("_create.sql", dialect, concept, profile);
         String fileNameDrop = createFileName("_drop.sql", dialect, concept, profile);
-        Files.deleteIfExists(Paths.get(fileNameCreate));
-        Files.deleteIfExists(Paths.get(fileNameDrop));
         if (schema != null && !schema.isEmpty()) {
             p.put("hibernate.default_schema", schema);
         }
@@ -144,18 +205,53 @@ public final class SQLScriptGenerator extends AbstractGenerator {
         MetadataSources metadataSources = new MetadataSources(serviceRegistry);
         setDirectoriesForModelSelection(concept, profile, null, metadataSources);
         Metadata metadata = metadataSources.buildMetadata();
+        if (cascadeDeletes) {
+            enableCascadeDeletes(metadata, dialect);
+        }
 
-        // create script
+        createScripts(metadata, dialect, Paths.get(fileNameCreate), Paths.get(fileNameDrop), consoleLog);
+        printFinished(fileNameCreate);
+        printFinished(fileNameDrop);
+    }
+
+    /**
+     * Write the create and drop scripts. Every statement is terminated by the delimiter of the command line
+     * client of the database, so each trigger of SQL Server is created in its own batch (<code>GO</code>) and
+     * the compound statements of MySQL procedures are not split at their inner <code>;</code>.
+     */
+    static void createScripts(Metadata metadata, DialectSelector dialect, Path create, Path drop, boolean consoleLog)
+            throws IOException {
         SchemaExport schemaExport = new SchemaExport();
         EnumSet<TargetType> targetTypes =
                 consoleLog ? EnumSet.of(TargetType.SCRIPT, TargetType.STDOUT) : EnumSet.of(TargetType.SCRIPT);
-        schemaExport.setDelimiter(";").setFormat(true).setOutputFile(fileNameCreate).setHaltOnError(false);
+        schemaExport.setDelimiter(getDelimiter(dialect)).setFormat(true).setHaltOnError(false);
+        // create script
+        writeHeader(create, dialect);
+        schemaExport.setOutputFile(create.toString());
         schemaExport.execute(targetTypes, SchemaExport.Action.CREATE, metadata);
-        printFinished(fileNameCreate);
         // create drop
-        schemaExport.setOutputFile(fileNameDrop);
+        writeHeader(drop, dialect);
+        schemaExport.setOutputFile(drop.toString());
         schemaExport.execute(targetTypes, SchemaExport.Action.DROP, metadata);
-        printFinished(fileNameDrop);
+    }
+
+    private static String getDelimiter(DialectSelector dialect) {
+        switch (dialect) {
+            case SQL_SERVER:
+                return ";" + NEW_LINE + SQL_SERVER_BATCH;
+            case MYSQL:
+                return NEW_LINE + MYSQL_DELIMITER;
+            default:
+                return ";";
+        }
+    }
+
+    private static void writeHeader(Path script, DialectSelector dialect) throws IOException {
+        Files.deleteIfExists(script);
+        if (dialect == DialectSelector.MYSQL) {
+            // the schema export appends to the script
+            Files.write(script, ("DELIMITER " + MYSQL_DELIMITER + NEW_LINE).getBytes(StandardCharsets.UTF_8));
+        }
     }
 
     protected boolean execute(Integer selection) throws Exception {
@@ -170,7 +266,7 @@ public final class SQLScriptGenerator extends AbstractGenerator {
                     // concept
                     for (int k = 0; k < 4; k++) {
                         // execute(sqlScriptGenerator, i, j, k, schema);
-                        execute(i, j, k, schema, true, false);
+                        execute(i, j, k, schema, true, false, false);
                     }
                 }
             }
@@ -181,7 +277,8 @@ public final class SQLScriptGenerator extends AbstractGenerator {
             int concept = getConceptSelection();
             String schema = getSchema();
             int modelSelection = getModelSelection();
-            execute(dialectSelection, modelSelection, concept, schema, addComments, true);
+            boolean cascadeDeletes = getCascadeDeletes();
+            execute(dialectSelection, modelSelection, concept, schema, addComments, cascadeDeletes, true);
             return true;
         }
     }
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -35,10 +36,14 @@ import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Constraint;
+import org.hibernate.mapping.ForeignKey;
+import org.hibernate.mapping.Index;
 import org.hibernate.mapping.Join;
 import org.hibernate.mapping.PersistentClass;
 import org.hibernate.mapping.Property;
 import org.hibernate.mapping.Table;
+import org.hibernate.mapping.UniqueKey;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.n52.hibernate.type.SmallBooleanType;
@@ -54,12 +59,17 @@ import org.n52.hibernate.type.SmallBooleanType;
  * <li>H2/GeoDB</li>
  * </ul>
  *
+ * Optionally, foreign keys without a supporting index are reported and the DDL to create the missing indexes
+ * is written, as joins and cascading deletes on these columns degrade into full table scans.
+ *
  * @author <a href="mailto:c.hollmann@52north.org">Carsten Hollmann</a>
  * @since 1.0.0
  */
 @SuppressWarnings("uncommentedmain")
 public final class TableMetadataGenerator extends AbstractGenerator {
 
+    private static final int MAX_INDEX_NAME_LENGTH = 30;
+
     private TableMetadataGenerator() {
         super();
     }
@@ -74,10 +84,99 @@ public final class TableMetadataGenerator extends AbstractGenerator {
         return readSelectionFromStdIo();
     }
 
+    private int getIndexAdviceSelection() throws IOException {
+        printToScreen("Report foreign keys without supporting index:");
+        printToScreen("0   no");
+        printToScreen("1   report");
+        printToScreen("2   report and create index script");
+        printToScreen("");
+        printEnterYourSelection();
+
+        return readSelectionFromStdIo();
+    }
+
     private String createFileName(Enum... values) {
         return createFileName("metadata/TableMetadata_", ".md", values);
     }
 
+    private void exportIndexAdvice(Metadata metadata, Dialect dia, DialectSelector dialect, Concept concept,
+            Profile profile, boolean ddl) throws IOException {
+        Path path = Paths.get(createFileName("metadata/IndexAdvice_", ".md", dialect, concept, profile));
+        Path script =
+                ddl ? Paths.get(createFileName("metadata/IndexAdvice_", ".sql", dialect, concept, profile)) : null;
+        createIndexAdvice(metadata, dia, path, script);
+        System.out.println("The generated file was written to: " + path.toAbsolutePath());
+        if (script != null) {
+            System.out.println("The generated file was written to: " + script.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Write the foreign keys without supporting index and, if a script is given, the DDL to create the
+     * missing indexes.
+     */
+    static void createIndexAdvice(Metadata metadata, Dialect dia, Path advice, Path script) throws IOException {
+        Files.deleteIfExists(advice);
+        List<MissingIndex> missingIndexes = findMissingIndexes(metadata);
+        List<String> result = new LinkedList<>();
+        result.add("# Foreign keys without index");
+        result.add("This page lists the foreign keys which are not the leading columns of an index, unique key or "
+                + "primary key of the table.");
+        result.add("");
+        result.add("| table | columns | referenced table | index |");
+        result.add("| --- | --- | --- | --- |");
+        missingIndexes.forEach(mi -> result.add(mi.toMarkdown()));
+        result.add("");
+        result.add(
+                "*Creation date: " + DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss ZZ").print(DateTime.now()) + "*");
+        Files.write(advice, result);
+        if (script != null) {
+            Files.deleteIfExists(script);
+            Files.write(script,
+                    missingIndexes.stream().map(mi -> mi.toSql(metadata, dia)).collect(Collectors.toList()));
+        }
+    }
+
+    private static List<MissingIndex> findMissingIndexes(Metadata metadata) {
+        SortedMap<String, MissingIndex> missing = new TreeMap<>();
+        for (Table table : metadata.collectTableMappings()) {
+            if (!table.isPhysicalTable()) {
+                continue;
+            }
+            List<List<Column>> indexed = getIndexedColumns(table);
+            for (ForeignKey fk : table.getForeignKeys().values()) {
+                if (indexed.stream().noneMatch(columns -> isLeading(fk.getColumns(), columns))) {
+                    MissingIndex mi = new MissingIndex(table, fk);
+                    missing.putIfAbsent(mi.getName(), mi);
+                }
+            }
+        }
+        return new LinkedList<>(missing.values());
+    }
+
+    private static List<List<Column>> getIndexedColumns(Table table) {
+        List<List<Column>> indexed = new LinkedList<>();
+        if (table.getPrimaryKey() != null) {
+            indexed.add(table.getPrimaryKey().getColumns());
+        }
+        Iterator<UniqueKey> uki = table.getUniqueKeyIterator();
+        while (uki.hasNext()) {
+            indexed.add(uki.next().getColumns());
+        }
+        Iterator<Index> ii = table.getIndexIterator();
+        while (ii.hasNext()) {
+            List<Column> columns = new LinkedList<>();
+            ii.next().getColumnIterator().forEachRemaining(columns::add);
+            indexed.add(columns);
+        }
+        return indexed;
+    }
+
+    private static boolean isLeading(List<Column> fkColumns, List<Column> indexColumns) {
+        return indexColumns.size() >= fkColumns.size()
+                && new HashSet<>(indexColumns.subList(0, fkColumns.size())).equals(new HashSet<>(fkColumns));
+    }
+
     private void exportTableColumnMetadata(Metadata metadata, Dialect dia, DialectSelector dialect, Concept concept,
             Profile profile) throws IOException {
         Path path = Paths.get(createFileName(dialect, concept, profile));
@@ -174,7 +273,8 @@ public final class TableMetadataGenerator extends AbstractGenerator {
         }
     }
 
-    private void execute(int dialectSelection, int profileSelection, int conceptSelection) throws Exception {
+    private void execute(int dialectSelection, int profileSelection, int conceptSelection, int indexAdvice)
+            throws Exception {
         Concept concept = Concept.values()[conceptSelection];
         Profile profile = Profile.values()[profileSelection];
         Configuration configuration = new Configuration().configure("/hibernate.cfg.xml");
@@ -195,6 +295,9 @@ public final class TableMetadataGenerator extends AbstractGenerator {
         Metadata metadata = metadataSources.buildMetadata();
 
         exportTableColumnMetadata(metadata, dia, dialect, concept, profile);
+        if (indexAdvice > 0) {
+            exportIndexAdvice(metadata, dia, dialect, concept, profile, indexAdvice > 1);
+        }
     }
 
     protected boolean execute(Integer selection) throws Exception {
@@ -207,7 +310,7 @@ public final class TableMetadataGenerator extends AbstractGenerator {
                     // concept
                     for (int k = 0; k < 4; k++) {
                         // execute(sqlScriptGenerator, i, j, k, schema);
-                        execute(i, j, k);
+                        execute(i, j, k, 2);
                     }
                 }
             }
@@ -216,11 +319,51 @@ public final class TableMetadataGenerator extends AbstractGenerator {
             int dialectSelection = getDialectSelection();
             int concept = getConceptSelection();
             int modelSelection = getModelSelection();
-            execute(dialectSelection, modelSelection, concept);
+            int indexAdvice = getIndexAdviceSelection();
+            execute(dialectSelection, modelSelection, concept, indexAdvice);
             return true;
         }
     }
 
+    private static final class MissingIndex {
+
+        private final Table table;
+
+        private final ForeignKey foreignKey;
+
+        private final String name;
+
+        MissingIndex(Table table, ForeignKey foreignKey) {
+            this.table = table;
+            this.foreignKey = foreignKey;
+            String generated = "idx_" + table.getName() + "_"
+                    + foreignKey.getColumns().stream().map(Column::getName).collect(Collectors.joining("_"));
+            // keep the names valid for databases with short identifiers, e.g. Oracle
+            this.name = generated.length() <= MAX_INDEX_NAME_LENGTH ? generated
+                    : Constraint.generateName("idx_", table, foreignKey.getColumns().toArray(new Column[0]));
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String toMarkdown() {
+            return new StringBuilder("| ").append(table.getName()).append(PIPE)
+                    .append(foreignKey.getColumns().stream().map(Column::getName).collect(Collectors.joining(", ")))
+                    .append(PIPE).append(foreignKey.getReferencedTable().getName()).append(PIPE).append(name)
+                    .append(" |").toString();
+        }
+
+        String toSql(Metadata metadata, Dialect dia) {
+            String tableName = metadata.getDatabase().getJdbcEnvironment().getQualifiedObjectNameFormatter()
+                    .format(table.getQualifiedTableName(), dia);
+            return new StringBuilder("create index ").append(name).append(" on ").append(tableName).append(" (")
+                    .append(foreignKey.getColumns().stream().map(c -> c.getQuotedName(dia))
+                            .collect(Collectors.joining(", ")))
+                    .append(");").toString();
+        }
+    }
+
     protected static TableMetadataGenerator getInstance() {
         return new TableMetadataGenerator();
     }
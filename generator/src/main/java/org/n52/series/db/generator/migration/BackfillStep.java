@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Step filling a column in batches of key ranges, e.g. <code>observation_id</code> ranges. Each batch is
+ * committed together with the last processed key, so the locks are held only for one batch and an aborted
+ * backfill continues after the last committed batch. Only rows with a <code>null</code> value are updated,
+ * the batches start at the next key with a <code>null</code> value. The step ends only when no
+ * <code>null</code> values remain, so rows which are inserted while the backfill is running are filled as
+ * well and the following not-null constraint can be added.
+ *
+ * @since 3.0.0
+ */
+public class BackfillStep implements MigrationStep {
+
+    private final String id;
+
+    private final String table;
+
+    private final String column;
+
+    private final String key;
+
+    private final Function<MigrationDialect, String> expression;
+
+    public BackfillStep(String id, String table, String column, String key,
+            Function<MigrationDialect, String> expression) {
+        this.id = id;
+        this.table = table;
+        this.column = column;
+        this.key = key;
+        this.expression = expression;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public void execute(MigrationContext context) throws SQLException {
+        Connection connection = context.getConnection();
+        String qualifiedTable = context.qualify(table);
+        Long start = context.getLastKey(id);
+        boolean fullPass = start == null;
+        long updatedInPass = 0;
+        int batchSize = context.getBatchSize();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement update = connection.prepareStatement(createUpdate(context, qualifiedTable, true))) {
+            while (true) {
+                Long first = getFirstNullKey(connection, qualifiedTable, start);
+                if (first == null && start != null) {
+                    // rows inserted behind the cursor while the backfill was running or before it was resumed
+                    first = getFirstNullKey(connection, qualifiedTable, null);
+                    if (first != null && fullPass && updatedInPass == 0) {
+                        throw new SQLException(String.format("%s: %s of %s is still null for %s = %d", id, column,
+                                table, key, first));
+                    }
+                    fullPass = true;
+                    updatedInPass = 0;
+                }
+                if (first == null) {
+                    break;
+                }
+                long end = first + batchSize;
+                update.setLong(1, first);
+                update.setLong(2, end);
+                int updated = update.executeUpdate();
+                context.saveProgress(id, end, false);
+                connection.commit();
+                context.log(String.format("%s: updated %d rows of %s with %s in [%d, %d)", id, updated, table, key,
+                        first, end));
+                updatedInPass += updated;
+                start = end;
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    @Override
+    public List<String> toScript(MigrationContext context) {
+        return Collections.singletonList(createUpdate(context, context.qualify(table), false));
+    }
+
+    private Long getFirstNullKey(Connection connection, String qualifiedTable, Long start) throws SQLException {
+        StringBuilder query = new StringBuilder("select min(").append(key).append(") from ").append(qualifiedTable)
+                .append(" where ").append(column).append(" is null");
+        if (start != null) {
+            query.append(" and ").append(key).append(" >= ?");
+        }
+        try (PreparedStatement statement = connection.prepareStatement(query.toString())) {
+            if (start != null) {
+                statement.setLong(1, start);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                long first = rs.getLong(1);
+                return rs.wasNull() ? null : first;
+            }
+        }
+    }
+
+    private String createUpdate(MigrationContext context, String qualifiedTable, boolean ranged) {
+        StringBuilder builder = new StringBuilder("update ").append(qualifiedTable).append(" set ").append(column)
+                .append(" = ").append(expression.apply(context.getDialect())).append(" where ");
+        if (ranged) {
+            builder.append(key).append(" >= ? and ").append(key).append(" < ? and ");
+        }
+        return builder.append(column).append(" is null").toString();
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(getClass().getSimpleName()).append(" [").append(" id: ").append(getId())
+                .append(", table: ").append(getTable()).append(", column: ").append(getColumn()).append(", key: ")
+                .append(getKey()).append(" ]").toString();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Step executing schema changes. The statements are executed in auto-commit mode, as concurrent index builds
+ * can not run inside a transaction and long transactions would hold the locks of the schema changes.
+ *
+ * @since 3.0.0
+ */
+public class DdlStep implements MigrationStep {
+
+    private final String id;
+
+    private final Function<MigrationContext, List<String>> statements;
+
+    public DdlStep(String id, Function<MigrationContext, List<String>> statements) {
+        this.id = id;
+        this.statements = statements;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void execute(MigrationContext context) throws SQLException {
+        Connection connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : toScript(context)) {
+                context.log(sql);
+                statement.execute(sql);
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    @Override
+    public List<String> toScript(MigrationContext context) {
+        return statements.apply(context);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(getClass().getSimpleName()).append(" [").append(" id: ").append(getId()).append(" ]")
+                .toString();
+    }
+}
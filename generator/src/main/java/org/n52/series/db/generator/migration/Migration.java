@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator.migration;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Named and ordered list of {@link MigrationStep}s. The steps are executed by the {@link MigrationRunner},
+ * which skips the steps completed by previous runs.
+ *
+ * @since 3.0.0
+ */
+public class Migration {
+
+    private final String name;
+
+    private final List<MigrationStep> steps = new LinkedList<>();
+
+    public Migration(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<MigrationStep> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    public Migration addStep(MigrationStep step) {
+        steps.add(step);
+        return this;
+    }
+
+    /**
+     * Add a nullable column, which does not rewrite the table.
+     */
+    public Migration addColumn(String table, String column, ColumnType type) {
+        return addDdl(stepId(table, column, "add"), c -> c.getDialect().addColumn(c.qualify(table), column, type));
+    }
+
+    /**
+     * Fill a column in batches of key ranges.
+     */
+    public Migration backfill(String table, String column, String key, Function<MigrationDialect, String> expression) {
+        return addStep(new BackfillStep(stepId(table, column, "backfill"), table, column, key, expression));
+    }
+
+    /**
+     * Add a not-null constraint which is validated without blocking writes if supported.
+     */
+    public Migration setNotNull(String table, String column, ColumnType type) {
+        return addDdl(stepId(table, column, "notnull"),
+                c -> c.getDialect().setNotNull(c.qualify(table), table, column, type));
+    }
+
+    public Migration dropNotNull(String table, String column, ColumnType type) {
+        return addDdl(stepId(table, column, "nullable"),
+                c -> c.getDialect().dropNotNull(c.qualify(table), column, type));
+    }
+
+    /**
+     * Add a unique constraint with a concurrently or online built index if supported.
+     */
+    public Migration addUniqueConstraint(String table, String constraint, String column) {
+        return addDdl(stepId(table, constraint, "unique"),
+                c -> c.getDialect().addUniqueConstraint(c.qualify(table), constraint, column));
+    }
+
+    /**
+     * Add an index which is built concurrently or online if supported.
+     */
+    public Migration addIndex(String table, String index, String columns) {
+        return addDdl(stepId(table, index, "index"), c -> c.getDialect().addIndex(c.qualify(table), index, columns));
+    }
+
+    /**
+     * Add a foreign key which is validated without blocking writes if supported.
+     */
+    public Migration addForeignKey(String table, String constraint, String column, String referenced,
+            String referencedColumn) {
+        return addDdl(stepId(table, constraint, "fk"), c -> c.getDialect().addForeignKey(c.qualify(table), constraint,
+                column, c.qualify(referenced), referencedColumn));
+    }
+
+    /**
+     * Update a column of all rows with one statement, for small tables or columns which stay
+     * <code>null</code> for some rows and therefore can not be filled by
+     * {@link #backfill(String, String, String, Function)}.
+     */
+    public Migration update(String table, String column, Function<MigrationContext, String> expression) {
+        return addDdl(stepId(table, column, "update"), c -> Collections
+                .singletonList(String.format("update %s set %s = %s", c.qualify(table), column, expression.apply(c))));
+    }
+
+    private Migration addDdl(String id, Function<MigrationContext, List<String>> statements) {
+        return addStep(new DdlStep(id, statements));
+    }
+
+    private String stepId(String table, String name, String action) {
+        return String.join(".", getName(), table, name, action);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(getClass().getSimpleName()).append(" [").append(" name: ").append(getName())
+                .append(", steps: ").append(steps.size()).append(" ]").toString();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Context of a migration run holding the connection, the dialect and the schema. The progress of the steps is
+ * stored in the table {@value #PROGRESS_TABLE}. Without connection the context can only be used to create
+ * scripts.
+ *
+ * @since 3.0.0
+ */
+public class MigrationContext {
+
+    public static final String PROGRESS_TABLE = "migration_progress";
+
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    private final Connection connection;
+
+    private final MigrationDialect dialect;
+
+    private final String schema;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private Consumer<String> logger = s -> {
+    };
+
+    public MigrationContext(MigrationDialect dialect, String schema) {
+        this(null, dialect, schema);
+    }
+
+    public MigrationContext(Connection connection, MigrationDialect dialect, String schema) {
+        this.connection = connection;
+        this.dialect = Objects.requireNonNull(dialect, "dialect");
+        this.schema = schema;
+    }
+
+    public Connection getConnection() {
+        if (connection == null) {
+            throw new IllegalStateException("The migration context has no connection!");
+        }
+        return connection;
+    }
+
+    public MigrationDialect getDialect() {
+        return dialect;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public MigrationContext setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive!");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public MigrationContext setLogger(Consumer<String> logger) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+        return this;
+    }
+
+    public void log(String message) {
+        logger.accept(message);
+    }
+
+    /**
+     * Qualify the table name with the schema, if set.
+     *
+     * @param table
+     *            the table name
+     * @return the qualified table name
+     */
+    public String qualify(String table) {
+        return schema != null && !schema.isEmpty() ? schema + "." + table : table;
+    }
+
+    /**
+     * Create the progress table if it does not exist.
+     *
+     * @throws SQLException
+     *             if the table can not be created
+     */
+    public void initProgress() throws SQLException {
+        Connection con = getConnection();
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(true);
+        try (Statement statement = con.createStatement()) {
+            try {
+                statement.executeQuery("select count(step) from " + qualify(PROGRESS_TABLE)).close();
+            } catch (SQLException e) {
+                statement.execute(dialect.createProgressTable(qualify(PROGRESS_TABLE)));
+            }
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    public boolean isCompleted(String step) throws SQLException {
+        try (PreparedStatement statement = getConnection()
+                .prepareStatement("select completed from " + qualify(PROGRESS_TABLE) + " where step = ?")) {
+            statement.setString(1, step);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    public Long getLastKey(String step) throws SQLException {
+        try (PreparedStatement statement = getConnection()
+                .prepareStatement("select last_key from " + qualify(PROGRESS_TABLE) + " where step = ?")) {
+            statement.setString(1, step);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    long lastKey = rs.getLong(1);
+                    return rs.wasNull() ? null : lastKey;
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Store the progress of a step. The caller is responsible to commit the transaction, so that the progress
+     * is committed together with the changes of the step.
+     *
+     * @param step
+     *            the step id
+     * @param lastKey
+     *            the exclusive upper bound of the processed keys, may be <code>null</code>
+     * @param completed
+     *            if the step is completed
+     * @throws SQLException
+     *             if the progress can not be stored
+     */
+    public void saveProgress(String step, Long lastKey, boolean completed) throws SQLException {
+        String table = qualify(PROGRESS_TABLE);
+        try (PreparedStatement update = getConnection()
+                .prepareStatement("update " + table + " set last_key = ?, completed = ? where step = ?")) {
+            setProgress(update, lastKey, completed, step);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = getConnection()
+                .prepareStatement("insert into " + table + " (last_key, completed, step) values (?, ?, ?)")) {
+            setProgress(insert, lastKey, completed, step);
+            insert.executeUpdate();
+        }
+    }
+
+    private void setProgress(PreparedStatement statement, Long lastKey, boolean completed, String step)
+            throws SQLException {
+        if (lastKey != null) {
+            statement.setLong(1, lastKey);
+        } else {
+            statement.setNull(1, java.sql.Types.BIGINT);
+        }
+        statement.setInt(2, completed ? 1 : 0);
+        statement.setString(3, step);
+    }
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator.migration;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Database specific SQL of the migration steps. The statements avoid table rewrites and long exclusive locks
+ * where the database supports it: nullable columns are added as metadata only change, indexes are built
+ * concurrently or online and not-null constraints are validated without blocking writes. The order of the
+ * constants matches the dialect selection of the generators.
+ *
+ * @since 3.0.0
+ */
+public enum MigrationDialect {
+
+    POSTGIS {
+        @Override
+        public String getType(ColumnType type) {
+            switch (type) {
+                case BIGINT:
+                    return "bigint";
+                case SMALLINT:
+                    return "smallint";
+                case TIMESTAMP:
+                    return "timestamp with time zone";
+                case TEXT:
+                    return "text";
+                case STRING:
+                default:
+                    return "varchar(255)";
+            }
+        }
+
+        @Override
+        public List<String> addColumn(String table, String column, ColumnType type) {
+            return Arrays.asList(
+                    String.format("alter table %s add column if not exists %s %s", table, column, getType(type)));
+        }
+
+        @Override
+        public List<String> setNotNull(String table, String name, String column, ColumnType type) {
+            // a validated check constraint lets PostgreSQL 12+ set not null without a table scan under lock
+            String constraint = getConstraintName("ck_", name, column);
+            return Arrays.asList(String.format("alter table %s drop constraint if exists %s", table, constraint),
+                    String.format("alter table %s add constraint %s check (%s is not null) not valid", table,
+                            constraint, column),
+                    String.format("alter table %s validate constraint %s", table, constraint),
+                    String.format("alter table %s alter column %s set not null", table, column),
+                    String.format("alter table %s drop constraint %s", table, constraint));
+        }
+
+        @Override
+        public List<String> dropNotNull(String table, String column, ColumnType type) {
+            return Arrays.asList(String.format("alter table %s alter column %s drop not null", table, column));
+        }
+
+        @Override
+        public List<String> addUniqueConstraint(String table, String constraint, String column) {
+            return Arrays.asList(dropInvalidIndex(table, constraint),
+                    String.format("create unique index concurrently if not exists %s on %s (%s)", constraint, table,
+                            column),
+                    String.format("alter table %s add constraint %s unique using index %s", table, constraint,
+                            constraint));
+        }
+
+        @Override
+        public List<String> addIndex(String table, String index, String columns) {
+            return Arrays.asList(dropInvalidIndex(table, index),
+                    String.format("create index concurrently if not exists %s on %s (%s)", index, table, columns));
+        }
+
+        @Override
+        public List<String> addForeignKey(String table, String constraint, String column, String referenced,
+                String referencedColumn) {
+            // a not valid constraint only locks briefly, the validation does not block writes
+            return Arrays.asList(String.format("alter table %s drop constraint if exists %s", table, constraint),
+                    String.format("alter table %s add constraint %s foreign key (%s) references %s (%s) not valid",
+                            table, constraint, column, referenced, referencedColumn),
+                    String.format("alter table %s validate constraint %s", table, constraint));
+        }
+
+        /**
+         * A failed or interrupted concurrent build leaves an invalid index, which <code>if not exists</code>
+         * would skip on the next run, so it is dropped before.
+         */
+        private String dropInvalidIndex(String table, String index) {
+            String schema = table.contains(".") ? table.substring(0, table.lastIndexOf('.') + 1) : "";
+            return String.format("do $$ begin if exists (select 1 from pg_index i join pg_class c on c.oid = "
+                    + "i.indexrelid where i.indrelid = '%s'::regclass and c.relname = '%s' and not i.indisvalid) "
+                    + "then drop index %s%s; end if; end $$", table, index, schema, index);
+        }
+
+        @Override
+        public String castToString(String expression) {
+            return String.format("cast(%s as varchar)", expression);
+        }
+    },
+
+    ORACLE {
+        @Override
+        public String getType(ColumnType type) {
+            switch (type) {
+                case BIGINT:
+                    return "number(19,0)";
+                case SMALLINT:
+                    return "number(5,0)";
+                case TIMESTAMP:
+                    return "timestamp with time zone";
+                case TEXT:
+                    return "clob";
+                case STRING:
+                default:
+                    return "varchar2(255 char)";
+            }
+        }
+
+        @Override
+        public List<String> addColumn(String table, String column, ColumnType type) {
+            return Arrays.asList(String.format("alter table %s add (%s %s)", table, column, getType(type)));
+        }
+
+        @Override
+        public List<String> setNotNull(String table, String name, String column, ColumnType type) {
+            // enable novalidate only locks briefly, the validation does not block DML
+            String constraint = getConstraintName("nn_", name, column);
+            return Arrays.asList(
+                    String.format("alter table %s modify (%s constraint %s not null enable novalidate)", table, column,
+                            constraint),
+                    String.format("alter table %s modify constraint %s validate", table, constraint));
+        }
+
+        @Override
+        public List<String> dropNotNull(String table, String column, ColumnType type) {
+            return Arrays.asList(String.format("alter table %s modify (%s null)", table, column));
+        }
+
+        @Override
+        public List<String> addUniqueConstraint(String table, String constraint, String column) {
+            return Arrays.asList(String.format("create unique index %s on %s (%s) online", constraint, table, column),
+                    String.format("alter table %s add constraint %s unique (%s) using index %s", table, constraint,
+                            column, constraint));
+        }
+
+        @Override
+        public List<String> addIndex(String table, String index, String columns) {
+            return Arrays.asList(String.format("create index %s on %s (%s) online", index, table, columns));
+        }
+
+        @Override
+        public List<String> addForeignKey(String table, String constraint, String column, String referenced,
+                String referencedColumn) {
+            return Arrays.asList(
+                    String.format("alter table %s add constraint %s foreign key (%s) references %s (%s) "
+                            + "enable novalidate", table, constraint, column, referenced, referencedColumn),
+                    String.format("alter table %s modify constraint %s validate", table, constraint));
+        }
+
+        @Override
+        public String castToString(String expression) {
+            return String.format("to_char(%s)", expression);
+        }
+
+        @Override
+        protected int getMaxIdentifierLength() {
+            return 30;
+        }
+    },
+
+    GEODB_H2 {
+        @Override
+        public String getType(ColumnType type) {
+            switch (type) {
+                case BIGINT:
+                    return "bigint";
+                case SMALLINT:
+                    return "smallint";
+                case TIMESTAMP:
+                    return "timestamp with time zone";
+                case TEXT:
+                    return "clob";
+                case STRING:
+                default:
+                    return "varchar(255)";
+            }
+        }
+
+        @Override
+        public List<String> addColumn(String table, String column, ColumnType type) {
+            return Arrays.asList(
+                    String.format("alter table %s add column if not exists %s %s", table, column, getType(type)));
+        }
+
+        @Override
+        public List<String> setNotNull(String table, String name, String column, ColumnType type) {
+            return Arrays.asList(String.format("alter table %s alter column %s set not null", table, column));
+        }
+
+        @Override
+        public List<String> dropNotNull(String table, String column, ColumnType type) {
+            return Arrays.asList(String.format("alter table %s alter column %s set null", table, column));
+        }
+
+        @Override
+        public List<String> addUniqueConstraint(String table, String constraint, String column) {
+            return Arrays
+                    .asList(String.format("alter table %s add constraint %s unique (%s)", table, constraint, column));
+        }
+
+        @Override
+        public List<String> addIndex(String table, String index, String columns) {
+            return Arrays.asList(String.format("create index if not exists %s on %s (%s)", index, table, columns));
+        }
+
+        @Override
+        public List<String> addForeignKey(String table, String constraint, String column, String referenced,
+                String referencedColumn) {
+            return Arrays.asList(String.format("alter table %s add constraint %s foreign key (%s) references %s (%s)",
+                    table, constraint, column, referenced, referencedColumn));
+        }
+
+        @Override
+        public String castToString(String expression) {
+            return String.format("cast(%s as varchar)", expression);
+        }
+    },
+
+    MYSQL {
+        private static final String ONLINE = ", algorithm=inplace, lock=none";
+
+        @Override
+        public String getType(ColumnType type) {
+            switch (type) {
+                case BIGINT:
+                    return "bigint";
+                case SMALLINT:
+                    return "smallint";
+                case TIMESTAMP:
+                    return "timestamp";
+                case TEXT:
+                    return "longtext";
+                case STRING:
+                default:
+                    return "varchar(255)";
+            }
+        }
+
+        @Override
+        public List<String> addColumn(String table, String column, ColumnType type) {
+            return Arrays
+                    .asList(String.format("alter table %s add column %s %s%s", table, column, getType(type), ONLINE));
+        }
+
+        @Override
+        public List<String> setNotNull(String table, String name, String column, ColumnType type) {
+            return Arrays.asList(
+                    String.format("alter table %s modify %s %s not null%s", table, column, getType(type), ONLINE));
+        }
+
+        @Override
+        public List<String> dropNotNull(String table, String column, ColumnType type) {
+            return Arrays
+                    .asList(String.format("alter table %s modify %s %s null%s", table, column, getType(type), ONLINE));
+        }
+
+        @Override
+        public List<String> addUniqueConstraint(String table, String constraint, String column) {
+            return Arrays.asList(String.format("alter table %s add constraint %s unique (%s)%s", table, constraint,
+                    column, ONLINE));
+        }
+
+        @Override
+        public List<String> addIndex(String table, String index, String columns) {
+            return Arrays.asList(String.format("alter table %s add index %s (%s)%s", table, index, columns, ONLINE));
+        }
+
+        @Override
+        public List<String> addForeignKey(String table, String constraint, String column, String referenced,
+                String referencedColumn) {
+            return Arrays.asList(String.format("alter table %s add constraint %s foreign key (%s) references %s (%s)",
+                    table, constraint, column, referenced, referencedColumn));
+        }
+
+        @Override
+        public String castToString(String expression) {
+            return String.format("cast(%s as char)", expression);
+        }
+    },
+
+    SQL_SERVER {
+        @Override
+        public String getType(ColumnType type) {
+            switch (type) {
+                case BIGINT:
+                    return "bigint";
+                case SMALLINT:
+                    return "smallint";
+                case TIMESTAMP:
+                    return "datetimeoffset";
+                case TEXT:
+                    return "varchar(max)";
+                case STRING:
+                default:
+                    return "varchar(255)";
+            }
+        }
+
+        @Override
+        public List<String> addColumn(String table, String column, ColumnType type) {
+            return Arrays.asList(String.format("alter table %s add %s %s", table, column, getType(type)));
+        }
+
+        @Override
+        public List<String> setNotNull(String table, String name, String column, ColumnType type) {
+            // online alter column needs the Enterprise edition, the column is checked under a schema lock
+            return Arrays
+                    .asList(String.format("alter table %s alter column %s %s not null", table, column, getType(type)));
+        }
+
+        @Override
+        public List<String> dropNotNull(String table, String column, ColumnType type) {
+            return Arrays
+                    .asList(String.format("alter table %s alter column %s %s null", table, column, getType(type)));
+        }
+
+        @Override
+        public List<String> addUniqueConstraint(String table, String constraint, String column) {
+            return Arrays
+                    .asList(String.format("alter table %s add constraint %s unique (%s)", table, constraint, column));
+        }
+
+        @Override
+        public List<String> addIndex(String table, String index, String columns) {
+            return Arrays.asList(String.format("create index %s on %s (%s)", index, table, columns));
+        }
+
+        @Override
+        public List<String> addForeignKey(String table, String constraint, String column, String referenced,
+                String referencedColumn) {
+            return Arrays.asList(String.format("alter table %s add constraint %s foreign key (%s) references %s (%s)",
+                    table, constraint, column, referenced, referencedColumn));
+        }
+
+        @Override
+        public String castToString(String expression) {
+            return String.format("cast(%s as varchar(255))", expression);
+        }
+    };
+
+    /**
+     * Get the SQL type of the column type.
+     *
+     * @param type
+     *            the column type
+     * @return the SQL type
+     */
+    public abstract String getType(ColumnType type);
+
+    /**
+     * Add a nullable column.
+     *
+     * @param table
+     *            the qualified table name
+     * @param column
+     *            the column name
+     * @param type
+     *            the column type
+     * @return the statements
+     */
+    public abstract List<String> addColumn(String table, String column, ColumnType type);
+
+    /**
+     * Add a not-null constraint to a column which contains no null values.
+     *
+     * @param table
+     *            the qualified table name
+     * @param name
+     *            the unqualified table name, used for constraint names
+     * @param column
+     *            the column name
+     * @param type
+     *            the column type
+     * @return the statements
+     */
+    public abstract List<String> setNotNull(String table, String name, String column, ColumnType type);
+
+    /**
+     * Remove the not-null constraint of a column.
+     *
+     * @param table
+     *            the qualified table name
+     * @param column
+     *            the column name
+     * @param type
+     *            the column type
+     * @return the statements
+     */
+    public abstract List<String> dropNotNull(String table, String column, ColumnType type);
+
+    /**
+     * Add a unique constraint, the backing index is created without blocking writes if supported.
+     *
+     * @param table
+     *            the qualified table name
+     * @param constraint
+     *            the constraint name
+     * @param column
+     *            the column name
+     * @return the statements
+     */
+    public abstract List<String> addUniqueConstraint(String table, String constraint, String column);
+
+    /**
+     * Add an index, which is created without blocking writes if supported.
+     *
+     * @param table
+     *            the qualified table name
+     * @param index
+     *            the index name
+     * @param columns
+     *            the comma separated column names
+     * @return the statements
+     */
+    public abstract List<String> addIndex(String table, String index, String columns);
+
+    /**
+     * Add a foreign key, which is validated without blocking writes if supported.
+     *
+     * @param table
+     *            the qualified table name
+     * @param constraint
+     *            the constraint name
+     * @param column
+     *            the column name
+     * @param referenced
+     *            the qualified name of the referenced table
+     * @param referencedColumn
+     *            the referenced column name
+     * @return the statements
+     */
+    public abstract List<String> addForeignKey(String table, String constraint, String column, String referenced,
+            String referencedColumn);
+
+    /**
+     * Cast an SQL expression to a string.
+     *
+     * @param expression
+     *            the expression
+     * @return the cast expression
+     */
+    public abstract String castToString(String expression);
+
+    /**
+     * Create the table storing the progress of the migration steps.
+     *
+     * @param table
+     *            the qualified table name
+     * @return the statement
+     */
+    public String createProgressTable(String table) {
+        return String.format(
+                "create table %s (step %s not null, last_key %s, completed %s not null, primary key (step))", table,
+                getType(ColumnType.STRING), getType(ColumnType.BIGINT), getType(ColumnType.SMALLINT));
+    }
+
+    protected int getMaxIdentifierLength() {
+        return 63;
+    }
+
+    protected String getConstraintName(String prefix, String table, String column) {
+        String name = prefix + table + "_" + column;
+        return name.length() > getMaxIdentifierLength() ? name.substring(0, getMaxIdentifierLength()) : name;
+    }
+}
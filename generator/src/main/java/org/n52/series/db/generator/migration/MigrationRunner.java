@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator.migration;
+
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Executes {@link Migration}s against a database or creates the scripts of a migration. The runner can be
+ * stopped and restarted at any time: completed steps are skipped and backfills continue after the last
+ * committed batch.
+ *
+ * @since 3.0.0
+ */
+public class MigrationRunner {
+
+    private final MigrationContext context;
+
+    public MigrationRunner(MigrationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Execute the steps of the migration which are not completed.
+     *
+     * @param migration
+     *            the migration
+     * @return the number of executed steps
+     * @throws SQLException
+     *             if a step fails, the completed steps and batches are kept
+     */
+    public int run(Migration migration) throws SQLException {
+        context.initProgress();
+        int executed = 0;
+        for (MigrationStep step : migration.getSteps()) {
+            if (context.isCompleted(step.getId())) {
+                context.log(String.format("Skipping completed step %s", step.getId()));
+                continue;
+            }
+            context.log(String.format("Executing step %s", step.getId()));
+            step.execute(context);
+            boolean autoCommit = context.getConnection().getAutoCommit();
+            context.saveProgress(step.getId(), context.getLastKey(step.getId()), true);
+            if (!autoCommit) {
+                context.getConnection().commit();
+            }
+            executed++;
+        }
+        return executed;
+    }
+
+    /**
+     * Create the script of the migration. Backfills are not batched in the script, large tables should be
+     * migrated with {@link #run(Migration)}.
+     *
+     * @param migration
+     *            the migration
+     * @return the statements terminated by <code>;</code>
+     */
+    public List<String> script(Migration migration) {
+        List<String> script = new LinkedList<>();
+        script.add(String.format("-- migration %s for %s", migration.getName(),
+                context.getDialect().name().toLowerCase()));
+        for (MigrationStep step : migration.getSteps()) {
+            script.add("");
+            script.add("-- " + step.getId());
+            for (String statement : step.toScript(context)) {
+                script.add(statement + ";");
+            }
+        }
+        return script;
+    }
+}
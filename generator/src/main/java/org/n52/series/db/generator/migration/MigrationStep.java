@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator.migration;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Single resumable step of a {@link Migration}. The {@link MigrationRunner} records completed steps, so a
+ * step is executed only once even if the migration is restarted.
+ *
+ * @since 3.0.0
+ */
+public interface MigrationStep {
+
+    /**
+     * @return the unique id of the step within the migration
+     */
+    String getId();
+
+    /**
+     * Execute the step against the database of the context.
+     *
+     * @param context
+     *            the migration context
+     * @throws SQLException
+     *             if the execution fails
+     */
+    void execute(MigrationContext context) throws SQLException;
+
+    /**
+     * Create the SQL statements of the step, e.g. to be reviewed or executed manually.
+     *
+     * @param context
+     *            the migration context
+     * @return the statements
+     */
+    List<String> toScript(MigrationContext context);
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator.migration;
+
+/**
+ * Migrations between the versions of the database model, replacing the update scripts in <code>etc/db</code>.
+ *
+ * @since 3.0.0
+ */
+public final class Migrations {
+
+    private static final String STA_IDENTIFIER = "sta_identifier";
+
+    private static final String PLATFORM = "platform";
+
+    private static final String HISTORICAL_LOCATION = "historical_location";
+
+    private static final String LATEST_HISTORICAL_LOCATION = "fk_latest_historical_location_id";
+
+    private static final String[][] STA_TABLES = { { "feature", "feature_id", "un_feature_staIdentifier" },
+            { "datastream", "datastream_id", "un_datastream_staIdentifier" },
+            { "location", "location_id", "un_location_staIdentifier" },
+            { "historical_location", "historical_location_id", "un_historicalLocation_staIdentifier" },
+            { "observation", "observation_id", "un_observation_staIdentifier" },
+            { "platform", "platform_id", "un_platform_staIdentifier" },
+            { "procedure", "procedure_id", "un_procedure_staIdentifier" } };
+
+    private Migrations() {
+    }
+
+    /**
+     * Migration from 1.3.0 to 2.0.0, adds the <code>sta_identifier</code> columns initialized with the ids.
+     *
+     * @return the migration
+     */
+    public static Migration update130To200() {
+        Migration migration = new Migration("130_200");
+        for (String[] table : STA_TABLES) {
+            String id = table[1];
+            migration.addColumn(table[0], STA_IDENTIFIER, ColumnType.STRING)
+                    .backfill(table[0], STA_IDENTIFIER, id, d -> d.castToString(id))
+                    .setNotNull(table[0], STA_IDENTIFIER, ColumnType.STRING)
+                    .addUniqueConstraint(table[0], table[2], STA_IDENTIFIER);
+        }
+        return migration.dropNotNull("observation", "result_time", ColumnType.TIMESTAMP);
+    }
+
+    /**
+     * Migration from 2.0.0 to 3.0.0, adds the observation structure and encoding as well as the version to
+     * the result templates, the index on dataset and phenomenon end time of the observations and the latest
+     * historical location of the platforms.
+     *
+     * @return the migration
+     */
+    public static Migration update200To300() {
+        return new Migration("200_300").dropNotNull("result_template", "structure", ColumnType.TEXT)
+                .dropNotNull("result_template", "encoding", ColumnType.TEXT)
+                .addColumn("result_template", "observation_structure", ColumnType.TEXT)
+                .addColumn("result_template", "observation_encoding", ColumnType.TEXT)
+                .addColumn("result_template", "template_version", ColumnType.BIGINT)
+                .backfill("result_template", "template_version", "result_template_id", d -> "0")
+                .setNotNull("result_template", "template_version", ColumnType.BIGINT)
+                .addIndex("observation", "idx_observation_dataset_end", "fk_dataset_id, sampling_time_end")
+                .addIndex(HISTORICAL_LOCATION, "idx_historical_location_thing_time", "fk_thing_id, time")
+                .addIndex("location_historical_location", "idx_location_hist_loc_hist", "fk_historical_location_id")
+                .addColumn(PLATFORM, LATEST_HISTORICAL_LOCATION, ColumnType.BIGINT)
+                .update(PLATFORM, LATEST_HISTORICAL_LOCATION,
+                        c -> String.format("(select max(h.historical_location_id) "
+                                + "from %1$s h where h.fk_thing_id = platform_id and h.time = (select max(l.time) from %1$s l "
+                                + "where l.fk_thing_id = platform_id))", c.qualify(HISTORICAL_LOCATION)))
+                .addForeignKey(PLATFORM, "fk_platform_latest_hist_loc", LATEST_HISTORICAL_LOCATION,
+                        HISTORICAL_LOCATION, "historical_location_id")
+                .addIndex(PLATFORM, "idx_platform_latest_hist_loc", LATEST_HISTORICAL_LOCATION);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.type;
+
+import java.util.List;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+
+/**
+ * Writes and reads flags with the {@link SmallFlagType} through Hibernate.
+ */
+public class SmallFlagTypeTest extends AbstractTransactionalSchemaTest {
+
+    @BeforeEach
+    public void setUp() {
+        inTransaction(session -> execute(session, "create table flag_test (id int primary key, flag smallint)"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        // the table is not part of the mappings and therefore not dropped with the schema
+        inTransaction(session -> execute(session, "drop table flag_test"));
+    }
+
+    @Test
+    public void test_flags_are_stored_as_small_integers() {
+        inTransaction(session -> {
+            insert(session, 1, true);
+            insert(session, 2, false);
+            insert(session, 3, null);
+        });
+        inTransaction(session -> {
+            List<?> stored = session.createNativeQuery("select cast(flag as int) from flag_test order by id").list();
+            Assertions.assertEquals(1, ((Number) stored.get(0)).intValue());
+            Assertions.assertEquals(0, ((Number) stored.get(1)).intValue());
+            Assertions.assertNull(stored.get(2));
+        });
+    }
+
+    @Test
+    public void test_flags_are_read_and_null_is_false() {
+        inTransaction(session -> execute(session, "insert into flag_test values (1, 1), (2, 0), (3, null)"));
+        inTransaction(session -> {
+            Assertions.assertEquals(Boolean.TRUE, read(session, 1));
+            Assertions.assertEquals(Boolean.FALSE, read(session, 2));
+            Assertions.assertEquals(Boolean.FALSE, read(session, 3));
+        });
+    }
+
+    @Test
+    public void test_flags_round_trip() {
+        inTransaction(session -> {
+            insert(session, 1, true);
+            insert(session, 2, false);
+        });
+        inTransaction(session -> {
+            Assertions.assertSame(Boolean.TRUE, read(session, 1));
+            Assertions.assertSame(Boolean.FALSE, read(session, 2));
+        });
+    }
+
+    private void insert(Session session, int id, Boolean flag) {
+        session.createNativeQuery("insert into flag_test (id, flag) values (:id, :flag)").setParameter("id", id)
+                .setParameter("flag", flag, SmallFlagType.INSTANCE).executeUpdate();
+    }
+
+    private Object read(Session session, int id) {
+        return session.createNativeQuery("select flag from flag_test where id = :id")
+                .addScalar("flag", SmallFlagType.INSTANCE).setParameter("id", id).uniqueResult();
+    }
+
+}
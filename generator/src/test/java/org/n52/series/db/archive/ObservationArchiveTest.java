@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.archive;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+
+public class ObservationArchiveTest extends AbstractTransactionalSchemaTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @BeforeEach
+    public void setUp() {
+        inTransaction(session -> {
+            for (int i = 1; i <= 6; i++) {
+                execute(session,
+                        String.format("insert into observation (observation_id, value_type, fk_dataset_id, "
+                                + "sampling_time_start, sampling_time_end, sta_identifier, value_quantity) values "
+                                + "(%d, 'quantity', 1, '2020-01-15 1%<d:00:00', '2020-01-15 1%<d:00:00', 'o%<d', "
+                                + "%<d)", i));
+            }
+            execute(session,
+                    "update dataset set value_type = 'quantity', fk_first_observation_id = 1, "
+                            + "first_time = '2020-01-15 11:00:00', first_value = 1, fk_last_observation_id = 6, "
+                            + "last_time = '2020-01-15 16:00:00', last_value = 6 where dataset_id = 1");
+            execute(session, "insert into parameter (parameter_id, type, name) values (1, 'text', 'p')");
+            execute(session, "insert into observation_parameter (fk_observation_id, fk_parameter_id) values (3, 1)");
+            execute(session, "insert into related_observation (fk_observation_id, fk_related_observation_id) "
+                    + "values (6, 4)");
+        });
+    }
+
+    @Test
+    public void test_plain_observations_are_compacted() {
+        ObservationArchive archive = new ObservationArchive(DAY);
+        Session session = getSessionFactory().openSession();
+        try {
+            session.beginTransaction();
+            DatasetEntity dataset = session.get(DatasetEntity.class, 1L);
+            Assertions.assertEquals(2,
+                    archive.compactBefore(session, dataset, Timestamp.valueOf("2020-01-20 00:00:00")));
+            session.getTransaction().commit();
+        } finally {
+            session.close();
+        }
+        inTransaction(session2 -> {
+            Assertions.assertEquals(4, count(session2, "observation"));
+            Assertions.assertEquals(1, count(session2, "observation_block"));
+            Assertions.assertEquals(1, count(session2, "observation_parameter"));
+            Assertions.assertEquals(1, count(session2, "related_observation"));
+            List<ArchivedObservation> observations = archive.read(session2, 1L,
+                    Timestamp.valueOf("2020-01-15 00:00:00"), Timestamp.valueOf("2020-01-16 00:00:00"));
+            Assertions.assertEquals(6, observations.size());
+            for (int i = 0; i < observations.size(); i++) {
+                Assertions.assertEquals(i + 1, observations.get(i).getId());
+            }
+        });
+    }
+
+}
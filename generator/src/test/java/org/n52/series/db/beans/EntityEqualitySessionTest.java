@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.parameter.ParameterEntity;
+import org.n52.series.db.beans.parameter.ParameterTextEntity;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+
+/**
+ * Hashes observations and parameters loaded by Hibernate and counts the statements, which are executed to
+ * initialize proxies and lazy collections.
+ */
+public class EntityEqualitySessionTest extends AbstractTransactionalSchemaTest {
+
+    private static final int OBSERVATIONS = 100;
+
+    @BeforeEach
+    public void setUp() {
+        inTransaction(session -> {
+            execute(session, "insert into observation (observation_id, value_type, fk_dataset_id, "
+                    + "fk_parent_observation_id, sampling_time_start, sampling_time_end, sta_identifier, "
+                    + "value_quantity) select x, 'quantity', 1, null, dateadd('SECOND', x, timestamp '2020-01-01 "
+                    + "00:00:00'), dateadd('SECOND', x, timestamp '2020-01-01 00:00:00'), 'o' || x, x from "
+                    + "system_range(1, " + OBSERVATIONS + ")");
+            execute(session, "insert into observation (observation_id, value_type, fk_dataset_id, "
+                    + "fk_parent_observation_id, sampling_time_start, sampling_time_end, sta_identifier) values "
+                    + "(1000, 'profile', 2, null, current_timestamp, current_timestamp, 'profile'), "
+                    + "(1001, 'quantity', 2, 1000, current_timestamp, current_timestamp, 'child')");
+            execute(session, "insert into parameter (parameter_id, type, name) values (1, 'text', 'height')");
+            execute(session, "insert into observation_parameter (fk_observation_id, fk_parameter_id) values (1, 1)");
+        });
+    }
+
+    @Override
+    protected void configure(Configuration configuration) {
+        configuration.setProperty(AvailableSettings.GENERATE_STATISTICS, "true");
+    }
+
+    @Test
+    public void test_hashing_loaded_observations_executes_no_statements() {
+        inTransaction(session -> {
+            List<QuantityDataEntity> loaded = session
+                    .createQuery("from QuantityDataEntity where parent is null", QuantityDataEntity.class).list();
+            Statistics statistics = resetStatistics();
+            Set<DataEntity<?>> observations = new HashSet<>(loaded);
+            for (QuantityDataEntity observation : loaded) {
+                Assertions.assertTrue(
+                        observations.contains(session.load(QuantityDataEntity.class, observation.getId())));
+            }
+            Assertions.assertEquals(OBSERVATIONS, observations.size());
+            Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+            Assertions.assertFalse(Hibernate.isInitialized(loaded.get(0).getDataset()));
+            Assertions.assertFalse(Hibernate.isInitialized(loaded.get(0).getParameters()));
+        });
+    }
+
+    @Test
+    public void test_hashing_a_profile_does_not_load_the_children() {
+        inTransaction(session -> {
+            ProfileDataEntity profile = session.get(ProfileDataEntity.class, 1000L);
+            Statistics statistics = resetStatistics();
+            Set<DataEntity<?>> observations = new HashSet<>();
+            observations.add(profile);
+            Assertions.assertTrue(observations.contains(profile));
+            Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+            Assertions.assertFalse(Hibernate.isInitialized(profile.getValue()));
+        });
+    }
+
+    @Test
+    public void test_comparing_with_a_proxy_does_not_initialize_it() {
+        Session other = getSessionFactory().openSession();
+        try {
+            QuantityDataEntity observation = other.get(QuantityDataEntity.class, 1L);
+            inTransaction(session -> {
+                QuantityDataEntity proxy = session.load(QuantityDataEntity.class, 1L);
+                Statistics statistics = resetStatistics();
+                Assertions.assertTrue(observation.equals(proxy));
+                Assertions.assertFalse(observation.equals(session.load(QuantityDataEntity.class, 2L)));
+                Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+                Assertions.assertFalse(Hibernate.isInitialized(proxy));
+                // the proxy delegates to the initialized observation
+                Assertions.assertTrue(proxy.equals(observation));
+                Assertions.assertEquals(observation.hashCode(), proxy.hashCode());
+            });
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void test_saved_observation_has_the_hash_code_of_the_loaded_observation() {
+        QuantityDataEntity saved = new QuantityDataEntity();
+        inTransaction(session -> {
+            saved.setDataset(session.load(DatasetEntity.class, 1L));
+            saved.setSamplingTimeStart(new Date(0));
+            saved.setSamplingTimeEnd(new Date(0));
+            saved.setStaIdentifier("saved");
+            saved.setValue(BigDecimal.ONE);
+            session.save(saved);
+        });
+        Assertions.assertNotNull(saved.getId());
+        inTransaction(session -> {
+            QuantityDataEntity loaded = session.get(QuantityDataEntity.class, saved.getId());
+            Assertions.assertEquals(saved, loaded);
+            Assertions.assertEquals(loaded, saved);
+            Assertions.assertEquals(saved.hashCode(), loaded.hashCode());
+        });
+    }
+
+    @Test
+    public void test_saved_parameter_stays_in_hash_based_collections() {
+        ParameterTextEntity saved = new ParameterTextEntity();
+        saved.setName("depth");
+        saved.setValue("1");
+        Set<ParameterEntity<?>> parameters = new HashSet<>();
+        parameters.add(saved);
+        inTransaction(session -> session.save(saved));
+        Assertions.assertNotNull(saved.getId());
+        Assertions.assertTrue(parameters.contains(saved));
+        inTransaction(session -> {
+            ParameterEntity<?> loaded = session.get(ParameterEntity.class, saved.getId());
+            Assertions.assertTrue(parameters.contains(loaded));
+            Assertions.assertEquals(saved.hashCode(), loaded.hashCode());
+        });
+    }
+
+    private Statistics resetStatistics() {
+        Statistics statistics = getSessionFactory().getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+}
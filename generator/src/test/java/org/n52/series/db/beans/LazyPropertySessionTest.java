@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import org.hibernate.Hibernate;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.Managed;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+
+/**
+ * Loads entities of the classes enhanced by the entities module and checks that the lazy columns are loaded
+ * with the first access.
+ */
+public class LazyPropertySessionTest extends AbstractTransactionalSchemaTest {
+
+    private static final String STRUCTURE = "<swe:DataRecord/>";
+
+    @BeforeEach
+    public void setUp() {
+        inTransaction(session -> execute(session,
+                "insert into result_template (result_template_id, "
+                        + "fk_offering_id, fk_phenomenon_id, identifier, structure, encoding) values "
+                        + "(1, 1, 1, 'template', '" + STRUCTURE + "', '<swe:TextEncoding/>')"));
+    }
+
+    @Override
+    protected void configure(Configuration configuration) {
+        configuration.setProperty(AvailableSettings.GENERATE_STATISTICS, "true");
+    }
+
+    @Test
+    public void test_structure_is_loaded_on_first_access() {
+        inTransaction(session -> {
+            ResultTemplateEntity template = session.get(ResultTemplateEntity.class, 1L);
+            Assertions.assertEquals("template", template.getIdentifier());
+            Assertions.assertFalse(Hibernate.isPropertyInitialized(template, "structure"));
+            Assertions.assertFalse(Hibernate.isPropertyInitialized(template, "encoding"));
+            Statistics statistics = getSessionFactory().getStatistics();
+            statistics.clear();
+            Assertions.assertEquals(STRUCTURE, template.getStructure());
+            Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+            Assertions.assertTrue(Hibernate.isPropertyInitialized(template, "structure"));
+            Assertions.assertTrue(Hibernate.isPropertyInitialized(template, "encoding"));
+        });
+    }
+
+    @Test
+    public void test_only_classes_with_lazy_properties_are_enhanced() {
+        Assertions.assertTrue(Managed.class.isAssignableFrom(ResultTemplateEntity.class));
+        Assertions.assertTrue(Managed.class.isAssignableFrom(FeatureEntity.class));
+        Assertions.assertTrue(Managed.class.isAssignableFrom(DataArrayDataEntity.class));
+        Assertions.assertFalse(Managed.class.isAssignableFrom(DataEntity.class));
+        Assertions.assertFalse(Managed.class.isAssignableFrom(QuantityDataEntity.class));
+        Assertions.assertFalse(Managed.class.isAssignableFrom(DatasetEntity.class));
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.beans;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+
+/**
+ * Enables the visibility filters of observations and datasets and checks the rows they exclude.
+ */
+public class VisibilityFilterSessionTest extends AbstractTransactionalSchemaTest {
+
+    @BeforeEach
+    public void setUp() {
+        inTransaction(session -> {
+            execute(session,
+                    "insert into dataset (dataset_id, fk_procedure_id, fk_phenomenon_id, fk_offering_id, "
+                            + "fk_category_id, is_deleted, is_disabled, is_published, is_hidden) values "
+                            + "(3, 1, 1, 1, 1, 1, 0, 1, 0), (4, 1, 1, 1, 1, 0, 1, 1, 0), (5, 1, 1, 1, 1, 0, 0, 0, 0), "
+                            + "(6, 1, 1, 1, 1, 0, 0, 1, 1)");
+            execute(session, "insert into observation (observation_id, value_type, fk_dataset_id, "
+                    + "sampling_time_start, sampling_time_end, sta_identifier, value_quantity, is_deleted) values "
+                    + "(1, 'quantity', 1, current_timestamp, current_timestamp, 'o1', 1, 0), "
+                    + "(2, 'quantity', 1, current_timestamp, current_timestamp, 'o2', 2, 1)");
+        });
+    }
+
+    @Test
+    public void test_observation_filter_excludes_deleted_observations() {
+        inTransaction(session -> {
+            Assertions.assertEquals(2, getObservations(session).size());
+            session.enableFilter(DataEntity.FILTER_NOT_DELETED);
+            Assertions.assertEquals(1L, getObservations(session).get(0).longValue());
+            Assertions.assertEquals(1, getObservations(session).size());
+        });
+    }
+
+    @Test
+    public void test_dataset_filters_exclude_invisible_datasets() {
+        inTransaction(session -> {
+            Assertions.assertEquals(6, getDatasets(session).size());
+            session.enableFilter(DatasetEntity.FILTER_NOT_DELETED);
+            Assertions.assertFalse(getDatasets(session).contains(3L));
+            session.enableFilter(DatasetEntity.FILTER_NOT_DISABLED);
+            Assertions.assertFalse(getDatasets(session).contains(4L));
+            session.enableFilter(DatasetEntity.FILTER_PUBLISHED);
+            Assertions.assertFalse(getDatasets(session).contains(5L));
+            session.enableFilter(DatasetEntity.FILTER_NOT_HIDDEN);
+            Assertions.assertEquals(2, getDatasets(session).size());
+            Assertions.assertTrue(getDatasets(session).containsAll(Arrays.asList(1L, 2L)));
+        });
+    }
+
+    private List<Long> getObservations(Session session) {
+        return session.createQuery("from DataEntity", DataEntity.class).list().stream().map(DataEntity::getId)
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> getDatasets(Session session) {
+        return session.createQuery("from DatasetEntity", DatasetEntity.class).list().stream().map(DatasetEntity::getId)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.deletion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.n52.hibernate.spatial.dialect.TimestampWithTimeZoneGeoDBDialectNoComments;
+import org.n52.hibernate.type.SmallBooleanType;
+
+/**
+ * Creates a schema of the transactional concept in H2 without <code>ON DELETE CASCADE</code> foreign keys, so
+ * every dependent row has to be deleted before the row it references. The schema contains the datasets 1 and
+ * 2. Subclasses can create the schema of another concept with {@link #getConcept()} and change the
+ * configuration with {@link #configure(Configuration)}.
+ */
+public abstract class AbstractTransactionalSchemaTest {
+
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    public void createSchema() throws IOException, URISyntaxException {
+        Configuration configuration = new Configuration();
+        configuration.setProperty(AvailableSettings.DIALECT,
+                TimestampWithTimeZoneGeoDBDialectNoComments.class.getName());
+        configuration.setProperty(AvailableSettings.URL, "jdbc:h2:mem:deletion;DB_CLOSE_DELAY=-1");
+        configuration.setProperty(AvailableSettings.USER, "sa");
+        configuration.setProperty(AvailableSettings.PASS, "");
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        addMappings("/hbm/" + getConcept() + "/core", configuration::addInputStream);
+        addMappings("/hbm/" + getConcept() + "/dataset", configuration::addInputStream);
+        configuration.registerTypeOverride(SmallBooleanType.INSTANCE);
+        configure(configuration);
+        sessionFactory = configuration.buildSessionFactory();
+        inTransaction(session -> {
+            execute(session, "insert into format (format_id, definition) values (1, 'format')");
+            execute(session, "insert into category (category_id, identifier) values (1, 'c1'), (2, 'c2')");
+            execute(session,
+                    "insert into phenomenon (phenomenon_id, identifier, sta_identifier) values (1, 'p', 'p')");
+            execute(session, "insert into \"procedure\" (procedure_id, identifier, sta_identifier, fk_format_id) "
+                    + "values (1, 'p', 'p', 1)");
+            execute(session, "insert into offering (offering_id, identifier) values (1, 'o')");
+            execute(session, "insert into dataset (dataset_id, fk_procedure_id, fk_phenomenon_id, fk_offering_id, "
+                    + "fk_category_id) values (1, 1, 1, 1, 1), (2, 1, 1, 1, 2)");
+        });
+    }
+
+    @AfterEach
+    public void dropSchema() {
+        sessionFactory.close();
+    }
+
+    protected void configure(Configuration configuration) {
+    }
+
+    protected String getConcept() {
+        return "transactional";
+    }
+
+    protected SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    protected void inTransaction(Consumer<Session> work) {
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            work.accept(session);
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+    }
+
+    protected void execute(Session session, String sql) {
+        session.createNativeQuery(sql).executeUpdate();
+    }
+
+    protected long count(Session session, String table) {
+        return ((Number) session.createNativeQuery("select count(*) from " + table).getSingleResult()).longValue();
+    }
+
+    /**
+     * Passes the mapping files of the directory to the consumer, also when the mappings are read from the jar
+     * of the mappings module.
+     */
+    public static void addMappings(String path, Consumer<InputStream> mappings)
+            throws IOException, URISyntaxException {
+        URI uri = AbstractTransactionalSchemaTest.class.getResource(path).toURI();
+        if ("jar".equals(uri.getScheme())) {
+            try (FileSystem fileSystem = FileSystems.newFileSystem(uri, Collections.emptyMap())) {
+                addMappings(fileSystem.getPath(path), mappings);
+            }
+        } else {
+            addMappings(Paths.get(uri), mappings);
+        }
+    }
+
+    private static void addMappings(Path directory, Consumer<InputStream> mappings) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> p.toString().endsWith(".hbm.xml")).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            try (InputStream in = Files.newInputStream(file)) {
+                mappings.accept(in);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.deletion;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.cache.LatestValueCache;
+
+public class DatasetDeletionTest extends AbstractTransactionalSchemaTest {
+
+    @BeforeEach
+    public void setUp() {
+        inTransaction(session -> {
+            execute(session, "insert into observation (observation_id, value_type, fk_dataset_id, "
+                    + "fk_parent_observation_id, sampling_time_start, sampling_time_end, sta_identifier) values "
+                    + "(1, 'profile', 1, null, current_timestamp, current_timestamp, 'o1'), "
+                    + "(2, 'quantity', 1, 1, current_timestamp, current_timestamp, 'o2'), "
+                    + "(3, 'quantity', 2, null, current_timestamp, current_timestamp, 'o3')");
+            execute(session, "update dataset set fk_first_observation_id = 1, fk_last_observation_id = 1 "
+                    + "where dataset_id = 1");
+            execute(session, "insert into parameter (parameter_id, type, name) values "
+                    + "(1, 'text', 'observation'), (2, 'text', 'dataset'), (3, 'text', 'kept')");
+            execute(session, "insert into observation_parameter (fk_observation_id, fk_parameter_id) values "
+                    + "(2, 1), (3, 3)");
+            execute(session, "insert into dataset_parameter (fk_dataset_id, fk_parameter_id) values (1, 2)");
+            execute(session, "insert into observation_i18n (fk_observation_id, locale) values (1, 'en')");
+            execute(session, "insert into dataset_i18n (fk_dataset_id, locale) values (1, 'en'), (2, 'en')");
+            execute(session, "insert into related_observation (fk_observation_id, fk_related_observation_id) "
+                    + "values (3, 1)");
+            execute(session, "insert into value_blob (fk_observation_id) values (2)");
+            execute(session, "insert into related_dataset (fk_dataset_id, fk_related_dataset_id) values (2, 1)");
+            execute(session, "insert into dataset_reference (fk_dataset_id_from, sort_order, fk_dataset_id_to) "
+                    + "values (2, 0, 1)");
+            execute(session, "insert into retention_policy (fk_dataset_id, retention) values (1, 1000)");
+        });
+    }
+
+    @Test
+    public void test_dependent_rows_are_deleted_without_cascading_foreign_keys() {
+        inTransaction(session -> Assertions.assertEquals(2, new DatasetDeletion().delete(session, 1L)));
+        inTransaction(session -> {
+            Assertions.assertEquals(1, count(session, "dataset"));
+            Assertions.assertEquals(1, count(session, "observation"));
+            Assertions.assertEquals(1, count(session, "parameter"));
+            Assertions.assertEquals(1, count(session, "observation_parameter"));
+            Assertions.assertEquals(0, count(session, "dataset_parameter"));
+            Assertions.assertEquals(0, count(session, "observation_i18n"));
+            Assertions.assertEquals(1, count(session, "dataset_i18n"));
+            Assertions.assertEquals(0, count(session, "related_observation"));
+            Assertions.assertEquals(0, count(session, "value_blob"));
+            Assertions.assertEquals(0, count(session, "related_dataset"));
+            Assertions.assertEquals(0, count(session, "dataset_reference"));
+            Assertions.assertEquals(0, count(session, "retention_policy"));
+        });
+    }
+
+    @Test
+    public void test_latest_value_is_invalidated_after_the_transaction() {
+        LatestValueCache cache = new LatestValueCache();
+        QuantityDataEntity data = new QuantityDataEntity();
+        data.setId(3L);
+        data.setDatasetId(2L);
+        data.setSamplingTimeEnd(new Date());
+        data.setValue(BigDecimal.ONE);
+        cache.update(data);
+        inTransaction(session -> {
+            new DatasetDeletion(cache).delete(session, 2L);
+            Assertions.assertNotNull(cache.get(2L));
+        });
+        Assertions.assertNull(cache.get(2L));
+    }
+
+    @Test
+    public void test_parameters_are_deleted_in_batches() {
+        inTransaction(session -> {
+            execute(session, "insert into parameter (parameter_id, type, name) select x + 10, 'text', 'batch' "
+                    + "from system_range(1, " + (DatasetDeletion.PARAMETER_BATCH_SIZE + 1) + ")");
+            execute(session, "insert into observation_parameter (fk_observation_id, fk_parameter_id) "
+                    + "select 1, parameter_id from parameter where parameter_id > 10");
+        });
+        inTransaction(session -> new DatasetDeletion().delete(session, 1L));
+        inTransaction(session -> {
+            Assertions.assertEquals(1, count(session, "parameter"));
+            Assertions.assertEquals(1, count(session, "observation_parameter"));
+        });
+    }
+
+}
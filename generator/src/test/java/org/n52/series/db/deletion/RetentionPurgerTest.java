@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.deletion;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.cache.LatestValueCache;
+
+public class RetentionPurgerTest extends AbstractTransactionalSchemaTest {
+
+    @BeforeEach
+    public void setUp() {
+        inTransaction(session -> {
+            for (int i = 1; i <= 5; i++) {
+                execute(session,
+                        String.format("insert into observation (observation_id, value_type, fk_dataset_id, "
+                                + "sampling_time_start, sampling_time_end, sta_identifier, value_quantity) values "
+                                + "(%d, 'quantity', 1, '2020-01-0%<d', '2020-01-0%<d', 'o%<d', %<d)", i));
+            }
+            execute(session,
+                    "update dataset set fk_first_observation_id = 1, first_time = '2020-01-01', "
+                            + "first_value = 1, fk_last_observation_id = 5, last_time = '2020-01-05', last_value = 5 "
+                            + "where dataset_id = 1");
+            execute(session, "insert into parameter (parameter_id, type, name) values (1, 'text', 'p')");
+            execute(session, "insert into observation_parameter (fk_observation_id, fk_parameter_id) values (2, 1)");
+            execute(session, "insert into observation_i18n (fk_observation_id, locale) values (1, 'en')");
+            execute(session, "insert into related_observation (fk_observation_id, fk_related_observation_id) "
+                    + "values (5, 1)");
+        });
+    }
+
+    @Test
+    public void test_expired_observations_are_purged_in_chunks() {
+        LatestValueCache cache = new LatestValueCache();
+        Session session = getSessionFactory().openSession();
+        try {
+            DatasetEntity dataset = session.get(DatasetEntity.class, 1L);
+            cache.warmUp(Collections.singleton(dataset));
+            Assertions.assertNotNull(cache.get(1L));
+            Assertions.assertEquals(3,
+                    new RetentionPurger(2, cache).purge(session, dataset, Timestamp.valueOf("2020-01-04 00:00:00")));
+            Assertions.assertNull(cache.get(1L));
+        } finally {
+            session.close();
+        }
+        inTransaction(session2 -> {
+            Assertions.assertEquals(2, count(session2, "observation"));
+            Assertions.assertEquals(0, count(session2, "parameter"));
+            Assertions.assertEquals(0, count(session2, "observation_parameter"));
+            Assertions.assertEquals(0, count(session2, "observation_i18n"));
+            Assertions.assertEquals(0, count(session2, "related_observation"));
+            Object[] summary = (Object[]) session2.createNativeQuery(
+                    "select fk_first_observation_id, " + "fk_last_observation_id from dataset where dataset_id = 1")
+                    .getSingleResult();
+            Assertions.assertEquals(4L, ((Number) summary[0]).longValue());
+            Assertions.assertEquals(5L, ((Number) summary[1]).longValue());
+        });
+    }
+
+    @Test
+    public void test_summary_is_removed_with_the_last_observation() {
+        Session session = getSessionFactory().openSession();
+        try {
+            DatasetEntity dataset = session.get(DatasetEntity.class, 1L);
+            Assertions.assertEquals(5,
+                    new RetentionPurger(2).purge(session, dataset, Timestamp.valueOf("2021-01-01 00:00:00")));
+        } finally {
+            session.close();
+        }
+        inTransaction(session2 -> {
+            Assertions.assertEquals(0, count(session2, "observation"));
+            Object[] summary = (Object[]) session2.createNativeQuery(
+                    "select fk_first_observation_id, " + "fk_last_observation_id from dataset where dataset_id = 1")
+                    .getSingleResult();
+            Assertions.assertNull(summary[0]);
+            Assertions.assertNull(summary[1]);
+        });
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.ereporting;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.ereporting.EReportingProfileDataEntity;
+import org.n52.series.db.beans.ereporting.EReportingQualityAggregator;
+import org.n52.series.db.beans.ereporting.EReportingQualityEntity;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+
+public class EReportingQualityEventListenerTest extends AbstractTransactionalSchemaTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static final String PRIMARY_OBSERVATION = "hour";
+
+    @BeforeEach
+    public void setUp() {
+        EReportingQualityEventListener.register(getSessionFactory(), new EReportingQualityAggregator());
+    }
+
+    @Override
+    protected String getConcept() {
+        return "ereporting";
+    }
+
+    @Test
+    public void test_inserted_observations_are_aggregated_on_commit() {
+        insert(1, "2020-01-15 10:00:00", "2020-01-15 11:00:00", 1);
+        insert(2, "2020-01-15 11:00:00", "2020-01-15 12:00:00", -1);
+        inTransaction(session -> {
+            EReportingQualityEntity quality = getQuality(session);
+            Assertions.assertEquals(2, quality.getObservationCount());
+            Assertions.assertEquals(1, quality.getValidCount());
+            Assertions.assertEquals(2 * HOUR, quality.getCoveredTime());
+            Assertions.assertEquals(HOUR, quality.getValidTime());
+        });
+    }
+
+    @Test
+    public void test_overlapping_observations_are_counted_once() {
+        insert(1, "2020-01-15 10:00:00", "2020-01-15 11:00:00", 1);
+        insert(2, "2020-01-15 10:30:00", "2020-01-15 11:30:00", 1);
+        inTransaction(session -> {
+            EReportingQualityEntity quality = getQuality(session);
+            Assertions.assertEquals(2, quality.getObservationCount());
+            Assertions.assertEquals(90 * 60 * 1000L, quality.getCoveredTime());
+        });
+    }
+
+    @Test
+    public void test_updated_and_deleted_observations_are_removed() {
+        insert(1, "2020-01-15 10:00:00", "2020-01-15 11:00:00", 1);
+        insert(2, "2020-01-15 10:30:00", "2020-01-15 11:30:00", 1);
+        inTransaction(session -> {
+            QuantityDataEntity data = session.get(QuantityDataEntity.class, 1L);
+            data.getEreportingProfile().setValidation(-1);
+            session.delete(session.get(QuantityDataEntity.class, 2L));
+        });
+        inTransaction(session -> {
+            EReportingQualityEntity quality = getQuality(session);
+            Assertions.assertEquals(1, quality.getObservationCount());
+            Assertions.assertEquals(0, quality.getValidCount());
+            Assertions.assertEquals(HOUR, quality.getCoveredTime());
+            Assertions.assertEquals(0, quality.getValidTime());
+        });
+    }
+
+    private EReportingQualityEntity getQuality(Session session) {
+        return session.createNamedQuery(EReportingQualityEntity.QUERY_QUALITY, EReportingQualityEntity.class)
+                .setParameter(EReportingQualityEntity.PARAMETER_DATASET, 1L)
+                .setParameter(EReportingQualityEntity.PARAMETER_YEAR, 2020)
+                .setParameter(EReportingQualityEntity.PARAMETER_PRIMARY_OBSERVATION, PRIMARY_OBSERVATION)
+                .uniqueResult();
+    }
+
+    private void insert(long id, String start, String end, int validation) {
+        try (Session session = getSessionFactory().openSession()) {
+            Transaction transaction = session.beginTransaction();
+            QuantityDataEntity data = new QuantityDataEntity();
+            data.setDataset(session.load(DatasetEntity.class, 1L));
+            data.setSamplingTimeStart(Timestamp.valueOf(start));
+            data.setSamplingTimeEnd(Timestamp.valueOf(end));
+            data.setStaIdentifier("o" + id);
+            data.setValue(BigDecimal.ONE);
+            EReportingProfileDataEntity profile = new EReportingProfileDataEntity();
+            profile.setPrimaryObservation(PRIMARY_OBSERVATION);
+            profile.setValidation(validation);
+            data.setEreportingProfile(profile);
+            session.save(data);
+            transaction.commit();
+        }
+    }
+
+}
@@ -16,13 +16,98 @@
  */
 package org.n52.series.db.generator;
 
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.n52.hibernate.spatial.dialect.TimestampMySQL8SpatialDialectNoComments;
+import org.n52.hibernate.spatial.dialect.TimestampWithTimeZoneSqlServer2012SpatialDialectNoComments;
+import org.n52.hibernate.type.SmallBooleanType;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+import org.n52.series.db.generator.AbstractGenerator.DialectSelector;
 
 public class SQLScriptGeneratorTest {
 
+    @TempDir
+    public Path directory;
+
+    private StandardServiceRegistry serviceRegistry;
+
     // @Test
     public void test_generation() throws Exception {
         Assertions.assertTrue(SQLScriptGenerator.getInstance(false).execute(1));
     }
 
+    @AfterEach
+    public void destroy() {
+        if (serviceRegistry != null) {
+            StandardServiceRegistryBuilder.destroy(serviceRegistry);
+        }
+    }
+
+    @Test
+    public void test_sql_server_triggers_are_qualified_and_created_in_own_batches() throws Exception {
+        String create = createScript(DialectSelector.SQL_SERVER,
+                TimestampWithTimeZoneSqlServer2012SpatialDialectNoComments.class, "sos");
+        Assertions.assertTrue(create.contains("create trigger sos.trg_offering_extent_insert on sos.observation"));
+        Assertions.assertTrue(create.contains("create trigger sos.trg_datastream_extent_insert on sos.observation"));
+        Assertions.assertTrue(create.contains("create trigger sos.trg_observation_change on sos.observation"));
+        Assertions.assertTrue(create.contains("create index idx_observation_live on sos.observation"));
+        Assertions.assertTrue(create.contains("create index idx_dataset_visible on sos.dataset"));
+        int trigger = create.indexOf("create trigger sos.trg_offering_extent_insert");
+        Assertions.assertTrue(create.substring(0, trigger).trim().endsWith(";\nGO"));
+    }
+
+    @Test
+    public void test_mysql_procedures_are_terminated_by_the_delimiter() throws Exception {
+        String create = createScript(DialectSelector.MYSQL, TimestampMySQL8SpatialDialectNoComments.class, "sos");
+        Assertions.assertTrue(create.startsWith("DELIMITER //\n"));
+        Assertions.assertTrue(create.contains("create procedure sos.refresh_offering_extent()"));
+        Assertions.assertTrue(create.contains("create trigger sos.trg_observation_change_delete after delete on "
+                + "sos.observation for each row\ninsert into sos.observation_change"));
+        int procedure = create.indexOf("create procedure sos.refresh_offering_extent()");
+        int end = create.indexOf("\n//", procedure);
+        Assertions.assertTrue(create.substring(procedure, end).trim().endsWith("end"));
+        Assertions.assertTrue(create.contains("create event sos.evt_offering_extent_refresh on schedule every "
+                + "1 minute do call sos.refresh_offering_extent()"));
+    }
+
+    @Test
+    public void test_objects_are_unqualified_without_schema() throws Exception {
+        String create = createScript(DialectSelector.SQL_SERVER,
+                TimestampWithTimeZoneSqlServer2012SpatialDialectNoComments.class, null);
+        Assertions.assertTrue(create.contains("create trigger trg_offering_extent_insert on observation"));
+        Assertions.assertFalse(create.contains(" .observation"));
+        Assertions.assertFalse(create.contains("${schema}"));
+    }
+
+    private String createScript(DialectSelector dialect, Class<?> dialectClass, String schema)
+            throws IOException, URISyntaxException {
+        StandardServiceRegistryBuilder builder =
+                new StandardServiceRegistryBuilder().applySetting(AvailableSettings.DIALECT, dialectClass.getName())
+                        .applySetting("hibernate.temp.use_jdbc_metadata_defaults", "false");
+        if (schema != null) {
+            builder.applySetting(AvailableSettings.DEFAULT_SCHEMA, schema);
+        }
+        serviceRegistry = builder.build();
+        MetadataSources metadataSources = new MetadataSources(serviceRegistry);
+        AbstractTransactionalSchemaTest.addMappings("/hbm/transactional/core", metadataSources::addInputStream);
+        AbstractTransactionalSchemaTest.addMappings("/hbm/transactional/dataset", metadataSources::addInputStream);
+        Metadata metadata = metadataSources.getMetadataBuilder().applyBasicType(SmallBooleanType.INSTANCE).build();
+        Path create = directory.resolve("create.sql");
+        SQLScriptGenerator.createScripts(metadata, dialect, create, directory.resolve("drop.sql"), false);
+        return new String(Files.readAllBytes(create), StandardCharsets.UTF_8);
+    }
+
 }
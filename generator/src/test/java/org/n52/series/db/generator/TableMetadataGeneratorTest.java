@@ -16,13 +16,71 @@
  */
 package org.n52.series.db.generator;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.n52.hibernate.spatial.dialect.postgis.TimestampWithTimeZonePostgisPG95Dialect;
+import org.n52.hibernate.type.SmallBooleanType;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
 
 public class TableMetadataGeneratorTest {
 
+    @TempDir
+    public Path directory;
+
+    private StandardServiceRegistry serviceRegistry;
+
     // @Test
     public void test_generation() throws Exception {
         Assertions.assertTrue(TableMetadataGenerator.getInstance().execute(1));
     }
 
+    @AfterEach
+    public void destroy() {
+        if (serviceRegistry != null) {
+            StandardServiceRegistryBuilder.destroy(serviceRegistry);
+        }
+    }
+
+    @Test
+    public void test_index_advice_lists_unindexed_foreign_keys() throws Exception {
+        serviceRegistry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, TimestampWithTimeZonePostgisPG95Dialect.class.getName())
+                .applySetting("hibernate.temp.use_jdbc_metadata_defaults", "false")
+                .applySetting(AvailableSettings.DEFAULT_SCHEMA, "sos").build();
+        MetadataSources metadataSources = new MetadataSources(serviceRegistry);
+        AbstractTransactionalSchemaTest.addMappings("/hbm/transactional/core", metadataSources::addInputStream);
+        AbstractTransactionalSchemaTest.addMappings("/hbm/transactional/dataset", metadataSources::addInputStream);
+        Metadata metadata = metadataSources.getMetadataBuilder().applyBasicType(SmallBooleanType.INSTANCE).build();
+        Path advice = directory.resolve("advice.md");
+        Path script = directory.resolve("advice.sql");
+        TableMetadataGenerator.createIndexAdvice(metadata, new TimestampWithTimeZonePostgisPG95Dialect(), advice,
+                script);
+
+        List<String> rows = Files.readAllLines(advice, StandardCharsets.UTF_8);
+        Assertions.assertTrue(rows.contains("| dataset | fk_category_id | category | idx_dataset_fk_category_id |"));
+        // the dataset of the observations is the leading column of an index
+        Assertions.assertTrue(rows.stream().noneMatch(row -> row.startsWith("| observation | fk_dataset_id |")));
+        // names exceeding 30 characters are replaced by generated names
+        Assertions.assertTrue(rows.stream().anyMatch(
+                row -> row.matches("\\| dataset \\| fk_first_observation_id \\| observation \\| idx_\\w{25} \\|")));
+        List<String> statements = Files.readAllLines(script, StandardCharsets.UTF_8);
+        Assertions.assertTrue(
+                statements.contains("create index idx_dataset_fk_category_id on sos.dataset (fk_category_id);"));
+        Assertions.assertEquals(rows.stream()
+                .filter(row -> row.startsWith("| ") && !row.startsWith("| table") && !row.startsWith("| ---")).count(),
+                statements.size());
+    }
+
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.generator.migration;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MigrationRunnerTest {
+
+    @Test
+    public void test_postgis_script() {
+        List<String> script = new MigrationRunner(new MigrationContext(MigrationDialect.POSTGIS, "public"))
+                .script(Migrations.update130To200());
+        Assertions.assertTrue(script
+                .contains("alter table public.observation add column if not exists sta_identifier varchar(255);"));
+        Assertions.assertTrue(script.contains("update public.observation set sta_identifier = "
+                + "cast(observation_id as varchar) where sta_identifier is null;"));
+        Assertions.assertTrue(script
+                .contains("alter table public.observation validate constraint " + "ck_observation_sta_identifier;"));
+        Assertions.assertTrue(script.contains("create unique index concurrently if not exists "
+                + "un_observation_staIdentifier on public.observation (sta_identifier);"));
+    }
+
+    @Test
+    public void test_observation_index_script() {
+        List<String> script = new MigrationRunner(new MigrationContext(MigrationDialect.POSTGIS, "public"))
+                .script(Migrations.update200To300());
+        Assertions.assertTrue(script.contains("create index concurrently if not exists idx_observation_dataset_end "
+                + "on public.observation (fk_dataset_id, sampling_time_end);"));
+    }
+
+    @Test
+    public void test_latest_historical_location_script() {
+        List<String> script = new MigrationRunner(new MigrationContext(MigrationDialect.POSTGIS, "public"))
+                .script(Migrations.update200To300());
+        String backfill = "update public.platform set fk_latest_historical_location_id = (select "
+                + "max(h.historical_location_id) from public.historical_location h where h.fk_thing_id = platform_id "
+                + "and h.time = (select max(l.time) from public.historical_location l where l.fk_thing_id = "
+                + "platform_id));";
+        String foreignKey = "alter table public.platform add constraint fk_platform_latest_hist_loc foreign key "
+                + "(fk_latest_historical_location_id) references public.historical_location (historical_location_id) "
+                + "not valid;";
+        Assertions.assertTrue(script.contains(backfill));
+        Assertions.assertTrue(script.indexOf(foreignKey) > script.indexOf(backfill));
+        Assertions.assertTrue(
+                script.contains("alter table public.platform validate constraint fk_platform_latest_hist_loc;"));
+    }
+
+    @Test
+    public void test_backfill_is_batched_and_resumable() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:migration", "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table observation (observation_id bigint primary key)");
+                for (int i = 1; i <= 25; i++) {
+                    statement.execute("insert into observation values (" + i + ")");
+                }
+            }
+            Migration migration = new Migration("test").addColumn("observation", "sta_identifier", ColumnType.STRING)
+                    .backfill("observation", "sta_identifier", "observation_id", d -> d.castToString("observation_id"))
+                    .setNotNull("observation", "sta_identifier", ColumnType.STRING);
+            MigrationContext context =
+                    new MigrationContext(connection, MigrationDialect.GEODB_H2, null).setBatchSize(10);
+            Assertions.assertEquals(3, new MigrationRunner(context).run(migration));
+            Assertions.assertEquals(Long.valueOf(31), context.getLastKey("test.observation.sta_identifier.backfill"));
+            try (Statement statement = connection.createStatement();
+                    ResultSet rs =
+                            statement.executeQuery("select count(*) from observation where sta_identifier is null")) {
+                rs.next();
+                Assertions.assertEquals(0, rs.getInt(1));
+            }
+            Assertions.assertEquals(0, new MigrationRunner(context).run(migration));
+        }
+    }
+
+    @Test
+    public void test_backfill_fills_rows_behind_the_cursor() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:migration_cursor", "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table observation (observation_id bigint primary key, "
+                        + "sta_identifier varchar(255))");
+                for (int i = 1; i <= 25; i++) {
+                    statement.execute("insert into observation values (" + i + ", null)");
+                }
+            }
+            Migration migration = new Migration("test")
+                    .backfill("observation", "sta_identifier", "observation_id", d -> d.castToString("observation_id"))
+                    .setNotNull("observation", "sta_identifier", ColumnType.STRING);
+            MigrationContext context =
+                    new MigrationContext(connection, MigrationDialect.GEODB_H2, null).setBatchSize(10);
+            // an interrupted run which committed the batches up to 20 before the rows below were inserted
+            context.initProgress();
+            context.saveProgress("test.observation.sta_identifier.backfill", 20L, false);
+            Assertions.assertEquals(2, new MigrationRunner(context).run(migration));
+            try (Statement statement = connection.createStatement();
+                    ResultSet rs =
+                            statement.executeQuery("select count(*) from observation where sta_identifier is null")) {
+                rs.next();
+                Assertions.assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+
+}
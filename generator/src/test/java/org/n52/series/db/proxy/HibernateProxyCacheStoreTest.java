@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.proxy;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.ProxyCacheChunkEntity;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+
+public class HibernateProxyCacheStoreTest extends AbstractTransactionalSchemaTest {
+
+    @Override
+    protected String getConcept() {
+        return "proxy";
+    }
+
+    @Test
+    public void test_chunks_are_cached_and_evicted_with_queries() throws Exception {
+        read(1, "2020-01-01 00:00:00", "2020-01-01 01:00:00", "2020-01-01 00:00:00");
+        read(2, "2020-01-01 00:00:00", "2020-01-01 01:00:00", "2020-01-01 00:10:00");
+        read(1, "2020-01-01 00:00:00", "2020-01-01 01:00:00", "2020-01-01 00:20:00");
+        read(1, "2020-01-01 01:00:00", "2020-01-01 02:00:00", "2020-01-01 00:30:00");
+        inTransaction(session -> {
+            HibernateProxyCacheStore store = new HibernateProxyCacheStore(session);
+            Assertions.assertEquals(12, store.getSize());
+            Assertions.assertTrue(store.getChunks(2L).isEmpty());
+            List<ProxyCacheChunkEntity> chunks = store.getChunks(1L, Timestamp.valueOf("2020-01-01 00:00:00"),
+                    Timestamp.valueOf("2020-01-01 01:00:00"));
+            Assertions.assertEquals(1, chunks.size());
+            Assertions.assertEquals(Timestamp.valueOf("2020-01-01 00:20:00").getTime(),
+                    chunks.get(0).getLastAccess().getTime());
+            Assertions.assertEquals(Timestamp.valueOf("2020-01-01 00:00:00").getTime(),
+                    chunks.get(0).getFetched().getTime());
+        });
+    }
+
+    @Test
+    public void test_chunks_are_deleted_by_id() {
+        read(1, "2020-01-01 00:00:00", "2020-01-01 01:00:00", "2020-01-01 00:00:00");
+        inTransaction(session -> {
+            HibernateProxyCacheStore store = new HibernateProxyCacheStore(session);
+            store.delete(store.getChunkSizes(1L).keySet());
+            Assertions.assertEquals(0, store.getSize(1L));
+            Assertions.assertEquals(Collections.emptyMap(), store.getChunkSizes());
+        });
+    }
+
+    private void read(long dataset, String start, String end, String now) {
+        try (Session session = getSessionFactory().openSession()) {
+            Transaction transaction = session.beginTransaction();
+            ProxyCache cache =
+                    new ProxyCache(new HibernateProxyCacheStore(session), (d, s, e) -> new ProxyCacheChunkEntity()
+                            .setContent("values".getBytes(StandardCharsets.UTF_8)).setValueCount(1), 12);
+            cache.read(session.load(DatasetEntity.class, dataset), Timestamp.valueOf(start), Timestamp.valueOf(end),
+                    new Date(Timestamp.valueOf(now).getTime()));
+            transaction.commit();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
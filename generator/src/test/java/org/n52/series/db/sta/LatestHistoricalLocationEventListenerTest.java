@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.sta;
+
+import java.sql.Timestamp;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.PlatformEntity;
+import org.n52.series.db.beans.sta.HistoricalLocationEntity;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+
+public class LatestHistoricalLocationEventListenerTest extends AbstractTransactionalSchemaTest {
+
+    @BeforeEach
+    public void setUp() {
+        LatestHistoricalLocationEventListener.register(getSessionFactory());
+        inTransaction(session -> execute(session,
+                "insert into platform (platform_id, identifier, sta_identifier) values (1, 't1', 't1'), (2, 't2', 't2')"));
+    }
+
+    @Test
+    public void test_saved_historical_locations_update_the_latest_one() {
+        long second = save(1, "h2", "2020-01-15 11:00:00");
+        save(1, "h1", "2020-01-15 10:00:00");
+        save(2, "h3", "2020-01-15 09:00:00");
+        Assertions.assertEquals(Long.valueOf(second), getLatest(1));
+        long third = save(1, "h4", "2020-01-15 12:00:00");
+        Assertions.assertEquals(Long.valueOf(third), getLatest(1));
+        Assertions.assertNotNull(getLatest(2));
+    }
+
+    @Test
+    public void test_deleting_the_latest_historical_location_reassigns_the_previous_one() {
+        long first = save(1, "h1", "2020-01-15 10:00:00");
+        long second = save(1, "h2", "2020-01-15 11:00:00");
+        delete(second);
+        Assertions.assertEquals(Long.valueOf(first), getLatest(1));
+        delete(first);
+        Assertions.assertNull(getLatest(1));
+    }
+
+    @Test
+    public void test_rolled_back_historical_locations_are_not_referenced() {
+        try (Session session = getSessionFactory().openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.save(create(session, 1, "h1", "2020-01-15 10:00:00"));
+            session.flush();
+            transaction.rollback();
+        }
+        Assertions.assertNull(getLatest(1));
+        save(1, "h2", "2020-01-15 11:00:00");
+        Assertions.assertNotNull(getLatest(1));
+    }
+
+    @Test
+    public void test_all_latest_historical_locations_are_backfilled() {
+        inTransaction(session -> execute(session,
+                "insert into historical_location (historical_location_id, identifier, sta_identifier, fk_thing_id, "
+                        + "time) values (10, 'h10', 'h10', 1, timestamp '2020-01-15 10:00:00'), (11, 'h11', 'h11', "
+                        + "1, timestamp '2020-01-15 12:00:00'), (12, 'h12', 'h12', 1, timestamp '2020-01-15 "
+                        + "11:00:00')"));
+        Assertions.assertNull(getLatest(1));
+        inTransaction(session -> session.createNamedQuery(PlatformEntity.QUERY_UPDATE_ALL_LATEST_HISTORICAL_LOCATIONS)
+                .executeUpdate());
+        Assertions.assertEquals(Long.valueOf(11), getLatest(1));
+        Assertions.assertNull(getLatest(2));
+    }
+
+    private HistoricalLocationEntity create(Session session, long thing, String identifier, String time) {
+        HistoricalLocationEntity historicalLocation = new HistoricalLocationEntity();
+        historicalLocation.setIdentifier(identifier);
+        historicalLocation.setStaIdentifier(identifier);
+        historicalLocation.setTime(Timestamp.valueOf(time));
+        historicalLocation.setThing(session.load(PlatformEntity.class, thing));
+        return historicalLocation;
+    }
+
+    private long save(long thing, String identifier, String time) {
+        long[] id = new long[1];
+        inTransaction(session -> id[0] = (Long) session.save(create(session, thing, identifier, time)));
+        return id[0];
+    }
+
+    private void delete(long id) {
+        inTransaction(session -> session.delete(session.get(HistoricalLocationEntity.class, id)));
+    }
+
+    private Long getLatest(long thing) {
+        Long[] latest = new Long[1];
+        inTransaction(session -> {
+            HistoricalLocationEntity historicalLocation =
+                    session.get(PlatformEntity.class, thing).getLatestHistoricalLocation();
+            latest[0] = historicalLocation != null ? historicalLocation.getId() : null;
+        });
+        return latest[0];
+    }
+
+}
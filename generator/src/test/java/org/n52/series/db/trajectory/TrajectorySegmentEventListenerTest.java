@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.series.db.trajectory;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.GeometryEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.TrajectorySegmentEntity;
+import org.n52.series.db.deletion.AbstractTransactionalSchemaTest;
+
+public class TrajectorySegmentEventListenerTest extends AbstractTransactionalSchemaTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    @BeforeEach
+    public void setUp() {
+        TrajectorySegmentEventListener.register(getSessionFactory(), HOUR);
+        inTransaction(session -> execute(session, "update dataset set is_mobile = 1 where dataset_id = 1"));
+    }
+
+    @Test
+    public void test_positions_are_merged_into_segments_on_commit() {
+        insert(1, "2020-01-15 10:10:00", 1, 1);
+        insert(2, "2020-01-15 10:05:00", 2, 2);
+        insert(3, "2020-01-15 11:05:00", 3, 3);
+        insert(4, "2020-01-15 10:20:00", 4, 4);
+        inTransaction(session -> {
+            Assertions.assertEquals(2, count(session, "trajectory_segment"));
+            TrajectorySegmentEntity segment = session
+                    .createNamedQuery(TrajectorySegmentEntity.QUERY_SEGMENT, TrajectorySegmentEntity.class)
+                    .setParameter(TrajectorySegmentEntity.PARAMETER_DATASET, 1L)
+                    .setParameter(TrajectorySegmentEntity.PARAMETER_START, Timestamp.valueOf("2020-01-15 10:00:00"))
+                    .uniqueResult();
+            Assertions.assertEquals(3, segment.getPositions());
+            Coordinate[] coordinates = segment.getCoordinates();
+            Assertions.assertEquals(2, coordinates[0].getX(), 0);
+            Assertions.assertEquals(1, coordinates[1].getX(), 0);
+            Assertions.assertEquals(4, coordinates[2].getX(), 0);
+        });
+    }
+
+    @Test
+    public void test_stationary_datasets_are_ignored() {
+        inTransaction(session -> execute(session, "update dataset set is_mobile = 0 where dataset_id = 1"));
+        insert(1, "2020-01-15 10:10:00", 1, 1);
+        inTransaction(session -> Assertions.assertEquals(0, count(session, "trajectory_segment")));
+    }
+
+    private void insert(long id, String time, double x, double y) {
+        try (Session session = getSessionFactory().openSession()) {
+            Transaction transaction = session.beginTransaction();
+            QuantityDataEntity data = new QuantityDataEntity();
+            data.setDataset(session.load(DatasetEntity.class, 1L));
+            data.setSamplingTimeStart(Timestamp.valueOf(time));
+            data.setSamplingTimeEnd(Timestamp.valueOf(time));
+            data.setStaIdentifier("o" + id);
+            data.setValue(BigDecimal.valueOf(x));
+            GeometryEntity geometry = new GeometryEntity();
+            geometry.setGeometry(factory.createPoint(new Coordinate(x, y)));
+            data.setGeometryEntity(geometry);
+            session.save(data);
+            transaction.commit();
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.type;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.jdbc.CharacterStream;
+import org.hibernate.engine.jdbc.internal.CharacterStreamImpl;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.AbstractTypeDescriptor;
+import org.hibernate.type.descriptor.java.DataHelper;
+
+/**
+ * Java type descriptor of {@link CompressedTextType}. Values longer than {@link #MIN_COMPRESSION_LENGTH}
+ * characters are GZIP compressed, Base64 encoded and prefixed with the format marker {@link #GZIP_MARKER},
+ * which neither XML nor JSON documents start with. Shorter values are stored unchanged, unless they start
+ * with the marker themselves, so every written value starting with the marker is compressed. Values read
+ * without the marker and values starting with the marker which are not compressed, e.g. rows written before,
+ * are passed through unchanged.
+ *
+ * @since 3.0.0
+ */
+public class CompressedStringTypeDescriptor extends AbstractTypeDescriptor<String> {
+
+    public static final CompressedStringTypeDescriptor INSTANCE = new CompressedStringTypeDescriptor();
+
+    /**
+     * Format marker of compressed values.
+     */
+    public static final String GZIP_MARKER = "{gzip}";
+
+    /**
+     * Minimum length of values to compress, shorter values do not benefit from the compression.
+     */
+    public static final int MIN_COMPRESSION_LENGTH = 1024;
+
+    private static final long serialVersionUID = 6390617458917240862L;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public CompressedStringTypeDescriptor() {
+        super(String.class);
+    }
+
+    @Override
+    public String toString(String value) {
+        return value;
+    }
+
+    @Override
+    public String fromString(String string) {
+        return string;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <X> X unwrap(String value, Class<X> type, WrapperOptions options) {
+        if (value == null) {
+            return null;
+        }
+        if (String.class.isAssignableFrom(type)) {
+            return (X) compress(value);
+        }
+        if (Reader.class.isAssignableFrom(type)) {
+            return (X) new StringReader(compress(value));
+        }
+        if (CharacterStream.class.isAssignableFrom(type)) {
+            return (X) new CharacterStreamImpl(compress(value));
+        }
+        if (Clob.class.isAssignableFrom(type)) {
+            return (X) options.getLobCreator().createClob(compress(value));
+        }
+        throw unknownUnwrap(type);
+    }
+
+    @Override
+    public <X> String wrap(X value, WrapperOptions options) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            return decompress((String) value);
+        }
+        if (value instanceof Reader) {
+            return decompress(DataHelper.extractString((Reader) value));
+        }
+        if (value instanceof Clob) {
+            try {
+                return decompress(DataHelper.extractString(((Clob) value).getCharacterStream()));
+            } catch (SQLException e) {
+                throw new HibernateException("Unable to access clob stream", e);
+            }
+        }
+        throw unknownWrap(value.getClass());
+    }
+
+    /**
+     * Compress the value if it is longer than {@link #MIN_COMPRESSION_LENGTH} or starts with the
+     * {@link #GZIP_MARKER}.
+     *
+     * @param value
+     *            the value
+     * @return the compressed value with the format marker or the value
+     */
+    public static String compress(String value) {
+        if (value == null || value.length() < MIN_COMPRESSION_LENGTH && !value.startsWith(GZIP_MARKER)) {
+            return value;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length() / 4);
+        try (OutputStream out = new GZIPOutputStream(bytes, BUFFER_SIZE)) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new HibernateException("Unable to compress value", e);
+        }
+        return GZIP_MARKER + Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decompress the value if it starts with the {@link #GZIP_MARKER}. Values starting with the marker which
+     * are not Base64 encoded GZIP data are returned unchanged.
+     *
+     * @param value
+     *            the stored value
+     * @return the decompressed value or the value
+     */
+    public static String decompress(String value) {
+        if (value == null || !value.startsWith(GZIP_MARKER)) {
+            return value;
+        }
+        byte[] compressed;
+        try {
+            compressed = Base64.getDecoder().decode(value.substring(GZIP_MARKER.length()));
+        } catch (IllegalArgumentException e) {
+            return value;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(compressed.length * 4);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed), BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } catch (ZipException e) {
+            return value;
+        } catch (IOException e) {
+            throw new HibernateException("Unable to decompress value", e);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.type;
+
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.descriptor.sql.LongVarcharTypeDescriptor;
+
+/**
+ * Text type which stores large values compressed in the text column of the <code>text</code> type, e.g. XML
+ * encoded procedure descriptions or features. Values without the format marker, e.g. existing rows, are read
+ * as they are, so the type can replace the <code>text</code> type without migrating the data.
+ *
+ * @see CompressedStringTypeDescriptor
+ * @since 3.0.0
+ */
+public class CompressedTextType extends AbstractSingleColumnStandardBasicType<String> {
+
+    public static final CompressedTextType INSTANCE = new CompressedTextType();
+
+    private static final long serialVersionUID = -2374019735291052389L;
+
+    private String name = "compressed_text";
+
+    public CompressedTextType() {
+        super(LongVarcharTypeDescriptor.INSTANCE, CompressedStringTypeDescriptor.INSTANCE);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.type;
+
+import java.sql.CallableStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.hibernate.type.descriptor.ValueExtractor;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.JavaTypeDescriptor;
+import org.hibernate.type.descriptor.sql.SmallIntTypeDescriptor;
+
+/**
+ * Flag type for <code>boolean</code> properties of nullable <code>smallint</code> flag columns. Like the
+ * {@link SmallBooleanType}, <code>true</code> is stored as <code>1</code> and <code>false</code> as
+ * <code>0</code>, but <code>null</code> values are read as <code>false</code> instead of failing to set a
+ * primitive property. The values are the cached <code>Boolean</code> constants, so no object is allocated per
+ * row.
+ *
+ * @since 3.0.0
+ */
+public class SmallFlagType extends SmallBooleanType {
+
+    public static final SmallFlagType INSTANCE = new SmallFlagType();
+
+    private static final long serialVersionUID = -4627181392750371740L;
+
+    private String name = "small_flag";
+
+    public SmallFlagType() {
+        setSqlTypeDescriptor(FlagTypeDescriptor.INSTANCE);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    private static class FlagTypeDescriptor extends SmallIntTypeDescriptor {
+
+        private static final FlagTypeDescriptor INSTANCE = new FlagTypeDescriptor();
+
+        private static final long serialVersionUID = 2316728790941458206L;
+
+        @Override
+        public <X> ValueExtractor<X> getExtractor(JavaTypeDescriptor<X> javaTypeDescriptor) {
+            return new ValueExtractor<X>() {
+                @Override
+                public X extract(ResultSet rs, String name, WrapperOptions options) throws SQLException {
+                    return wrap(rs.getShort(name), options);
+                }
+
+                @Override
+                public X extract(CallableStatement statement, int index, WrapperOptions options) throws SQLException {
+                    return wrap(statement.getShort(index), options);
+                }
+
+                @Override
+                public X extract(CallableStatement statement, String[] paramNames, WrapperOptions options)
+                        throws SQLException {
+                    return wrap(statement.getShort(paramNames[0]), options);
+                }
+
+                private X wrap(short value, WrapperOptions options) {
+                    // null is read as 0 by the driver
+                    return javaTypeDescriptor.wrap(value != 0 ? Boolean.TRUE : Boolean.FALSE, options);
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015-2020 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.hibernate.type;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+
+import java.util.Collections;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+public class CompressedStringTypeDescriptorTest {
+
+    private static final String LONG_VALUE = "<xml>" + String.join("", Collections.nCopies(500, "value")) + "</xml>";
+
+    @Test
+    public void when_longValue_then_valueIsCompressedAndRestored() {
+        String stored = CompressedStringTypeDescriptor.compress(LONG_VALUE);
+
+        MatcherAssert.assertThat(stored, startsWith(CompressedStringTypeDescriptor.GZIP_MARKER));
+        MatcherAssert.assertThat(CompressedStringTypeDescriptor.decompress(stored), is(LONG_VALUE));
+    }
+
+    @Test
+    public void when_shortValue_then_valueIsStoredUnchanged() {
+        MatcherAssert.assertThat(CompressedStringTypeDescriptor.compress("<xml/>"), is("<xml/>"));
+        MatcherAssert.assertThat(CompressedStringTypeDescriptor.decompress("<xml/>"), is("<xml/>"));
+    }
+
+    @Test
+    public void when_shortValueStartsWithMarker_then_valueIsCompressedAndRestored() {
+        String value = CompressedStringTypeDescriptor.GZIP_MARKER + "text";
+        String stored = CompressedStringTypeDescriptor.compress(value);
+
+        MatcherAssert.assertThat(stored.equals(value), is(false));
+        MatcherAssert.assertThat(CompressedStringTypeDescriptor.decompress(stored), is(value));
+    }
+
+    @Test
+    public void when_legacyValueStartsWithMarker_then_valueIsReadUnchanged() {
+        String notBase64 = CompressedStringTypeDescriptor.GZIP_MARKER + "<xml/>";
+        String notGzip = CompressedStringTypeDescriptor.GZIP_MARKER + "dGV4dA==";
+
+        MatcherAssert.assertThat(CompressedStringTypeDescriptor.decompress(notBase64), is(notBase64));
+        MatcherAssert.assertThat(CompressedStringTypeDescriptor.decompress(notGzip), is(notGzip));
+    }
+
+    @Test
+    public void when_legacyValueWithoutMarker_then_valueIsReadUnchanged() {
+        MatcherAssert.assertThat(CompressedStringTypeDescriptor.decompress(LONG_VALUE), is(LONG_VALUE));
+    }
+
+}